@@ -119,6 +119,27 @@ public class PackFile implements Serializable
      */
     private String condition = null;
 
+    /**
+     * The content hash of the file. May be {@code null}.
+     */
+    private byte[] hash;
+
+    /**
+     * The content hash of the file the delta applies to, if the file is stored as a delta against a previously
+     * installed version.
+     */
+    private byte[] baseHash;
+
+    /**
+     * The length of the stored delta, or <tt>-1</tt> if the file is stored in full.
+     */
+    private long deltaLength = -1;
+
+    /**
+     * Determines if the file is unchanged from the previously installed version, and has no stored content.
+     */
+    private boolean unchanged;
+
     /**
      * Constructs and initializes from a source file.
      *
@@ -154,6 +175,41 @@ public class PackFile implements Serializable
             throw new FileNotFoundException("No such file: " + src);
         }
 
+        init(src.getPath(), relativeSourcePath, target, osList, override, overrideRenameTo, blockable, additionals,
+             src.length(), src.lastModified(), src.isDirectory());
+    }
+
+    /**
+     * Constructs and initializes from content that is not a file, such as an entry of an archive.
+     *
+     * @param sourcePath         a description of the source of the content
+     * @param relativeSourcePath the source path relative to the compiletime's basedirectory. May be {@code null}
+     * @param target             the path to install the file to
+     * @param length             the length of the content in bytes
+     * @param lastModified       the last-modification time of the content
+     * @param isDirectory        determines if the content is a directory
+     * @param osList             OS constraints
+     * @param override           what to do when the file already exists
+     * @param overrideRenameTo   the globmapper expression to rename the file to if it already exists. May be
+     *                           {@code null}
+     * @param blockable          determines if the file may be blocked by the operating system
+     * @param additionals        additional attributes
+     */
+    public PackFile(String sourcePath, String relativeSourcePath, String target, long length, long lastModified,
+                    boolean isDirectory, List<OsModel> osList, OverrideType override, String overrideRenameTo,
+                    Blockable blockable, Map additionals)
+    {
+        init(sourcePath, relativeSourcePath, target, osList, override, overrideRenameTo, blockable, additionals,
+             length, lastModified, isDirectory);
+    }
+
+    /**
+     * Initializes this.
+     */
+    private void init(String sourcePath, String relativeSourcePath, String target, List<OsModel> osList,
+                      OverrideType override, String overrideRenameTo, Blockable blockable, Map additionals,
+                      long length, long lastModified, boolean isDirectory)
+    {
         if ('/' != File.separatorChar)
         {
             target = target.replace(File.separatorChar, '/');
@@ -163,7 +219,7 @@ public class PackFile implements Serializable
             target = target.substring(0, target.length() - 1);
         }
 
-        this.sourcePath = src.getPath().replace(File.separatorChar, '/');
+        this.sourcePath = sourcePath.replace(File.separatorChar, '/');
         this.relativePath = (relativeSourcePath != null) ? relativeSourcePath.replace(File.separatorChar, '/') : relativeSourcePath;
 
         this.targetPath = (target != null) ? target.replace(File.separatorChar, '/') : target;
@@ -172,17 +228,17 @@ public class PackFile implements Serializable
         this.overrideRenameTo = overrideRenameTo;
         this.blockable = blockable;
 
-        this.length = src.length();
+        this.length = length;
         this.size = this.length;
-        this.mtime = src.lastModified();
-        this.isDirectory = src.isDirectory();
+        this.mtime = lastModified;
+        this.isDirectory = isDirectory;
         this.additionals = additionals;
 
         // File.length is undefined for directories - we don't add any data, so don't skip
         // any please!
         if (isDirectory)
         {
-            length = 0;
+            this.length = 0;
         }
     }
 
@@ -347,4 +403,101 @@ public class PackFile implements Serializable
             length = 0;
         }
     }
+
+    /**
+     * Returns the content hash of the file.
+     *
+     * @return the content hash. May be {@code null}
+     */
+    public byte[] getHash()
+    {
+        return hash;
+    }
+
+    /**
+     * Sets the content hash of the file.
+     *
+     * @param hash the content hash. May be {@code null}
+     */
+    public void setHash(byte[] hash)
+    {
+        this.hash = hash;
+    }
+
+    /**
+     * Determines if the file is stored as a delta against a previously installed version.
+     *
+     * @return {@code true} if the file is stored as a delta
+     */
+    public boolean isDelta()
+    {
+        return deltaLength != -1;
+    }
+
+    /**
+     * Returns the content hash of the file the delta applies to.
+     *
+     * @return the base content hash, or {@code null} if the file isn't stored as a delta
+     */
+    public byte[] getBaseHash()
+    {
+        return baseHash;
+    }
+
+    /**
+     * Returns the length of the stored delta.
+     *
+     * @return the delta length, or <tt>-1</tt> if the file isn't stored as a delta
+     */
+    public long getDeltaLength()
+    {
+        return deltaLength;
+    }
+
+    /**
+     * Marks the file as stored as a delta against a previously installed version.
+     *
+     * @param baseHash    the content hash of the file the delta applies to
+     * @param deltaLength the length of the stored delta
+     */
+    public void setDelta(byte[] baseHash, long deltaLength)
+    {
+        this.baseHash = baseHash;
+        this.deltaLength = deltaLength;
+    }
+
+    /**
+     * Determines if the file is unchanged from the previously installed version. Unchanged files have no stored
+     * content.
+     *
+     * @return {@code true} if the file is unchanged
+     */
+    public boolean isUnchanged()
+    {
+        return unchanged;
+    }
+
+    /**
+     * Determines if the file is unchanged from the previously installed version.
+     *
+     * @param unchanged if {@code true}, the file is unchanged and has no stored content
+     */
+    public void setUnchanged(boolean unchanged)
+    {
+        this.unchanged = unchanged;
+    }
+
+    /**
+     * Returns the no. of bytes stored in the pack for this file.
+     *
+     * @return the stored length
+     */
+    public long getStoredLength()
+    {
+        if (unchanged)
+        {
+            return 0;
+        }
+        return isDelta() ? deltaLength : length;
+    }
 }
@@ -0,0 +1,46 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.api.event;
+
+/**
+ * Notifies the no. of bytes processed by an action.
+ * <p/>
+ * A {@link ProgressListener} may also implement this interface, to be informed of progress within the sub-steps
+ * of an action, such as the bytes written while unpacking a large file.
+ */
+public interface ByteProgressListener
+{
+
+    /**
+     * Sets the total no. of bytes to process.
+     *
+     * @param totalBytes the total no. of bytes, or <tt>0</tt> if it is unknown
+     */
+    void setTotalBytes(long totalBytes);
+
+    /**
+     * Adds to the no. of bytes processed.
+     * <p/>
+     * This may be invoked from any thread.
+     *
+     * @param count the no. of bytes processed since the last call
+     */
+    void addBytes(long count);
+}
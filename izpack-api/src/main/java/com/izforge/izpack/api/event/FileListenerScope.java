@@ -0,0 +1,112 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.api.event;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Describes the file and directory notifications that a {@link ScopedFileListener} should receive.
+ * <p/>
+ * A scope restricts notifications by event, and by the path of the installed file or directory.
+ * Paths are matched against Ant-style patterns, e.g. <tt>**&#47;*.sh</tt>, relative to the installation path.
+ * Files installed outside of the installation path are matched on their absolute path.
+ */
+public class FileListenerScope
+{
+
+    /**
+     * The file and directory events.
+     */
+    public enum Event
+    {
+        BEFORE_DIR, AFTER_DIR, BEFORE_FILE, AFTER_FILE
+    }
+
+    /**
+     * A scope that receives all notifications.
+     */
+    public static final FileListenerScope ALL = new FileListenerScope(EnumSet.allOf(Event.class), null);
+
+    /**
+     * A scope that receives no notifications.
+     */
+    public static final FileListenerScope NONE = new FileListenerScope(EnumSet.noneOf(Event.class), null);
+
+    /**
+     * The events.
+     */
+    private final Set<Event> events;
+
+    /**
+     * The path patterns, or {@code null} for all paths.
+     */
+    private final List<String> includes;
+
+
+    /**
+     * Constructs a <tt>FileListenerScope</tt>.
+     *
+     * @param events   the events to receive
+     * @param includes the patterns of the paths to receive events for, or {@code null} for all paths
+     */
+    public FileListenerScope(Set<Event> events, Collection<String> includes)
+    {
+        this.events = events.isEmpty() ? EnumSet.noneOf(Event.class) : EnumSet.copyOf(events);
+        this.includes = (includes != null) ? Collections.unmodifiableList(new ArrayList<String>(includes)) : null;
+    }
+
+    /**
+     * Returns the events to receive.
+     *
+     * @return the events
+     */
+    public Set<Event> getEvents()
+    {
+        return Collections.unmodifiableSet(events);
+    }
+
+    /**
+     * Returns the patterns of the paths to receive events for.
+     *
+     * @return the path patterns, or {@code null} for all paths
+     */
+    public List<String> getIncludes()
+    {
+        return includes;
+    }
+
+    /**
+     * Determines if the scope includes an event.
+     *
+     * @param event the event
+     * @return <tt>true</tt> if the listener should receive the event, subject to {@link #getIncludes() path
+     *         patterns}
+     */
+    public boolean includes(Event event)
+    {
+        return events.contains(event);
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.api.event;
+
+import com.izforge.izpack.api.data.Pack;
+
+
+/**
+ * An {@link InstallerListener} that only needs some file and directory notifications.
+ * <p/>
+ * By default, a listener whose {@link InstallerListener#isFileListener() isFileListener()} returns <tt>true</tt> is
+ * notified of every file and directory installed. Implementing this interface restricts the notifications to those
+ * in the listener's {@link FileListenerScope scope}, so that files of no interest to the listener cost nothing to
+ * install.
+ */
+public interface ScopedFileListener
+{
+
+    /**
+     * Returns the file and directory notifications the listener should receive for a pack.
+     * <p/>
+     * This is invoked after {@link InstallerListener#beforePacks}, before the pack's files are installed.
+     *
+     * @param pack the pack
+     * @return the scope of the notifications
+     */
+    FileListenerScope getFileListenerScope(Pack pack);
+}
@@ -42,6 +42,7 @@ import java.io.OutputStreamWriter;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -57,7 +58,6 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
-import java.util.zip.ZipInputStream;
 
 import org.apache.commons.lang.StringUtils;
 
@@ -126,7 +126,6 @@ import com.izforge.izpack.panels.treepacks.PackValidator;
 import com.izforge.izpack.panels.userinput.UserInputPanel;
 import com.izforge.izpack.panels.userinput.field.UserInputPanelSpec;
 import com.izforge.izpack.util.FileUtil;
-import com.izforge.izpack.util.IoHelper;
 import com.izforge.izpack.util.OsConstraintHelper;
 import com.izforge.izpack.util.PlatformModelMatcher;
 import com.izforge.izpack.util.file.DirectoryScanner;
@@ -935,10 +934,14 @@ public class CompilerConfig extends Thread
         {
             try
             {
+                // scan once: each call to getDirectoryScanner() rescans the tree
+                DirectoryScanner scanner = fs.getDirectoryScanner();
                 String[][] includedFilesAndDirs = new String[][]{
-                        fs.getDirectoryScanner().getIncludedDirectories(),
-                        fs.getDirectoryScanner().getIncludedFiles()
+                        scanner.getIncludedDirectories(),
+                        scanner.getIncludedFiles()
                 };
+                logger.info("Adding " + scanner.getIncludedFilesCount() + " files and "
+                                    + scanner.getIncludedDirsCount() + " directories from " + fs.getDir());
                 for (String[] filesOrDirs : includedFilesAndDirs)
                 {
                     if (filesOrDirs != null)
@@ -949,7 +952,7 @@ public class CompilerConfig extends Thread
                             {
                                 File file = new File(fs.getDir(), filePath);
                                 String target = new File(fs.getTargetDir(), filePath).getPath();
-                                logger.info("Adding file: " + file + ", as target file=" + target);
+                                logger.fine("Adding file: " + file + ", as target file=" + target);
                                 pack.addFile(baseDir, file, target, fs.getOsList(),
                                              fs.getOverride(), fs.getOverrideRenameTo(),
                                              fs.getBlockable(), fs.getAdditionals(), fs.getCondition());
@@ -1064,8 +1067,9 @@ public class CompilerConfig extends Thread
                 }
 
                 LinkedList<String> srcfiles = new LinkedList<String>();
-                Collections.addAll(srcfiles, fs.getDirectoryScanner().getIncludedDirectories());
-                Collections.addAll(srcfiles, fs.getDirectoryScanner().getIncludedFiles());
+                DirectoryScanner scanner = fs.getDirectoryScanner();
+                Collections.addAll(srcfiles, scanner.getIncludedDirectories());
+                Collections.addAll(srcfiles, scanner.getIncludedFiles());
                 for (String filePath : srcfiles)
                 {
                     if (!filePath.isEmpty())
@@ -1081,7 +1085,7 @@ public class CompilerConfig extends Thread
                         else
                         {
                             String target = fs.getTargetDir() + "/" + filePath;
-                            logger.info("Adding file: " + abssrcfile + ", as target file=" + target);
+                            logger.fine("Adding file: " + abssrcfile + ", as target file=" + target);
                             pack.addFile(baseDir, abssrcfile, target, fs.getOsList(),
                                          fs.getOverride(), fs.getOverrideRenameTo(), fs.getBlockable(),
                                          fs.getAdditionals(), fs.getCondition());
@@ -1145,6 +1149,12 @@ public class CompilerConfig extends Thread
             val = executableNode.getAttribute("keep");
             executable.keepFile = Boolean.parseBoolean(val);
 
+            // adjacent executables in the same group may be executed concurrently
+            executable.group = executableNode.getAttribute("group");
+
+            // how long to wait for the executable to complete, in seconds
+            executable.timeout = xmlCompilerHelper.getLong(executableNode, "timeout", 0);
+
             // get arguments for this executable
             IXMLElement args = executableNode.getFirstChildNamed("args");
             if (null != args)
@@ -1420,59 +1430,48 @@ public class CompilerConfig extends Thread
                                      String condition) throws IOException
     {
 
-        FileInputStream fin = new FileInputStream(archive);
-        ZipInputStream zin = new ZipInputStream(fin);
-        List<String> allDirList = new ArrayList<String>();
-        while (true)
+        // entries are packed straight from the archive, in archive order, with directories last
+        ZipFile zip = new ZipFile(archive);
+        try
         {
-            ZipEntry zentry = zin.getNextEntry();
-            if (zentry == null)
-            {
-                break;
-            }
-            if (zentry.isDirectory())
+            List<ZipEntry> dirs = new ArrayList<ZipEntry>();
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements())
             {
-                // add to all dir listing/empty dir needs to be handle
-                String dName = zentry.getName().substring(0, zentry.getName().length() - 1);
-                allDirList.add(dName);
-                continue;
+                ZipEntry zentry = entries.nextElement();
+                if (zentry.isDirectory())
+                {
+                    // add to all dir listing/empty dir needs to be handle
+                    dirs.add(zentry);
+                    continue;
+                }
+                String target = targetdir + "/" + zentry.getName();
+                logger.fine("Adding file " + zentry.getName() + " from archive as target file=" + target);
+                pack.addArchiveEntry(baseDir, archive, zentry, target, osList, override, overrideRenameTo,
+                                     blockable, additionals, condition);
             }
 
-            try
+            // This corrects issues that could arise due to subfolders
+            Collections.sort(dirs, new Comparator<ZipEntry>()
             {
-                File temp = FileUtils.createTempFile("izpack", null);
-                temp.deleteOnExit();
-
-                FileOutputStream out = new FileOutputStream(temp);
-                IoHelper.copyStream(zin, out);
-                out.close();
-
-                String target = targetdir + "/" + zentry.getName();
-                logger.info("Adding file " + zentry.getName() + " from archive as target file=" + target);
-                pack.addFile(baseDir, temp, target, osList, override,
-                             overrideRenameTo, blockable, additionals, condition);
-            }
-            catch (IOException e)
+                @Override
+                public int compare(ZipEntry o1, ZipEntry o2)
+                {
+                    return o1.getName().compareTo(o2.getName());
+                }
+            });
+            for (ZipEntry dir : dirs)
             {
-                throw new IOException("Couldn't create temporary file for " + zentry.getName()
-                                              + " in archive " + archive + " (" + e.getMessage() + ")");
+                String target = targetdir + "/" + dir.getName();
+                logger.fine("Adding directory " + dir.getName() + " from archive as target file=" + target);
+                pack.addArchiveEntry(baseDir, archive, dir, target, osList, override, overrideRenameTo,
+                                     blockable, additionals, condition);
             }
-
         }
-
-        // This corrects issues that could arise due to subfolders
-        Collections.sort(allDirList);
-        for (String dirName : allDirList)
+        finally
         {
-            File tmp = new File(dirName);
-            org.apache.commons.io.FileUtils.forceMkdir(tmp);
-            org.apache.commons.io.FileUtils.forceDeleteOnExit(tmp); 
-            String target = targetdir + "/" + dirName;
-            logger.info("Adding file: " + tmp + ", as target file=" + target);
-            pack.addFile(baseDir, tmp, target, osList,
-                         override, overrideRenameTo, blockable, additionals, condition);
+            zip.close();
         }
-        fin.close();
     }
 
     /**
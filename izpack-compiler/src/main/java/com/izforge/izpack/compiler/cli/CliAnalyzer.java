@@ -45,6 +45,7 @@ public class CliAnalyzer {
     private static final String ARG_OUTPUT = "o";
     private static final String ARG_COMPRESSION_FORMAT = "c";
     private static final String ARG_COMPRESSION_LEVEL = "l";
+    private static final String ARG_PATCH_BASE = "p";
 
 
     /**
@@ -66,6 +67,8 @@ public class CliAnalyzer {
                 "default is the internal deflate compression\n");
         options.addOption(ARG_COMPRESSION_LEVEL, true, "compression-level : indicates the level for the used compression format"
                 + " if supported. Only integer are valid\n");
+        options.addOption(ARG_PATCH_BASE, true, "patch-base : the previous installer jar or pack manifest to create a "
+                + "patch installer for. Unchanged files are omitted, and modified files may be stored as deltas\n");
         return options;
     }
 
@@ -110,6 +113,9 @@ public class CliAnalyzer {
         System.out.println("-> Compression : " + result.getComprFormat());
         System.out.println("-> Compr. level: " + result.getComprLevel());
         System.out.println("-> IzPack home : " + CompilerData.IZPACK_HOME);
+        if (result.getPatchBase() != null) {
+            System.out.println("-> Patch base  : " + result.getPatchBase());
+        }
         System.out.println("");
     }
 
@@ -170,6 +176,9 @@ public class CliAnalyzer {
         if (commandLine.hasOption(ARG_KIND)) {
             compilerData.setKind(commandLine.getOptionValue(ARG_KIND).trim());
         }
+        if (commandLine.hasOption(ARG_PATCH_BASE)) {
+            compilerData.setPatchBase(commandLine.getOptionValue(ARG_PATCH_BASE).trim());
+        }
 
         return compilerData;
     }
@@ -90,6 +90,11 @@ public class CompilerData
      */
     private int comprLevel = -1;
 
+    /**
+     * The previous installer or pack manifest to create a patch installer against. May be {@code null}.
+     */
+    private String patchBase;
+
     /**
      * External Information
      */
@@ -228,6 +233,29 @@ public class CompilerData
         this.comprLevel = comprLevel;
     }
 
+    /**
+     * Returns the previous installer or pack manifest that the installer is a patch for.
+     *
+     * @return the patch base, or {@code null} if a full installer should be created
+     */
+    public String getPatchBase()
+    {
+        return patchBase;
+    }
+
+    /**
+     * Sets the previous installer or pack manifest that the installer is a patch for.
+     * <p/>
+     * Files that are unchanged from the patch base are not stored, and large modified files are stored as binary
+     * deltas, where the patch base includes their content.
+     *
+     * @param patchBase the patch base, or {@code null} if a full installer should be created
+     */
+    public void setPatchBase(String patchBase)
+    {
+        this.patchBase = patchBase;
+    }
+
     public Info getExternalInfo()
     {
         return this.externalInfo;
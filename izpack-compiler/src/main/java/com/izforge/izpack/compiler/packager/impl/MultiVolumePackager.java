@@ -22,9 +22,11 @@
 package com.izforge.izpack.compiler.packager.impl;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectOutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
@@ -34,9 +36,11 @@ import org.apache.commons.io.FileUtils;
 import org.apache.tools.zip.ZipEntry;
 
 import com.izforge.izpack.api.adaptator.IXMLElement;
+import com.izforge.izpack.api.data.OverrideType;
 import com.izforge.izpack.api.data.Pack;
 import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.api.data.XPackFile;
+import com.izforge.izpack.api.exception.CompilerException;
 import com.izforge.izpack.compiler.compressor.PackCompressor;
 import com.izforge.izpack.compiler.data.CompilerData;
 import com.izforge.izpack.compiler.listener.PackagerListener;
@@ -50,6 +54,7 @@ import com.izforge.izpack.data.UpdateCheck;
 import com.izforge.izpack.merge.MergeManager;
 import com.izforge.izpack.merge.resolve.MergeableResolver;
 import com.izforge.izpack.util.IoHelper;
+import com.izforge.izpack.util.file.ContentDigest;
 
 
 /**
@@ -176,11 +181,17 @@ public class MultiVolumePackager extends PackagerBase
      * <p/>
      * Pack meta-data is written to the installer jar.
      *
-     * @throws IOException for any I/O error
+     * @throws IOException       for any I/O error
+     * @throws CompilerException if a patch installer was requested, as these aren't supported
      */
     @Override
     protected void writePacks() throws IOException
     {
+        if (getCompilerData().getPatchBase() != null)
+        {
+            throw new CompilerException("Patch installers cannot be created with " + getClass().getSimpleName());
+        }
+
         String classname = getClass().getSimpleName();
 
         // propagate the configuration to the variables, for debugging purposes
@@ -319,19 +330,37 @@ public class MultiVolumePackager extends PackagerBase
         for (PackFile packfile : files)
         {
             XPackFile pf = new XPackFile(packfile);
-            File file = packInfo.getFile(packfile);
-            logger.fine("Next file: " + file.getAbsolutePath());
+            logger.fine("Next file: " + packfile.sourcePath);
 
             if (!pf.isDirectory())
             {
-                if (!pack.isLoose())
+                InputStream in = getInputStream(packInfo, packfile);
+                MessageDigest digest = null;
+                if (pf.override() == OverrideType.OVERRIDE_DIFFERENT)
+                {
+                    // the installer compares the hash with that of any existing file
+                    digest = ContentDigest.create();
+                    in = new DigestInputStream(in, digest);
+                }
+                try
+                {
+                    if (!pack.isLoose())
+                    {
+                        writePackFile(in, volumes, pf);
+                    }
+                    else
+                    {
+                        // just copy the file to the target directory
+                        FileUtils.copyInputStreamToFile(in, new File(targetDir, pf.getRelativeSourcePath()));
+                    }
+                }
+                finally
                 {
-                    writePackFile(file, volumes, pf);
+                    in.close();
                 }
-                else
+                if (digest != null)
                 {
-                    // just copy the file to the target directory
-                    FileUtils.copyFile(file, new File(targetDir, pf.getRelativeSourcePath()));
+                    pf.setHash(digest.digest());
                 }
             }
 
@@ -351,12 +380,13 @@ public class MultiVolumePackager extends PackagerBase
     /**
      * Writes a pack file to the volumes.
      *
-     * @param file     the file to write
+     * @param in       the pack file content
      * @param volumes  the volumes
      * @param packFile the pack file
      * @throws IOException for any I/O error
      */
-    private void writePackFile(File file, FileSpanningOutputStream volumes, XPackFile packFile) throws IOException
+    private void writePackFile(InputStream in, FileSpanningOutputStream volumes, XPackFile packFile)
+            throws IOException
     {
         long beforePosition = volumes.getFilePointer();
         packFile.setArchiveFilePosition(beforePosition);
@@ -364,14 +394,13 @@ public class MultiVolumePackager extends PackagerBase
         // write the file to the volumes
         int volumeCount = volumes.getVolumes();
 
-        FileInputStream in = new FileInputStream(file);
         long bytesWritten = IoHelper.copyStream(in, volumes);
         long afterPosition = volumes.getFilePointer();
         logger.fine("File (" + packFile.sourcePath + ") " + beforePosition + " <-> " + afterPosition);
 
         if (volumes.getFilePointer() != (beforePosition + bytesWritten))
         {
-            logger.fine("file: " + file.getName());
+            logger.fine("file: " + packFile.sourcePath);
             logger.fine("(Filepos/BytesWritten/ExpectedNewFilePos/NewFilePointer) ("
                                 + beforePosition + "/" + bytesWritten + "/" + (beforePosition + bytesWritten)
                                 + "/" + volumes.getFilePointer() + ")");
@@ -381,9 +410,8 @@ public class MultiVolumePackager extends PackagerBase
 
         if (bytesWritten != packFile.length())
         {
-            throw new IOException("File size mismatch when reading " + file);
+            throw new IOException("File size mismatch when reading " + packFile.sourcePath);
         }
-        in.close();
     }
 
 }
\ No newline at end of file
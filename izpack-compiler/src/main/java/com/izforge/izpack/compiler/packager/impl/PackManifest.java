@@ -0,0 +1,622 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.packager.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.util.file.ContentDigest;
+import com.izforge.izpack.util.file.FileUtils;
+
+
+/**
+ * The manifest of the files an installer installs, keyed on their target path.
+ * <p/>
+ * Each installer includes its manifest as the <tt>resources/packs.manifest</tt> entry. When compiling a patch
+ * installer, the manifest of the previous installer is used to omit unchanged files, and to locate the previous
+ * content of modified files so that they can be stored as deltas.
+ */
+public class PackManifest
+{
+
+    /**
+     * The manifest entry name, relative to the installer resources.
+     */
+    public static final String NAME = "packs.manifest";
+
+    /**
+     * The manifest format version.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The entries, keyed on target path. Target paths installed by more than one pack map to {@code null}.
+     */
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+
+    /**
+     * Determines if the installer packs can be read without a pack decoder.
+     */
+    private boolean plainPacks;
+
+    /**
+     * The installer that the manifest was read from, or {@code null} if it was read from a standalone file.
+     */
+    private File installer;
+
+
+    /**
+     * Constructs a <tt>PackManifest</tt>.
+     *
+     * @param plainPacks determines if the installer packs can be read without a pack decoder
+     */
+    public PackManifest(boolean plainPacks)
+    {
+        this.plainPacks = plainPacks;
+    }
+
+    /**
+     * Reads a manifest from an installer jar or standalone manifest file.
+     *
+     * @param file the installer jar or manifest file
+     * @return the manifest
+     * @throws IOException if the file contains no manifest, or for any I/O error
+     */
+    public static PackManifest read(File file) throws IOException
+    {
+        PackManifest result = new PackManifest(false);
+        if (isZip(file))
+        {
+            ZipFile zip = new ZipFile(file);
+            try
+            {
+                ZipEntry entry = zip.getEntry(PackagerBase.RESOURCES_PATH + NAME);
+                if (entry == null)
+                {
+                    throw new IOException(file + " contains no pack manifest. It was built by an earlier compiler");
+                }
+                InputStream in = zip.getInputStream(entry);
+                try
+                {
+                    result.read(in);
+                }
+                finally
+                {
+                    FileUtils.close(in);
+                }
+            }
+            finally
+            {
+                zip.close();
+            }
+            result.installer = file;
+        }
+        else
+        {
+            InputStream in = new FileInputStream(file);
+            try
+            {
+                result.read(in);
+            }
+            finally
+            {
+                FileUtils.close(in);
+            }
+            // no pack content available
+            result.plainPacks = false;
+        }
+        return result;
+    }
+
+    /**
+     * Adds a pack file.
+     *
+     * @param file    the pack file. Directories are ignored
+     * @param pack    the name of the pack the file belongs to
+     * @param content determines if the full content of the file is stored in the pack
+     */
+    public void add(PackFile file, String pack, boolean content)
+    {
+        if (!file.isDirectory())
+        {
+            add(new Entry(file.getTargetPath(), pack, file.length(), file.getHash(), content));
+        }
+    }
+
+    /**
+     * Returns the entry for a target path.
+     *
+     * @param path the target path
+     * @return the corresponding entry, or {@code null} if there is none, or the path is installed by multiple packs
+     */
+    public Entry get(String path)
+    {
+        return entries.get(path);
+    }
+
+    /**
+     * Determines if the content of files can be read from the installer that the manifest belongs to.
+     *
+     * @return {@code true} if file content is available
+     */
+    public boolean hasContent()
+    {
+        return installer != null && plainPacks;
+    }
+
+    /**
+     * Writes the manifest.
+     *
+     * @param out the stream to write to. This is flushed but not closed
+     * @throws IOException for any I/O error
+     */
+    public void write(OutputStream out) throws IOException
+    {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(VERSION);
+        data.writeBoolean(plainPacks);
+        int count = 0;
+        for (Entry entry : entries.values())
+        {
+            if (entry != null)
+            {
+                ++count;
+            }
+        }
+        data.writeInt(count);
+        for (Entry entry : entries.values())
+        {
+            if (entry != null)
+            {
+                data.writeUTF(entry.getPath());
+                data.writeUTF(entry.getPack());
+                data.writeLong(entry.getLength());
+                byte[] hash = entry.getHash();
+                if (hash != null)
+                {
+                    data.writeShort(hash.length);
+                    data.write(hash);
+                }
+                else
+                {
+                    data.writeShort(0);
+                }
+                data.writeBoolean(entry.hasContent());
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Computes the missing content hashes of entries.
+     * <p/>
+     * An installer only records content hashes if they are needed to install it. When it is used as the base of a
+     * patch installer, the hashes of the files whose content it stores are computed from its packs instead.
+     *
+     * @param paths the target paths of the entries to compute hashes for
+     * @throws IOException for any I/O error
+     */
+    public void computeHashes(Collection<String> paths) throws IOException
+    {
+        Map<String, Set<String>> packs = new HashMap<String, Set<String>>();
+        for (String path : paths)
+        {
+            Entry entry = entries.get(path);
+            if (entry != null && entry.getHash() == null && entry.hasContent())
+            {
+                Set<String> set = packs.get(entry.getPack());
+                if (set == null)
+                {
+                    set = new HashSet<String>();
+                    packs.put(entry.getPack(), set);
+                }
+                set.add(path);
+            }
+        }
+        for (Map.Entry<String, Set<String>> pack : packs.entrySet())
+        {
+            read(pack.getKey(), pack.getValue(), new ContentHandler()
+            {
+                public void content(PackFile file, InputStream in) throws IOException
+                {
+                    Entry entry = entries.get(file.getTargetPath());
+                    byte[] hash = digest(in, file.length());
+                    entries.put(entry.getPath(), new Entry(entry.getPath(), entry.getPack(), entry.getLength(), hash,
+                                                           entry.hasContent()));
+                }
+            });
+        }
+    }
+
+    /**
+     * Extracts the content of files from a pack of the installer.
+     *
+     * @param pack  the pack name
+     * @param paths the target paths of the files to extract
+     * @param dir   the directory to extract to
+     * @return the extracted files, keyed on target path. Files that couldn't be located are excluded
+     * @throws IOException for any I/O error
+     */
+    public Map<String, File> extract(String pack, Collection<String> paths, final File dir) throws IOException
+    {
+        final Map<String, File> result = new HashMap<String, File>();
+        read(pack, new HashSet<String>(paths), new ContentHandler()
+        {
+            public void content(PackFile file, InputStream in) throws IOException
+            {
+                File target = File.createTempFile("base", null, dir);
+                copy(in, target, file.length());
+                result.put(file.getTargetPath(), target);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Reads the content of files from a pack of the installer.
+     * <p/>
+     * Nothing is read if the content of files isn't available.
+     *
+     * @param pack      the pack name
+     * @param remaining the target paths of the files to read. Paths are removed as they are encountered
+     * @param handler   the handler to pass the content of each file to
+     * @throws IOException for any I/O error
+     */
+    private void read(String pack, Set<String> remaining, ContentHandler handler) throws IOException
+    {
+        if (!hasContent())
+        {
+            return;
+        }
+        ZipFile zip = new ZipFile(installer);
+        try
+        {
+            ZipEntry entry = zip.getEntry(PackagerBase.RESOURCES_PATH + "packs/pack-" + pack);
+            if (entry == null)
+            {
+                return;
+            }
+            ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(zip.getInputStream(entry)));
+            try
+            {
+                int count = in.readInt();
+                for (int i = 0; i < count && !remaining.isEmpty(); ++i)
+                {
+                    PackFile file = (PackFile) in.readObject();
+                    if (file.isDirectory() || file.isBackReference())
+                    {
+                        continue;
+                    }
+                    if (file.isPack200Jar())
+                    {
+                        in.readInt();
+                    }
+                    else if (remaining.remove(file.getTargetPath()) && !file.isDelta() && !file.isUnchanged())
+                    {
+                        handler.content(file, in);
+                    }
+                    else
+                    {
+                        skip(in, file.getStoredLength());
+                    }
+                }
+            }
+            catch (ClassNotFoundException exception)
+            {
+                throw new IOException("Failed to read pack " + pack + ": " + exception.getMessage());
+            }
+            finally
+            {
+                FileUtils.close(in);
+            }
+        }
+        finally
+        {
+            zip.close();
+        }
+    }
+
+    /**
+     * Reads the manifest entries.
+     *
+     * @param in the stream to read from
+     * @throws IOException for any I/O error
+     */
+    private void read(InputStream in) throws IOException
+    {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        int version = data.readInt();
+        if (version != VERSION)
+        {
+            throw new IOException("Unsupported pack manifest version: " + version);
+        }
+        plainPacks = data.readBoolean();
+        int count = data.readInt();
+        for (int i = 0; i < count; ++i)
+        {
+            String path = data.readUTF();
+            String pack = data.readUTF();
+            long length = data.readLong();
+            byte[] hash = null;
+            int hashLength = data.readUnsignedShort();
+            if (hashLength != 0)
+            {
+                hash = new byte[hashLength];
+                data.readFully(hash);
+            }
+            boolean content = data.readBoolean();
+            add(new Entry(path, pack, length, hash, content));
+        }
+    }
+
+    /**
+     * Adds an entry. If an entry already exists for the path, the path is treated as unknown, as it cannot be
+     * determined which version was installed.
+     *
+     * @param entry the entry to add
+     */
+    private void add(Entry entry)
+    {
+        String path = entry.getPath();
+        if (entries.containsKey(path))
+        {
+            entries.put(path, null);
+        }
+        else
+        {
+            entries.put(path, entry);
+        }
+    }
+
+    /**
+     * Determines if a file is a zip file.
+     *
+     * @param file the file
+     * @return {@code true} if the file starts with the zip signature
+     * @throws IOException for any I/O error
+     */
+    private static boolean isZip(File file) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try
+        {
+            return in.readInt() == 0x504B0304;
+        }
+        catch (IOException exception)
+        {
+            return false;
+        }
+        finally
+        {
+            FileUtils.close(in);
+        }
+    }
+
+    /**
+     * Copies bytes from a stream to a file.
+     *
+     * @param in     the stream to read from
+     * @param target the file to write to
+     * @param length the no. of bytes to copy
+     * @throws IOException for any I/O error
+     */
+    private static void copy(InputStream in, File target, long length) throws IOException
+    {
+        OutputStream out = new FileOutputStream(target);
+        try
+        {
+            byte[] buffer = new byte[65536];
+            while (length > 0)
+            {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, length));
+                if (read == -1)
+                {
+                    throw new IOException("Unexpected end of pack");
+                }
+                out.write(buffer, 0, read);
+                length -= read;
+            }
+        }
+        finally
+        {
+            FileUtils.close(out);
+        }
+    }
+
+    /**
+     * Computes the content hash of bytes read from a stream.
+     *
+     * @param in     the stream to read from
+     * @param length the no. of bytes to read
+     * @return the content hash
+     * @throws IOException for any I/O error
+     */
+    private static byte[] digest(InputStream in, long length) throws IOException
+    {
+        MessageDigest digest = ContentDigest.create();
+        byte[] buffer = new byte[65536];
+        while (length > 0)
+        {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, length));
+            if (read == -1)
+            {
+                throw new IOException("Unexpected end of pack");
+            }
+            digest.update(buffer, 0, read);
+            length -= read;
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Skips bytes in a stream.
+     *
+     * @param in    the stream
+     * @param bytes the no. of bytes to skip
+     * @throws IOException for any I/O error
+     */
+    private static void skip(InputStream in, long bytes) throws IOException
+    {
+        while (bytes > 0)
+        {
+            long skipped = in.skip(bytes);
+            if (skipped <= 0)
+            {
+                throw new IOException("Unexpected end of pack");
+            }
+            bytes -= skipped;
+        }
+    }
+
+    /**
+     * Handles the content of files read from a pack.
+     */
+    private interface ContentHandler
+    {
+
+        /**
+         * Invoked to handle the content of a file.
+         *
+         * @param file the pack file
+         * @param in   the stream to read the content from. Exactly {@link PackFile#length()} bytes must be read
+         * @throws IOException for any I/O error
+         */
+        void content(PackFile file, InputStream in) throws IOException;
+    }
+
+    /**
+     * A manifest entry.
+     */
+    public static class Entry
+    {
+
+        /**
+         * The target path.
+         */
+        private final String path;
+
+        /**
+         * The name of the pack that installs the file.
+         */
+        private final String pack;
+
+        /**
+         * The file length.
+         */
+        private final long length;
+
+        /**
+         * The content hash. May be {@code null}.
+         */
+        private final byte[] hash;
+
+        /**
+         * Determines if the full content of the file is stored in the pack.
+         */
+        private final boolean content;
+
+        /**
+         * Constructs an <tt>Entry</tt>.
+         *
+         * @param path    the target path
+         * @param pack    the name of the pack that installs the file
+         * @param length  the file length
+         * @param hash    the content hash. May be {@code null}
+         * @param content determines if the full content of the file is stored in the pack
+         */
+        public Entry(String path, String pack, long length, byte[] hash, boolean content)
+        {
+            this.path = path;
+            this.pack = pack;
+            this.length = length;
+            this.hash = hash;
+            this.content = content;
+        }
+
+        /**
+         * Returns the target path.
+         *
+         * @return the target path
+         */
+        public String getPath()
+        {
+            return path;
+        }
+
+        /**
+         * Returns the name of the pack that installs the file.
+         *
+         * @return the pack name
+         */
+        public String getPack()
+        {
+            return pack;
+        }
+
+        /**
+         * Returns the file length.
+         *
+         * @return the file length
+         */
+        public long getLength()
+        {
+            return length;
+        }
+
+        /**
+         * Returns the content hash.
+         *
+         * @return the content hash, or {@code null} if it wasn't recorded
+         */
+        public byte[] getHash()
+        {
+            return hash;
+        }
+
+        /**
+         * Determines if the full content of the file is stored in the pack.
+         *
+         * @return {@code true} if the content is stored
+         */
+        public boolean hasContent()
+        {
+            return content;
+        }
+    }
+}
@@ -22,20 +22,27 @@ package com.izforge.izpack.compiler.packager.impl;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.Pack200;
 
 import com.izforge.izpack.api.adaptator.IXMLElement;
 import com.izforge.izpack.api.adaptator.impl.XMLElementImpl;
+import com.izforge.izpack.api.data.OverrideType;
 import com.izforge.izpack.api.data.Pack;
 import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.compiler.compressor.PackCompressor;
@@ -51,6 +58,9 @@ import com.izforge.izpack.data.UpdateCheck;
 import com.izforge.izpack.merge.MergeManager;
 import com.izforge.izpack.merge.resolve.MergeableResolver;
 import com.izforge.izpack.util.IoHelper;
+import com.izforge.izpack.util.file.BinaryDelta;
+import com.izforge.izpack.util.file.ContentDigest;
+import com.izforge.izpack.util.file.FileUtils;
 
 /**
  * The packager class. The packager is used by the compiler to put files into an installer, and
@@ -68,6 +78,17 @@ public class Packager extends PackagerBase
      */
     private final OutputStream outputStream;
 
+    /**
+     * The minimum size of a modified file before it is considered for storage as a delta.
+     */
+    private static final long DELTA_THRESHOLD = 1024 * 1024;
+
+    /**
+     * Content hashes of files and archive entries already packed, to avoid rehashing content included in multiple
+     * packs.
+     */
+    private final Map<Object, byte[]> hashes = new HashMap<Object, byte[]>();
+
 
     /**
      * Constructs a <tt>Packager</tt>.
@@ -104,8 +125,8 @@ public class Packager extends PackagerBase
         final int num = packs.size();
         sendMsg("Writing " + num + " Pack" + (num > 1 ? "s" : "") + " into installer");
 
-        // Map to remember pack number and bytes offsets of back references
-        Map<File, Object[]> storedFiles = new HashMap<File, Object[]>();
+        // Map to remember pack number and bytes offsets of back references, keyed on file or archive entry
+        Map<Object, Object[]> storedFiles = new HashMap<Object, Object[]>();
 
         // Pack200 files map
         Map<Integer, File> pack200Map = new HashMap<Integer, File>();
@@ -121,6 +142,14 @@ public class Packager extends PackagerBase
         int packNumber = 0;
         IXMLElement root = new XMLElementImpl("packs");
 
+        // the manifest of the installer being patched, if any, and the manifest of this installer
+        PackManifest base = getPatchBase();
+        if (base != null)
+        {
+            base.computeHashes(getTargetPaths(packs));
+        }
+        PackManifest manifest = new PackManifest(getCompressor().useStandardCompression() && !packSeparateJars());
+
         for (PackInfo packInfo : packs)
         {
             Pack pack = packInfo.getPack();
@@ -147,38 +176,93 @@ public class Packager extends PackagerBase
             ByteCountingOutputStream dos = new ByteCountingOutputStream(outputStream);
             ObjectOutputStream objOut = new ObjectOutputStream(dos);
 
+            // determine which files are compressed with pack200, and the content hashes of those that need them
+            for (PackFile packFile : packInfo.getPackFiles())
+            {
+                File file = packInfo.getFile(packFile);
+                if (!packFile.isDirectory())
+                {
+                    if (file != null && file.getName().toLowerCase().endsWith(".jar")
+                            && getInfo().isPack200Compression() && isNotSignedJar(file))
+                    {
+                        // pack200 doesn't preserve the jar content, so there is nothing to compare
+                        packFile.setPack200Jar(true);
+                    }
+                    else if (base != null || packFile.override() == OverrideType.OVERRIDE_DIFFERENT)
+                    {
+                        packFile.setHash(getHash(packInfo, packFile));
+                    }
+                }
+            }
+
+            // extract the previous content of large modified files, so they can be stored as deltas
+            File baseDir = null;
+            Map<String, File> baseFiles = new HashMap<String, File>();
+            if (base != null && base.hasContent() && !pack.isLoose())
+            {
+                baseDir = createTempDirectory();
+                baseFiles = extractDeltaBases(base, packInfo, baseDir);
+            }
+
             // We write the actual pack files
             objOut.writeInt(packInfo.getPackFiles().size());
 
             for (PackFile packFile : packInfo.getPackFiles())
             {
                 boolean addFile = !pack.isLoose();
-                boolean pack200 = false;
+                boolean pack200 = packFile.isPack200Jar();
                 File file = packInfo.getFile(packFile);
-
-                if (file.getName().toLowerCase().endsWith(".jar") && getInfo().isPack200Compression()
-                        && isNotSignedJar(file))
-                {
-                    packFile.setPack200Jar(true);
-                    pack200 = true;
-                }
+                Object source = (file != null) ? file : packInfo.getArchiveEntry(packFile);
+                File delta = null;
 
                 // use a back reference if file was in previous pack, and in
                 // same jar
-                Object[] info = storedFiles.get(file);
+                Object[] info = storedFiles.get(source);
                 if (info != null && !packSeparateJars())
                 {
                     packFile.setPreviousPackFileRef((String) info[0], (Long) info[1]);
                     addFile = false;
                 }
+                else if (addFile && base != null && !packFile.isDirectory() && packFile.getHash() != null
+                        && packFile.overrideRenameTo() == null)
+                {
+                    PackManifest.Entry previous = base.get(packFile.getTargetPath());
+                    if (previous != null && previous.getLength() == packFile.length()
+                            && Arrays.equals(previous.getHash(), packFile.getHash()))
+                    {
+                        packFile.setUnchanged(true);
+                        addFile = false;
+                    }
+                    else if (previous != null && file != null && baseFiles.containsKey(packFile.getTargetPath()))
+                    {
+                        delta = createDelta(baseFiles.get(packFile.getTargetPath()), file, packFile, baseDir);
+                        if (delta != null)
+                        {
+                            packFile.setDelta(previous.getHash(), delta.length());
+                        }
+                    }
+                }
 
                 objOut.writeObject(packFile); // base info
+                manifest.add(packFile, pack.getName(), addFile && !packFile.isDelta());
 
                 if (addFile && !packFile.isDirectory())
                 {
                     long pos = dos.getByteCount(); // get the position
 
-                    if (pack200)
+                    if (delta != null)
+                    {
+                        FileInputStream inStream = new FileInputStream(delta);
+                        long bytesWritten = IoHelper.copyStream(inStream, objOut);
+                        inStream.close();
+                        if (bytesWritten != packFile.getDeltaLength())
+                        {
+                            throw new IOException("Delta size mismatch when reading " + delta);
+                        }
+                        sendMsg("Stored " + packFile.getTargetPath() + " as a delta of " + bytesWritten + " bytes",
+                                PackagerListener.MSG_VERBOSE);
+                    }
+                    else if (pack200)
                     {
                         /*
                          * Warning!
@@ -194,16 +278,19 @@ public class Packager extends PackagerBase
                     }
                     else
                     {
-                        FileInputStream inStream = new FileInputStream(file);
+                        InputStream inStream = getInputStream(packInfo, packFile);
                         long bytesWritten = IoHelper.copyStream(inStream, objOut);
                         inStream.close();
                         if (bytesWritten != packFile.length())
                         {
-                            throw new IOException("File size mismatch when reading " + file);
+                            throw new IOException("File size mismatch when reading " + source);
                         }
                     }
 
-                    storedFiles.put(file, new Object[]{pack.getName(), pos}); // TODO - see IZPACK-799
+                    if (delta == null)
+                    {
+                        storedFiles.put(source, new Object[]{pack.getName(), pos}); // TODO - see IZPACK-799
+                    }
                 }
 
                 // even if not written, it counts towards pack size
@@ -215,6 +302,11 @@ public class Packager extends PackagerBase
                 pack.setSize(pack.getFileSize());
             }
 
+            if (baseDir != null)
+            {
+                FileUtils.deleteRecursively(baseDir);
+            }
+
             // Write out information about parsable files
             objOut.writeInt(packInfo.getParsables().size());
 
@@ -277,6 +369,11 @@ public class Packager extends PackagerBase
         out.flush();
         installerJar.closeEntry();
 
+        // Write the manifest of installed files, used to create patch installers
+        installerJar.putNextEntry(new org.apache.tools.zip.ZipEntry(RESOURCES_PATH + PackManifest.NAME));
+        manifest.write(installerJar);
+        installerJar.closeEntry();
+
         // Pack200 files
         Pack200.Packer packer = createAgressivePack200Packer();
         for (Integer key : pack200Map.keySet())
@@ -290,6 +387,154 @@ public class Packager extends PackagerBase
         }
     }
 
+    /**
+     * Returns the manifest of the installer being patched.
+     *
+     * @return the manifest, or {@code null} if a full installer is being created
+     * @throws IOException if the manifest cannot be read
+     */
+    private PackManifest getPatchBase() throws IOException
+    {
+        String patchBase = getCompilerData().getPatchBase();
+        if (patchBase == null)
+        {
+            return null;
+        }
+        sendMsg("Creating patch installer for " + patchBase);
+        return PackManifest.read(new File(patchBase));
+    }
+
+    /**
+     * Returns the target paths of the files of the packs.
+     *
+     * @param packs the packs
+     * @return the target paths
+     */
+    private Set<String> getTargetPaths(List<PackInfo> packs)
+    {
+        Set<String> result = new HashSet<String>();
+        for (PackInfo packInfo : packs)
+        {
+            for (PackFile packFile : packInfo.getPackFiles())
+            {
+                result.add(packFile.getTargetPath());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates a temporary directory to hold extracted files and deltas.
+     *
+     * @return a new temporary directory
+     * @throws IOException if the directory cannot be created
+     */
+    private File createTempDirectory() throws IOException
+    {
+        File dir = FileUtils.createTempFile("izpack-patch", null);
+        if (!dir.delete() || !dir.mkdir())
+        {
+            throw new IOException("Failed to create temporary directory: " + dir);
+        }
+        return dir;
+    }
+
+    /**
+     * Returns the content hash of a pack file.
+     *
+     * @param packInfo the pack
+     * @param packFile the pack file
+     * @return the content hash
+     * @throws IOException for any I/O error
+     */
+    private byte[] getHash(PackInfo packInfo, PackFile packFile) throws IOException
+    {
+        File file = packInfo.getFile(packFile);
+        Object source = (file != null) ? file : packInfo.getArchiveEntry(packFile);
+        byte[] hash = hashes.get(source);
+        if (hash == null)
+        {
+            InputStream in = getInputStream(packInfo, packFile);
+            try
+            {
+                hash = ContentDigest.get(in);
+            }
+            finally
+            {
+                FileUtils.close(in);
+            }
+            hashes.put(source, hash);
+        }
+        return hash;
+    }
+
+    /**
+     * Extracts the previous content of the large modified files of a pack.
+     *
+     * @param base     the manifest of the installer being patched
+     * @param packInfo the pack
+     * @param dir      the directory to extract to
+     * @return the extracted files, keyed on target path
+     * @throws IOException for any I/O error
+     */
+    private Map<String, File> extractDeltaBases(PackManifest base, PackInfo packInfo, File dir) throws IOException
+    {
+        Map<String, List<String>> paths = new HashMap<String, List<String>>();
+        for (PackFile packFile : packInfo.getPackFiles())
+        {
+            PackManifest.Entry previous = base.get(packFile.getTargetPath());
+            if (packFile.getHash() != null && packFile.length() >= DELTA_THRESHOLD && previous != null
+                    && previous.hasContent() && previous.getLength() >= DELTA_THRESHOLD
+                    && !Arrays.equals(previous.getHash(), packFile.getHash()))
+            {
+                List<String> list = paths.get(previous.getPack());
+                if (list == null)
+                {
+                    list = new ArrayList<String>();
+                    paths.put(previous.getPack(), list);
+                }
+                list.add(packFile.getTargetPath());
+            }
+        }
+        Map<String, File> result = new HashMap<String, File>();
+        for (Map.Entry<String, List<String>> entry : paths.entrySet())
+        {
+            result.putAll(base.extract(entry.getKey(), entry.getValue(), dir));
+        }
+        return result;
+    }
+
+    /**
+     * Creates a delta between the previous and current content of a file.
+     *
+     * @param previous the previous content
+     * @param file     the current content
+     * @param packFile the pack file
+     * @param dir      the directory to create the delta in
+     * @return the delta, or {@code null} if it is not worth storing
+     * @throws IOException for any I/O error
+     */
+    private File createDelta(File previous, File file, PackFile packFile, File dir) throws IOException
+    {
+        File delta = File.createTempFile("delta", null, dir);
+        OutputStream out = new FileOutputStream(delta);
+        try
+        {
+            BinaryDelta.encode(previous, file, out);
+        }
+        finally
+        {
+            FileUtils.close(out);
+        }
+        // only worth it if the delta is substantially smaller than the file
+        if (delta.length() >= packFile.length() / 2)
+        {
+            FileUtils.delete(delta);
+            return null;
+        }
+        return delta;
+    }
+
     private Pack200.Packer createAgressivePack200Packer()
     {
         Pack200.Packer packer = Pack200.newPacker();
@@ -23,6 +23,8 @@
 package com.izforge.izpack.compiler.packager.impl;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -35,6 +37,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 import org.apache.commons.io.FileUtils;
@@ -44,6 +48,7 @@ import com.izforge.izpack.api.data.DynamicInstallerRequirementValidator;
 import com.izforge.izpack.api.data.DynamicVariable;
 import com.izforge.izpack.api.data.GUIPrefs;
 import com.izforge.izpack.api.data.Info;
+import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.api.data.InstallerRequirement;
 import com.izforge.izpack.api.data.Panel;
 import com.izforge.izpack.api.rules.Condition;
@@ -54,6 +59,8 @@ import com.izforge.izpack.compiler.merge.PanelMerge;
 import com.izforge.izpack.compiler.merge.CompilerPathResolver;
 import com.izforge.izpack.compiler.packager.IPackager;
 import com.izforge.izpack.compiler.stream.JarOutputStream;
+import com.izforge.izpack.core.resource.ResourceIndex;
+import com.izforge.izpack.data.ArchiveEntry;
 import com.izforge.izpack.data.CustomData;
 import com.izforge.izpack.data.PackInfo;
 import com.izforge.izpack.merge.MergeManager;
@@ -188,6 +195,11 @@ public abstract class PackagerBase implements IPackager
      */
     private Map<FilterOutputStream, Set<String>> alreadyWrittenFiles = new HashMap<FilterOutputStream, Set<String>>();
 
+    /**
+     * Archives that pack file content is being read from, keyed on archive file.
+     */
+    private final Map<File, ZipFile> archives = new HashMap<File, ZipFile>();
+
 
     /**
      * Constructs a <tt>PackagerBase</tt>.
@@ -449,7 +461,16 @@ public abstract class PackagerBase implements IPackager
         writeIncludedJars();
 
         // Pack File Data may be written to separate jars
-        writePacks();
+        try
+        {
+            writePacks();
+        }
+        finally
+        {
+            closeArchives();
+        }
+
+        writeResourceIndex();
     }
 
     /**
@@ -524,6 +545,28 @@ public abstract class PackagerBase implements IPackager
         }
     }
 
+    /**
+     * Writes the index of the installer resources, so that the installer can locate resources without searching
+     * the class path. This must be written after all other resources.
+     *
+     * @throws IOException for any I/O error
+     */
+    protected void writeResourceIndex() throws IOException
+    {
+        List<String> names = new ArrayList<String>();
+        for (String name : installerJar.getEntryNames())
+        {
+            if (name.startsWith(RESOURCES_PATH) && !name.endsWith("/"))
+            {
+                names.add(name.substring(RESOURCES_PATH.length()));
+            }
+        }
+        ResourceIndex index = new ResourceIndex(names);
+        installerJar.putNextEntry(new org.apache.tools.zip.ZipEntry(RESOURCES_PATH + ResourceIndex.NAME));
+        index.write(installerJar);
+        installerJar.closeEntry();
+    }
+
     /**
      * Write the data referenced by URL to installer jar.
      *
@@ -577,6 +620,70 @@ public abstract class PackagerBase implements IPackager
      */
     protected abstract void writePacks() throws IOException;
 
+    /**
+     * Opens the content of a pack file, from either its source file or archive entry.
+     * <p/>
+     * Archives are kept open until the packs have been written, so that reading many entries from
+     * one archive doesn't reread the archive directory for each entry.
+     *
+     * @param packInfo the pack
+     * @param packFile the pack file
+     * @return a stream to read the content. The caller is responsible for closing it
+     * @throws IOException for any I/O error
+     */
+    protected InputStream getInputStream(PackInfo packInfo, PackFile packFile) throws IOException
+    {
+        File file = packInfo.getFile(packFile);
+        if (file != null)
+        {
+            return new FileInputStream(file);
+        }
+        ArchiveEntry entry = packInfo.getArchiveEntry(packFile);
+        ZipFile zip = archives.get(entry.getArchive());
+        if (zip == null)
+        {
+            zip = openArchive(entry.getArchive());
+            archives.put(entry.getArchive(), zip);
+        }
+        ZipEntry zipEntry = zip.getEntry(entry.getName());
+        if (zipEntry == null)
+        {
+            throw new FileNotFoundException("No such archive entry: " + entry);
+        }
+        return zip.getInputStream(zipEntry);
+    }
+
+    /**
+     * Opens an archive to read pack file content from.
+     *
+     * @param archive the archive
+     * @return the archive. It is closed by {@link #closeArchives()}
+     * @throws IOException for any I/O error
+     */
+    protected ZipFile openArchive(File archive) throws IOException
+    {
+        return new ZipFile(archive);
+    }
+
+    /**
+     * Closes the archives opened by {@link #getInputStream(PackInfo, PackFile)}.
+     */
+    protected void closeArchives()
+    {
+        for (ZipFile zip : archives.values())
+        {
+            try
+            {
+                zip.close();
+            }
+            catch (IOException ignore)
+            {
+                // no-op
+            }
+        }
+        archives.clear();
+    }
+
     /**
      * Returns the installer jar stream.
      *
@@ -597,6 +704,16 @@ public abstract class PackagerBase implements IPackager
         return compressor;
     }
 
+    /**
+     * Returns the compiler data.
+     *
+     * @return the compiler data
+     */
+    protected CompilerData getCompilerData()
+    {
+        return compilerData;
+    }
+
     /**
      * Dispatches a message to the listeners.
      *
@@ -26,6 +26,9 @@ import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 //import java.util.zip.ZipException;
@@ -55,6 +58,11 @@ public class JarOutputStream extends org.apache.tools.zip.ZipOutputStream
     private boolean firstEntry = true;
     private boolean preventClose = false;
 
+    /**
+     * The names of the entries written, in the order they were written.
+     */
+    private final Set<String> entryNames = new LinkedHashSet<String>();
+
     /**
      * Creates a new <code>JarOutputStream</code> with no manifest.
      * Using this constructor it will be NOT possible to write
@@ -143,6 +151,17 @@ public class JarOutputStream extends org.apache.tools.zip.ZipOutputStream
             firstEntry = false;
         }
         super.putNextEntry(ze);
+        entryNames.add(ze.getName());
+    }
+
+    /**
+     * Returns the names of the entries written so far.
+     *
+     * @return the entry names, in the order they were written
+     */
+    public Set<String> getEntryNames()
+    {
+        return Collections.unmodifiableSet(entryNames);
     }
 
     /**
@@ -21,6 +21,8 @@
 package com.izforge.izpack.compiler.packager.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyString;
@@ -37,6 +39,8 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.PrintStream;
 import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Set;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 
@@ -50,6 +54,7 @@ import com.izforge.izpack.api.data.GUIPrefs;
 import com.izforge.izpack.api.data.OverrideType;
 import com.izforge.izpack.api.data.Pack;
 import com.izforge.izpack.compiler.stream.JarOutputStream;
+import com.izforge.izpack.core.resource.ResourceIndex;
 import com.izforge.izpack.data.PackInfo;
 import com.izforge.izpack.merge.MergeManager;
 
@@ -143,6 +148,36 @@ public abstract class AbstractPackagerTest
         assertTrue(file.delete());
     }
 
+    /**
+     * Verifies that the installer includes an index of its resources.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testResourceIndex() throws Exception
+    {
+        File jar = File.createTempFile("installer", ".jar");
+        JarOutputStream output = new JarOutputStream(new FileOutputStream(jar));
+        output.setPreventClose(true);
+        PackagerBase packager = createPackager(output, mergeManager);
+        packager.addResource("licence.txt", createTextFile("licence").toURI().toURL());
+        packager.addPack(new PackInfo("Core", "Core", null, true, false, null, true, 0));
+        packager.createInstaller();
+
+        URL url = new URL("jar:" + jar.toURI().toURL() + "!/resources/" + ResourceIndex.NAME);
+        ResourceIndex index = ResourceIndex.read(url);
+        Set<String> names = index.getNames();
+        assertTrue(names.contains("info"));
+        assertTrue(names.contains("packs.info"));
+        assertTrue(names.contains("licence.txt"));
+        assertFalse(names.contains(ResourceIndex.NAME));
+
+        assertEquals(new URL("jar:" + jar.toURI().toURL() + "!/resources/licence.txt"),
+                     index.getURL("resources/licence.txt"));
+        assertNull(index.getURL("resources/licence.txt_eng"));
+        assertTrue(jar.delete());
+    }
+
     /**
      * Helper to create a packager that writes to the provided jar.
      *
@@ -21,18 +21,36 @@
 
 package com.izforge.izpack.compiler.packager.impl;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.PrintStream;
 import java.util.Properties;
+import java.util.zip.ZipFile;
 
+import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.izforge.izpack.api.data.Blockable;
 import com.izforge.izpack.api.data.Info;
+import com.izforge.izpack.api.data.OverrideType;
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.api.exception.CompilerException;
 import com.izforge.izpack.compiler.compressor.PackCompressor;
 import com.izforge.izpack.compiler.data.CompilerData;
 import com.izforge.izpack.compiler.listener.PackagerListener;
 import com.izforge.izpack.compiler.merge.CompilerPathResolver;
 import com.izforge.izpack.compiler.stream.JarOutputStream;
+import com.izforge.izpack.data.PackInfo;
 import com.izforge.izpack.merge.MergeManager;
 import com.izforge.izpack.merge.resolve.MergeableResolver;
+import com.izforge.izpack.util.file.ContentDigest;
 
 /**
  * Tests the {@link MultiVolumePackager}.
@@ -42,6 +60,59 @@ import com.izforge.izpack.merge.resolve.MergeableResolver;
 public class MultiVolumePackagerTest extends AbstractPackagerTest
 {
 
+    /**
+     * Verifies that content hashes are recorded for files that are only overwritten if they are different.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testHash() throws Exception
+    {
+        File same = createFile("same.txt", "always overwritten");
+        File different = createFile("different.txt", "overwritten if different");
+        File jar = File.createTempFile("installer", ".jar");
+        JarOutputStream output = new JarOutputStream(new FileOutputStream(jar));
+        output.setPreventClose(true);
+        PackagerBase packager = createPackager(output, Mockito.mock(MergeManager.class));
+        PackInfo packInfo = new PackInfo("Core", "Core", null, true, false, null, true, 0);
+        packInfo.addFile(same.getParentFile(), same, "$INSTALL_PATH/same.txt", null, OverrideType.OVERRIDE_TRUE,
+                         null, Blockable.BLOCKABLE_NONE, null, null);
+        packInfo.addFile(different.getParentFile(), different, "$INSTALL_PATH/different.txt", null,
+                         OverrideType.OVERRIDE_DIFFERENT, null, Blockable.BLOCKABLE_NONE, null, null);
+        packager.addPack(packInfo);
+        packager.createInstaller();
+
+        ZipFile zip = new ZipFile(jar);
+        try
+        {
+            ObjectInputStream in = new ObjectInputStream(zip.getInputStream(zip.getEntry("resources/packs/pack-Core")));
+            assertEquals(2, in.readInt());
+            assertNull(((PackFile) in.readObject()).getHash());
+            assertArrayEquals(ContentDigest.get(different), ((PackFile) in.readObject()).getHash());
+            in.close();
+        }
+        finally
+        {
+            zip.close();
+        }
+        assertTrue(jar.delete());
+        assertTrue(same.delete());
+        assertTrue(different.delete());
+    }
+
+    /**
+     * Verifies that patch installers are rejected, as they aren't supported.
+     *
+     * @throws Exception for any error
+     */
+    @Test(expected = CompilerException.class)
+    public void testPatchBaseRejected() throws Exception
+    {
+        CompilerData data = createCompilerData();
+        data.setPatchBase("installer.jar");
+        createPackager(Mockito.mock(JarOutputStream.class), Mockito.mock(MergeManager.class), data).writePacks();
+    }
+
     /**
      * Helper to create a packager that writes to the provided jar.
      *
@@ -51,21 +122,60 @@ public class MultiVolumePackagerTest extends AbstractPackagerTest
      */
     @Override
     protected PackagerBase createPackager(JarOutputStream jar, MergeManager mergeManager)
+    {
+        return createPackager(jar, mergeManager, createCompilerData());
+    }
+
+    /**
+     * Helper to create a packager that writes to the provided jar.
+     *
+     * @param jar          the jar stream
+     * @param mergeManager the merge manager
+     * @param data         the compiler data
+     * @return a new packager
+     */
+    private MultiVolumePackager createPackager(JarOutputStream jar, MergeManager mergeManager, CompilerData data)
     {
         Properties properties = new Properties();
         PackagerListener listener = null;
         PackCompressor compressor = Mockito.mock(PackCompressor.class);
         CompilerPathResolver pathResolver = Mockito.mock(CompilerPathResolver.class);
         MergeableResolver resolver = Mockito.mock(MergeableResolver.class);
+        MultiVolumePackager packager = new MultiVolumePackager(properties, listener, jar, mergeManager,
+                                                               pathResolver, resolver, compressor, data);
+        packager.setInfo(new Info());
+        return packager;
+    }
+
+    /**
+     * Helper to create a temporary text file.
+     *
+     * @param name the file name suffix
+     * @param text the file content
+     * @return the new file
+     * @throws IOException for any I/O error
+     */
+    private File createFile(String name, String text) throws IOException
+    {
+        File file = File.createTempFile("data", name);
+        PrintStream printStream = new PrintStream(file);
+        printStream.print(text);
+        printStream.close();
+        return file;
+    }
+
+    /**
+     * Helper to create the compiler data.
+     *
+     * @return new compiler data
+     */
+    private CompilerData createCompilerData()
+    {
         String baseDir = getBaseDir().getPath();
-        CompilerData data = new CompilerData(
+        return new CompilerData(
                 "",
                 baseDir,
                 baseDir + "/target/test.jar",
                 true);
-        MultiVolumePackager packager = new MultiVolumePackager(properties, listener, jar, mergeManager,
-                                                               pathResolver, resolver, compressor, data);
-        packager.setInfo(new Info());
-        return packager;
     }
 }
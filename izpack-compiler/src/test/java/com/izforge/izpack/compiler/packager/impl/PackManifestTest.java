@@ -0,0 +1,252 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.packager.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.api.data.Blockable;
+import com.izforge.izpack.api.data.OverrideType;
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.util.IoHelper;
+import com.izforge.izpack.util.file.ContentDigest;
+
+
+/**
+ * Tests the {@link PackManifest} class.
+ */
+public class PackManifestTest
+{
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+    /**
+     * Verifies that a manifest can be written and read back, and that entries may omit their content hash.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testReadWrite() throws Exception
+    {
+        PackFile a = createPackFile("a.txt", "a");
+        a.setHash(ContentDigest.get(getFile(a)));
+        PackFile b = createPackFile("b.txt", "bb");
+
+        PackManifest manifest = new PackManifest(true);
+        manifest.add(a, "Core", true);
+        manifest.add(b, "Docs", false);
+
+        File file = temporaryFolder.newFile("packs.manifest");
+        write(manifest, file);
+        PackManifest read = PackManifest.read(file);
+        assertFalse(read.hasContent()); // standalone manifests have no content
+
+        PackManifest.Entry entryA = read.get(a.getTargetPath());
+        assertNotNull(entryA);
+        assertEquals("Core", entryA.getPack());
+        assertEquals(1, entryA.getLength());
+        assertArrayEquals(a.getHash(), entryA.getHash());
+        assertTrue(entryA.hasContent());
+
+        PackManifest.Entry entryB = read.get(b.getTargetPath());
+        assertNotNull(entryB);
+        assertEquals("Docs", entryB.getPack());
+        assertEquals(2, entryB.getLength());
+        assertNull(entryB.getHash());
+        assertFalse(entryB.hasContent());
+    }
+
+    /**
+     * Verifies that a path installed by more than one pack is treated as unknown.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testDuplicatePath() throws Exception
+    {
+        PackFile file = createPackFile("a.txt", "a");
+        PackManifest manifest = new PackManifest(true);
+        manifest.add(file, "Core", true);
+        manifest.add(file, "Docs", true);
+        assertNull(manifest.get(file.getTargetPath()));
+
+        File written = temporaryFolder.newFile("packs.manifest");
+        write(manifest, written);
+        assertNull(PackManifest.read(written).get(file.getTargetPath()));
+    }
+
+    /**
+     * Verifies that missing hashes are computed, and that file content is extracted, from the packs of an
+     * installer.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testInstaller() throws Exception
+    {
+        PackFile a = createPackFile("a.txt", "first file");
+        PackFile b = createPackFile("b.txt", "second file");
+        PackFile c = createPackFile("c.txt", "third file");
+        c.setUnchanged(true);
+
+        PackManifest manifest = new PackManifest(true);
+        manifest.add(a, "Core", true);
+        manifest.add(b, "Core", true);
+        manifest.add(c, "Core", false);
+        File installer = createInstaller(manifest, "Core", a, b, c);
+
+        PackManifest read = PackManifest.read(installer);
+        assertTrue(read.hasContent());
+        read.computeHashes(Arrays.asList(a.getTargetPath(), c.getTargetPath()));
+        assertArrayEquals(ContentDigest.get(getFile(a)), read.get(a.getTargetPath()).getHash());
+        assertNull(read.get(b.getTargetPath()).getHash()); // not requested
+        assertNull(read.get(c.getTargetPath()).getHash()); // no content in the installer
+
+        Map<String, File> extracted = read.extract("Core", Arrays.asList(b.getTargetPath(), c.getTargetPath()),
+                                                   temporaryFolder.newFolder("extract"));
+        assertEquals(1, extracted.size());
+        File extractedB = extracted.get(b.getTargetPath());
+        assertNotNull(extractedB);
+        assertArrayEquals(ContentDigest.get(getFile(b)), ContentDigest.get(extractedB));
+    }
+
+    /**
+     * Creates a pack file for a new text file.
+     *
+     * @param name    the file name
+     * @param content the file content
+     * @return a new pack file
+     * @throws IOException for any I/O error
+     */
+    private PackFile createPackFile(String name, String content) throws IOException
+    {
+        File file = new File(temporaryFolder.getRoot(), name);
+        PrintWriter writer = new PrintWriter(file);
+        writer.print(content);
+        writer.close();
+        return new PackFile(temporaryFolder.getRoot(), file, "$INSTALL_PATH/" + name, null,
+                            OverrideType.OVERRIDE_TRUE, null, Blockable.BLOCKABLE_NONE);
+    }
+
+    /**
+     * Returns the source file of a pack file.
+     *
+     * @param file the pack file
+     * @return the source file
+     */
+    private File getFile(PackFile file)
+    {
+        return new File(temporaryFolder.getRoot(), file.getRelativeSourcePath());
+    }
+
+    /**
+     * Creates an installer containing a manifest and a single pack, in the layout written by {@link Packager}.
+     *
+     * @param manifest the manifest
+     * @param pack     the pack name
+     * @param files    the pack files. The content of unchanged files is omitted
+     * @return the installer
+     * @throws IOException for any I/O error
+     */
+    private File createInstaller(PackManifest manifest, String pack, PackFile... files) throws IOException
+    {
+        File installer = temporaryFolder.newFile("installer.jar");
+        ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(installer));
+        try
+        {
+            zip.putNextEntry(new ZipEntry(PackagerBase.RESOURCES_PATH + "packs/pack-" + pack));
+            ObjectOutputStream out = new ObjectOutputStream(zip);
+            out.writeInt(files.length);
+            for (PackFile file : files)
+            {
+                out.writeObject(file);
+                if (!file.isUnchanged())
+                {
+                    InputStream in = new FileInputStream(getFile(file));
+                    try
+                    {
+                        IoHelper.copyStream(in, out);
+                    }
+                    finally
+                    {
+                        in.close();
+                    }
+                }
+            }
+            out.flush();
+            zip.closeEntry();
+
+            zip.putNextEntry(new ZipEntry(PackagerBase.RESOURCES_PATH + PackManifest.NAME));
+            manifest.write(zip);
+            zip.closeEntry();
+        }
+        finally
+        {
+            zip.close();
+        }
+        return installer;
+    }
+
+    /**
+     * Writes a manifest to a file.
+     *
+     * @param manifest the manifest
+     * @param file     the file to write to
+     * @throws IOException for any I/O error
+     */
+    private void write(PackManifest manifest, File file) throws IOException
+    {
+        OutputStream out = new FileOutputStream(file);
+        try
+        {
+            manifest.write(out);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+}
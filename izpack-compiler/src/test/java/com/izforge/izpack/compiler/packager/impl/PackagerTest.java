@@ -19,18 +19,48 @@
 
 package com.izforge.izpack.compiler.packager.impl;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
+import com.izforge.izpack.api.data.Blockable;
 import com.izforge.izpack.api.data.Info;
+import com.izforge.izpack.api.data.OverrideType;
+import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.compiler.compressor.PackCompressor;
 import com.izforge.izpack.compiler.data.CompilerData;
 import com.izforge.izpack.compiler.listener.PackagerListener;
 import com.izforge.izpack.compiler.merge.CompilerPathResolver;
 import com.izforge.izpack.compiler.stream.JarOutputStream;
+import com.izforge.izpack.data.PackInfo;
 import com.izforge.izpack.merge.MergeManager;
 import com.izforge.izpack.merge.resolve.MergeableResolver;
+import com.izforge.izpack.util.file.ContentDigest;
 
 /**
  * Tests the {@link Packager}.
@@ -38,6 +68,155 @@ import com.izforge.izpack.merge.resolve.MergeableResolver;
 public class PackagerTest extends AbstractPackagerTest
 {
 
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+    /**
+     * Verifies that content hashes are only recorded for files that need them when no patch base is configured,
+     * and that a patch installer omits unchanged files and stores large modified files as deltas.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testPatch() throws Exception
+    {
+        File a = write("a.txt", "unchanged".getBytes("UTF-8"));
+        File c = write("c.txt", "compared on install".getBytes("UTF-8"));
+        byte[] content = new byte[2 * 1024 * 1024];
+        new Random(1).nextBytes(content);
+        File b = write("b.bin", content);
+
+        File full = createInstaller("full.jar", null, a, b, c);
+        PackManifest manifest = PackManifest.read(full);
+        assertNull(manifest.get("$INSTALL_PATH/a.txt").getHash());
+        assertNull(manifest.get("$INSTALL_PATH/b.bin").getHash());
+        assertNotNull(manifest.get("$INSTALL_PATH/c.txt").getHash()); // needed by override="different"
+        for (PackFile file : getPackFiles(full))
+        {
+            assertFalse(file.isUnchanged());
+            assertFalse(file.isDelta());
+        }
+
+        content[1000] ^= 1;
+        write("b.bin", content);
+        File patch = createInstaller("patch.jar", full.getPath(), a, b, c);
+        List<PackFile> files = getPackFiles(patch);
+        assertEquals(3, files.size());
+
+        PackFile packA = files.get(0);
+        assertTrue(packA.isUnchanged());
+        assertEquals(0, packA.getStoredLength());
+
+        PackFile packB = files.get(1);
+        assertFalse(packB.isUnchanged());
+        assertTrue(packB.isDelta());
+        assertTrue(packB.getStoredLength() < content.length / 2);
+        assertArrayEquals(ContentDigest.get(b), packB.getHash());
+
+        assertTrue(files.get(2).isUnchanged());
+
+        // the patch stores no content, so it can't be the source of deltas for a later patch
+        PackManifest patchManifest = PackManifest.read(patch);
+        assertFalse(patchManifest.get("$INSTALL_PATH/a.txt").hasContent());
+        assertFalse(patchManifest.get("$INSTALL_PATH/b.bin").hasContent());
+    }
+
+    /**
+     * Verifies that the content of an archive packed with <em>unpack="true"</em> is read from the archive, that an
+     * archive included by two packs is stored once and back-referenced, and that the archive is closed once the
+     * packs have been written.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testArchiveContent() throws Exception
+    {
+        byte[] large = new byte[100 * 1024];
+        new Random(1).nextBytes(large);
+        File archive = new File(temporaryFolder.getRoot(), "archive.zip");
+        ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive));
+        try
+        {
+            zip.putNextEntry(new ZipEntry("lib/"));
+            zip.putNextEntry(new ZipEntry("lib/a.txt"));
+            zip.write("a".getBytes("UTF-8"));
+            zip.putNextEntry(new ZipEntry("lib/large.bin"));
+            zip.write(large);
+            zip.putNextEntry(new ZipEntry("empty/"));
+            zip.putNextEntry(new ZipEntry("b.txt"));
+            zip.closeEntry();
+        }
+        finally
+        {
+            zip.close();
+        }
+
+        File installer = new File(temporaryFolder.getRoot(), "installer.jar");
+        JarOutputStream output = new JarOutputStream(new FileOutputStream(installer));
+        output.setPreventClose(true);
+        final List<ZipFile> opened = new ArrayList<ZipFile>();
+        Packager packager = new Packager(new Properties(), null, output, createCompressor(), output,
+                                         Mockito.mock(MergeManager.class), Mockito.mock(CompilerPathResolver.class),
+                                         Mockito.mock(MergeableResolver.class),
+                                         new CompilerData("", "", "", true))
+        {
+            @Override
+            protected ZipFile openArchive(File archive) throws IOException
+            {
+                ZipFile result = super.openArchive(archive);
+                opened.add(result);
+                return result;
+            }
+        };
+        packager.setInfo(new Info());
+        packager.addPack(createArchivePack("Core", archive));
+        packager.addPack(createArchivePack("Docs", archive));
+        packager.createInstaller();
+
+        // the archive was opened once, and closed after the packs were written
+        assertEquals(1, opened.size());
+        try
+        {
+            opened.get(0).size();
+            fail("Expected the archive to be closed");
+        }
+        catch (IllegalStateException expected)
+        {
+            // expected
+        }
+
+        Map<String, byte[]> contents = new LinkedHashMap<String, byte[]>();
+        List<PackFile> core = getPackFiles(installer, "Core", contents);
+        assertEquals(5, core.size());
+        checkArchiveFile(core.get(0), "$INSTALL_PATH/lib/a.txt", 1, false);
+        checkArchiveFile(core.get(1), "$INSTALL_PATH/lib/large.bin", large.length, false);
+        checkArchiveFile(core.get(2), "$INSTALL_PATH/b.txt", 0, false);
+        checkArchiveFile(core.get(3), "$INSTALL_PATH/empty", 0, true);
+        checkArchiveFile(core.get(4), "$INSTALL_PATH/lib", 0, true);
+        for (PackFile file : core)
+        {
+            assertFalse(file.isBackReference());
+        }
+        assertArrayEquals("a".getBytes("UTF-8"), contents.get("$INSTALL_PATH/lib/a.txt"));
+        assertArrayEquals(large, contents.get("$INSTALL_PATH/lib/large.bin"));
+        assertArrayEquals(new byte[0], contents.get("$INSTALL_PATH/b.txt"));
+
+        // the files of the second pack refer back to those of the first
+        contents.clear();
+        List<PackFile> docs = getPackFiles(installer, "Docs", contents);
+        assertEquals(5, docs.size());
+        for (int i = 0; i < 3; ++i)
+        {
+            assertTrue(docs.get(i).isBackReference());
+            assertEquals(core.get(i).length(), docs.get(i).length());
+        }
+        assertTrue(contents.isEmpty());
+    }
+
     /**
      * Helper to create a packager that writes to the provided jar.
      *
@@ -47,16 +226,205 @@ public class PackagerTest extends AbstractPackagerTest
      */
     @Override
     protected PackagerBase createPackager(JarOutputStream jar, MergeManager mergeManager)
+    {
+        return createPackager(jar, mergeManager, new CompilerData("", "", "", true));
+    }
+
+    /**
+     * Helper to create a packager that writes to the provided jar.
+     *
+     * @param jar          the jar stream
+     * @param mergeManager the merge manager
+     * @param data         the compiler data
+     * @return a new packager
+     */
+    private Packager createPackager(JarOutputStream jar, MergeManager mergeManager, CompilerData data)
     {
         Properties properties = new Properties();
         PackagerListener listener = null;
-        PackCompressor compressor = Mockito.mock(PackCompressor.class);
+        PackCompressor compressor = createCompressor();
         CompilerPathResolver pathResolver = Mockito.mock(CompilerPathResolver.class);
         MergeableResolver resolver = Mockito.mock(MergeableResolver.class);
-        CompilerData data = new CompilerData("", "", "", true);
         Packager packager = new Packager(properties, listener, jar, compressor, jar, mergeManager,
                                          pathResolver, resolver, data);
         packager.setInfo(new Info());
         return packager;
     }
+
+    /**
+     * Creates a compressor that uses standard compression.
+     *
+     * @return a new compressor
+     */
+    private PackCompressor createCompressor()
+    {
+        PackCompressor compressor = Mockito.mock(PackCompressor.class);
+        Mockito.when(compressor.useStandardCompression()).thenReturn(true);
+        return compressor;
+    }
+
+    /**
+     * Creates a pack containing the content of an archive, as an archive with <em>unpack="true"</em> is added by
+     * the compiler: files in archive order, followed by directories sorted by name.
+     *
+     * @param name    the pack name
+     * @param archive the archive
+     * @return a new pack
+     * @throws IOException for any I/O error
+     */
+    private PackInfo createArchivePack(String name, File archive) throws IOException
+    {
+        PackInfo packInfo = new PackInfo(name, name, null, true, false, null, true, 0);
+        List<ZipEntry> dirs = new ArrayList<ZipEntry>();
+        ZipFile zip = new ZipFile(archive);
+        try
+        {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements())
+            {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory())
+                {
+                    dirs.add(entry);
+                }
+                else
+                {
+                    packInfo.addArchiveEntry(archive.getParentFile(), archive, entry,
+                                             "$INSTALL_PATH/" + entry.getName(), null, OverrideType.OVERRIDE_TRUE,
+                                             null, Blockable.BLOCKABLE_NONE, null, null);
+                }
+            }
+        }
+        finally
+        {
+            zip.close();
+        }
+        dirs.add(dirs.remove(0)); // sort by name
+        for (ZipEntry dir : dirs)
+        {
+            packInfo.addArchiveEntry(archive.getParentFile(), archive, dir, "$INSTALL_PATH/" + dir.getName(), null,
+                                     OverrideType.OVERRIDE_TRUE, null, Blockable.BLOCKABLE_NONE, null, null);
+        }
+        return packInfo;
+    }
+
+    /**
+     * Verifies a pack file read from an archive.
+     *
+     * @param file      the pack file
+     * @param target    the expected target path
+     * @param length    the expected length
+     * @param directory determines if the file is expected to be a directory
+     */
+    private void checkArchiveFile(PackFile file, String target, long length, boolean directory)
+    {
+        assertEquals(target, file.getTargetPath());
+        assertEquals(length, file.length());
+        assertEquals(directory, file.isDirectory());
+    }
+
+    /**
+     * Creates an installer with a single pack. The last file is overwritten only if its content is different.
+     *
+     * @param name      the installer file name
+     * @param patchBase the installer to patch. May be {@code null}
+     * @param files     the files to include
+     * @return the installer
+     * @throws Exception for any error
+     */
+    private File createInstaller(String name, String patchBase, File... files) throws Exception
+    {
+        File installer = new File(temporaryFolder.getRoot(), name);
+        JarOutputStream output = new JarOutputStream(new FileOutputStream(installer));
+        output.setPreventClose(true);
+        CompilerData data = new CompilerData("", "", "", true);
+        data.setPatchBase(patchBase);
+        Packager packager = createPackager(output, Mockito.mock(MergeManager.class), data);
+
+        PackInfo packInfo = new PackInfo("Core", "Core", null, true, false, null, true, 0);
+        for (int i = 0; i < files.length; ++i)
+        {
+            OverrideType override = (i == files.length - 1) ? OverrideType.OVERRIDE_DIFFERENT
+                    : OverrideType.OVERRIDE_TRUE;
+            packInfo.addFile(files[i].getParentFile(), files[i], "$INSTALL_PATH/" + files[i].getName(), null,
+                             override, null, Blockable.BLOCKABLE_NONE, null, null);
+        }
+        packager.addPack(packInfo);
+        packager.createInstaller();
+        return installer;
+    }
+
+    /**
+     * Returns the pack files of the <em>Core</em> pack of an installer.
+     *
+     * @param installer the installer
+     * @return the pack files
+     * @throws Exception for any error
+     */
+    private List<PackFile> getPackFiles(File installer) throws Exception
+    {
+        return getPackFiles(installer, "Core", new LinkedHashMap<String, byte[]>());
+    }
+
+    /**
+     * Returns the pack files of a pack of an installer.
+     *
+     * @param installer the installer
+     * @param name      the pack name
+     * @param contents  collects the stored content of each file, keyed on target path
+     * @return the pack files
+     * @throws Exception for any error
+     */
+    private List<PackFile> getPackFiles(File installer, String name, Map<String, byte[]> contents) throws Exception
+    {
+        List<PackFile> result = new ArrayList<PackFile>();
+        ZipFile zip = new ZipFile(installer);
+        try
+        {
+            ZipEntry entry = zip.getEntry("resources/packs/pack-" + name);
+            assertNotNull(entry);
+            ObjectInputStream in = new ObjectInputStream(zip.getInputStream(entry));
+            int count = in.readInt();
+            for (int i = 0; i < count; ++i)
+            {
+                PackFile file = (PackFile) in.readObject();
+                if (!file.isDirectory() && !file.isBackReference())
+                {
+                    byte[] content = new byte[(int) file.getStoredLength()];
+                    in.readFully(content);
+                    contents.put(file.getTargetPath(), content);
+                }
+                result.add(file);
+            }
+            in.close();
+        }
+        finally
+        {
+            zip.close();
+        }
+        return result;
+    }
+
+    /**
+     * Writes a file to the temporary folder.
+     *
+     * @param name    the file name
+     * @param content the file content
+     * @return the file
+     * @throws IOException for any I/O error
+     */
+    private File write(String name, byte[] content) throws IOException
+    {
+        File file = new File(temporaryFolder.getRoot(), name);
+        OutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(content);
+        }
+        finally
+        {
+            out.close();
+        }
+        return file;
+    }
 }
@@ -27,6 +27,8 @@ import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
 import java.net.URL;
 import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.swing.ImageIcon;
 
@@ -49,6 +51,26 @@ public abstract class AbstractResources implements Resources
      */
     private final ClassLoader loader;
 
+    /**
+     * The cache of image icons.
+     */
+    private final ImageIconCache icons = new ImageIconCache();
+
+    /**
+     * The installer resource index, or {@code null} if there is none. Guarded by this.
+     */
+    private ResourceIndex index;
+
+    /**
+     * Determines if the resource index has been loaded. Guarded by this.
+     */
+    private boolean indexLoaded;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(AbstractResources.class.getName());
+
 
     /**
      * Constructs an {@code AbstractResources} using the default class loader.
@@ -79,7 +101,27 @@ public abstract class AbstractResources implements Resources
     public InputStream getInputStream(String name)
     {
         name = resolveName(name);
-        InputStream result = loader.getResourceAsStream(name);
+        InputStream result = null;
+        ResourceIndex index = getIndex();
+        if (index != null && index.covers(name))
+        {
+            URL url = getIndexedResource(index, name);
+            if (url != null)
+            {
+                try
+                {
+                    result = url.openStream();
+                }
+                catch (IOException exception)
+                {
+                    logger.log(Level.FINE, "Failed to open indexed resource: " + url, exception);
+                }
+            }
+        }
+        else
+        {
+            result = loader.getResourceAsStream(name);
+        }
         if (result == null)
         {
             throw new ResourceNotFoundException("Failed to locate resource: " + name);
@@ -195,6 +237,8 @@ public abstract class AbstractResources implements Resources
 
     /**
      * Returns an {@code ImageIcon} resource.
+     * <p/>
+     * Icons are cached, and shared between callers, so they must not be modified.
      *
      * @param name         the resource name
      * @param alternatives alternative resource names, if {@code name} is not found
@@ -227,11 +271,14 @@ public abstract class AbstractResources implements Resources
             }
             throw new ResourceNotFoundException(message.toString());
         }
-        return new ImageIcon(result);
+        return icons.getIcon(result);
     }
 
     /**
      * Returns a resource URL.
+     * <p/>
+     * If the installer has a resource index, installer resources are located using it, and the class loader is
+     * only searched for other resources.
      *
      * @param name the resource name
      * @return the corresponding URL, or {@code null} if the resource cannot be found
@@ -239,6 +286,11 @@ public abstract class AbstractResources implements Resources
     protected URL getResource(String name)
     {
         name = resolveName(name);
+        ResourceIndex index = getIndex();
+        if (index != null && index.covers(name))
+        {
+            return getIndexedResource(index, name);
+        }
         return loader.getResource(name);
     }
 
@@ -269,6 +321,53 @@ public abstract class AbstractResources implements Resources
         return loader;
     }
 
+    /**
+     * Returns the installer resource index, loading it on first access.
+     *
+     * @return the resource index, or {@code null} if the installer has none or it cannot be read
+     */
+    protected synchronized ResourceIndex getIndex()
+    {
+        if (!indexLoaded)
+        {
+            indexLoaded = true;
+            URL url = loader.getResource(ResourceIndex.RESOURCES_PATH + ResourceIndex.NAME);
+            if (url != null)
+            {
+                try
+                {
+                    index = ResourceIndex.read(url);
+                }
+                catch (IOException exception)
+                {
+                    logger.log(Level.WARNING, "Failed to read resource index: " + url, exception);
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the URL of a resource from the resource index.
+     *
+     * @param index the resource index
+     * @param name  the absolute resource name, minus any leading '/'
+     * @return the resource URL, or {@code null} if the index doesn't contain the resource
+     */
+    private URL getIndexedResource(ResourceIndex index, String name)
+    {
+        try
+        {
+            return index.getURL(name);
+        }
+        catch (IOException exception)
+        {
+            // resolve the name the slow way
+            logger.log(Level.FINE, "Failed to construct URL for resource: " + name, exception);
+            return loader.getResource(name);
+        }
+    }
+
     /**
      * Reads a string resource.
      *
@@ -0,0 +1,208 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.resource;
+
+import java.awt.MediaTracker;
+import java.lang.ref.SoftReference;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.swing.ImageIcon;
+
+
+/**
+ * A cache of decoded {@link ImageIcon}s, keyed on their resource URL.
+ * <p/>
+ * As resource URLs are resolved for the current locale, each locale variant of an image is cached separately.
+ * <p/>
+ * Icons are held by soft references, so they may be reclaimed when memory is low. In addition, the least recently
+ * used icons are evicted when the estimated size of the decoded images exceeds a limit.
+ * <p/>
+ * This class is thread safe.
+ */
+class ImageIconCache
+{
+
+    /**
+     * The default maximum size of the cached images, in bytes.
+     */
+    public static final long DEFAULT_MAX_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * The maximum size of the cached images, in bytes.
+     */
+    private final long maxSize;
+
+    /**
+     * The estimated size of the cached images, in bytes.
+     */
+    private long size;
+
+    /**
+     * The cached icons, keyed on URL, in order of access.
+     */
+    private final Map<String, Entry> icons = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+
+    /**
+     * Constructs an {@code ImageIconCache} with the default maximum size.
+     */
+    public ImageIconCache()
+    {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructs an {@code ImageIconCache}.
+     *
+     * @param maxSize the maximum size of the cached images, in bytes
+     */
+    public ImageIconCache(long maxSize)
+    {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the icon for an image URL, loading it if it isn't cached.
+     * <p/>
+     * Icons are shared, and must not be modified.
+     *
+     * @param url the image URL
+     * @return the corresponding icon
+     */
+    public ImageIcon getIcon(URL url)
+    {
+        String key = url.toExternalForm();
+        ImageIcon result = get(key);
+        if (result == null)
+        {
+            // load outside of the lock, so that slow loads don't block access to other icons
+            result = new ImageIcon(url);
+            if (result.getImageLoadStatus() == MediaTracker.COMPLETE)
+            {
+                put(key, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the estimated size of the cached images.
+     *
+     * @return the size, in bytes
+     */
+    public synchronized long getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the number of cached icons.
+     *
+     * @return the number of cached icons, including any reclaimed but not yet removed
+     */
+    public synchronized int getCount()
+    {
+        return icons.size();
+    }
+
+    /**
+     * Returns a cached icon.
+     *
+     * @param key the icon key
+     * @return the icon, or {@code null} if it isn't cached
+     */
+    private synchronized ImageIcon get(String key)
+    {
+        ImageIcon result = null;
+        Entry entry = icons.get(key);
+        if (entry != null)
+        {
+            result = entry.icon.get();
+            if (result == null)
+            {
+                // reclaimed by the garbage collector
+                icons.remove(key);
+                size -= entry.size;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Caches an icon, evicting the least recently used icons if the cache is full.
+     *
+     * @param key  the icon key
+     * @param icon the icon
+     */
+    private synchronized void put(String key, ImageIcon icon)
+    {
+        long iconSize = 4L * Math.max(icon.getIconWidth(), 0) * Math.max(icon.getIconHeight(), 0);
+        if (iconSize > maxSize)
+        {
+            return;
+        }
+        Entry previous = icons.put(key, new Entry(icon, iconSize));
+        if (previous != null)
+        {
+            size -= previous.size;
+        }
+        size += iconSize;
+
+        Iterator<Entry> iterator = icons.values().iterator();
+        while (size > maxSize && iterator.hasNext())
+        {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            size -= eldest.size;
+        }
+    }
+
+    /**
+     * A cached icon.
+     */
+    private static class Entry
+    {
+
+        /**
+         * The icon.
+         */
+        private final SoftReference<ImageIcon> icon;
+
+        /**
+         * The estimated size of the decoded image, in bytes.
+         */
+        private final long size;
+
+        /**
+         * Constructs an {@code Entry}.
+         *
+         * @param icon the icon
+         * @param size the estimated size of the decoded image, in bytes
+         */
+        public Entry(ImageIcon icon, long size)
+        {
+            this.icon = new SoftReference<ImageIcon>(icon);
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.resource;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.izforge.izpack.util.file.FileUtils;
+
+
+/**
+ * The index of the installer resources.
+ * <p/>
+ * Each installer includes the names of the entries under <tt>resources/</tt> as the
+ * <tt>resources/resources.index</tt> entry. This allows resources to be located directly in the installer jar,
+ * rather than searching the class path for each name, and the language specific variants of a resource that
+ * don't exist to be rejected without searching at all.
+ */
+public class ResourceIndex
+{
+
+    /**
+     * The index entry name, relative to the installer resources.
+     */
+    public static final String NAME = "resources.index";
+
+    /**
+     * The path of the installer resources.
+     */
+    public static final String RESOURCES_PATH = "resources/";
+
+    /**
+     * The index format version.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The resource names, relative to {@link #RESOURCES_PATH}.
+     */
+    private final Set<String> names;
+
+    /**
+     * The URL of the root that the resources are located relative to, or {@code null} if the index wasn't read.
+     */
+    private final String root;
+
+
+    /**
+     * Constructs a <tt>ResourceIndex</tt>.
+     *
+     * @param names the resource names, relative to {@link #RESOURCES_PATH}
+     */
+    public ResourceIndex(Collection<String> names)
+    {
+        this(new TreeSet<String>(names), null);
+    }
+
+    /**
+     * Constructs a <tt>ResourceIndex</tt>.
+     *
+     * @param names the resource names, relative to {@link #RESOURCES_PATH}
+     * @param root  the URL of the root that the resources are located relative to. May be {@code null}
+     */
+    private ResourceIndex(Set<String> names, String root)
+    {
+        this.names = names;
+        this.root = root;
+    }
+
+    /**
+     * Reads an index.
+     * <p/>
+     * Resources are located relative to the root of the jar or directory that contains the index.
+     *
+     * @param url the index URL
+     * @return the index
+     * @throws IOException if the index cannot be read
+     */
+    public static ResourceIndex read(URL url) throws IOException
+    {
+        String path = url.toExternalForm();
+        String suffix = RESOURCES_PATH + NAME;
+        if (!path.endsWith(suffix))
+        {
+            throw new IOException("Invalid resource index URL: " + url);
+        }
+        Set<String> names = new HashSet<String>();
+        InputStream in = url.openStream();
+        try
+        {
+            DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+            int version = data.readInt();
+            if (version != VERSION)
+            {
+                throw new IOException("Unsupported resource index version: " + version);
+            }
+            int count = data.readInt();
+            for (int i = 0; i < count; ++i)
+            {
+                names.add(data.readUTF());
+            }
+        }
+        finally
+        {
+            FileUtils.close(in);
+        }
+        return new ResourceIndex(names, path.substring(0, path.length() - suffix.length()));
+    }
+
+    /**
+     * Returns the resource names.
+     *
+     * @return the resource names, relative to {@link #RESOURCES_PATH}
+     */
+    public Set<String> getNames()
+    {
+        return Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * Determines if the index covers a resource name, i.e. if the existence of the resource can be determined
+     * from the index alone.
+     *
+     * @param name the absolute resource name, minus any leading '/'
+     * @return {@code true} if the name is covered by the index
+     */
+    public boolean covers(String name)
+    {
+        return name.startsWith(RESOURCES_PATH);
+    }
+
+    /**
+     * Determines if the index contains a resource.
+     *
+     * @param name the absolute resource name, minus any leading '/'
+     * @return {@code true} if the index contains the resource
+     */
+    public boolean contains(String name)
+    {
+        return covers(name) && names.contains(name.substring(RESOURCES_PATH.length()));
+    }
+
+    /**
+     * Returns the URL of a resource.
+     *
+     * @param name the absolute resource name, minus any leading '/'
+     * @return the resource URL, or {@code null} if the index doesn't contain the resource or wasn't read
+     * @throws MalformedURLException if the URL cannot be constructed
+     */
+    public URL getURL(String name) throws MalformedURLException
+    {
+        if (root == null || !contains(name))
+        {
+            return null;
+        }
+        try
+        {
+            // escape any characters not permitted in URLs
+            return new URL(root + new URI(null, null, name, null).getRawPath());
+        }
+        catch (URISyntaxException exception)
+        {
+            throw new MalformedURLException(exception.getMessage());
+        }
+    }
+
+    /**
+     * Writes the index.
+     *
+     * @param out the stream to write to. This is flushed but not closed
+     * @throws IOException for any I/O error
+     */
+    public void write(OutputStream out) throws IOException
+    {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(VERSION);
+        data.writeInt(names.size());
+        for (String name : names)
+        {
+            data.writeUTF(name);
+        }
+        data.flush();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Tests the {@link ImageIconCache}.
+ */
+public class ImageIconCacheTest
+{
+
+    /**
+     * Temporary folder to write images to.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+    /**
+     * Verifies that icons are loaded once, and shared.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testCache() throws IOException
+    {
+        ImageIconCache cache = new ImageIconCache();
+        URL url = createImage("a.png", 10, 20);
+
+        ImageIcon icon = cache.getIcon(url);
+        assertEquals(10, icon.getIconWidth());
+        assertEquals(20, icon.getIconHeight());
+        assertSame(icon, cache.getIcon(url));
+        assertEquals(1, cache.getCount());
+        assertEquals(10 * 20 * 4, cache.getSize());
+    }
+
+    /**
+     * Verifies that the least recently used icons are evicted when the cache exceeds its maximum size.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testEviction() throws IOException
+    {
+        ImageIconCache cache = new ImageIconCache(2 * 10 * 10 * 4);
+        URL a = createImage("a.png", 10, 10);
+        URL b = createImage("b.png", 10, 10);
+        URL c = createImage("c.png", 10, 10);
+
+        ImageIcon iconA = cache.getIcon(a);
+        ImageIcon iconB = cache.getIcon(b);
+        assertSame(iconA, cache.getIcon(a));   // a is now the most recently used
+
+        cache.getIcon(c);                      // evicts b
+        assertEquals(2, cache.getCount());
+        assertEquals(2 * 10 * 10 * 4, cache.getSize());
+        assertSame(iconA, cache.getIcon(a));
+        assertNotSame(iconB, cache.getIcon(b));
+    }
+
+    /**
+     * Verifies that images larger than the cache are loaded, but not cached.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testTooLarge() throws IOException
+    {
+        ImageIconCache cache = new ImageIconCache(100);
+        URL url = createImage("large.png", 10, 10);
+
+        ImageIcon icon = cache.getIcon(url);
+        assertEquals(10, icon.getIconWidth());
+        assertEquals(0, cache.getCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    /**
+     * Writes a PNG image.
+     *
+     * @param name   the file name
+     * @param width  the image width
+     * @param height the image height
+     * @return the image URL
+     * @throws IOException for any I/O error
+     */
+    private URL createImage(String name, int width, int height) throws IOException
+    {
+        File file = new File(temporaryFolder.getRoot(), name);
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", file);
+        return file.toURI().toURL();
+    }
+}
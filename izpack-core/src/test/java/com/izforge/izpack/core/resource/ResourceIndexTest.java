@@ -0,0 +1,145 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Tests the {@link ResourceIndex}, and its use by {@link AbstractResources}.
+ */
+public class ResourceIndexTest
+{
+
+    /**
+     * Temporary folder to create the resources in.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The class loader.
+     */
+    private ClassLoader loader;
+
+
+    /**
+     * Sets up the test case.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        write("resources/a.txt", "a");
+        write("resources/b c.txt", "b c");
+        write("resources/unindexed.txt", "unindexed");
+        write("other/d.txt", "d");
+        loader = new URLClassLoader(new URL[]{temporaryFolder.getRoot().toURI().toURL()}, null);
+    }
+
+    /**
+     * Verifies that installer resources are located using the index, and that other resources are located using
+     * the class loader.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testIndex() throws IOException
+    {
+        writeIndex("a.txt", "b c.txt");
+        ResourceManager resources = new ResourceManager(loader);
+
+        assertEquals("a", resources.getString("a.txt"));
+        assertEquals("b c", resources.getString("b c.txt"));
+        assertEquals(loader.getResource("resources/b c.txt"), resources.getURL("b c.txt"));
+        assertEquals("d", resources.getString("/other/d.txt"));
+
+        // resources missing from the index are treated as not present
+        assertNull(resources.getString("unindexed.txt", null));
+        assertNull(resources.getString("a.txt_eng", null));
+    }
+
+    /**
+     * Verifies that resources are located using the class loader if there is no index.
+     */
+    @Test
+    public void testNoIndex()
+    {
+        ResourceManager resources = new ResourceManager(loader);
+        assertEquals("a", resources.getString("a.txt"));
+        assertEquals("unindexed", resources.getString("unindexed.txt"));
+    }
+
+    /**
+     * Writes the resource index.
+     *
+     * @param names the resource names, relative to the resources directory
+     * @throws IOException for any I/O error
+     */
+    private void writeIndex(String... names) throws IOException
+    {
+        OutputStream out = new FileOutputStream(new File(temporaryFolder.getRoot(), "resources/" + ResourceIndex.NAME));
+        try
+        {
+            new ResourceIndex(Arrays.asList(names)).write(out);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes a resource.
+     *
+     * @param name    the resource name
+     * @param content the resource content
+     * @throws IOException for any I/O error
+     */
+    private void write(String name, String content) throws IOException
+    {
+        File file = new File(temporaryFolder.getRoot(), name);
+        file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(content.getBytes("UTF-8"));
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+}
@@ -31,14 +31,12 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.Vector;
 
 import org.apache.tools.ant.BuildLogger;
 import org.apache.tools.ant.DefaultLogger;
 import org.apache.tools.ant.DemuxOutputStream;
 import org.apache.tools.ant.Project;
-import org.apache.tools.ant.Target;
-import org.apache.tools.ant.input.DefaultInputHandler;
-import org.apache.tools.ant.taskdefs.Ant;
 import org.apache.tools.ant.util.JavaEnvUtils;
 
 import com.izforge.izpack.api.exception.IzPackException;
@@ -64,10 +62,14 @@ public class AntAction extends ActionBase
 
     public static final String ANTCALL = "antcall";
 
+    public static final String CONCURRENT = "concurrent";
+
     private boolean quiet = false;
 
     private boolean verbose = false;
 
+    private boolean concurrent = false;
+
     private Properties properties = null;
 
     private List<String> targets = null;
@@ -128,6 +130,25 @@ public class AntAction extends ActionBase
      * @see #performUninstallAction() for calling all uninstall actions.
      */
     public void performAction(boolean uninstall)
+    {
+        performAction(uninstall, new AntProjectFactory());
+    }
+
+    /**
+     * Performs all defined actions.
+     * <p/>
+     * The build file is parsed once, and the chosen targets executed in order within the same project.
+     * <p/>
+     * Unless the action is {@link #isConcurrent() concurrent}, output written to <tt>System.out</tt> and
+     * <tt>System.err</tt> while the targets execute is redirected to the Ant logger. Concurrent actions share the
+     * standard streams, so their output is not redirected.
+     *
+     * @param uninstall An install/uninstall switch. If this is <tt>true</tt> only the uninstall
+     *                  actions, otherwise only the install actions are being performed.
+     * @param factory   the factory to create the Ant project with
+     * @throws IzPackException for any error
+     */
+    public void performAction(boolean uninstall, AntProjectFactory factory)
     {
         if (verbose)
         {
@@ -142,40 +163,23 @@ public class AntAction extends ActionBase
         PrintStream out = System.out;
         try
         {
-            Project antProj = new Project();
-            antProj.setName("antcallproject");
+            Project antProj = factory.create();
             antProj.addBuildListener(createLogger());
-            antProj.setInputHandler(new DefaultInputHandler());
-            antProj.setSystemProperties();
             addProperties(antProj, getProperties());
             addPropertiesFromPropertyFiles(antProj);
             // TODO: propertyfiles, logFile
             antProj.fireBuildStarted();
-            antProj.init();
-            List<Ant> antcalls = new ArrayList<Ant>();
             List<String> choosenTargets = (uninstall) ? uninstallTargets : targets;
             if (choosenTargets.size() > 0)
             {
-                Ant antcall = null;
-                for (String choosenTarget : choosenTargets)
+                factory.configure(antProj, getBuildFile().getAbsoluteFile());
+                if (!concurrent)
                 {
-                    antcall = (Ant) antProj.createTask("ant");
-                    antcall.setAntfile(getBuildFile().getAbsolutePath());
-                    antcall.setTarget(choosenTarget);
-                    antcalls.add(antcall);
+                    System.setOut(new PrintStream(new DemuxOutputStream(antProj, false)));
+                    System.setErr(new PrintStream(new DemuxOutputStream(antProj, true)));
                 }
+                antProj.executeTargets(new Vector<String>(choosenTargets));
             }
-            Target target = new Target();
-            target.setName("calltarget");
-
-            for (Ant antcall : antcalls)
-            {
-                target.addTask(antcall);
-            }
-            antProj.addTarget(target);
-            System.setOut(new PrintStream(new DemuxOutputStream(antProj, false)));
-            System.setErr(new PrintStream(new DemuxOutputStream(antProj, true)));
-            antProj.executeTarget("calltarget");
         }
         catch (Exception exception)
         {
@@ -187,8 +191,11 @@ public class AntAction extends ActionBase
             {
                 System.setSecurityManager(oldsm);
             }
-            System.setOut(out);
-            System.setErr(err);
+            if (!concurrent)
+            {
+                System.setOut(out);
+                System.setErr(err);
+            }
         }
     }
 
@@ -416,6 +423,29 @@ public class AntAction extends ActionBase
         this.verbose = verbose;
     }
 
+    /**
+     * Determines if the action may be performed concurrently with adjacent concurrent actions.
+     *
+     * @return <tt>true</tt> if the action is independent of the adjacent concurrent actions
+     */
+    public boolean isConcurrent()
+    {
+        return concurrent;
+    }
+
+    /**
+     * Sets whether the action may be performed concurrently with adjacent concurrent actions.
+     * <p/>
+     * This should only be set for actions whose targets don't depend on, or interfere with, those of the other
+     * concurrent actions.
+     *
+     * @param concurrent if <tt>true</tt>, the action is independent of the adjacent concurrent actions
+     */
+    public void setConcurrent(boolean concurrent)
+    {
+        this.concurrent = concurrent;
+    }
+
     private BuildLogger createLogger()
     {
         int msgOutputLevel = 2;
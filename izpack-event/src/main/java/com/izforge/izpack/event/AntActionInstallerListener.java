@@ -32,6 +32,10 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import com.izforge.izpack.api.adaptator.IXMLElement;
@@ -92,6 +96,11 @@ public class AntActionInstallerListener extends AbstractProgressInstallerListene
      */
     private SpecHelper spec;
 
+    /**
+     * The factory for the Ant projects.
+     */
+    private final AntProjectFactory projects = new AntProjectFactory();
+
     /**
      * The logger.
      */
@@ -294,6 +303,7 @@ public class AntActionInstallerListener extends AbstractProgressInstallerListene
 
         logger.fine("Executing all " + order + " Ant actions of pack " + packName + " ...");
         RulesEngine rules = getInstallData().getRules();
+        List<AntAction> concurrent = new ArrayList<AntAction>();
         for (AntAction act : actList)
         {
             if (notifyProgress)
@@ -301,23 +311,102 @@ public class AntActionInstallerListener extends AbstractProgressInstallerListene
                 String message = (act.getMessageID() != null) ? getMessage(act.getMessageID()) : "";
                 listener.progress(message);
             }
+            String conditionId = act.getConditionId();
+            if (conditionId == null || rules.isConditionTrue(conditionId))
+            {
+                if (act.isConcurrent())
+                {
+                    concurrent.add(act);
+                }
+                else
+                {
+                    performConcurrentActions(concurrent);
+                    performAction(act);
+                }
+            }
+            if (!act.getUninstallTargets().isEmpty())
+            {
+                uninstActions.add(act);
+            }
+        }
+        performConcurrentActions(concurrent);
+    }
+
+    /**
+     * Performs an action.
+     *
+     * @param action the action to perform
+     * @throws InstallerException if the action fails
+     */
+    private void performAction(AntAction action)
+    {
+        try
+        {
+            action.performAction(false, projects);
+        }
+        catch (Exception e)
+        {
+            throw new InstallerException(e);
+        }
+    }
+
+    /**
+     * Performs actions concurrently, waiting for all of them to complete.
+     * <p/>
+     * On return, the list is empty.
+     *
+     * @param actions the actions to perform
+     * @throws InstallerException if an action fails
+     */
+    private void performConcurrentActions(List<AntAction> actions)
+    {
+        if (actions.size() == 1)
+        {
+            performAction(actions.get(0));
+        }
+        else if (!actions.isEmpty())
+        {
+            int threads = Math.min(actions.size(), Runtime.getRuntime().availableProcessors());
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
             try
             {
-                String conditionId = act.getConditionId();
-                if (conditionId == null || rules.isConditionTrue(conditionId))
+                List<Future<?>> results = new ArrayList<Future<?>>();
+                for (final AntAction action : actions)
                 {
-                    act.performInstallAction();
+                    results.add(executor.submit(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            performAction(action);
+                        }
+                    }));
+                }
+                for (Future<?> result : results)
+                {
+                    result.get();
                 }
             }
-            catch (Exception e)
+            catch (ExecutionException exception)
             {
-                throw new InstallerException(e);
+                Throwable cause = exception.getCause();
+                if (cause instanceof InstallerException)
+                {
+                    throw (InstallerException) cause;
+                }
+                throw new InstallerException(cause);
             }
-            if (!act.getUninstallTargets().isEmpty())
+            catch (InterruptedException exception)
             {
-                uninstActions.add(act);
+                Thread.currentThread().interrupt();
+                throw new InstallerException(exception);
+            }
+            finally
+            {
+                executor.shutdownNow();
             }
         }
+        actions.clear();
     }
 
     /**
@@ -349,6 +438,7 @@ public class AntActionInstallerListener extends AbstractProgressInstallerListene
 
         act.setQuiet(spec.isAttributeYes(el, ActionBase.QUIET, false));
         act.setVerbose(spec.isAttributeYes(el, ActionBase.VERBOSE, false));
+        act.setConcurrent(spec.isAttributeYes(el, AntAction.CONCURRENT, false));
         buildFile = el.getAttribute(ActionBase.BUILDFILE);
         act.setConditionId(el.getAttribute(ActionBase.CONDITIONID));
         buildResource = processBuildfileResource(spec, el);
@@ -53,6 +53,11 @@ public class AntActionUninstallerListener extends AbstractUninstallerListener
      */
     private List<AntAction> antActions = new ArrayList<AntAction>();
 
+    /**
+     * The factory for the Ant projects.
+     */
+    private final AntProjectFactory projects = new AntProjectFactory();
+
     /**
      * Default constructor
      */
@@ -167,7 +172,7 @@ public class AntActionUninstallerListener extends AbstractUninstallerListener
     {
         for (AntAction act : befDel)
         {
-            act.performUninstallAction();
+            act.performAction(true, projects);
         }
     }
 
@@ -183,7 +188,7 @@ public class AntActionUninstallerListener extends AbstractUninstallerListener
     {
         for (AntAction act : antActions)
         {
-            act.performUninstallAction();
+            act.performAction(true, projects);
         }
     }
 
@@ -0,0 +1,92 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.event;
+
+import java.io.File;
+
+import org.apache.tools.ant.MagicNames;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ProjectHelper;
+import org.apache.tools.ant.input.DefaultInputHandler;
+
+
+/**
+ * Creates the Ant projects used to perform {@link AntAction}s.
+ * <p/>
+ * Initialising an Ant project loads the definitions of all of the core tasks and types, which is expensive compared
+ * to executing a typical install target. This factory initialises a single template project, once, and creates each
+ * project from it, copying the definitions rather than reloading them.
+ * <p/>
+ * Each {@link #create() created} project is new, so that the properties and references defined by one action
+ * are never visible to another. Projects must not be reused once their targets have been executed.
+ * <p/>
+ * This class is thread safe.
+ */
+public class AntProjectFactory
+{
+
+    /**
+     * The template project, or {@code null} if it has not been initialised yet.
+     */
+    private Project template;
+
+
+    /**
+     * Creates a new project.
+     * <p/>
+     * The project is initialised with the system properties, the Ant properties set by {@link Project#init()}, and
+     * the core definitions, but is not yet configured from a build file. Properties must be added before invoking
+     * {@link #configure}, as the top level tasks of the build file are executed as it is parsed.
+     *
+     * @return a new project
+     */
+    public Project create()
+    {
+        Project project;
+        synchronized (this)
+        {
+            if (template == null)
+            {
+                template = new Project();
+                template.init();
+            }
+            project = template.createSubProject();
+            template.initSubProject(project);
+        }
+        project.setName("antcallproject");
+        project.setInputHandler(new DefaultInputHandler());
+        // sets the system properties, and those such as ant.version and ant.java.version that Project.init() sets
+        project.initProperties();
+        return project;
+    }
+
+    /**
+     * Configures a project from a build file.
+     *
+     * @param project   the project, as returned by {@link #create()}
+     * @param buildFile the build file
+     * @throws org.apache.tools.ant.BuildException if the build file cannot be parsed
+     */
+    public void configure(Project project, File buildFile)
+    {
+        project.setUserProperty(MagicNames.ANT_FILE, buildFile.getAbsolutePath());
+        ProjectHelper.configureProject(project, buildFile);
+    }
+}
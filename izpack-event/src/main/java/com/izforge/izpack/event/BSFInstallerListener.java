@@ -34,8 +34,10 @@ import com.izforge.izpack.api.adaptator.IXMLElement;
 import com.izforge.izpack.api.data.InstallData;
 import com.izforge.izpack.api.data.Pack;
 import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.api.event.FileListenerScope;
 import com.izforge.izpack.api.event.ProgressListener;
 import com.izforge.izpack.api.event.ProgressNotifiers;
+import com.izforge.izpack.api.event.ScopedFileListener;
 import com.izforge.izpack.api.exception.InstallerException;
 import com.izforge.izpack.api.exception.IzPackException;
 import com.izforge.izpack.api.resource.Resources;
@@ -45,7 +47,7 @@ import com.izforge.izpack.util.file.FileUtils;
 import com.izforge.izpack.util.helper.SpecHelper;
 
 
-public class BSFInstallerListener extends AbstractProgressInstallerListener
+public class BSFInstallerListener extends AbstractProgressInstallerListener implements ScopedFileListener
 {
 
     public static final String SPEC_FILE_NAME = "BSFActionsSpec.xml";
@@ -243,6 +245,19 @@ public class BSFInstallerListener extends AbstractProgressInstallerListener
         return true;
     }
 
+    /**
+     * Returns the file and directory notifications the listener should receive for a pack.
+     *
+     * @param pack the pack
+     * @return {@link FileListenerScope#ALL} if the pack has BSF actions, otherwise {@link FileListenerScope#NONE}
+     */
+    @Override
+    public FileListenerScope getFileListenerScope(Pack pack)
+    {
+        List<BSFAction> actList = actions.get(pack.getName());
+        return (actList == null || actList.isEmpty()) ? FileListenerScope.NONE : FileListenerScope.ALL;
+    }
+
     /**
      * Invoked before a directory is created.
      *
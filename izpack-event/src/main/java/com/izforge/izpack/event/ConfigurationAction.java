@@ -52,11 +52,23 @@ public class ConfigurationAction extends ActionBase
      * @throws Exception
      */
     public void performInstallAction() throws Exception
+    {
+        ConfigurationTaskPlan plan = new ConfigurationTaskPlan();
+        addTo(plan);
+        plan.execute();
+    }
+
+    /**
+     * Adds the tasks of this action to an execution plan.
+     *
+     * @param plan the plan
+     */
+    public void addTo(ConfigurationTaskPlan plan)
     {
         logger.fine("Found " + actionTasks.size() + " configuration tasks");
         for (ConfigurationActionTask task : actionTasks)
         {
-            task.execute();
+            plan.add(task);
         }
     }
 
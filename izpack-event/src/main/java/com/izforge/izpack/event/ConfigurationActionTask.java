@@ -63,16 +63,27 @@ public class ConfigurationActionTask
         this.condition = condition;
     }
 
-    public void execute() throws Exception
+    /**
+     * Determines if the task's condition is met.
+     *
+     * @return <tt>true</tt> if the task has no condition, or its condition is true
+     */
+    public boolean isConditionTrue()
     {
         if (condition == null || condition.trim().length() == 0 || rules.isConditionTrue(condition))
         {
-            logger.fine("Executing configuration task class " + task.getClass().getName());
-            this.task.execute();
+            return true;
         }
-        else
+        logger.fine("Condition " + condition + " not met - skipping configuration task class " + task.getClass().getName());
+        return false;
+    }
+
+    public void execute() throws Exception
+    {
+        if (isConditionTrue())
         {
-            logger.fine("Condition " + condition + " not met - skipping configuration task class " + task.getClass().getName());
+            logger.fine("Executing configuration task class " + task.getClass().getName());
+            this.task.execute();
         }
     }
 }
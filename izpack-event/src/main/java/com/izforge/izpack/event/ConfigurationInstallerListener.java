@@ -339,6 +339,7 @@ public class ConfigurationInstallerListener extends AbstractProgressInstallerLis
         }
 
         logger.fine("Executing all " + order + " configuration actions for " + packName + " ...");
+        ConfigurationTaskPlan plan = new ConfigurationTaskPlan();
         for (ConfigurationAction act : actList)
         {
             // Inform progress bar if needed. Works only on AFTER_PACKS
@@ -348,16 +349,17 @@ public class ConfigurationInstallerListener extends AbstractProgressInstallerLis
             }
             else
             {
-                try
-                {
-                    act.performInstallAction();
-                }
-                catch (Exception e)
-                {
-                    throw new InstallerException(e);
-                }
+                act.addTo(plan);
             }
         }
+        try
+        {
+            plan.execute();
+        }
+        catch (Exception e)
+        {
+            throw new InstallerException(e);
+        }
     }
 
     /**
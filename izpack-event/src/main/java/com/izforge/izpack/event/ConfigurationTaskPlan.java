@@ -0,0 +1,303 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.event;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import com.izforge.izpack.util.config.ConfigFileTask;
+import com.izforge.izpack.util.config.ConfigFileTaskGroup;
+import com.izforge.izpack.util.config.ConfigurableTask;
+import com.izforge.izpack.util.config.SingleIniFileTask;
+import com.izforge.izpack.util.config.SingleOptionFileTask;
+
+
+/**
+ * Plans the execution of {@link ConfigurationActionTask}s.
+ * <p/>
+ * INI and option file tasks are grouped by the file they patch, so that each file is read and written once, no
+ * matter how many tasks patch it. See {@link ConfigFileTaskGroup} for the conditions under which tasks are grouped.
+ * <p/>
+ * The plan is a sequence of stages. A stage contains either groups of file tasks that read and write disjoint sets
+ * of files, which are executed concurrently, or a single task of another type, e.g. a registry task or an XML merge,
+ * which is executed on its own. Stages are executed in order, so that each file sees the same sequence of changes
+ * as it would if the tasks were executed one by one.
+ * <p/>
+ * Task conditions are evaluated as the plan is {@link #execute executed}. Stages are planned as if all tasks
+ * will be executed; when a stage is executed, the groups are formed from those file tasks whose conditions are met
+ * at that time. As omitting tasks never introduces a dependency between groups, nor prevents a task from being
+ * grouped, this produces the same result as executing the tasks one by one.
+ */
+public class ConfigurationTaskPlan
+{
+
+    /**
+     * The stages.
+     */
+    private final List<Stage> stages = new ArrayList<Stage>();
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(ConfigurationTaskPlan.class.getName());
+
+
+    /**
+     * Adds a task to the plan.
+     * <p/>
+     * The task condition is evaluated when the plan is executed.
+     *
+     * @param task the task to add
+     */
+    public void add(ConfigurationActionTask task)
+    {
+        Stage stage = stages.isEmpty() ? null : stages.get(stages.size() - 1);
+        if (isFileTask(task.getConfigurableTask()))
+        {
+            if (stage == null || stage.task != null || !stage.add(task))
+            {
+                stage = new Stage();
+                stage.add(task);
+                stages.add(stage);
+            }
+        }
+        else
+        {
+            stages.add(new Stage(task));
+        }
+    }
+
+    /**
+     * Adds a task to the plan, to be executed unconditionally.
+     *
+     * @param task the task to add
+     */
+    public void add(ConfigurableTask task)
+    {
+        add(new ConfigurationActionTask(task, null, null));
+    }
+
+    /**
+     * Returns the tasks of the plan, grouped by stage, assuming all task conditions are met.
+     *
+     * @return the tasks of each stage
+     */
+    public List<List<ConfigurableTask>> getStages()
+    {
+        List<List<ConfigurableTask>> result = new ArrayList<List<ConfigurableTask>>();
+        for (Stage stage : stages)
+        {
+            if (stage.task != null)
+            {
+                result.add(Collections.singletonList(stage.task.getConfigurableTask()));
+            }
+            else
+            {
+                result.add(new ArrayList<ConfigurableTask>(stage.groups));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Executes the plan.
+     *
+     * @throws Exception if a task fails
+     */
+    public void execute() throws Exception
+    {
+        for (Stage stage : stages)
+        {
+            if (stage.task != null)
+            {
+                stage.task.execute();
+            }
+            else
+            {
+                Stage filtered = new Stage();
+                for (ConfigurationActionTask task : stage.tasks)
+                {
+                    if (task.isConditionTrue())
+                    {
+                        filtered.add(task);
+                    }
+                }
+                if (!filtered.groups.isEmpty())
+                {
+                    execute(filtered.groups);
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines if a task can be grouped with other tasks patching the same file.
+     *
+     * @param task the task
+     * @return <tt>true</tt> if the task is an INI or option file task with an output file
+     */
+    private static boolean isFileTask(ConfigurableTask task)
+    {
+        return (task instanceof SingleIniFileTask || task instanceof SingleOptionFileTask)
+                && ((ConfigFileTask) task).getToFile() != null;
+    }
+
+    /**
+     * Executes groups of file tasks concurrently, waiting for all of them to complete.
+     *
+     * @param groups the groups to execute
+     * @throws Exception if a task fails
+     */
+    private void execute(List<ConfigFileTaskGroup> groups) throws Exception
+    {
+        if (groups.size() == 1)
+        {
+            groups.get(0).execute();
+            return;
+        }
+        logger.fine("Executing configuration tasks for " + groups.size() + " files concurrently");
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(groups.size(), Runtime.getRuntime().availableProcessors()));
+        try
+        {
+            List<Future<?>> results = new ArrayList<Future<?>>();
+            for (final ConfigFileTaskGroup group : groups)
+            {
+                results.add(executor.submit(new Callable<Object>()
+                {
+                    @Override
+                    public Object call() throws Exception
+                    {
+                        group.execute();
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> result : results)
+            {
+                try
+                {
+                    result.get();
+                }
+                catch (ExecutionException exception)
+                {
+                    Throwable cause = exception.getCause();
+                    if (cause instanceof Exception)
+                    {
+                        throw (Exception) cause;
+                    }
+                    throw exception;
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A stage of the plan.
+     */
+    private static class Stage
+    {
+
+        /**
+         * The task to execute on its own, or {@code null} if the stage contains file task groups.
+         */
+        private final ConfigurationActionTask task;
+
+        /**
+         * The file tasks, in the order they were added.
+         */
+        private final List<ConfigurationActionTask> tasks = new ArrayList<ConfigurationActionTask>();
+
+        /**
+         * The file task groups.
+         */
+        private final List<ConfigFileTaskGroup> groups = new ArrayList<ConfigFileTaskGroup>();
+
+        /**
+         * Constructs a <tt>Stage</tt> for file task groups.
+         */
+        public Stage()
+        {
+            this(null);
+        }
+
+        /**
+         * Constructs a <tt>Stage</tt> for a task to execute on its own.
+         *
+         * @param task the task. May be {@code null}
+         */
+        public Stage(ConfigurationActionTask task)
+        {
+            this.task = task;
+        }
+
+        /**
+         * Adds a file task to the stage, if it can be executed independently of the tasks of the other groups.
+         *
+         * @param actionTask the file task to add
+         * @return <tt>true</tt> if the task was added
+         */
+        public boolean add(ConfigurationActionTask actionTask)
+        {
+            ConfigFileTask task = (ConfigFileTask) actionTask.getConfigurableTask();
+            File toFile = task.getToFile().getAbsoluteFile();
+            Set<File> files = ConfigFileTaskGroup.getFiles(task);
+            ConfigFileTaskGroup match = null;
+            for (ConfigFileTaskGroup group : groups)
+            {
+                if (group.getToFile().getAbsoluteFile().equals(toFile))
+                {
+                    match = group;
+                }
+                else if (!Collections.disjoint(group.getFiles(), files))
+                {
+                    return false;
+                }
+            }
+            if (match == null)
+            {
+                groups.add(new ConfigFileTaskGroup(task));
+            }
+            else if (match.canAdd(task))
+            {
+                match.add(task);
+            }
+            else
+            {
+                return false;
+            }
+            tasks.add(actionTask);
+            return true;
+        }
+    }
+}
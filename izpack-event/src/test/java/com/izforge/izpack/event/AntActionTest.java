@@ -0,0 +1,142 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.event;
+
+import static com.izforge.izpack.test.util.TestHelper.assertFileExists;
+import static com.izforge.izpack.test.util.TestHelper.assertFileNotExists;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.apache.tools.ant.Project;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.util.IoHelper;
+
+
+/**
+ * Tests the {@link AntAction} class.
+ */
+public class AntActionTest
+{
+
+    /**
+     * Temporary folder to perform installations to.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The installation directory.
+     */
+    private File installDir;
+
+    /**
+     * The build file.
+     */
+    private File buildFile;
+
+
+    /**
+     * Sets up the test case.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        installDir = temporaryFolder.getRoot();
+        buildFile = new File(installDir, "targets.xml");
+        IoHelper.copyStream(getClass().getResourceAsStream("/com/izforge/izpack/event/ant/targets.xml"),
+                            new FileOutputStream(buildFile));
+    }
+
+    /**
+     * Verifies that all of the targets of an action are executed, in the one project.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testTargets() throws Exception
+    {
+        AntAction action = createAction("install", "touch_first", "touch_second");
+        action.performInstallAction();
+
+        assertFileExists(installDir, "install-first.txt");
+        assertFileExists(installDir, "install-second.txt");
+    }
+
+    /**
+     * Verifies that the properties of one action aren't visible to another action created by the same factory.
+     */
+    @Test
+    public void testPropertyIsolation()
+    {
+        AntProjectFactory factory = new AntProjectFactory();
+
+        createAction("first", "touch_first").performAction(false, factory);
+        createAction(null, "touch_second").performAction(false, factory);
+
+        assertFileExists(installDir, "first-first.txt");
+        assertFileExists(installDir, "default-second.txt");
+        assertFileNotExists(installDir, "first-second.txt");
+    }
+
+    /**
+     * Verifies that created projects have the properties that initialising a project sets.
+     */
+    @Test
+    public void testProjectProperties()
+    {
+        Project project = new AntProjectFactory().create();
+        assertNotNull(project.getProperty("ant.java.version"));
+        assertNotNull(project.getProperty("ant.version"));
+        assertEquals(System.getProperty("java.home"), project.getProperty("java.home"));
+    }
+
+    /**
+     * Creates an action.
+     *
+     * @param name    the value of the <em>name</em> property. May be {@code null}
+     * @param targets the targets to execute
+     * @return a new action
+     */
+    private AntAction createAction(String name, String... targets)
+    {
+        AntAction action = new AntAction();
+        action.setBuildFile(buildFile);
+        action.setProperty("INSTALL_PATH", installDir.getPath());
+        if (name != null)
+        {
+            action.setProperty("name", name);
+        }
+        for (String target : targets)
+        {
+            action.addTarget(target);
+        }
+        return action;
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.izforge.izpack.api.rules.RulesEngine;
+import com.izforge.izpack.util.config.ConfigurableTask;
+import com.izforge.izpack.util.config.SingleConfigurableTask.Entry;
+import com.izforge.izpack.util.config.SingleConfigurableTask.Entry.Operation;
+import com.izforge.izpack.util.config.SingleOptionFileTask;
+
+
+/**
+ * Tests the {@link ConfigurationTaskPlan} class.
+ */
+public class ConfigurationTaskPlanTest
+{
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The rules engine.
+     */
+    private RulesEngine rules;
+
+    /**
+     * The first file to patch.
+     */
+    private File first;
+
+    /**
+     * The second file to patch.
+     */
+    private File second;
+
+
+    /**
+     * Sets up the test case.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        rules = Mockito.mock(RulesEngine.class);
+        first = write("first.properties", "x=0\ny=0\n");
+        second = write("second.properties", "z=0\n");
+    }
+
+    /**
+     * Verifies that tasks patching different files are grouped by file, and executed in the same stage.
+     */
+    @Test
+    public void testStages()
+    {
+        ConfigurationTaskPlan plan = new ConfigurationTaskPlan();
+        plan.add(options(first, "x", "1"));
+        plan.add(options(second, "y", "2"));
+        plan.add(options(first, "z", "3"));
+
+        List<List<ConfigurableTask>> stages = plan.getStages();
+        assertEquals(1, stages.size());
+        assertEquals(2, stages.get(0).size());
+    }
+
+    /**
+     * Verifies that task conditions are evaluated when the plan is executed, rather than when tasks are added.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testConditionsEvaluatedOnExecute() throws Exception
+    {
+        Mockito.when(rules.isConditionTrue("cond1")).thenReturn(false);
+        Mockito.when(rules.isConditionTrue("cond2")).thenReturn(true);
+
+        ConfigurationTaskPlan plan = new ConfigurationTaskPlan();
+        plan.add(new ConfigurationActionTask(options(first, "x", "1"), "cond1", rules));
+        plan.add(new ConfigurationActionTask(options(first, "y", "2"), null, rules));
+        plan.add(new ConfigurationActionTask(options(second, "z", "3"), "cond2", rules));
+
+        // change the conditions after planning
+        Mockito.when(rules.isConditionTrue("cond1")).thenReturn(true);
+        Mockito.when(rules.isConditionTrue("cond2")).thenReturn(false);
+        plan.execute();
+
+        Properties firstProperties = read(first);
+        assertEquals("1", firstProperties.getProperty("x"));
+        assertEquals("2", firstProperties.getProperty("y"));
+        assertEquals("0", read(second).getProperty("z"));
+    }
+
+    /**
+     * Verifies that the conditions of tasks executed on their own are evaluated when the plan is executed.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testConditionOfSingleTask() throws Exception
+    {
+        final List<String> executed = new ArrayList<String>();
+        ConfigurableTask task = new ConfigurableTask()
+        {
+            @Override
+            public void execute() throws Exception
+            {
+                executed.add("task");
+            }
+        };
+        Mockito.when(rules.isConditionTrue("cond")).thenReturn(true);
+
+        ConfigurationTaskPlan plan = new ConfigurationTaskPlan();
+        plan.add(new ConfigurationActionTask(task, "cond", rules));
+        Mockito.when(rules.isConditionTrue("cond")).thenReturn(false);
+        plan.execute();
+        assertTrue(executed.isEmpty());
+
+        Mockito.when(rules.isConditionTrue("cond")).thenReturn(true);
+        plan.execute();
+        assertEquals(1, executed.size());
+    }
+
+    /**
+     * Creates an option file task that sets a single entry.
+     *
+     * @param file  the file to patch
+     * @param key   the entry key
+     * @param value the entry value
+     * @return a new task
+     */
+    private SingleOptionFileTask options(File file, String key, String value)
+    {
+        SingleOptionFileTask task = new SingleOptionFileTask();
+        task.setToFile(file);
+        task.setNewFile(file);
+        Entry entry = new Entry();
+        entry.setKey(key);
+        entry.setValue(value);
+        entry.setOperation(Operation.SET);
+        task.addEntry(entry);
+        return task;
+    }
+
+    /**
+     * Writes a file to the temporary folder.
+     *
+     * @param name    the file name
+     * @param content the file content
+     * @return the file
+     * @throws IOException for any I/O error
+     */
+    private File write(String name, String content) throws IOException
+    {
+        File file = new File(temporaryFolder.getRoot(), name);
+        PrintWriter writer = new PrintWriter(file);
+        writer.print(content);
+        writer.close();
+        return file;
+    }
+
+    /**
+     * Reads a properties file.
+     *
+     * @param file the file
+     * @return the properties
+     * @throws IOException for any I/O error
+     */
+    private Properties read(File file) throws IOException
+    {
+        Properties result = new Properties();
+        InputStream in = new FileInputStream(file);
+        try
+        {
+            result.load(in);
+        }
+        finally
+        {
+            in.close();
+        }
+        return result;
+    }
+}
@@ -19,13 +19,28 @@
 
 package com.izforge.izpack.installer.data;
 
+import com.izforge.izpack.api.data.Pack;
+import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.data.CustomData;
 import com.izforge.izpack.data.ExecutableFile;
-
+import com.izforge.izpack.util.file.CompactPathList;
+import com.izforge.izpack.util.file.FileUtils;
+import com.izforge.izpack.util.file.InstallLogEntry;
+import com.izforge.izpack.util.file.InstallLogWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Holds uninstallation data.
@@ -45,6 +60,22 @@ public class UninstallData
      */
     private List<String> uninstallableFilesList;
 
+    /**
+     * The spool file that the uninstallable files are streamed to, in the binary install log format.
+     */
+    private File installLogSpool;
+
+    /**
+     * The writer to the install log spool file. This is {@code null} until the first uninstallable file is added,
+     * and after the spool has been written or has failed.
+     */
+    private InstallLogWriter installLogWriter;
+
+    /**
+     * Determines if entries can no longer be spooled, as spooling failed or the install log has been written.
+     */
+    private boolean spoolDisabled;
+
     /**
      * The executables list.
      */
@@ -85,13 +116,18 @@ public class UninstallData
      */
     private ArrayList<String> unInstallScripts;
 
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(UninstallData.class.getName());
+
     /**
      * The constructor.
      */
     public UninstallData()
     {
-        installedFilesList = new ArrayList<String>();
-        uninstallableFilesList = new ArrayList<String>();
+        installedFilesList = new CompactPathList();
+        uninstallableFilesList = new CompactPathList();
         executablesList = new ArrayList<ExecutableFile>();
         additionalData = new HashMap<String, Object>();
         unInstallScripts = new ArrayList<String>();
@@ -109,6 +145,21 @@ public class UninstallData
      * @param uninstall If true, file must be uninstalled.
      */
     public synchronized void addFile(String path, boolean uninstall)
+    {
+        addFile(path, uninstall, null, null);
+    }
+
+    /**
+     * Adds a file installed from a pack to the data.
+     * <p/>
+     * Uninstallable files are streamed to the install log along with their pack, size and modification time.
+     *
+     * @param path      The file to add.
+     * @param uninstall If true, file must be uninstalled.
+     * @param pack      The pack that the file was installed from. May be {@code null}
+     * @param file      The pack file. May be {@code null}
+     */
+    public synchronized void addFile(String path, boolean uninstall, Pack pack, PackFile file)
     {
         if (path != null)
         {
@@ -116,6 +167,18 @@ public class UninstallData
             if (uninstall)
             {
                 uninstallableFilesList.add(path);
+                InstallLogEntry entry;
+                if (file != null)
+                {
+                    entry = new InstallLogEntry(path, file.isDirectory(), pack != null ? pack.getName() : null,
+                                                file.isDirectory() ? InstallLogEntry.UNKNOWN : file.length(),
+                                                file.lastModified(), null);
+                }
+                else
+                {
+                    entry = new InstallLogEntry(path);
+                }
+                spool(entry);
             }
         }
     }
@@ -140,6 +203,116 @@ public class UninstallData
         return uninstallableFilesList;
     }
 
+    /**
+     * Writes the install log of uninstallable files.
+     * <p/>
+     * The entries streamed during installation are copied from the spool file. If spooling failed, the log is
+     * written from the {@link #getUninstalableFilesList() uninstallable files list} instead, without pack or file
+     * attributes.
+     * <p/>
+     * Once written, files subsequently added are no longer included in the install log.
+     *
+     * @param out         the stream to write to. This is not closed
+     * @param installPath the installation path
+     * @throws IOException for any I/O error
+     */
+    public synchronized void writeInstallLog(OutputStream out, String installPath) throws IOException
+    {
+        if (installLogWriter != null)
+        {
+            int count = installLogWriter.getCount();
+            installLogWriter.close();
+            installLogWriter = null;
+            InstallLogWriter.writeHeader(out, installPath, count);
+            InputStream in = new FileInputStream(installLogSpool);
+            try
+            {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1)
+                {
+                    out.write(buffer, 0, read);
+                }
+            }
+            finally
+            {
+                FileUtils.close(in);
+            }
+        }
+        else
+        {
+            InstallLogWriter.writeHeader(out, installPath, uninstallableFilesList.size());
+            InstallLogWriter writer = new InstallLogWriter(out);
+            for (String path : uninstallableFilesList)
+            {
+                writer.write(new InstallLogEntry(path));
+            }
+            writer.finish();
+        }
+        spoolDisabled = true;
+        deleteInstallLogSpool();
+    }
+
+    /**
+     * Streams an entry to the install log spool file, creating it if required.
+     * <p/>
+     * If the spool cannot be written, spooling is abandoned and the install log will be written from the
+     * uninstallable files list.
+     *
+     * @param entry the entry to spool
+     */
+    private void spool(InstallLogEntry entry)
+    {
+        if (!spoolDisabled)
+        {
+            try
+            {
+                if (installLogWriter == null)
+                {
+                    installLogSpool = FileUtils.createTempFile("izpack-install", ".log");
+                    installLogSpool.deleteOnExit();
+                    installLogWriter = new InstallLogWriter(
+                            new BufferedOutputStream(new FileOutputStream(installLogSpool)));
+                }
+                installLogWriter.write(entry);
+            }
+            catch (IOException exception)
+            {
+                logger.log(Level.WARNING, "Failed to write install log spool: " + exception.getMessage(),
+                           exception);
+                spoolDisabled = true;
+                if (installLogWriter != null)
+                {
+                    try
+                    {
+                        installLogWriter.close();
+                    }
+                    catch (IOException ignore)
+                    {
+                        // do nothing
+                    }
+                    installLogWriter = null;
+                }
+                deleteInstallLogSpool();
+            }
+        }
+    }
+
+    /**
+     * Deletes the install log spool file, if it exists.
+     */
+    private void deleteInstallLogSpool()
+    {
+        if (installLogSpool != null)
+        {
+            if (installLogSpool.exists() && !installLogSpool.delete())
+            {
+                logger.fine("Failed to delete: " + installLogSpool);
+            }
+            installLogSpool = null;
+        }
+    }
+
     /**
      * Adds an executable to the data.
      *
@@ -259,51 +259,41 @@ public class UninstallDataWriter
 
     /**
      * Writes the file log.
+     * <p/>
+     * The installed files are written to the binary <em>install.idx</em> entry. The <em>install.log</em> entry
+     * only holds the installation path.
      *
      * @param extLogWriter the external log writer. May be <tt>null</tt>
      * @throws IOException for any I/O error
      */
     private void writeFilesLog(BufferedWriter extLogWriter) throws IOException
     {
-        List<String> files = uninstallData.getUninstalableFilesList();
-
         jar.putNextEntry(new JarEntry("install.log"));
         BufferedWriter logWriter = new BufferedWriter(new OutputStreamWriter(jar));
         logWriter.write(installData.getInstallPath());
         logWriter.newLine();
-        Iterator<String> iter = files.iterator();
+        logWriter.flush();
+        jar.closeEntry();
+
+        jar.putNextEntry(new JarEntry("install.idx"));
+        uninstallData.writeInstallLog(jar, installData.getInstallPath());
+        jar.closeEntry();
+
         if (extLogWriter != null)
         {
-            // Write intern (in uninstaller.jar) and extern log file.
+            // Write extern log file.
+            Iterator<String> iter = uninstallData.getUninstalableFilesList().iterator();
             while (iter.hasNext())
             {
-                String txt = iter.next();
-                logWriter.write(txt);
-                extLogWriter.write(txt);
+                extLogWriter.write(iter.next());
                 if (iter.hasNext())
                 {
-                    logWriter.newLine();
                     extLogWriter.newLine();
                 }
             }
-            logWriter.flush();
             extLogWriter.flush();
             extLogWriter.close();
         }
-        else
-        {
-            while (iter.hasNext())
-            {
-                String txt = iter.next();
-                logWriter.write(txt);
-                if (iter.hasNext())
-                {
-                    logWriter.newLine();
-                }
-            }
-            logWriter.flush();
-        }
-        jar.closeEntry();
     }
 
     /**
@@ -405,5 +405,39 @@ public class Debugger
     {
         this.updateChangedConditions(comment);
     }
+
+    /**
+     * Records variables changed while a panel is displayed, e.g. by editing its fields.
+     * <p/>
+     * Conditions aren't re-evaluated, as this may be invoked for every change a user makes.
+     *
+     * @param changed the names of the changed variables. Removed variables are ignored
+     * @param comment describes the change
+     */
+    public void variablesChanged(Set<String> changed, String comment)
+    {
+        Properties currentvariables = idata.getVariables().getProperties();
+        for (String key : changed)
+        {
+            String value = currentvariables.getProperty(key);
+            if (value == null)
+            {
+                lasttimevariables.remove(key);
+                continue;
+            }
+            VariableHistory variableHistory = variableshistory.get(key);
+            if (variableHistory == null)
+            {
+                variableHistory = new VariableHistory(key);
+                variableshistory.put(key, variableHistory);
+            }
+            variableHistory.addValue(value, comment);
+            lasttimevariables.setProperty(key, value);
+        }
+        if (!changed.isEmpty())
+        {
+            variablesmodel.fireTableDataChanged();
+        }
+    }
 }
 
@@ -0,0 +1,479 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.event;
+
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.izforge.izpack.api.event.ByteProgressListener;
+import com.izforge.izpack.api.event.ProgressListener;
+
+
+/**
+ * A {@link ProgressListener} that coalesces sub-step progress notifications before passing them to another
+ * listener.
+ * <p/>
+ * Unpacking reports progress for every file. For packs with many small files, passing each notification on to a
+ * user interface can cost more than the unpacking itself. This forwards {@link #progress(int, String)} at most once
+ * per refresh interval, with the latest sub-step and message. A pending notification is forwarded when the interval
+ * elapses, even if no further progress is reported, and before any other notification, so the listener always sees
+ * the final state of a step. If bytes are processed within a single sub-step, such as when unpacking a large file,
+ * the last notification is repeated each interval, so that the listener can refresh any byte based progress.
+ * <p/>
+ * All other notifications are forwarded immediately.
+ * <p/>
+ * The listener may also be informed of the no. of bytes processed, from which it estimates the throughput and
+ * remaining time.
+ */
+public class CoalescingProgressListener implements ProgressListener, ByteProgressListener
+{
+
+    /**
+     * The default refresh interval, in milliseconds, limiting updates to around 30 per second.
+     */
+    public static final long DEFAULT_INTERVAL = 1000 / 30;
+
+    /**
+     * The listener to forward notifications to.
+     */
+    private final ProgressListener listener;
+
+    /**
+     * The refresh interval, in nanoseconds.
+     */
+    private final long interval;
+
+    /**
+     * The lock, held while notifying the listener so notifications are forwarded in order.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * Determines if there is a sub-step notification that hasn't been forwarded.
+     */
+    private boolean pending;
+
+    /**
+     * The sub-step of the pending notification.
+     */
+    private int pendingSubStep;
+
+    /**
+     * The message of the pending notification.
+     */
+    private String pendingMessage;
+
+    /**
+     * Determines if a sub-step notification has been forwarded for the current step.
+     */
+    private boolean forwarded;
+
+    /**
+     * The sub-step of the last notification forwarded.
+     */
+    private int lastSubStep;
+
+    /**
+     * The message of the last notification forwarded.
+     */
+    private String lastMessage;
+
+    /**
+     * The no. of bytes processed when the last notification was forwarded.
+     */
+    private long lastBytes;
+
+    /**
+     * The time the last sub-step notification was forwarded, in nanoseconds.
+     */
+    private long lastForwarded;
+
+    /**
+     * The timer used to forward pending notifications. Only active between {@link #startAction} and
+     * {@link #stopAction}.
+     */
+    private Timer timer;
+
+    /**
+     * The total no. of bytes to process, or <tt>0</tt> if it is unknown.
+     */
+    private volatile long totalBytes;
+
+    /**
+     * The no. of bytes processed.
+     */
+    private final AtomicLong bytes = new AtomicLong();
+
+    /**
+     * The time processing started, in nanoseconds.
+     */
+    private volatile long startTime = System.nanoTime();
+
+
+    /**
+     * Constructs a <tt>CoalescingProgressListener</tt> with the {@link #DEFAULT_INTERVAL default} refresh interval.
+     *
+     * @param listener the listener to forward notifications to
+     */
+    public CoalescingProgressListener(ProgressListener listener)
+    {
+        this(listener, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Constructs a <tt>CoalescingProgressListener</tt>.
+     *
+     * @param listener the listener to forward notifications to
+     * @param interval the refresh interval, in milliseconds
+     */
+    public CoalescingProgressListener(ProgressListener listener, long interval)
+    {
+        this.listener = listener;
+        this.interval = TimeUnit.MILLISECONDS.toNanos(interval);
+        lastForwarded = System.nanoTime() - this.interval;
+    }
+
+    /**
+     * Invoked when an action starts.
+     *
+     * @param name  the name of the action
+     * @param steps the number of steps the action consists of
+     */
+    @Override
+    public void startAction(String name, int steps)
+    {
+        synchronized (lock)
+        {
+            pending = false;
+            resetBytes();
+            startTimer();
+            forwarded = false;
+            listener.startAction(name, steps);
+        }
+    }
+
+    /**
+     * Invoked when an action finishes.
+     */
+    @Override
+    public void stopAction()
+    {
+        synchronized (lock)
+        {
+            flush();
+            if (timer != null)
+            {
+                timer.cancel();
+                timer = null;
+            }
+            forwarded = false;
+            listener.stopAction();
+        }
+    }
+
+    /**
+     * Invoked when an action step starts.
+     *
+     * @param stepName the name of the step
+     * @param step     the step number
+     * @param subSteps the number of sub-steps the step consists of
+     */
+    @Override
+    public void nextStep(String stepName, int step, int subSteps)
+    {
+        synchronized (lock)
+        {
+            flush();
+            forwarded = false;
+            listener.nextStep(stepName, step, subSteps);
+        }
+    }
+
+    /**
+     * Sets the number of sub-steps.
+     *
+     * @param subSteps the number of sub-steps
+     */
+    @Override
+    public void setSubStepNo(int subSteps)
+    {
+        synchronized (lock)
+        {
+            flush();
+            listener.setSubStepNo(subSteps);
+        }
+    }
+
+    /**
+     * Invoked to notify progress.
+     * <p/>
+     * This increments the current step, so it is always forwarded.
+     *
+     * @param message a message describing the step
+     */
+    @Override
+    public void progress(String message)
+    {
+        synchronized (lock)
+        {
+            flush();
+            listener.progress(message);
+        }
+    }
+
+    /**
+     * Invoked to notify progress.
+     * <p/>
+     * This is forwarded if the refresh interval has elapsed since the last notification was forwarded, otherwise it
+     * replaces any pending notification.
+     *
+     * @param subStep the sub-step which will be performed next
+     * @param message an additional message describing the sub-step
+     */
+    @Override
+    public void progress(int subStep, String message)
+    {
+        synchronized (lock)
+        {
+            pending = true;
+            pendingSubStep = subStep;
+            pendingMessage = message;
+            if (System.nanoTime() - lastForwarded >= interval)
+            {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Invoked when an action restarts.
+     *
+     * @param name           the name of the action
+     * @param overallMessage a message describing the overall progress
+     * @param tip            a tip describing the current progress
+     * @param steps          the number of steps the action consists of
+     */
+    @Override
+    public void restartAction(String name, String overallMessage, String tip, int steps)
+    {
+        synchronized (lock)
+        {
+            flush();
+            resetBytes();
+            forwarded = false;
+            listener.restartAction(name, overallMessage, tip, steps);
+        }
+    }
+
+    /**
+     * Sets the total no. of bytes to process.
+     *
+     * @param totalBytes the total no. of bytes, or <tt>0</tt> if it is unknown
+     */
+    @Override
+    public void setTotalBytes(long totalBytes)
+    {
+        this.totalBytes = totalBytes;
+    }
+
+    /**
+     * Returns the total no. of bytes to process.
+     *
+     * @return the total no. of bytes, or <tt>0</tt> if it is unknown
+     */
+    public long getTotalBytes()
+    {
+        return totalBytes;
+    }
+
+    /**
+     * Adds to the no. of bytes processed.
+     * <p/>
+     * This may be invoked from any thread.
+     *
+     * @param count the no. of bytes processed since the last call
+     */
+    @Override
+    public void addBytes(long count)
+    {
+        bytes.addAndGet(count);
+    }
+
+    /**
+     * Returns the no. of bytes processed since the action started.
+     *
+     * @return the no. of bytes processed
+     */
+    public long getBytes()
+    {
+        return bytes.get();
+    }
+
+    /**
+     * Returns the percentage of bytes processed.
+     *
+     * @return the percentage of bytes processed, or <tt>-1</tt> if the total is unknown
+     */
+    public int getPercentage()
+    {
+        long total = totalBytes;
+        return (total > 0) ? (int) (Math.min(bytes.get(), total) * 100 / total) : -1;
+    }
+
+    /**
+     * Returns the average no. of bytes processed per second since the action started.
+     *
+     * @return the throughput, in bytes per second
+     */
+    public long getBytesPerSecond()
+    {
+        long elapsed = System.nanoTime() - startTime;
+        return (elapsed > 0) ? (long) (bytes.get() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed) : 0;
+    }
+
+    /**
+     * Estimates the time remaining to process the total no. of bytes, based on the average throughput.
+     *
+     * @return the estimated remaining time, in milliseconds, or <tt>-1</tt> if it cannot yet be estimated
+     */
+    public long getRemainingTime()
+    {
+        long total = totalBytes;
+        long done = bytes.get();
+        long elapsed = System.nanoTime() - startTime;
+        // wait for a second or so of history, to avoid wild initial estimates
+        if (total <= 0 || done <= 0 || elapsed < TimeUnit.SECONDS.toNanos(1))
+        {
+            return -1;
+        }
+        long remaining = Math.max(0, total - done);
+        return TimeUnit.NANOSECONDS.toMillis((long) (remaining * (double) elapsed / done));
+    }
+
+    /**
+     * Formats a duration as <em>h:mm:ss</em>, or <em>m:ss</em> if it is less than an hour.
+     *
+     * @param millis the duration, in milliseconds
+     * @return the formatted duration
+     */
+    public static String formatDuration(long millis)
+    {
+        long seconds = (millis + 999) / 1000;
+        long hours = seconds / 3600;
+        long minutes = (seconds / 60) % 60;
+        seconds %= 60;
+        if (hours > 0)
+        {
+            return String.format("%d:%02d:%02d", hours, minutes, seconds);
+        }
+        return String.format("%d:%02d", minutes, seconds);
+    }
+
+    /**
+     * Forwards the pending sub-step notification, if any.
+     * <p/>
+     * Must be invoked holding the lock.
+     */
+    private void flush()
+    {
+        if (pending)
+        {
+            pending = false;
+            forward(pendingSubStep, pendingMessage);
+        }
+    }
+
+    /**
+     * Repeats the last sub-step notification for the current step, if bytes have been processed since.
+     * <p/>
+     * Must be invoked holding the lock.
+     */
+    private void refresh()
+    {
+        if (forwarded && bytes.get() != lastBytes)
+        {
+            forward(lastSubStep, lastMessage);
+        }
+    }
+
+    /**
+     * Forwards a sub-step notification.
+     * <p/>
+     * Must be invoked holding the lock.
+     *
+     * @param subStep the sub-step
+     * @param message the message
+     */
+    private void forward(int subStep, String message)
+    {
+        forwarded = true;
+        lastSubStep = subStep;
+        lastMessage = message;
+        lastBytes = bytes.get();
+        lastForwarded = System.nanoTime();
+        listener.progress(subStep, message);
+    }
+
+    /**
+     * Resets the byte count and start time.
+     */
+    private void resetBytes()
+    {
+        bytes.set(0);
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * Starts the timer to forward pending notifications, if it isn't already running.
+     * <p/>
+     * Must be invoked holding the lock.
+     */
+    private void startTimer()
+    {
+        if (timer == null)
+        {
+            long period = Math.max(1, TimeUnit.NANOSECONDS.toMillis(interval));
+            timer = new Timer("IzPack - Progress", true);
+            timer.schedule(new TimerTask()
+            {
+                @Override
+                public void run()
+                {
+                    synchronized (lock)
+                    {
+                        if (System.nanoTime() - lastForwarded >= interval)
+                        {
+                            if (pending)
+                            {
+                                flush();
+                            }
+                            else
+                            {
+                                refresh();
+                            }
+                        }
+                    }
+                }
+            }, period, period);
+        }
+    }
+}
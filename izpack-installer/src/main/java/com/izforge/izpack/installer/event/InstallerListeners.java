@@ -24,17 +24,22 @@ package com.izforge.izpack.installer.event;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.izforge.izpack.api.data.AutomatedInstallData;
 import com.izforge.izpack.api.data.Pack;
 import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.api.event.FileListenerScope;
 import com.izforge.izpack.api.event.InstallerListener;
 import com.izforge.izpack.api.event.ProgressListener;
+import com.izforge.izpack.api.event.ScopedFileListener;
 import com.izforge.izpack.api.exception.IzPackException;
 import com.izforge.izpack.api.handler.Prompt;
 import com.izforge.izpack.core.handler.ProgressHandler;
 import com.izforge.izpack.event.SimpleInstallerListener;
+import com.izforge.izpack.util.file.types.selectors.PatternMatcher;
 
 
 /**
@@ -66,6 +71,21 @@ public class InstallerListeners
      */
     private final Prompt prompt;
 
+    /**
+     * The trace, used to record the time spent in each listener.
+     */
+    private final InstallerTrace trace = InstallerTrace.getInstance();
+
+    /**
+     * The file listener dispatch tables, keyed on pack name.
+     */
+    private final Map<String, Dispatch> dispatches = new HashMap<String, Dispatch>();
+
+    /**
+     * The most recently used dispatch table, or {@code null} if none has been used.
+     */
+    private Dispatch dispatch;
+
 
     /**
      * Constructs an {@code InstallerListeners}.
@@ -160,13 +180,17 @@ public class InstallerListeners
      */
     public void beforePacks(List<Pack> packs, ProgressListener listener)
     {
+        dispatches.clear();
+        dispatch = null;
         for (InstallerListener l : listeners)
         {
             if (l instanceof SimpleInstallerListener)
             {
                 ((SimpleInstallerListener) l).setHandler(new ProgressHandler(listener, prompt));
             }
+            long start = trace.start();
             l.beforePacks(packs);
+            trace.call(l, "beforePacks", start, true);
         }
     }
 
@@ -186,7 +210,9 @@ public class InstallerListeners
             {
                 ((SimpleInstallerListener) l).setHandler(new ProgressHandler(listener, prompt));
             }
+            long start = trace.start();
             l.beforePack(pack, i);
+            trace.call(l, "beforePack", start, true);
         }
     }
 
@@ -200,6 +226,18 @@ public class InstallerListeners
         return !fileListeners.isEmpty();
     }
 
+    /**
+     * Determines if any listener should be notified of the creation of directories for a pack.
+     *
+     * @param pack the pack
+     * @return <tt>true</tt> if a listener should be notified, otherwise <tt>false</tt>
+     */
+    public boolean isDirListener(Pack pack)
+    {
+        Dispatch dispatch = getDispatch(pack);
+        return dispatch.beforeDir.length != 0 || dispatch.afterDir.length != 0;
+    }
+
     /**
      * Invoked before a directory is created.
      *
@@ -210,9 +248,19 @@ public class InstallerListeners
      */
     public void beforeDir(File dir, PackFile packFile, Pack pack)
     {
-        for (InstallerListener l : fileListeners)
+        Target[] targets = getDispatch(pack).beforeDir;
+        if (targets.length != 0)
         {
-            l.beforeDir(dir, packFile, pack);
+            String path = getPath(dir);
+            for (Target target : targets)
+            {
+                if (target.matches(path))
+                {
+                    long start = trace.start();
+                    target.listener.beforeDir(dir, packFile, pack);
+                    trace.call(target.listener, "beforeDir", start, false);
+                }
+            }
         }
     }
 
@@ -226,16 +274,27 @@ public class InstallerListeners
      */
     public void afterDir(File dir, PackFile packFile, Pack pack)
     {
-        for (InstallerListener l : fileListeners)
+        Target[] targets = getDispatch(pack).afterDir;
+        if (targets.length != 0)
         {
-            l.afterDir(dir, packFile, pack);
+            String path = getPath(dir);
+            for (Target target : targets)
+            {
+                if (target.matches(path))
+                {
+                    long start = trace.start();
+                    target.listener.afterDir(dir, packFile, pack);
+                    trace.call(target.listener, "afterDir", start, false);
+                }
+            }
         }
     }
 
     /**
      * Invoked before a file is installed.
      * <p/>
-     * This implementation only invokes those listeners whose {@link #isFileListener()} returns <tt>true</tt>.
+     * This implementation only invokes those listeners whose {@link #isFileListener()} returns <tt>true</tt>, and
+     * whose {@link ScopedFileListener scope}, if any, includes the file.
      *
      * @param file     the file
      * @param packFile corresponding pack file
@@ -244,16 +303,27 @@ public class InstallerListeners
      */
     public void beforeFile(File file, PackFile packFile, Pack pack)
     {
-        for (InstallerListener l : fileListeners)
+        Target[] targets = getDispatch(pack).beforeFile;
+        if (targets.length != 0)
         {
-            l.beforeFile(file, packFile, pack);
+            String path = getPath(file);
+            for (Target target : targets)
+            {
+                if (target.matches(path))
+                {
+                    long start = trace.start();
+                    target.listener.beforeFile(file, packFile, pack);
+                    trace.call(target.listener, "beforeFile", start, false);
+                }
+            }
         }
     }
 
     /**
      * Invoked after a file is installed.
      * <p/>
-     * This implementation only invokes those listeners whose {@link #isFileListener()} returns <tt>true</tt>.
+     * This implementation only invokes those listeners whose {@link #isFileListener()} returns <tt>true</tt>, and
+     * whose {@link ScopedFileListener scope}, if any, includes the file.
      *
      * @param file     the file
      * @param packFile corresponding pack file
@@ -262,9 +332,19 @@ public class InstallerListeners
      */
     public void afterFile(File file, PackFile packFile, Pack pack)
     {
-        for (InstallerListener l : fileListeners)
+        Target[] targets = getDispatch(pack).afterFile;
+        if (targets.length != 0)
         {
-            l.afterFile(file, packFile, pack);
+            String path = getPath(file);
+            for (Target target : targets)
+            {
+                if (target.matches(path))
+                {
+                    long start = trace.start();
+                    target.listener.afterFile(file, packFile, pack);
+                    trace.call(target.listener, "afterFile", start, false);
+                }
+            }
         }
     }
 
@@ -284,7 +364,9 @@ public class InstallerListeners
             {
                 ((SimpleInstallerListener) l).setHandler(new ProgressHandler(listener, prompt));
             }
+            long start = trace.start();
             l.afterPack(pack, i);
+            trace.call(l, "afterPack", start, true);
         }
     }
 
@@ -303,8 +385,185 @@ public class InstallerListeners
             {
                 ((SimpleInstallerListener) l).setHandler(new ProgressHandler(listener, prompt));
             }
+            long start = trace.start();
             l.afterPacks(packs, listener);
+            trace.call(l, "afterPacks", start, true);
+        }
+    }
+
+    /**
+     * Returns the file listener dispatch table for a pack, building it if required.
+     *
+     * @param pack the pack
+     * @return the dispatch table
+     */
+    private Dispatch getDispatch(Pack pack)
+    {
+        if (dispatch == null || dispatch.pack != pack)
+        {
+            dispatch = dispatches.get(pack.getName());
+            if (dispatch == null || dispatch.pack != pack)
+            {
+                dispatch = new Dispatch(pack);
+                dispatches.put(pack.getName(), dispatch);
+            }
+        }
+        return dispatch;
+    }
+
+    /**
+     * Returns the path of an installed file or directory to match against listener scopes.
+     *
+     * @param file the file or directory
+     * @return the path relative to the installation path, or the absolute path if the file is outside it
+     */
+    private String getPath(File file)
+    {
+        String path = file.getAbsolutePath();
+        String installPath = installData.getInstallPath();
+        if (installPath != null)
+        {
+            String prefix = new File(installPath).getAbsolutePath() + File.separator;
+            if (path.startsWith(prefix))
+            {
+                path = path.substring(prefix.length());
+            }
+        }
+        return path;
+    }
+
+    /**
+     * The file listeners to notify of each event, for a pack.
+     */
+    private class Dispatch
+    {
+
+        /**
+         * The pack.
+         */
+        private final Pack pack;
+
+        /**
+         * The listeners to notify before a directory is created.
+         */
+        private final Target[] beforeDir;
+
+        /**
+         * The listeners to notify after a directory is created.
+         */
+        private final Target[] afterDir;
+
+        /**
+         * The listeners to notify before a file is installed.
+         */
+        private final Target[] beforeFile;
+
+        /**
+         * The listeners to notify after a file is installed.
+         */
+        private final Target[] afterFile;
+
+        /**
+         * Constructs a <tt>Dispatch</tt>.
+         *
+         * @param pack the pack
+         */
+        public Dispatch(Pack pack)
+        {
+            this.pack = pack;
+            List<Target> targets = new ArrayList<Target>();
+            for (InstallerListener listener : fileListeners)
+            {
+                FileListenerScope scope = FileListenerScope.ALL;
+                if (listener instanceof ScopedFileListener)
+                {
+                    scope = ((ScopedFileListener) listener).getFileListenerScope(pack);
+                }
+                targets.add(new Target(listener, scope));
+            }
+            beforeDir = getTargets(targets, FileListenerScope.Event.BEFORE_DIR);
+            afterDir = getTargets(targets, FileListenerScope.Event.AFTER_DIR);
+            beforeFile = getTargets(targets, FileListenerScope.Event.BEFORE_FILE);
+            afterFile = getTargets(targets, FileListenerScope.Event.AFTER_FILE);
+        }
+
+        /**
+         * Returns the targets whose scope includes an event.
+         *
+         * @param targets the targets
+         * @param event   the event
+         * @return the targets to notify of the event
+         */
+        private Target[] getTargets(List<Target> targets, FileListenerScope.Event event)
+        {
+            List<Target> result = new ArrayList<Target>();
+            for (Target target : targets)
+            {
+                if (target.scope.includes(event))
+                {
+                    result.add(target);
+                }
+            }
+            return result.toArray(new Target[result.size()]);
         }
     }
 
+    /**
+     * A file listener, and the paths it should be notified of.
+     */
+    private static class Target
+    {
+
+        /**
+         * The listener.
+         */
+        private final InstallerListener listener;
+
+        /**
+         * The listener scope.
+         */
+        private final FileListenerScope scope;
+
+        /**
+         * The path matcher, or {@code null} if the listener should be notified of all paths.
+         */
+        private final PatternMatcher matcher;
+
+        /**
+         * Constructs a <tt>Target</tt>.
+         *
+         * @param listener the listener
+         * @param scope    the listener scope
+         */
+        public Target(InstallerListener listener, FileListenerScope scope)
+        {
+            this.listener = listener;
+            this.scope = scope;
+            List<String> includes = scope.getIncludes();
+            if (includes != null)
+            {
+                String[] patterns = new String[includes.size()];
+                for (int i = 0; i < patterns.length; ++i)
+                {
+                    patterns[i] = includes.get(i).replace('/', File.separatorChar).replace('\\', File.separatorChar);
+                }
+                matcher = new PatternMatcher(patterns, true);
+            }
+            else
+            {
+                matcher = null;
+            }
+        }
+
+        /**
+         * Determines if the listener should be notified of a path.
+         *
+         * @param path the path
+         * @return <tt>true</tt> if the listener should be notified
+         */
+        public boolean matches(String path)
+        {
+            return matcher == null || matcher.matches(path);
+        }
+    }
 }
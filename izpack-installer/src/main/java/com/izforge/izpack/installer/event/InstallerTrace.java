@@ -0,0 +1,361 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.event;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.izforge.izpack.installer.util.JSONHelper;
+
+
+/**
+ * Records where time goes during an installation, for performance analysis.
+ * <p/>
+ * Tracing is enabled by setting the {@link #TRACE_FILE} system property to the path of the file to write the trace
+ * to. When enabled, this records:
+ * <ul>
+ * <li>a timeline of spans, such as panel activations, pack installation, and pack level listener callbacks</li>
+ * <li>the call count and cumulative time of each callback of each
+ * {@link com.izforge.izpack.api.event.InstallerListener InstallerListener}, including the per-file callbacks, which
+ * are too numerous to record on the timeline</li>
+ * </ul>
+ * The trace is written when the installer exits, in the Chrome Trace Event Format, so that it can be loaded into
+ * <tt>chrome://tracing</tt>. The callback statistics are written to the additional <tt>listenerStats</tt>
+ * property.
+ * <p/>
+ * When tracing is disabled, each method returns immediately.
+ */
+public class InstallerTrace
+{
+
+    /**
+     * System property naming the file to write the trace to.
+     */
+    public static final String TRACE_FILE = "izpack.trace";
+
+    /**
+     * The trace category of panel spans.
+     */
+    public static final String PANEL = "panel";
+
+    /**
+     * The trace category of unpacking spans.
+     */
+    public static final String UNPACK = "unpack";
+
+    /**
+     * The trace category of listener spans.
+     */
+    public static final String LISTENER = "listener";
+
+    /**
+     * The shared instance.
+     */
+    private static InstallerTrace instance;
+
+    /**
+     * The file to write the trace to, or {@code null} if tracing is disabled.
+     */
+    private final File file;
+
+    /**
+     * The time tracing started, in nanoseconds.
+     */
+    private final long origin = System.nanoTime();
+
+    /**
+     * The timeline spans.
+     */
+    private final List<Span> spans = new ArrayList<Span>();
+
+    /**
+     * The callback statistics, keyed on listener class name and callback.
+     */
+    private final Map<String, Stats> stats = new LinkedHashMap<String, Stats>();
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(InstallerTrace.class.getName());
+
+
+    /**
+     * Constructs an <tt>InstallerTrace</tt>.
+     *
+     * @param file the file to write the trace to, or {@code null} to disable tracing
+     */
+    protected InstallerTrace(File file)
+    {
+        this.file = file;
+    }
+
+    /**
+     * Returns the shared instance.
+     * <p/>
+     * On first access, this determines if tracing is enabled, and if so, arranges for the trace to be written when
+     * the installer exits.
+     *
+     * @return the shared instance
+     */
+    public static synchronized InstallerTrace getInstance()
+    {
+        if (instance == null)
+        {
+            String path = System.getProperty(TRACE_FILE);
+            instance = new InstallerTrace(path != null ? new File(path) : null);
+            if (instance.isEnabled())
+            {
+                final InstallerTrace trace = instance;
+                Runtime.getRuntime().addShutdownHook(new Thread("IzPack - Trace")
+                {
+                    @Override
+                    public void run()
+                    {
+                        trace.write();
+                    }
+                });
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Determines if tracing is enabled.
+     *
+     * @return <tt>true</tt> if tracing is enabled
+     */
+    public boolean isEnabled()
+    {
+        return file != null;
+    }
+
+    /**
+     * Returns the start time of an operation to trace.
+     *
+     * @return the current time in nanoseconds, or <tt>0</tt> if tracing is disabled
+     */
+    public long start()
+    {
+        return (file != null) ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Adds a span to the timeline, ending now.
+     *
+     * @param name     the span name
+     * @param category the span category
+     * @param start    the span start time, as returned by {@link #start()}
+     */
+    public void span(String name, String category, long start)
+    {
+        if (file != null)
+        {
+            Span span = new Span(name, category, start, System.nanoTime() - start, Thread.currentThread().getId());
+            synchronized (this)
+            {
+                spans.add(span);
+            }
+        }
+    }
+
+    /**
+     * Records a listener callback.
+     *
+     * @param listener the listener
+     * @param callback the callback name
+     * @param start    the callback start time, as returned by {@link #start()}
+     * @param timeline if <tt>true</tt>, add the callback to the timeline as well as the statistics
+     */
+    public void call(Object listener, String callback, long start, boolean timeline)
+    {
+        if (file != null)
+        {
+            long duration = System.nanoTime() - start;
+            String name = listener.getClass().getName();
+            String key = name + '.' + callback;
+            synchronized (this)
+            {
+                Stats stat = stats.get(key);
+                if (stat == null)
+                {
+                    stat = new Stats(name, callback);
+                    stats.put(key, stat);
+                }
+                stat.count++;
+                stat.time += duration;
+                if (timeline)
+                {
+                    spans.add(new Span(key, LISTENER, start, duration, Thread.currentThread().getId()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the trace in the Trace Event Format.
+     *
+     * @return the trace as JSON
+     */
+    public synchronized String toJSON()
+    {
+        StringBuilder result = new StringBuilder("{\n  \"displayTimeUnit\": \"ms\",\n  \"traceEvents\": [");
+        for (int i = 0; i < spans.size(); ++i)
+        {
+            Span span = spans.get(i);
+            result.append((i == 0) ? "\n" : ",\n");
+            result.append("    {\"name\": ").append(JSONHelper.quote(span.name));
+            result.append(", \"cat\": ").append(JSONHelper.quote(span.category));
+            result.append(", \"ph\": \"X\", \"pid\": 1, \"tid\": ").append(span.thread);
+            result.append(", \"ts\": ").append(TimeUnit.NANOSECONDS.toMicros(span.start - origin));
+            result.append(", \"dur\": ").append(TimeUnit.NANOSECONDS.toMicros(span.duration));
+            result.append('}');
+        }
+        result.append(spans.isEmpty() ? "],\n" : "\n  ],\n");
+        result.append("  \"listenerStats\": [");
+        boolean first = true;
+        for (Stats stat : stats.values())
+        {
+            result.append(first ? "\n" : ",\n");
+            first = false;
+            result.append("    {\"listener\": ").append(JSONHelper.quote(stat.listener));
+            result.append(", \"callback\": ").append(JSONHelper.quote(stat.callback));
+            result.append(", \"count\": ").append(stat.count);
+            result.append(", \"totalMicros\": ").append(TimeUnit.NANOSECONDS.toMicros(stat.time));
+            result.append('}');
+        }
+        result.append(stats.isEmpty() ? "]\n" : "\n  ]\n");
+        return result.append("}\n").toString();
+    }
+
+    /**
+     * Writes the trace, if tracing is enabled.
+     */
+    public void write()
+    {
+        if (file != null)
+        {
+            try
+            {
+                JSONHelper.write(toJSON(), file);
+            }
+            catch (IOException exception)
+            {
+                logger.log(Level.WARNING, "Failed to write installer trace to " + file + ": "
+                        + exception.getMessage(), exception);
+            }
+        }
+    }
+
+    /**
+     * A timeline span.
+     */
+    private static class Span
+    {
+
+        /**
+         * The span name.
+         */
+        private final String name;
+
+        /**
+         * The span category.
+         */
+        private final String category;
+
+        /**
+         * The start time, in nanoseconds.
+         */
+        private final long start;
+
+        /**
+         * The duration, in nanoseconds.
+         */
+        private final long duration;
+
+        /**
+         * The identifier of the thread the span ran on.
+         */
+        private final long thread;
+
+        /**
+         * Constructs a <tt>Span</tt>.
+         *
+         * @param name     the span name
+         * @param category the span category
+         * @param start    the start time, in nanoseconds
+         * @param duration the duration, in nanoseconds
+         * @param thread   the identifier of the thread the span ran on
+         */
+        public Span(String name, String category, long start, long duration, long thread)
+        {
+            this.name = name;
+            this.category = category;
+            this.start = start;
+            this.duration = duration;
+            this.thread = thread;
+        }
+    }
+
+    /**
+     * Statistics for a listener callback.
+     */
+    private static class Stats
+    {
+
+        /**
+         * The listener class name.
+         */
+        private final String listener;
+
+        /**
+         * The callback name.
+         */
+        private final String callback;
+
+        /**
+         * The no. of calls.
+         */
+        private long count;
+
+        /**
+         * The cumulative time, in nanoseconds.
+         */
+        private long time;
+
+        /**
+         * Constructs a <tt>Stats</tt>.
+         *
+         * @param listener the listener class name
+         * @param callback the callback name
+         */
+        public Stats(String listener, String callback)
+        {
+            this.listener = listener;
+            this.callback = callback;
+        }
+    }
+}
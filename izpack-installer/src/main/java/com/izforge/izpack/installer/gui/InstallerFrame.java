@@ -170,6 +170,17 @@ public class InstallerFrame extends JFrame implements InstallerView
      */
     private JLabel iconLabel;
 
+    /**
+     * Determines if panel images are prefetched. These are only displayed if there is an image for the first panel.
+     */
+    private boolean prefetchPanelImage;
+
+    /**
+     * Determines if heading images are prefetched. These are only displayed if there is an image for the first
+     * heading.
+     */
+    private boolean prefetchHeadingImage;
+
     /**
      * Count for discarded interrupt trials.
      */
@@ -400,6 +411,8 @@ public class InstallerFrame extends JFrame implements InstallerView
 
         // need to initialise the panels after construction, as many of the panels require InstallerFrame
         panels.initialise();
+        prefetchPanelImage = iconLabel != null;
+        prefetchHeadingImage = headingLabels != null && headingLabels[headingLabels.length - 1] != null;
         panels.setListener(new IzPanelsListener()
         {
             @Override
@@ -408,6 +421,11 @@ public class InstallerFrame extends JFrame implements InstallerView
                 InstallerFrame.this.switchPanel(newPanel, oldPanel);
             }
 
+            @Override
+            public void prefetch(IzPanelView panel)
+            {
+                prefetchImages(panel);
+            }
         });
     }
 
@@ -527,6 +545,33 @@ public class InstallerFrame extends JFrame implements InstallerView
         }
     }
 
+    /**
+     * Loads the heading and panel images displayed with a panel, so that they are cached by the resources when the
+     * panel is switched to.
+     * <p/>
+     * This is invoked on a background thread, so doesn't access any Swing components.
+     *
+     * @param panel the panel
+     */
+    private void prefetchImages(IzPanelView panel)
+    {
+        int panelNo = panels.getVisibleIndex(panel);
+        if (panelNo != -1)
+        {
+            if (prefetchHeadingImage)
+            {
+                loadIcon(HEADING_ICON_RESOURCE, panelNo + "");
+            }
+            if (prefetchPanelImage)
+            {
+                if ("UNKNOWN".equals(panel.getPanelId()) || loadIcon(ICON_RESOURCE, panel.getPanelId()) == null)
+                {
+                    loadIcon(ICON_RESOURCE, panelNo + "");
+                }
+            }
+        }
+    }
+
     /**
      * Switches the current panel.
      *
@@ -349,6 +349,16 @@ public class IzPanel extends JPanel implements AbstractUIHandler, LayoutConstant
     {
     }
 
+    /**
+     * This method is called on a background thread before the panel is likely to be activated, to prepare any
+     * expensive state that doesn't depend on user input, such as parsed resources. It must not access any Swing
+     * components, as it is not called on the event dispatch thread, and may be called more than once, or not at
+     * all. Default is to do nothing.
+     */
+    public void prefetch()
+    {
+    }
+
     /**
      * This method is called when the panel gets desactivated, when the user switches to the next
      * panel. By default it doesn't do anything.
@@ -22,14 +22,25 @@
 package com.izforge.izpack.installer.gui;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import com.izforge.izpack.api.container.Container;
+import com.izforge.izpack.api.data.Panel;
+import com.izforge.izpack.api.rules.RulesEngine;
 import com.izforge.izpack.installer.data.GUIInstallData;
 import com.izforge.izpack.installer.panel.AbstractPanels;
 
 
 /**
  * Implementation of {@link AbstractPanels} for {@link IzPanel}.
+ * <p/>
+ * Each time a panel is displayed, the next panel that can be shown is {@link IzPanel#prefetch() prefetched} on a
+ * background thread, along with the resources the {@link IzPanelsListener listener} uses to display it, so that this
+ * work is not performed on the event dispatch thread when the user navigates to it.
  *
  * @author Tim Anderson
  */
@@ -55,6 +66,16 @@ public class IzPanels extends AbstractPanels<IzPanelView, IzPanel>
      */
     private boolean isBack = false;
 
+    /**
+     * The executor used to prefetch panels, or {@code null} if no panel has been prefetched yet.
+     */
+    private ExecutorService prefetcher;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(IzPanels.class.getName());
+
     /**
      * Constructs a {@code IzPanels}.
      *
@@ -127,6 +148,7 @@ public class IzPanels extends AbstractPanels<IzPanelView, IzPanel>
             {
                 listener.switchPanel(newPanel, oldPanel);
                 result = true;
+                prefetch(newPanel.getIndex());
             }
         }
         finally
@@ -136,4 +158,78 @@ public class IzPanels extends AbstractPanels<IzPanelView, IzPanel>
         return result;
     }
 
+    /**
+     * Prefetches the panel that follows a panel on a background thread.
+     * <p/>
+     * Both the panel and the listener are given the opportunity to prefetch.
+     *
+     * @param index the index of the current panel
+     */
+    private synchronized void prefetch(int index)
+    {
+        final IzPanelView panel = getNextToPrefetch(index);
+        if (panel != null)
+        {
+            final IzPanelsListener listener = this.listener;
+            if (prefetcher == null)
+            {
+                prefetcher = Executors.newSingleThreadExecutor(new ThreadFactory()
+                {
+                    @Override
+                    public Thread newThread(Runnable runnable)
+                    {
+                        Thread thread = new Thread(runnable, "IzPanelPrefetch");
+                        thread.setDaemon(true);
+                        thread.setPriority(Thread.MIN_PRIORITY);
+                        return thread;
+                    }
+                });
+            }
+            prefetcher.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    IzPanel view = panel.getView();
+                    try
+                    {
+                        view.prefetch();
+                        listener.prefetch(panel);
+                    }
+                    catch (Throwable exception)
+                    {
+                        // the panel will do the work itself when it is activated
+                        logger.log(Level.FINE, "Failed to prefetch " + view.getClass().getName(), exception);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the next panel that can be shown after a panel, so that panels that would be skipped aren't prefetched.
+     * <p/>
+     * Unlike {@link #getNext(int, boolean)}, this doesn't refresh variables before evaluating panel conditions, as
+     * the result is only a guess at the panel the user will navigate to, and refreshing variables may be expensive.
+     *
+     * @param index the index of the current panel
+     * @return the next panel, or {@code null} if there is none
+     */
+    private IzPanelView getNextToPrefetch(int index)
+    {
+        RulesEngine rules = installData.getRules();
+        List<IzPanelView> panels = getPanelViews();
+        for (int i = index + 1; i < panels.size(); ++i)
+        {
+            IzPanelView panel = panels.get(i);
+            Panel metadata = panel.getPanel();
+            if (panel.isVisible() && (metadata.hasCondition() ? rules.isConditionTrue(metadata.getCondition())
+                    : rules.canShowPanel(metadata.getPanelId(), installData.getVariables())))
+            {
+                return panel;
+            }
+        }
+        return null;
+    }
+
 }
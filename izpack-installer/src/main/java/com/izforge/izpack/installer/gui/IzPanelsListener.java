@@ -36,4 +36,14 @@ public interface IzPanelsListener
      */
     void switchPanel(IzPanelView newPanel, IzPanelView oldPanel);
 
+    /**
+     * Invoked on a background thread to load any resources used to display a panel, before the panel is likely to
+     * be switched to.
+     * <p/>
+     * Implementations must not access any Swing components.
+     *
+     * @param panel the panel
+     */
+    void prefetch(IzPanelView panel);
+
 }
\ No newline at end of file
@@ -29,6 +29,7 @@ import java.util.logging.Logger;
 
 import com.izforge.izpack.api.data.Panel;
 import com.izforge.izpack.api.data.Variables;
+import com.izforge.izpack.installer.event.InstallerTrace;
 
 /**
  * Abstract implementation of the {@link PanelViews} interface.
@@ -58,6 +59,16 @@ public abstract class AbstractPanels<T extends AbstractPanelView<V>, V> implemen
      */
     private int index = -1;
 
+    /**
+     * The trace, used to record panel activation and display times.
+     */
+    private final InstallerTrace trace = InstallerTrace.getInstance();
+
+    /**
+     * The time the current panel was displayed, as returned by {@link InstallerTrace#start()}.
+     */
+    private long displayed;
+
     /**
      * Determines if the next panel may be navigated to, if any.
      */
@@ -411,6 +422,7 @@ public abstract class AbstractPanels<T extends AbstractPanelView<V>, V> implemen
         // refresh variables prior to switching panels
         variables.refresh();
 
+        long start = trace.start();
         T oldPanel = getPanelView(index);
         T newPanel = getPanelView(newIndex);
         int oldIndex = index;
@@ -418,6 +430,12 @@ public abstract class AbstractPanels<T extends AbstractPanelView<V>, V> implemen
         if (switchPanel(newPanel, oldPanel))
         {
             result = true;
+            if (oldPanel != null)
+            {
+                trace.span("display " + getName(oldPanel), InstallerTrace.PANEL, displayed);
+            }
+            trace.span("activate " + getName(newPanel), InstallerTrace.PANEL, start);
+            displayed = trace.start();
         }
         else
         {
@@ -427,6 +445,18 @@ public abstract class AbstractPanels<T extends AbstractPanelView<V>, V> implemen
         return result;
     }
 
+    /**
+     * Returns a name for a panel, for tracing purposes.
+     *
+     * @param panel the panel
+     * @return the panel identifier, or its class name if it has no identifier
+     */
+    private String getName(T panel)
+    {
+        String id = panel.getPanelId();
+        return (id != null) ? id : panel.getPanel().getClassName();
+    }
+
     /**
      * Switches panels.
      *
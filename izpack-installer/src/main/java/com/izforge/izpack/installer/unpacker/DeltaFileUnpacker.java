@@ -0,0 +1,115 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.api.exception.InstallerException;
+import com.izforge.izpack.util.file.BinaryDelta;
+import com.izforge.izpack.util.file.ContentDigest;
+import com.izforge.izpack.util.file.FileUtils;
+import com.izforge.izpack.util.os.FileQueue;
+
+
+/**
+ * Unpacks a file stored as a delta against the previously installed version of the file.
+ * <p/>
+ * The installed file must match the version the delta was created against. The patched content is verified against
+ * the content hash recorded by the compiler before it replaces the installed file.
+ */
+public class DeltaFileUnpacker extends FileUnpacker
+{
+
+    /**
+     * Constructs a <tt>DeltaFileUnpacker</tt>.
+     *
+     * @param cancellable determines if unpacking should be cancelled
+     * @param queue       the file queue. May be {@code null}
+     */
+    public DeltaFileUnpacker(Cancellable cancellable, FileQueue queue)
+    {
+        super(cancellable, queue);
+    }
+
+    /**
+     * Unpacks a pack file.
+     *
+     * @param file            the pack file meta-data
+     * @param packInputStream the pack input stream
+     * @param target          the target
+     * @throws IOException        for any I/O error
+     * @throws InstallerException if the installed file isn't the version the delta applies to, or the patched file
+     *                            is corrupt
+     */
+    @Override
+    public void unpack(PackFile file, ObjectInputStream packInputStream, File target)
+            throws IOException, InstallerException
+    {
+        if (!target.exists() || !Arrays.equals(file.getBaseHash(), ContentDigest.get(target)))
+        {
+            throw new InstallerException("Cannot patch " + target + ": the installed file is not the expected version");
+        }
+
+        File patched = File.createTempFile("__DL__", null, target.getParentFile());
+        try
+        {
+            MessageDigest digest = ContentDigest.create();
+            OutputStream out = new DigestOutputStream(new BufferedOutputStream(new FileOutputStream(patched)),
+                                                      digest);
+            try
+            {
+                BinaryDelta.apply(target, packInputStream, out);
+            }
+            finally
+            {
+                FileUtils.close(out);
+            }
+            if (file.getHash() != null && !Arrays.equals(file.getHash(), digest.digest()))
+            {
+                throw new InstallerException("Patched file " + target + " is corrupt (installer corrupted?)");
+            }
+
+            InputStream in = new FileInputStream(patched);
+            try
+            {
+                copy(file, in, target);
+            }
+            finally
+            {
+                FileUtils.close(in);
+            }
+        }
+        finally
+        {
+            FileUtils.delete(patched);
+        }
+    }
+}
@@ -22,12 +22,14 @@
 package com.izforge.izpack.installer.unpacker;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.io.ObjectInputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.util.logging.Logger;
 
 import com.izforge.izpack.api.data.Blockable;
@@ -48,6 +50,17 @@ import com.izforge.izpack.util.os.FileQueueMove;
 public abstract class FileUnpacker
 {
 
+    /**
+     * The size of the buffer used to copy files.
+     */
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The maximum no. of bytes to transfer between files in a single operation, so that cancellation is detected
+     * promptly.
+     */
+    private static final long TRANSFER_SIZE = 8 * 1024 * 1024;
+
     /**
      * Determines if unpacking should be cancelled.
      */
@@ -73,6 +86,11 @@ public abstract class FileUnpacker
      */
     private boolean queued;
 
+    /**
+     * The metrics to update, or {@code null} if metrics aren't being collected.
+     */
+    private UnpackMetrics metrics;
+
     /**
      * The logger.
      */
@@ -91,6 +109,16 @@ public abstract class FileUnpacker
         this.queue = queue;
     }
 
+    /**
+     * Sets the metrics to update while copying.
+     *
+     * @param metrics the metrics. May be {@code null}
+     */
+    public void setMetrics(UnpackMetrics metrics)
+    {
+        this.metrics = metrics;
+    }
+
     /**
      * Unpacks a pack file.
      *
@@ -129,21 +157,54 @@ public abstract class FileUnpacker
         OutputStream out = getTarget(file, target);
         try
         {
-            byte[] buffer = new byte[5120];
-            long bytesCopied = 0;
-            while (bytesCopied < file.length())
+            copyStream(file, in, out);
+        }
+        finally
+        {
+            close(out);
+        }
+        postCopy(file);
+    }
+
+    /**
+     * Copies a file to a target, setting its timestamp to that of the pack file.
+     * <p/>
+     * The content is transferred between the files by the operating system where possible, avoiding copying it
+     * through the JVM.
+     * <p/>
+     * If the target is a blockable file, then a temporary file will be created, and the file queued.
+     *
+     * @param file   the pack file
+     * @param source the file to copy
+     * @param target the file to write to
+     * @throws InterruptedIOException if the copy operation is cancelled
+     * @throws IOException            for any I/O error
+     */
+    protected void copy(PackFile file, File source, File target) throws IOException
+    {
+        FileInputStream in = new FileInputStream(source);
+        try
+        {
+            OutputStream out = getTarget(file, target);
+            try
             {
-                if (cancellable.isCancelled())
+                if (out instanceof FileOutputStream)
+                {
+                    transfer(file, in.getChannel(), ((FileOutputStream) out).getChannel());
+                }
+                else
                 {
-                    // operation cancelled
-                    throw new InterruptedIOException("Copy operation cancelled");
+                    copyStream(file, in, out);
                 }
-                bytesCopied = copy(file, buffer, in, out, bytesCopied);
+            }
+            finally
+            {
+                close(out);
             }
         }
         finally
         {
-            FileUtils.close(out);
+            FileUtils.close(in);
         }
         postCopy(file);
     }
@@ -164,6 +225,85 @@ public abstract class FileUnpacker
         }
     }
 
+    /**
+     * Copies the content of a pack file from the input stream to the output stream.
+     *
+     * @param file the pack file
+     * @param in   the stream to read from
+     * @param out  the stream to write to
+     * @throws InterruptedIOException if the copy operation is cancelled
+     * @throws IOException            for any I/O error
+     */
+    private void copyStream(PackFile file, InputStream in, OutputStream out) throws IOException
+    {
+        byte[] buffer = new byte[(int) Math.min(file.length(), BUFFER_SIZE)];
+        long bytesCopied = 0;
+        while (bytesCopied < file.length())
+        {
+            checkCancelled();
+            bytesCopied = copy(file, buffer, in, out, bytesCopied);
+        }
+    }
+
+    /**
+     * Transfers the content of a pack file from one channel to another.
+     *
+     * @param file the pack file
+     * @param in   the channel to read from
+     * @param out  the channel to write to
+     * @throws InterruptedIOException if the copy operation is cancelled
+     * @throws IOException            for any I/O error
+     */
+    private void transfer(PackFile file, FileChannel in, FileChannel out) throws IOException
+    {
+        long bytesCopied = 0;
+        while (bytesCopied < file.length())
+        {
+            checkCancelled();
+            long start = System.nanoTime();
+            long transferred = in.transferTo(bytesCopied, Math.min(file.length() - bytesCopied, TRANSFER_SIZE), out);
+            if (transferred <= 0)
+            {
+                throw new IOException("Unexpected end of file (modified while copying?)");
+            }
+            bytesCopied += transferred;
+            if (metrics != null)
+            {
+                metrics.decoded(transferred, 0);
+                metrics.written(transferred, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Throws an exception if unpacking has been cancelled.
+     *
+     * @throws InterruptedIOException if unpacking has been cancelled
+     */
+    private void checkCancelled() throws InterruptedIOException
+    {
+        if (cancellable.isCancelled())
+        {
+            // operation cancelled
+            throw new InterruptedIOException("Copy operation cancelled");
+        }
+    }
+
+    /**
+     * Closes the target stream, recording the time taken.
+     *
+     * @param out the target stream
+     */
+    private void close(OutputStream out)
+    {
+        long start = System.nanoTime();
+        FileUtils.close(out);
+        if (metrics != null)
+        {
+            metrics.closed(System.nanoTime() - start);
+        }
+    }
+
     /**
      * Copies from the input stream to the output stream.
      *
@@ -179,29 +319,50 @@ public abstract class FileUnpacker
             throws IOException
     {
         int maxBytes = (int) Math.min(file.length() - bytesCopied, buffer.length);
+        long start = System.nanoTime();
         int read = read(buffer, in, maxBytes);
         if (read == -1)
         {
             throw new IOException("Unexpected end of stream (installer corrupted?)");
         }
+        long decoded = System.nanoTime();
         out.write(buffer, 0, read);
         bytesCopied += read;
+        if (metrics != null)
+        {
+            metrics.decoded(read, decoded - start);
+            metrics.written(read, System.nanoTime() - decoded);
+        }
 
         return bytesCopied;
     }
 
     /**
      * Reads up to <tt>maxBytes</tt> bytes to the specified buffer.
+     * <p/>
+     * This reads until <tt>maxBytes</tt> have been read or the end of the stream is reached, so that the buffer is
+     * written in one operation. Pack streams return at most 1KB per read, as file content is stored in the block
+     * data of an object stream.
      *
      * @param buffer   the buffer
      * @param in       the input stream
      * @param maxBytes the maximum no. of bytes to read
-     * @return the no. of bytes read
+     * @return the no. of bytes read, or <tt>-1</tt> if the end of the stream was reached before any were read
      * @throws IOException for any I/O error
      */
     protected int read(byte[] buffer, InputStream in, int maxBytes) throws IOException
     {
-        return in.read(buffer, 0, maxBytes);
+        int result = 0;
+        while (result < maxBytes)
+        {
+            int read = in.read(buffer, result, maxBytes - result);
+            if (read == -1)
+            {
+                return (result == 0) ? -1 : result;
+            }
+            result += read;
+        }
+        return result;
     }
 
     /**
@@ -22,9 +22,7 @@
 package com.izforge.izpack.installer.unpacker;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.util.logging.Logger;
 
@@ -102,14 +100,13 @@ public class LooseFileUnpacker extends FileUnpacker
         }
         if (resolvedFile.exists())
         {
-            InputStream stream = new FileInputStream(resolvedFile);
             // may have a different length & last modified than we had at compile time, therefore we have to
             // build a new PackFile for the copy process...
             file = new PackFile(resolvedFile.getParentFile(), resolvedFile, file.getTargetPath(),
                                 file.osConstraints(), file.override(), file.overrideRenameTo(),
                                 file.blockable(), file.getAdditionals());
 
-            copy(file, stream, target);
+            copy(file, resolvedFile, target);
         }
         else
         {
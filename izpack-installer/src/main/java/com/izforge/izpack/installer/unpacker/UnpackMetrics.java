@@ -0,0 +1,500 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.izforge.izpack.api.data.Pack;
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.api.event.ByteProgressListener;
+import com.izforge.izpack.api.event.ProgressListener;
+import com.izforge.izpack.installer.util.JSONHelper;
+
+
+/**
+ * Collects byte counts and timings while unpacking.
+ * <p/>
+ * Bytes written are passed on to a {@link ByteProgressListener} as they are written, so that progress and
+ * the estimated remaining time advance within large files, rather than only once each file completes.
+ * <p/>
+ * For each pack, this records:
+ * <ul>
+ * <li>the bytes decoded from the pack stream, and the time spent decoding them</li>
+ * <li>the bytes written to installed files, and the time spent writing them</li>
+ * <li>the time spent closing installed files</li>
+ * <li>the time spent notifying listeners</li>
+ * </ul>
+ * Metrics are updated by the unpacking thread; they should only be read once unpacking completes.
+ */
+public class UnpackMetrics
+{
+
+    /**
+     * The pack metrics, in unpacking order.
+     */
+    private final List<PackMetrics> packs = new ArrayList<PackMetrics>();
+
+    /**
+     * The metrics of the pack being unpacked, or {@code null} if no pack is being unpacked.
+     */
+    private PackMetrics current;
+
+    /**
+     * The listener to pass bytes written to, or {@code null} if the progress listener doesn't track bytes.
+     */
+    private ByteProgressListener listener;
+
+    /**
+     * The no. of bytes passed to the listener for the current file.
+     */
+    private long fileBytes;
+
+    /**
+     * The time unpacking started, in nanoseconds.
+     */
+    private long start = System.nanoTime();
+
+    /**
+     * The time taken to unpack, in nanoseconds.
+     */
+    private long elapsed;
+
+
+    /**
+     * Starts collecting metrics, discarding any previously collected.
+     *
+     * @param listener the progress listener. If it is a {@link ByteProgressListener}, it will be informed of the
+     *                 bytes written
+     */
+    public void start(ProgressListener listener)
+    {
+        this.listener = (listener instanceof ByteProgressListener) ? (ByteProgressListener) listener : null;
+        packs.clear();
+        current = null;
+        elapsed = 0;
+        start = System.nanoTime();
+    }
+
+    /**
+     * Stops collecting metrics.
+     */
+    public void stop()
+    {
+        endPack();
+        elapsed = System.nanoTime() - start;
+    }
+
+    /**
+     * Invoked when a pack starts unpacking.
+     *
+     * @param pack the pack
+     */
+    public void startPack(Pack pack)
+    {
+        endPack();
+        current = new PackMetrics(pack.getName());
+        packs.add(current);
+    }
+
+    /**
+     * Invoked when a pack has been unpacked.
+     */
+    public void endPack()
+    {
+        if (current != null)
+        {
+            current.elapsed = System.nanoTime() - current.start;
+            current = null;
+        }
+    }
+
+    /**
+     * Invoked when bytes have been decoded from a pack.
+     *
+     * @param bytes the no. of bytes
+     * @param time  the time taken, in nanoseconds
+     */
+    public void decoded(long bytes, long time)
+    {
+        if (current != null)
+        {
+            current.bytesDecoded += bytes;
+            current.decodeTime += time;
+        }
+    }
+
+    /**
+     * Invoked when bytes have been written to an installed file.
+     *
+     * @param bytes the no. of bytes
+     * @param time  the time taken, in nanoseconds
+     */
+    public void written(long bytes, long time)
+    {
+        if (current != null)
+        {
+            current.bytesWritten += bytes;
+            current.writeTime += time;
+        }
+        addBytes(bytes);
+    }
+
+    /**
+     * Invoked when an installed file has been closed.
+     *
+     * @param time the time taken, in nanoseconds
+     */
+    public void closed(long time)
+    {
+        if (current != null)
+        {
+            current.closeTime += time;
+        }
+    }
+
+    /**
+     * Invoked when listeners have been notified.
+     *
+     * @param time the time taken, in nanoseconds
+     */
+    public void notified(long time)
+    {
+        if (current != null)
+        {
+            current.listenerTime += time;
+        }
+    }
+
+    /**
+     * Invoked when a pack file has been processed, whether or not it was written.
+     * <p/>
+     * The listener is informed of any bytes of the file that weren't reported as written, so that it sees the
+     * full length of the file.
+     *
+     * @param file the pack file
+     */
+    public void endFile(PackFile file)
+    {
+        if (current != null)
+        {
+            current.files++;
+        }
+        if (fileBytes < file.length())
+        {
+            addBytes(file.length() - fileBytes);
+        }
+        fileBytes = 0;
+    }
+
+    /**
+     * Returns the metrics for each pack, in unpacking order.
+     *
+     * @return the pack metrics
+     */
+    public List<PackMetrics> getPacks()
+    {
+        return Collections.unmodifiableList(packs);
+    }
+
+    /**
+     * Returns the time taken to unpack.
+     *
+     * @return the time taken, in milliseconds
+     */
+    public long getElapsedTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(elapsed);
+    }
+
+    /**
+     * Returns the total no. of bytes written.
+     *
+     * @return the no. of bytes written
+     */
+    public long getBytesWritten()
+    {
+        long result = 0;
+        for (PackMetrics pack : packs)
+        {
+            result += pack.bytesWritten;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the average no. of bytes written per second.
+     *
+     * @return the throughput, in bytes per second
+     */
+    public long getBytesPerSecond()
+    {
+        return (elapsed > 0) ? (long) (getBytesWritten() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed) : 0;
+    }
+
+    /**
+     * Writes the metrics to a file as JSON.
+     *
+     * @param file the file to write to
+     * @throws IOException for any I/O error
+     */
+    public void write(File file) throws IOException
+    {
+        JSONHelper.write(toJSON(), file);
+    }
+
+    /**
+     * Returns the metrics as JSON.
+     *
+     * @return the metrics as JSON
+     */
+    public String toJSON()
+    {
+        StringBuilder result = new StringBuilder("{\n");
+        result.append("  \"elapsedMillis\": ").append(getElapsedTime()).append(",\n");
+        result.append("  \"bytesWritten\": ").append(getBytesWritten()).append(",\n");
+        result.append("  \"bytesPerSecond\": ").append(getBytesPerSecond()).append(",\n");
+        result.append("  \"packs\": [");
+        for (int i = 0; i < packs.size(); ++i)
+        {
+            PackMetrics pack = packs.get(i);
+            result.append((i == 0) ? "\n" : ",\n");
+            result.append("    {\"name\": ").append(JSONHelper.quote(pack.getName()));
+            result.append(", \"files\": ").append(pack.getFiles());
+            result.append(", \"bytesDecoded\": ").append(pack.getBytesDecoded());
+            result.append(", \"bytesWritten\": ").append(pack.getBytesWritten());
+            result.append(", \"elapsedMillis\": ").append(pack.getElapsedTime());
+            result.append(", \"decodeMillis\": ").append(pack.getDecodeTime());
+            result.append(", \"writeMillis\": ").append(pack.getWriteTime());
+            result.append(", \"closeMillis\": ").append(pack.getCloseTime());
+            result.append(", \"listenerMillis\": ").append(pack.getListenerTime());
+            result.append('}');
+        }
+        result.append(packs.isEmpty() ? "]\n" : "\n  ]\n");
+        return result.append("}\n").toString();
+    }
+
+    /**
+     * Returns a summary of the metrics, suitable for logging.
+     *
+     * @return a summary of the metrics
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder result = new StringBuilder();
+        result.append("Unpacked ").append(getBytesWritten()).append(" bytes in ").append(getElapsedTime())
+                .append(" ms (").append(getBytesPerSecond() / 1024).append(" KB/s)");
+        for (PackMetrics pack : packs)
+        {
+            result.append("\n  ").append(pack);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Passes bytes written to the listener.
+     *
+     * @param bytes the no. of bytes
+     */
+    private void addBytes(long bytes)
+    {
+        fileBytes += bytes;
+        if (listener != null)
+        {
+            listener.addBytes(bytes);
+        }
+    }
+
+    /**
+     * The metrics of a single pack.
+     */
+    public static class PackMetrics
+    {
+
+        /**
+         * The pack name.
+         */
+        private final String name;
+
+        /**
+         * The time the pack started unpacking, in nanoseconds.
+         */
+        private final long start = System.nanoTime();
+
+        /**
+         * The no. of files processed.
+         */
+        private int files;
+
+        /**
+         * The no. of bytes decoded.
+         */
+        private long bytesDecoded;
+
+        /**
+         * The no. of bytes written.
+         */
+        private long bytesWritten;
+
+        /**
+         * The time taken to unpack the pack, in nanoseconds.
+         */
+        private long elapsed;
+
+        /**
+         * The time spent decoding, in nanoseconds.
+         */
+        private long decodeTime;
+
+        /**
+         * The time spent writing, in nanoseconds.
+         */
+        private long writeTime;
+
+        /**
+         * The time spent closing files, in nanoseconds.
+         */
+        private long closeTime;
+
+        /**
+         * The time spent notifying listeners, in nanoseconds.
+         */
+        private long listenerTime;
+
+        /**
+         * Constructs a <tt>PackMetrics</tt>.
+         *
+         * @param name the pack name
+         */
+        PackMetrics(String name)
+        {
+            this.name = name;
+        }
+
+        /**
+         * Returns the pack name.
+         *
+         * @return the pack name
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * Returns the no. of files processed.
+         *
+         * @return the no. of files processed, including those skipped
+         */
+        public int getFiles()
+        {
+            return files;
+        }
+
+        /**
+         * Returns the no. of bytes decoded from the pack.
+         *
+         * @return the no. of bytes decoded
+         */
+        public long getBytesDecoded()
+        {
+            return bytesDecoded;
+        }
+
+        /**
+         * Returns the no. of bytes written to installed files.
+         *
+         * @return the no. of bytes written
+         */
+        public long getBytesWritten()
+        {
+            return bytesWritten;
+        }
+
+        /**
+         * Returns the time taken to unpack the pack.
+         *
+         * @return the time taken, in milliseconds
+         */
+        public long getElapsedTime()
+        {
+            return TimeUnit.NANOSECONDS.toMillis(elapsed);
+        }
+
+        /**
+         * Returns the time spent decoding.
+         *
+         * @return the time spent decoding, in milliseconds
+         */
+        public long getDecodeTime()
+        {
+            return TimeUnit.NANOSECONDS.toMillis(decodeTime);
+        }
+
+        /**
+         * Returns the time spent writing.
+         *
+         * @return the time spent writing, in milliseconds
+         */
+        public long getWriteTime()
+        {
+            return TimeUnit.NANOSECONDS.toMillis(writeTime);
+        }
+
+        /**
+         * Returns the time spent closing installed files.
+         *
+         * @return the time spent closing files, in milliseconds
+         */
+        public long getCloseTime()
+        {
+            return TimeUnit.NANOSECONDS.toMillis(closeTime);
+        }
+
+        /**
+         * Returns the time spent notifying listeners.
+         *
+         * @return the time spent notifying listeners, in milliseconds
+         */
+        public long getListenerTime()
+        {
+            return TimeUnit.NANOSECONDS.toMillis(listenerTime);
+        }
+
+        /**
+         * Returns a summary of the metrics, suitable for logging.
+         *
+         * @return a summary of the metrics
+         */
+        @Override
+        public String toString()
+        {
+            return name + ": " + files + " files, " + bytesDecoded + " bytes decoded, " + bytesWritten
+                    + " bytes written in " + getElapsedTime() + " ms (decode " + getDecodeTime() + " ms, write "
+                    + getWriteTime() + " ms, close " + getCloseTime() + " ms, listeners " + getListenerTime()
+                    + " ms)";
+        }
+    }
+}
@@ -26,6 +26,7 @@ import static com.izforge.izpack.api.handler.Prompt.Option;
 import static com.izforge.izpack.api.handler.Prompt.Options;
 import static com.izforge.izpack.api.handler.Prompt.Type;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -36,10 +37,10 @@ import java.io.ObjectOutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.Pack200;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -49,6 +50,7 @@ import com.izforge.izpack.api.data.OverrideType;
 import com.izforge.izpack.api.data.Pack;
 import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.api.data.Variables;
+import com.izforge.izpack.api.event.ByteProgressListener;
 import com.izforge.izpack.api.event.InstallerListener;
 import com.izforge.izpack.api.event.ProgressListener;
 import com.izforge.izpack.api.exception.InstallerException;
@@ -65,14 +67,18 @@ import com.izforge.izpack.data.ParsableFile;
 import com.izforge.izpack.data.UpdateCheck;
 import com.izforge.izpack.installer.data.UninstallData;
 import com.izforge.izpack.installer.event.InstallerListeners;
+import com.izforge.izpack.installer.event.InstallerTrace;
 import com.izforge.izpack.installer.util.PackHelper;
 import com.izforge.izpack.util.FileExecutor;
 import com.izforge.izpack.util.Housekeeper;
 import com.izforge.izpack.util.IoHelper;
 import com.izforge.izpack.util.PlatformModelMatcher;
+import com.izforge.izpack.util.file.ContentDigest;
 import com.izforge.izpack.util.file.DirectoryScanner;
+import com.izforge.izpack.util.file.FileTreeWalker;
 import com.izforge.izpack.util.file.FileUtils;
 import com.izforge.izpack.util.file.GlobPatternMapper;
+import com.izforge.izpack.util.file.PathHashSet;
 import com.izforge.izpack.util.file.types.FileSet;
 import com.izforge.izpack.util.os.FileQueue;
 
@@ -86,6 +92,21 @@ import com.izforge.izpack.util.os.FileQueue;
 public abstract class UnpackerBase implements IUnpacker
 {
 
+    /**
+     * Variable holding the no. of existing files that were already up to date, and so weren't rewritten.
+     */
+    public static final String UNCHANGED_FILES = "INSTALL_UNCHANGED_FILES";
+
+    /**
+     * Variable holding the no. of bytes of existing files that were already up to date, and so weren't rewritten.
+     */
+    public static final String UNCHANGED_BYTES = "INSTALL_UNCHANGED_BYTES";
+
+    /**
+     * System property naming a file to write {@link UnpackMetrics unpack metrics} to, as JSON.
+     */
+    public static final String METRICS_FILE = "izpack.unpack.metrics";
+
     /**
      * The installation data.
      */
@@ -179,6 +200,26 @@ public abstract class UnpackerBase implements IUnpacker
      */
     private boolean disableInterrupt = false;
 
+    /**
+     * The no. of existing files that were already up to date.
+     */
+    private int unchangedFiles;
+
+    /**
+     * The no. of bytes of existing files that were already up to date.
+     */
+    private long unchangedBytes;
+
+    /**
+     * The metrics of the last unpack.
+     */
+    private final UnpackMetrics metrics = new UnpackMetrics();
+
+    /**
+     * The trace, used to record the time spent unpacking.
+     */
+    private final InstallerTrace trace = InstallerTrace.getInstance();
+
     /**
      * The logger.
      */
@@ -247,7 +288,10 @@ public abstract class UnpackerBase implements IUnpacker
      */
     public void unpack()
     {
+        long traceStart = trace.start();
         state = State.UNPACKING;
+        unchangedFiles = 0;
+        unchangedBytes = 0;
         try
         {
             List<ParsableFile> parsables = new ArrayList<ParsableFile>();
@@ -285,10 +329,23 @@ public abstract class UnpackerBase implements IUnpacker
         }
         finally
         {
+            metrics.stop();
+            logMetrics();
             cleanup();
+            trace.span("unpack", InstallerTrace.UNPACK, traceStart);
         }
     }
 
+    /**
+     * Returns the metrics collected during the last unpack.
+     *
+     * @return the unpack metrics
+     */
+    public UnpackMetrics getMetrics()
+    {
+        return metrics;
+    }
+
     /**
      * Return the state of the operation.
      *
@@ -379,6 +436,19 @@ public abstract class UnpackerBase implements IUnpacker
     {
         logger.fine("Unpacker starting");
         listener.startAction("Unpacking", packs.size());
+        metrics.start(listener);
+        if (listener instanceof ByteProgressListener)
+        {
+            long total = 0;
+            for (Pack pack : packs)
+            {
+                if (shouldUnpack(pack))
+                {
+                    total += pack.getFileSize();
+                }
+            }
+            ((ByteProgressListener) listener).setTotalBytes(total);
+        }
         listeners.beforePacks(packs, listener);
     }
 
@@ -402,10 +472,18 @@ public abstract class UnpackerBase implements IUnpacker
             Pack pack = packs.get(i);
             if (shouldUnpack(pack))
             {
+                metrics.startPack(pack);
+                long traceStart = trace.start();
+                long start = System.nanoTime();
                 listeners.beforePack(pack, i, listener);
+                metrics.notified(System.nanoTime() - start);
                 unpack(pack, i, queue, parsables, executables, updateChecks);
                 checkInterrupt();
+                start = System.nanoTime();
                 listeners.afterPack(pack, i, listener);
+                metrics.notified(System.nanoTime() - start);
+                metrics.endPack();
+                trace.span("unpack " + pack.getName(), InstallerTrace.UNPACK, traceStart);
             }
         }
     }
@@ -429,7 +507,8 @@ public abstract class UnpackerBase implements IUnpacker
         try
         {
             in = resources.getPackStream(pack.getName());
-            packInputStream = new ObjectInputStream(in);
+            // the object stream reads block data headers a few bytes at a time, so buffer the pack stream
+            packInputStream = new ObjectInputStream(new BufferedInputStream(in, FileUnpacker.BUFFER_SIZE));
 
             int fileCount = packInputStream.readInt();
 
@@ -439,7 +518,9 @@ public abstract class UnpackerBase implements IUnpacker
             for (int i = 0; i < fileCount; ++i)
             {
                 // read the header
+                long start = System.nanoTime();
                 PackFile file = (PackFile) packInputStream.readObject();
+                metrics.decoded(0, System.nanoTime() - start);
                 if (shouldUnpack(file))
                 {
                     // unpack the file
@@ -450,6 +531,7 @@ public abstract class UnpackerBase implements IUnpacker
                     // condition is not fulfilled, so skip it
                     skip(file, pack, packInputStream);
                 }
+                metrics.endFile(file);
             }
             readParsableFiles(packInputStream, parsables);
             readExecutableFiles(packInputStream, executables);
@@ -522,30 +604,39 @@ public abstract class UnpackerBase implements IUnpacker
         createDirectory(dir, file, pack);
 
         // Add path to the log
-        getUninstallData().addFile(path, pack.isUninstall());
+        getUninstallData().addFile(path, pack.isUninstall(), pack, file);
 
         if (file.isDirectory())
         {
             return;
         }
 
+        long start = System.nanoTime();
         listeners.beforeFile(target, file, pack);
 
         listener.progress(fileNo, path);
+        metrics.notified(System.nanoTime() - start);
 
+        if (file.isUnchanged())
+        {
+            // patch installer, and the file should be the same as that previously installed
+            if (checkUnchanged(file, target))
+            {
+                addUnchanged(file);
+            }
+            start = System.nanoTime();
+            listeners.afterFile(target, file, pack);
+            metrics.notified(System.nanoTime() - start);
+        }
         // if this file exists and should not be overwritten, check what to do
-        if (target.exists() && (file.override() != OverrideType.OVERRIDE_TRUE) && !isOverwriteFile(file, target))
+        else if (target.exists() && (file.override() != OverrideType.OVERRIDE_TRUE)
+                && !isOverwriteFile(file, target))
         {
-            if (!file.isBackReference() && !pack.isLoose())
+            skip(file, pack, packInputStream);
+            if (file.override() == OverrideType.OVERRIDE_DIFFERENT)
             {
-                if (file.isPack200Jar())
-                {
-                    skip(packInputStream, Integer.SIZE / 8);
-                }
-                else
-                {
-                    skip(packInputStream, file.length());
-                }
+                // the existing file has the same content
+                addUnchanged(file);
             }
         }
         else
@@ -587,12 +678,15 @@ public abstract class UnpackerBase implements IUnpacker
             }
 
             unpacker = createFileUnpacker(file, pack, queue, cancellable);
+            unpacker.setMetrics(metrics);
             unpacker.unpack(file, packStream, target);
             checkInterrupt();
 
             if (!unpacker.isQueued())
             {
+                long start = System.nanoTime();
                 listeners.afterFile(target, file, pack);
+                metrics.notified(System.nanoTime() - start);
             }
         }
         finally
@@ -622,10 +716,63 @@ public abstract class UnpackerBase implements IUnpacker
 
         if (!pack.isLoose() && !file.isBackReference())
         {
-            skip(packInputStream, file.length());
+            if (file.isPack200Jar())
+            {
+                skip(packInputStream, Integer.SIZE / 8);
+            }
+            else
+            {
+                skip(packInputStream, file.getStoredLength());
+            }
         }
     }
 
+    /**
+     * Verifies that a file that a patch installer doesn't include is the same as that previously installed.
+     * <p/>
+     * The patch installer cannot supply the content of a missing or modified file, so it is left as is:
+     * <ul>
+     * <li>if the file is never overwritten, the installed file is kept</li>
+     * <li>if the user is asked before overwriting, they are asked whether to continue the installation</li>
+     * <li>otherwise, a warning is logged</li>
+     * </ul>
+     *
+     * @param file   the pack file
+     * @param target the installed file
+     * @return {@code true} if the installed file matches, {@code false} if it is missing or has been modified
+     * @throws IOException        for any I/O error
+     * @throws InstallerException if the user chose to abort the installation
+     */
+    protected boolean checkUnchanged(PackFile file, File target) throws IOException
+    {
+        if (target.exists() && target.length() == file.length()
+                && (file.getHash() == null || Arrays.equals(file.getHash(), ContentDigest.get(target))))
+        {
+            return true;
+        }
+        OverrideType override = file.override();
+        if (override == OverrideType.OVERRIDE_ASK_FALSE || override == OverrideType.OVERRIDE_ASK_TRUE)
+        {
+            Messages messages = installData.getMessages();
+            Option answer = prompt.confirm(Type.WARNING,
+                                           messages.get("InstallPanel.patch.title") + " - " + target.getName(),
+                                           messages.get("InstallPanel.patch.question") + target.getAbsolutePath(),
+                                           Options.YES_NO, Option.YES);
+            if (answer != Option.YES)
+            {
+                throw new InstallerException("Cannot patch " + target
+                                                     + ": the file is missing or differs from the version "
+                                                     + "previously installed");
+            }
+        }
+        else if (override != OverrideType.OVERRIDE_FALSE)
+        {
+            logger.warning("Not updating " + target + ": the file is missing or differs from the version "
+                                   + "previously installed, and the patch doesn't include it");
+        }
+        return false;
+    }
+
     /**
      * Creates an unpacker to unpack a pack file.
      *
@@ -649,6 +796,10 @@ public abstract class UnpackerBase implements IUnpacker
         {
             unpacker = new Pack200FileUnpacker(cancellable, resources, getPack200Unpacker(), queue);
         }
+        else if (file.isDelta())
+        {
+            unpacker = new DeltaFileUnpacker(cancellable, queue);
+        }
         else
         {
             unpacker = new DefaultFileUnpacker(cancellable, queue);
@@ -696,10 +847,39 @@ public abstract class UnpackerBase implements IUnpacker
         // write installation information
         writeInstallationInformation();
 
+        if (unchangedFiles != 0)
+        {
+            logger.info(unchangedFiles + " files (" + unchangedBytes + " bytes) were already up to date");
+        }
+        installData.setVariable(UNCHANGED_FILES, Integer.toString(unchangedFiles));
+        installData.setVariable(UNCHANGED_BYTES, Long.toString(unchangedBytes));
+
         // unpacking complete
         listener.stopAction();
     }
 
+    /**
+     * Logs the unpack metrics, and writes them to the file named by the {@link #METRICS_FILE} system property,
+     * if set.
+     */
+    protected void logMetrics()
+    {
+        logger.info(metrics.toString());
+        String path = System.getProperty(METRICS_FILE);
+        if (path != null)
+        {
+            try
+            {
+                metrics.write(new File(path));
+            }
+            catch (IOException exception)
+            {
+                logger.log(Level.WARNING, "Failed to write unpack metrics to " + path + ": "
+                        + exception.getMessage(), exception);
+            }
+        }
+    }
+
     /**
      * Invoked after unpacking has completed, in order to clean up.
      */
@@ -825,7 +1005,7 @@ public abstract class UnpackerBase implements IUnpacker
     {
         if (!dir.exists())
         {
-            if (!listeners.isFileListener())
+            if (!listeners.isDirListener(pack))
             {
                 // Create it in one step.
                 if (!dir.mkdirs())
@@ -936,6 +1116,9 @@ public abstract class UnpackerBase implements IUnpacker
 
     /**
      * Performs update checks.
+     * <p/>
+     * Files and directories matching the update checks that weren't installed are deleted. The installation
+     * directory is walked concurrently, and files are deleted as they are found rather than being collected first.
      *
      * @param checks the update checks. May be {@code null}
      * @throws IzPackException for any error
@@ -945,11 +1128,13 @@ public abstract class UnpackerBase implements IUnpacker
         if (checks != null && !checks.isEmpty())
         {
             logger.info("Cleaning up the target folder ...");
+            long start = System.currentTimeMillis();
 
             File absoluteInstallPath = new File(installData.getInstallPath()).getAbsoluteFile();
             FileSet fileset = new FileSet();
-            List<File> filesToDelete = new ArrayList<File>();
-            List<File> dirsToDelete = new ArrayList<File>();
+            final List<File> dirsToDelete = Collections.synchronizedList(new ArrayList<File>());
+            final AtomicInteger filesDeleted = new AtomicInteger();
+            int dirsDeleted = 0;
 
             try
             {
@@ -973,14 +1158,10 @@ public abstract class UnpackerBase implements IUnpacker
                         }
                     }
                 }
-                DirectoryScanner scanner = fileset.getDirectoryScanner();
-                scanner.scan();
-                String[] srcFiles = scanner.getIncludedFiles();
-                String[] srcDirs = scanner.getIncludedDirectories();
-
-                Set<File> installedFiles = new TreeSet<File>();
 
-                for (String name : uninstallData.getInstalledFilesList())
+                List<String> installed = uninstallData.getInstalledFilesList();
+                final PathHashSet installedFiles = new PathHashSet(installed.size());
+                for (String name : installed)
                 {
                     File file = new File(name);
 
@@ -991,30 +1172,42 @@ public abstract class UnpackerBase implements IUnpacker
 
                     installedFiles.add(file);
                 }
-                for (String srcFile : srcFiles)
-                {
-                    File newFile = new File(scanner.getBasedir(), srcFile);
 
-                    // skip files we just installed
-                    if (!installedFiles.contains(newFile))
-                    {
-                        filesToDelete.add(newFile);
-                    }
-                }
-                for (String srcDir : srcDirs)
+                DirectoryScanner scanner = new DirectoryScanner();
+                fileset.setupDirectoryScanner(scanner);
+                scanner.setFollowSymlinks(fileset.isFollowSymlinks());
+                scanner.setThreads(FileTreeWalker.getDefaultThreads());
+                scanner.scan(new FileTreeWalker.Visitor()
                 {
-                    // All directories except INSTALL_PATH
-                    if (!srcDir.isEmpty())
+                    @Override
+                    public boolean visitDirectory(String name, File dir)
                     {
-                        File newDir = new File(scanner.getBasedir(), srcDir);
-
                         // skip directories we just installed
-                        if (!installedFiles.contains(newDir))
+                        if (!installedFiles.contains(dir))
                         {
-                            dirsToDelete.add(newDir);
+                            dirsToDelete.add(dir);
                         }
+                        return true;
                     }
-                }
+
+                    @Override
+                    public void visitFile(String name, File file)
+                    {
+                        // skip files we just installed
+                        if (!installedFiles.contains(file))
+                        {
+                            if (!file.delete())
+                            {
+                                logger.warning("Cleanup: Unable to delete file " + file);
+                            }
+                            else
+                            {
+                                filesDeleted.incrementAndGet();
+                                logger.fine("Cleanup: Deleted file " + file);
+                            }
+                        }
+                    }
+                });
             }
             catch (IzPackException exception)
             {
@@ -1025,18 +1218,6 @@ public abstract class UnpackerBase implements IUnpacker
                 throw new IzPackException(exception);
             }
 
-            for (File f : filesToDelete)
-            {
-                if (!f.delete())
-                {
-                    logger.warning("Cleanup: Unable to delete file " + f);
-                }
-                else
-                {
-                    logger.fine("Cleanup: Deleted file " + f);
-                }
-            }
-
             // Sort directories, deepest path first to be able to
             // delete recursively
             Collections.sort(dirsToDelete);
@@ -1044,18 +1225,13 @@ public abstract class UnpackerBase implements IUnpacker
 
             for (File d : dirsToDelete)
             {
-                if (!d.exists())
-                {
-                    break;
-                }
-
                 // Don't try to delete non-empty directories, because they
                 // probably must have been implicitly created as parents
                 // of regular installation files
                 File[] files = d.listFiles();
-                if (files != null && files.length != 0)
+                if (files == null || files.length != 0)
                 {
-                    break;
+                    continue;
                 }
 
                 // Only empty directories will be deleted
@@ -1065,9 +1241,12 @@ public abstract class UnpackerBase implements IUnpacker
                 }
                 else
                 {
+                    ++dirsDeleted;
                     logger.fine("Cleanup: Deleted directory " + d);
                 }
             }
+            logger.info("Cleanup: Deleted " + filesDeleted.get() + " files and " + dirsDeleted + " directories in "
+                                + (System.currentTimeMillis() - start) + "ms");
         }
     }
 
@@ -1220,6 +1399,10 @@ public abstract class UnpackerBase implements IUnpacker
                 // it was installed...)
                 result = (file.lastModified() < pf.lastModified());
             }
+            else if (pf.override() == OverrideType.OVERRIDE_DIFFERENT)
+            {
+                result = !isSameContent(pf, file);
+            }
             else
             {
                 Option defChoice = null;
@@ -1245,6 +1428,44 @@ public abstract class UnpackerBase implements IUnpacker
         return result;
     }
 
+    /**
+     * Determines if an existing file has the same content as a pack file.
+     * <p/>
+     * This compares the size and content hash recorded by the compiler. If the pack file has no hash, the content is
+     * assumed to differ.
+     *
+     * @param pf   the pack file
+     * @param file the existing file
+     * @return {@code true} if the file has the same content
+     */
+    protected boolean isSameContent(PackFile pf, File file)
+    {
+        boolean result = false;
+        if (pf.getHash() != null && file.length() == pf.length())
+        {
+            try
+            {
+                result = Arrays.equals(pf.getHash(), ContentDigest.get(file));
+            }
+            catch (IOException exception)
+            {
+                logger.log(Level.WARNING, "Failed to read " + file + ": " + exception.getMessage(), exception);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Records that an existing file was already up to date, and so wasn't rewritten.
+     *
+     * @param file the pack file
+     */
+    protected void addUnchanged(PackFile file)
+    {
+        ++unchangedFiles;
+        unchangedBytes += file.length();
+    }
+
     /**
      * Renames a file, if it exists and the pack file defines how it should be handled.
      *
@@ -0,0 +1,88 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.izforge.izpack.installer.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import com.izforge.izpack.util.file.FileUtils;
+
+
+/**
+ * Helper methods for writing the JSON diagnostics produced by the installer.
+ */
+public class JSONHelper
+{
+
+    /**
+     * Returns a string as a quoted JSON string.
+     *
+     * @param value the value to quote. May be {@code null}
+     * @return the quoted value, or <tt>null</tt> if {@code value} is {@code null}
+     */
+    public static String quote(String value)
+    {
+        if (value == null)
+        {
+            return "null";
+        }
+        StringBuilder result = new StringBuilder(value.length() + 2);
+        result.append('"');
+        for (int i = 0; i < value.length(); ++i)
+        {
+            char ch = value.charAt(i);
+            if (ch == '"' || ch == '\\')
+            {
+                result.append('\\').append(ch);
+            }
+            else if (ch < 0x20)
+            {
+                result.append(String.format("\\u%04x", (int) ch));
+            }
+            else
+            {
+                result.append(ch);
+            }
+        }
+        return result.append('"').toString();
+    }
+
+    /**
+     * Writes JSON to a file, using UTF-8 encoding.
+     *
+     * @param json the JSON to write
+     * @param file the file to write to
+     * @throws IOException for any I/O error
+     */
+    public static void write(String json, File file) throws IOException
+    {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try
+        {
+            writer.write(json);
+        }
+        finally
+        {
+            FileUtils.close(writer);
+        }
+    }
+}
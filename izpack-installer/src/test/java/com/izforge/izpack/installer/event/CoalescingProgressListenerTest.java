@@ -0,0 +1,216 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import com.izforge.izpack.api.event.ProgressListener;
+
+
+/**
+ * Tests the {@link CoalescingProgressListener} class.
+ */
+public class CoalescingProgressListenerTest
+{
+
+    /**
+     * Verifies that sub-step notifications within the refresh interval are coalesced, and that the latest is
+     * forwarded before the next step.
+     */
+    @Test
+    public void testCoalesce()
+    {
+        ProgressListener listener = mock(ProgressListener.class);
+        CoalescingProgressListener coalescer = new CoalescingProgressListener(listener, 60 * 60 * 1000);
+
+        coalescer.startAction("Unpacking", 2);
+        coalescer.nextStep("pack1", 1, 3);
+        coalescer.progress(0, "file1");
+        coalescer.progress(1, "file2");
+        coalescer.progress(2, "file3");
+        coalescer.nextStep("pack2", 2, 1);
+        coalescer.stopAction();
+
+        InOrder order = inOrder(listener);
+        order.verify(listener).startAction("Unpacking", 2);
+        order.verify(listener).nextStep("pack1", 1, 3);
+        order.verify(listener).progress(0, "file1");
+        order.verify(listener).progress(2, "file3");
+        order.verify(listener).nextStep("pack2", 2, 1);
+        order.verify(listener).stopAction();
+        verify(listener, never()).progress(1, "file2");
+    }
+
+    /**
+     * Verifies that a pending notification is forwarded when the refresh interval elapses, without further
+     * notifications.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testForwardPending() throws Exception
+    {
+        SubStepListener listener = new SubStepListener();
+        CoalescingProgressListener coalescer = new CoalescingProgressListener(listener, 10);
+
+        coalescer.startAction("Unpacking", 1);
+        coalescer.progress(0, "file1");
+        coalescer.progress(1, "file2");
+        assertTrue(listener.await(2));
+        assertEquals(Arrays.asList("0 file1", "1 file2"), listener.getSubSteps());
+        coalescer.stopAction();
+    }
+
+    /**
+     * Verifies that the last notification is repeated when bytes are processed within a sub-step.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testRefresh() throws Exception
+    {
+        SubStepListener listener = new SubStepListener();
+        CoalescingProgressListener coalescer = new CoalescingProgressListener(listener, 10);
+
+        coalescer.startAction("Unpacking", 1);
+        coalescer.progress(0, "large");
+        assertTrue(listener.await(1));
+        coalescer.addBytes(1024);
+        assertTrue(listener.await(1));
+        assertEquals(Arrays.asList("0 large", "0 large"), listener.getSubSteps());
+        coalescer.stopAction();
+    }
+
+    /**
+     * Tests byte tracking.
+     */
+    @Test
+    public void testBytes()
+    {
+        CoalescingProgressListener coalescer = new CoalescingProgressListener(mock(ProgressListener.class));
+        coalescer.startAction("Unpacking", 1);
+        assertEquals(-1, coalescer.getRemainingTime());
+        coalescer.setTotalBytes(1000);
+        coalescer.addBytes(250);
+        coalescer.addBytes(250);
+        assertEquals(500, coalescer.getBytes());
+        assertEquals(50, coalescer.getPercentage());
+        assertTrue(coalescer.getBytesPerSecond() > 0);
+        coalescer.addBytes(1000);
+        assertEquals(100, coalescer.getPercentage());
+        coalescer.stopAction();
+
+        assertEquals("0:00", CoalescingProgressListener.formatDuration(0));
+        assertEquals("0:05", CoalescingProgressListener.formatDuration(4200));
+        assertEquals("2:05", CoalescingProgressListener.formatDuration(125000));
+        assertEquals("1:00:01", CoalescingProgressListener.formatDuration(3601000));
+    }
+
+    /**
+     * A {@link ProgressListener} that records sub-step notifications, which may be forwarded by the timer thread.
+     */
+    private static class SubStepListener implements ProgressListener
+    {
+
+        /**
+         * The sub-step notifications, as "subStep message".
+         */
+        private final List<String> subSteps = Collections.synchronizedList(new ArrayList<String>());
+
+        /**
+         * Released for each sub-step notification.
+         */
+        private final Semaphore notified = new Semaphore(0);
+
+        /**
+         * Waits for sub-step notifications.
+         *
+         * @param count the no. of notifications to wait for, since the last wait
+         * @return {@code true} if the notifications were received, {@code false} if the wait timed out
+         * @throws InterruptedException if the wait is interrupted
+         */
+        public boolean await(int count) throws InterruptedException
+        {
+            return notified.tryAcquire(count, 5, TimeUnit.SECONDS);
+        }
+
+        /**
+         * Returns the sub-step notifications received.
+         *
+         * @return the notifications, as "subStep message"
+         */
+        public List<String> getSubSteps()
+        {
+            return new ArrayList<String>(subSteps);
+        }
+
+        @Override
+        public void progress(int subStep, String message)
+        {
+            subSteps.add(subStep + " " + message);
+            notified.release();
+        }
+
+        @Override
+        public void startAction(String name, int steps)
+        {
+        }
+
+        @Override
+        public void stopAction()
+        {
+        }
+
+        @Override
+        public void nextStep(String stepName, int step, int subSteps)
+        {
+        }
+
+        @Override
+        public void setSubStepNo(int subSteps)
+        {
+        }
+
+        @Override
+        public void progress(String message)
+        {
+        }
+
+        @Override
+        public void restartAction(String name, String overallMessage, String tip, int steps)
+        {
+        }
+    }
+}
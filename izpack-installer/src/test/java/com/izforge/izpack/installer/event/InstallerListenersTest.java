@@ -0,0 +1,165 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.event;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.izforge.izpack.api.data.AutomatedInstallData;
+import com.izforge.izpack.api.data.Pack;
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.api.event.FileListenerScope;
+import com.izforge.izpack.api.event.InstallerListener;
+import com.izforge.izpack.api.event.ProgressListener;
+import com.izforge.izpack.api.event.ScopedFileListener;
+import com.izforge.izpack.api.handler.Prompt;
+
+
+/**
+ * Tests the {@link InstallerListeners} class.
+ */
+public class InstallerListenersTest
+{
+
+    /**
+     * The installation path.
+     */
+    private final File installPath = new File("app").getAbsoluteFile();
+
+    /**
+     * The listeners.
+     */
+    private InstallerListeners listeners;
+
+    /**
+     * The base pack.
+     */
+    private final Pack base = createPack("base");
+
+    /**
+     * The docs pack.
+     */
+    private final Pack docs = createPack("docs");
+
+    /**
+     * The packs.
+     */
+    private final List<Pack> packs = Arrays.asList(base, docs);
+
+    /**
+     * Sets up the test case.
+     */
+    @Before
+    public void setUp()
+    {
+        AutomatedInstallData installData = mock(AutomatedInstallData.class);
+        when(installData.getInstallPath()).thenReturn(installPath.getPath());
+        listeners = new InstallerListeners(installData, mock(Prompt.class));
+    }
+
+    /**
+     * Verifies that scoped file listeners are only notified of the events, packs and files in their scope.
+     */
+    @Test
+    public void testScopedFileListener()
+    {
+        InstallerListener all = mock(InstallerListener.class);
+        when(all.isFileListener()).thenReturn(true);
+
+        InstallerListener scoped = mock(InstallerListener.class, withSettings().extraInterfaces(
+                ScopedFileListener.class));
+        when(scoped.isFileListener()).thenReturn(true);
+        FileListenerScope scope = new FileListenerScope(EnumSet.of(FileListenerScope.Event.BEFORE_FILE),
+                                                        Arrays.asList("**/*.sh"));
+        when(((ScopedFileListener) scoped).getFileListenerScope(base)).thenReturn(scope);
+        when(((ScopedFileListener) scoped).getFileListenerScope(docs)).thenReturn(FileListenerScope.NONE);
+
+        listeners.add(all);
+        listeners.add(scoped);
+        listeners.initialise();
+        listeners.beforePacks(packs, mock(ProgressListener.class));
+
+        PackFile packFile = mock(PackFile.class);
+        File script = new File(installPath, "bin/run.sh");
+        File jar = new File(installPath, "lib/app.jar");
+        File doc = new File(installPath, "doc/install.sh");
+
+        listeners.beforeFile(script, packFile, base);
+        listeners.beforeFile(jar, packFile, base);
+        listeners.afterFile(script, packFile, base);
+        listeners.beforeFile(doc, packFile, docs);
+
+        verify(all).beforeFile(script, packFile, base);
+        verify(all).beforeFile(jar, packFile, base);
+        verify(all).afterFile(script, packFile, base);
+        verify(all).beforeFile(doc, packFile, docs);
+
+        verify(scoped).beforeFile(script, packFile, base);
+        verify(scoped, never()).beforeFile(jar, packFile, base);
+        verify(scoped, never()).afterFile(script, packFile, base);
+        verify(scoped, never()).beforeFile(doc, packFile, docs);
+
+        assertTrue(listeners.isDirListener(base));
+    }
+
+    /**
+     * Verifies that directories are not dispatched when no listener includes directory events for a pack.
+     */
+    @Test
+    public void testNoDirListeners()
+    {
+        InstallerListener scoped = mock(InstallerListener.class, withSettings().extraInterfaces(
+                ScopedFileListener.class));
+        when(scoped.isFileListener()).thenReturn(true);
+        when(((ScopedFileListener) scoped).getFileListenerScope(base)).thenReturn(FileListenerScope.ALL);
+        when(((ScopedFileListener) scoped).getFileListenerScope(docs)).thenReturn(FileListenerScope.NONE);
+
+        listeners.add(scoped);
+        listeners.initialise();
+        listeners.beforePacks(packs, mock(ProgressListener.class));
+
+        assertTrue(listeners.isDirListener(base));
+        assertFalse(listeners.isDirListener(docs));
+    }
+
+    /**
+     * Creates a pack.
+     *
+     * @param name the pack name
+     * @return a new pack
+     */
+    private static Pack createPack(String name)
+    {
+        return new Pack(name, null, null, null, null, true, false, false, null, true, 0);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link InstallerTrace} class.
+ */
+public class InstallerTraceTest
+{
+
+    /**
+     * Verifies that spans and listener callbacks are written to the trace.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testTrace() throws Exception
+    {
+        File file = File.createTempFile("trace", ".json");
+        try
+        {
+            InstallerTrace trace = new InstallerTrace(file);
+            assertTrue(trace.isEnabled());
+
+            long start = trace.start();
+            trace.span("activate \"HelloPanel\"", InstallerTrace.PANEL, start);
+            Object listener = new Object();
+            for (int i = 0; i < 3; ++i)
+            {
+                trace.call(listener, "beforeFile", trace.start(), false);
+            }
+            trace.call(listener, "afterPacks", trace.start(), true);
+            trace.write();
+
+            String json = FileUtils.readFileToString(file, "UTF-8");
+            assertTrue(json.contains("\"name\": \"activate \\\"HelloPanel\\\"\", \"cat\": \"panel\", \"ph\": \"X\""));
+            assertTrue(json.contains("\"name\": \"java.lang.Object.afterPacks\", \"cat\": \"listener\""));
+            assertFalse(json.contains("\"name\": \"java.lang.Object.beforeFile\""));
+            assertTrue(json.contains("{\"listener\": \"java.lang.Object\", \"callback\": \"beforeFile\", \"count\": 3"));
+            assertTrue(json.contains("{\"listener\": \"java.lang.Object\", \"callback\": \"afterPacks\", \"count\": 1"));
+        }
+        finally
+        {
+            assertTrue(file.delete());
+        }
+    }
+
+    /**
+     * Verifies that nothing is recorded when tracing is disabled.
+     */
+    @Test
+    public void testDisabled()
+    {
+        InstallerTrace trace = new InstallerTrace(null);
+        assertFalse(trace.isEnabled());
+        assertEquals(0, trace.start());
+        trace.span("span", InstallerTrace.PANEL, 0);
+        trace.call(new Object(), "beforeFile", 0, true);
+        assertEquals("{\n  \"displayTimeUnit\": \"ms\",\n  \"traceEvents\": [],\n  \"listenerStats\": []\n}\n",
+                     trace.toJSON());
+    }
+}
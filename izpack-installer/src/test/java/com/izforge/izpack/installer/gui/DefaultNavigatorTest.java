@@ -169,6 +169,11 @@ public class DefaultNavigatorTest
                     navigator.setNextEnabled(false);
                 }
             }
+
+            @Override
+            public void prefetch(IzPanelView panel)
+            {
+            }
         });
 
         // navigate to the second panel
@@ -209,6 +214,11 @@ public class DefaultNavigatorTest
                     navigator.setPreviousEnabled(false);
                 }
             }
+
+            @Override
+            public void prefetch(IzPanelView panel)
+            {
+            }
         });
 
         // navigate to the second panel
@@ -275,6 +285,11 @@ public class DefaultNavigatorTest
                     navigator.next(false);
                 }
             }
+
+            @Override
+            public void prefetch(IzPanelView panel)
+            {
+            }
         });
 
         // navigate to the first panel
@@ -340,6 +355,11 @@ public class DefaultNavigatorTest
             {
 
             }
+
+            @Override
+            public void prefetch(IzPanelView panel)
+            {
+            }
         });
         return panels;
     }
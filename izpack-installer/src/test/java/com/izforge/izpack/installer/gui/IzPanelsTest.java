@@ -0,0 +1,241 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.izforge.izpack.installer.gui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.izforge.izpack.api.container.Container;
+import com.izforge.izpack.api.data.LocaleDatabase;
+import com.izforge.izpack.api.data.Panel;
+import com.izforge.izpack.api.data.Variables;
+import com.izforge.izpack.api.factory.ObjectFactory;
+import com.izforge.izpack.api.resource.Messages;
+import com.izforge.izpack.api.resource.Resources;
+import com.izforge.izpack.api.rules.RulesEngine;
+import com.izforge.izpack.core.container.DefaultContainer;
+import com.izforge.izpack.core.data.DefaultVariables;
+import com.izforge.izpack.core.factory.DefaultObjectFactory;
+import com.izforge.izpack.core.resource.DefaultLocales;
+import com.izforge.izpack.installer.data.GUIInstallData;
+import com.izforge.izpack.util.Platforms;
+
+
+/**
+ * Tests the {@link IzPanels} class.
+ */
+public class IzPanelsTest
+{
+
+    /**
+     * The installation data.
+     */
+    private final GUIInstallData installData;
+
+    /**
+     * The rules.
+     */
+    private final RulesEngine rules;
+
+    /**
+     * The factory for creating panels.
+     */
+    private final ObjectFactory factory;
+
+    /**
+     * The container.
+     */
+    private final Container container;
+
+    /**
+     * The panels prefetched by the listener.
+     */
+    private final BlockingQueue<IzPanelView> prefetched = new LinkedBlockingQueue<IzPanelView>();
+
+
+    /**
+     * Constructs an {@code IzPanelsTest}.
+     */
+    public IzPanelsTest()
+    {
+        final InstallerFrame frame = Mockito.mock(InstallerFrame.class);
+        installData = new GUIInstallData(new DefaultVariables(), Platforms.WINDOWS);
+        rules = Mockito.mock(RulesEngine.class);
+        Mockito.when(rules.canShowPanel(Mockito.anyString(), Mockito.any(Variables.class))).thenReturn(true);
+        installData.setRules(rules);
+        final Resources resources = Mockito.mock(Resources.class);
+        installData.setMessages(new LocaleDatabase((Messages) null, new DefaultLocales(resources)));
+
+        container = new DefaultContainer()
+        {
+            {
+                getContainer().addComponent(frame);
+                getContainer().addComponent(resources);
+                getContainer().addComponent(installData);
+            }
+        };
+        factory = new DefaultObjectFactory(container);
+    }
+
+    /**
+     * Verifies that when a panel is switched to, the next panel that can be shown is prefetched off the event
+     * dispatch thread, and that the prefetched state is used when that panel is activated.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testPrefetch() throws Exception
+    {
+        final IzPanels panels = createPanels(3);
+
+        // the second panel can't be shown, so the third panel should be prefetched after the first is switched to
+        Mockito.when(rules.isConditionTrue("showSecond")).thenReturn(false);
+        next(panels);
+        assertEquals(0, panels.getIndex());
+
+        IzPanelView panel = prefetched.poll(30, TimeUnit.SECONDS);
+        assertNotNull(panel);
+        assertEquals(2, panel.getIndex());
+        PrefetchIzPanel view = (PrefetchIzPanel) panel.getView();
+        assertEquals(1, view.getPrefetches());
+        assertFalse(view.isPrefetchedOnEventDispatchThread());
+        assertNull(view.getActivatedWith());
+        assertEquals(0, ((PrefetchIzPanel) panels.getPanelViews().get(1).getView()).getPrefetches());
+
+        // navigate to the third panel, and verify it uses the prefetched state
+        next(panels);
+        assertEquals(2, panels.getIndex());
+        assertSame(view.getPrefetched(), view.getActivatedWith());
+
+        // nothing follows the last panel
+        assertTrue(prefetched.isEmpty());
+    }
+
+    /**
+     * Verifies that the panel following a panel is prefetched when it can be shown.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testPrefetchFollowingPanel() throws Exception
+    {
+        IzPanels panels = createPanels(3);
+        Mockito.when(rules.isConditionTrue("showSecond")).thenReturn(true);
+        next(panels);
+
+        IzPanelView panel = prefetched.poll(30, TimeUnit.SECONDS);
+        assertNotNull(panel);
+        assertEquals(1, panel.getIndex());
+        PrefetchIzPanel view = (PrefetchIzPanel) panel.getView();
+        assertEquals(1, view.getPrefetches());
+        assertFalse(view.isPrefetchedOnEventDispatchThread());
+
+        next(panels);
+        assertEquals(1, panels.getIndex());
+        assertSame(view.getPrefetched(), view.getActivatedWith());
+    }
+
+    /**
+     * Navigates to the next panel on the event dispatch thread.
+     *
+     * @param panels the panels
+     * @throws Exception for any error
+     */
+    private void next(final IzPanels panels) throws Exception
+    {
+        final boolean[] result = {false};
+        SwingUtilities.invokeAndWait(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                result[0] = panels.next();
+            }
+        });
+        assertTrue(result[0]);
+    }
+
+    /**
+     * Creates a {@link IzPanels} with the specified no. of panels. The second panel is only shown if the
+     * <em>showSecond</em> condition is true.
+     *
+     * @param count the no. of panels
+     * @return a new {@link IzPanels} with {@code count} panels
+     */
+    private IzPanels createPanels(int count)
+    {
+        List<IzPanelView> views = new ArrayList<IzPanelView>();
+        for (int i = 0; i < count; ++i)
+        {
+            views.add(new IzPanelView(createPanel(i), factory, installData));
+        }
+        IzPanels panels = new IzPanels(views, container, installData);
+        panels.initialise();
+        panels.setListener(new IzPanelsListener()
+        {
+            @Override
+            public void switchPanel(IzPanelView newPanel, IzPanelView oldPanel)
+            {
+                newPanel.getView().panelActivate();
+            }
+
+            @Override
+            public void prefetch(IzPanelView panel)
+            {
+                prefetched.add(panel);
+            }
+        });
+        return panels;
+    }
+
+    /**
+     * Creates panel meta-data.
+     *
+     * @param index the panel index
+     * @return the panel meta-data
+     */
+    private Panel createPanel(int index)
+    {
+        Panel panel = new Panel();
+        panel.setClassName(PrefetchIzPanel.class.getName());
+        panel.setPanelId("panel" + index);
+        if (index == 1)
+        {
+            panel.setCondition("showSecond");
+        }
+        return panel;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.gui;
+
+import javax.swing.SwingUtilities;
+
+import com.izforge.izpack.api.data.Panel;
+import com.izforge.izpack.api.resource.Resources;
+import com.izforge.izpack.installer.data.GUIInstallData;
+
+/**
+ * Test {@link IzPanel} that records how it is prefetched, and whether the prefetched state is used when it is
+ * activated.
+ */
+public class PrefetchIzPanel extends IzPanel
+{
+
+    /**
+     * The state created by the last prefetch. May be {@code null}
+     */
+    private volatile Object prefetched;
+
+    /**
+     * The no. of times the panel has been prefetched.
+     */
+    private volatile int prefetches;
+
+    /**
+     * Determines if the last prefetch was performed on the event dispatch thread.
+     */
+    private volatile boolean prefetchedOnEventDispatchThread;
+
+    /**
+     * The prefetched state when the panel was activated. May be {@code null}
+     */
+    private volatile Object activatedWith;
+
+
+    /**
+     * Constructs a {@code PrefetchIzPanel}.
+     *
+     * @param panel       the panel meta-data
+     * @param parent      the parent IzPack installer frame
+     * @param installData the installation data
+     * @param resources   the resources
+     */
+    public PrefetchIzPanel(Panel panel, InstallerFrame parent, GUIInstallData installData, Resources resources)
+    {
+        super(panel, parent, installData, resources);
+    }
+
+    /**
+     * Creates the state used when the panel is activated.
+     */
+    @Override
+    public void prefetch()
+    {
+        prefetchedOnEventDispatchThread = SwingUtilities.isEventDispatchThread();
+        prefetched = new Object();
+        ++prefetches;
+    }
+
+    /**
+     * Records the prefetched state, creating it if the panel hasn't been prefetched.
+     */
+    @Override
+    public void panelActivate()
+    {
+        if (prefetched == null)
+        {
+            prefetched = new Object();
+        }
+        activatedWith = prefetched;
+    }
+
+    /**
+     * Returns the state created by the last prefetch.
+     *
+     * @return the state, or {@code null} if the panel hasn't been prefetched or activated
+     */
+    public Object getPrefetched()
+    {
+        return prefetched;
+    }
+
+    /**
+     * Returns the no. of times the panel has been prefetched.
+     *
+     * @return the no. of prefetches
+     */
+    public int getPrefetches()
+    {
+        return prefetches;
+    }
+
+    /**
+     * Determines if the last prefetch was performed on the event dispatch thread.
+     *
+     * @return {@code true} if the last prefetch was performed on the event dispatch thread
+     */
+    public boolean isPrefetchedOnEventDispatchThread()
+    {
+        return prefetchedOnEventDispatchThread;
+    }
+
+    /**
+     * Returns the prefetched state when the panel was activated.
+     *
+     * @return the state, or {@code null} if the panel hasn't been activated
+     */
+    public Object getActivatedWith()
+    {
+        return activatedWith;
+    }
+}
@@ -30,9 +30,12 @@ import static org.junit.Assert.assertTrue;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.Random;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -148,6 +151,31 @@ public abstract class AbstractFileUnpackerTest
         return file;
     }
 
+    /**
+     * Creates a new source file, containing random bytes.
+     *
+     * @param baseDir the base directory
+     * @param size    the file size
+     * @return the source file
+     * @throws IOException for any I/O error
+     */
+    protected File createSourceFile(File baseDir, int size) throws IOException
+    {
+        File file = new File(baseDir, "source.bin");
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        OutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(content);
+        }
+        finally
+        {
+            out.close();
+        }
+        return file;
+    }
+
     /**
      * Returns the target file.
      *
@@ -258,6 +286,24 @@ public abstract class AbstractFileUnpackerTest
         assertFalse(target.exists());
     }
 
+    /**
+     * Verifies that a file larger than the copy buffer is unpacked.
+     *
+     * @throws Exception for any error
+     */
+    protected void checkUnpackLarge() throws Exception
+    {
+        File baseDir = temporaryFolder.getRoot();
+        File source = createSourceFile(baseDir, 3 * FileUnpacker.BUFFER_SIZE + 17);
+        File target = getTargetFile(baseDir);
+
+        FileUnpacker unpacker = createUnpacker(baseDir.getAbsoluteFile(), null);
+        PackFile file = createPackFile(baseDir, source, target, Blockable.BLOCKABLE_NONE);
+        unpacker.unpack(file, createPackStream(source), target);
+
+        checkTarget(source, target);
+    }
+
     /**
      * Returns the contents of a file as a byte array.
      *
@@ -30,6 +30,8 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 
+import org.junit.Test;
+
 import com.izforge.izpack.util.IoHelper;
 import com.izforge.izpack.util.os.FileQueue;
 
@@ -59,6 +61,17 @@ public class DefaultFileUnpackerTest extends AbstractFileUnpackerTest
         return new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()));
     }
 
+    /**
+     * Verifies that a file larger than the copy buffer is unpacked.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testUnpackLarge() throws Exception
+    {
+        checkUnpackLarge();
+    }
+
     /**
      * Helper to create an unpacker.
      *
@@ -0,0 +1,248 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.api.data.Blockable;
+import com.izforge.izpack.api.data.OverrideType;
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.api.exception.InstallerException;
+import com.izforge.izpack.util.IoHelper;
+import com.izforge.izpack.util.file.BinaryDelta;
+import com.izforge.izpack.util.file.ContentDigest;
+
+
+/**
+ * Tests the {@link DeltaFileUnpacker} class.
+ */
+public class DeltaFileUnpackerTest
+{
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The previously installed version of the file.
+     */
+    private File base;
+
+    /**
+     * The new version of the file.
+     */
+    private File source;
+
+    /**
+     * The installed file.
+     */
+    private File target;
+
+
+    /**
+     * Sets up the test case.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        byte[] content = new byte[256 * 1024];
+        new Random(1).nextBytes(content);
+        base = write("base.bin", content);
+        content[1000] ^= 1;
+        content[200000] ^= 1;
+        source = write("source.bin", content);
+        target = new File(temporaryFolder.getRoot(), "target.bin");
+        IoHelper.copyFile(base, target);
+    }
+
+    /**
+     * Verifies that a delta is applied to the installed file.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testUnpack() throws Exception
+    {
+        PackFile file = createPackFile(ContentDigest.get(source));
+        createUnpacker().unpack(file, createPackStream(), target);
+
+        assertArrayEquals(read(source), read(target));
+        assertEquals(source.lastModified(), target.lastModified());
+        assertEquals(3, temporaryFolder.getRoot().list().length); // no temporary files left behind
+    }
+
+    /**
+     * Verifies that a delta isn't applied if the installed file isn't the version the delta was created against.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testInstalledFileModified() throws Exception
+    {
+        byte[] modified = new byte[16];
+        write(target.getName(), modified);
+        try
+        {
+            createUnpacker().unpack(createPackFile(ContentDigest.get(source)), createPackStream(), target);
+            fail("Expected InstallerException");
+        }
+        catch (InstallerException expected)
+        {
+            // expected
+        }
+        assertArrayEquals(modified, read(target));
+    }
+
+    /**
+     * Verifies that the installed file isn't replaced if the patched content doesn't match the expected hash.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testCorruptDelta() throws Exception
+    {
+        try
+        {
+            createUnpacker().unpack(createPackFile(ContentDigest.get(base)), createPackStream(), target);
+            fail("Expected InstallerException");
+        }
+        catch (InstallerException expected)
+        {
+            // expected
+        }
+        assertArrayEquals(read(base), read(target));
+        assertEquals(3, temporaryFolder.getRoot().list().length); // no temporary files left behind
+    }
+
+    /**
+     * Creates a new unpacker.
+     *
+     * @return a new unpacker
+     */
+    private DeltaFileUnpacker createUnpacker()
+    {
+        return new DeltaFileUnpacker(new Cancellable()
+        {
+            @Override
+            public boolean isCancelled()
+            {
+                return false;
+            }
+        }, null);
+    }
+
+    /**
+     * Creates a pack file for the new version of the file, stored as a delta against the base version.
+     *
+     * @param hash the expected content hash of the patched file
+     * @return a new pack file
+     * @throws IOException for any I/O error
+     */
+    private PackFile createPackFile(byte[] hash) throws IOException
+    {
+        PackFile file = new PackFile(temporaryFolder.getRoot(), source, target.getName(), null,
+                                     OverrideType.OVERRIDE_TRUE, null, Blockable.BLOCKABLE_NONE);
+        file.setHash(hash);
+        file.setDelta(ContentDigest.get(base), 0);
+        return file;
+    }
+
+    /**
+     * Creates a pack stream containing the delta between the base and new versions of the file.
+     *
+     * @return a new stream
+     * @throws IOException for any I/O error
+     */
+    private ObjectInputStream createPackStream() throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ObjectOutputStream objectOut = new ObjectOutputStream(out);
+        BinaryDelta.encode(base, source, objectOut);
+        objectOut.close();
+        return new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    /**
+     * Writes a file to the temporary folder.
+     *
+     * @param name    the file name
+     * @param content the file content
+     * @return the file
+     * @throws IOException for any I/O error
+     */
+    private File write(String name, byte[] content) throws IOException
+    {
+        File file = new File(temporaryFolder.getRoot(), name);
+        OutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(content);
+        }
+        finally
+        {
+            out.close();
+        }
+        return file;
+    }
+
+    /**
+     * Reads the content of a file.
+     *
+     * @param file the file
+     * @return the file content
+     * @throws IOException for any I/O error
+     */
+    private byte[] read(File file) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FileInputStream in = new FileInputStream(file);
+        try
+        {
+            IoHelper.copyStream(in, out);
+        }
+        finally
+        {
+            in.close();
+        }
+        return out.toByteArray();
+    }
+}
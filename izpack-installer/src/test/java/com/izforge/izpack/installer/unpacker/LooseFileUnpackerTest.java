@@ -24,6 +24,7 @@ package com.izforge.izpack.installer.unpacker;
 
 import java.io.File;
 
+import org.junit.Test;
 import org.mockito.Mockito;
 
 import com.izforge.izpack.api.handler.Prompt;
@@ -37,6 +38,17 @@ import com.izforge.izpack.util.os.FileQueue;
 public class LooseFileUnpackerTest extends AbstractFileUnpackerTest
 {
 
+    /**
+     * Verifies that a file larger than the copy buffer is unpacked.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testUnpackLarge() throws Exception
+    {
+        checkUnpackLarge();
+    }
+
     /**
      * Helper to create an unpacker.
      *
@@ -0,0 +1,94 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+
+import com.izforge.izpack.api.data.Blockable;
+import com.izforge.izpack.api.data.OverrideType;
+import com.izforge.izpack.api.data.Pack;
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.api.event.ProgressListener;
+import com.izforge.izpack.installer.event.CoalescingProgressListener;
+
+
+/**
+ * Tests the {@link UnpackMetrics} class.
+ */
+public class UnpackMetricsTest
+{
+
+    /**
+     * Verifies that bytes written are collected per pack, and passed on to the progress listener.
+     */
+    @Test
+    public void testMetrics()
+    {
+        CoalescingProgressListener listener = new CoalescingProgressListener(mock(ProgressListener.class));
+        UnpackMetrics metrics = new UnpackMetrics();
+        metrics.start(listener);
+
+        Pack pack = mock(Pack.class);
+        when(pack.getName()).thenReturn("base \"pack\"");
+        metrics.startPack(pack);
+
+        // a file written in 2 chunks
+        metrics.decoded(100, 10);
+        metrics.written(100, 20);
+        assertEquals(100, listener.getBytes());
+        metrics.decoded(50, 10);
+        metrics.written(50, 20);
+        metrics.endFile(file(150));
+        assertEquals(150, listener.getBytes());
+
+        // a file that wasn't written, e.g. because it was skipped
+        metrics.endFile(file(1000));
+        assertEquals(1150, listener.getBytes());
+        metrics.stop();
+
+        assertEquals(1, metrics.getPacks().size());
+        UnpackMetrics.PackMetrics packMetrics = metrics.getPacks().get(0);
+        assertEquals(2, packMetrics.getFiles());
+        assertEquals(150, packMetrics.getBytesDecoded());
+        assertEquals(150, packMetrics.getBytesWritten());
+        assertEquals(150, metrics.getBytesWritten());
+
+        String json = metrics.toJSON();
+        assertTrue(json.contains("\"name\": \"base \\\"pack\\\"\""));
+        assertTrue(json.contains("\"bytesWritten\": 150"));
+    }
+
+    /**
+     * Creates a pack file of the specified length.
+     *
+     * @param length the length
+     * @return a new pack file
+     */
+    private static PackFile file(long length)
+    {
+        return new PackFile("file", "file", "$INSTALL_PATH/file", length, 0, false, null, OverrideType.OVERRIDE_TRUE,
+                            null, Blockable.BLOCKABLE_NONE, null);
+    }
+}
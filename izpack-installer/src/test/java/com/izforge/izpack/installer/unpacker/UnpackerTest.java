@@ -0,0 +1,202 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.izforge.izpack.api.data.Blockable;
+import com.izforge.izpack.api.data.Info;
+import com.izforge.izpack.api.data.LocaleDatabase;
+import com.izforge.izpack.api.data.OverrideType;
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.api.exception.InstallerException;
+import com.izforge.izpack.api.resource.Locales;
+import com.izforge.izpack.core.handler.ConsolePrompt;
+import com.izforge.izpack.installer.data.InstallData;
+import com.izforge.izpack.test.util.TestConsole;
+import com.izforge.izpack.util.Platforms;
+import com.izforge.izpack.util.file.ContentDigest;
+
+
+/**
+ * Tests the {@link Unpacker} handling of files that a patch installer marks as unchanged.
+ */
+public class UnpackerTest
+{
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The console.
+     */
+    private TestConsole console;
+
+    /**
+     * The unpacker.
+     */
+    private Unpacker unpacker;
+
+    /**
+     * The file as previously installed.
+     */
+    private File source;
+
+    /**
+     * The installed file.
+     */
+    private File target;
+
+
+    /**
+     * Sets up the test case.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        InstallData installData = new InstallData(null, Platforms.FEDORA_LINUX);
+        installData.setInfo(new Info());
+        InputStream langPack = getClass().getResourceAsStream("/com/izforge/izpack/bin/langpacks/installer/eng.xml");
+        assertNotNull(langPack);
+        installData.setMessages(new LocaleDatabase(langPack, Mockito.mock(Locales.class)));
+
+        console = new TestConsole();
+        ConsolePrompt prompt = new ConsolePrompt(console, installData.getMessages());
+        unpacker = new Unpacker(installData, null, null, null, null, null, null, null, prompt, null);
+
+        source = write("source.txt", "version 1");
+        target = write("target.txt", "version 1");
+    }
+
+    /**
+     * Verifies that an installed file that matches the previously installed version is accepted.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testUnchanged() throws Exception
+    {
+        assertTrue(unpacker.checkUnchanged(createPackFile(OverrideType.OVERRIDE_TRUE), target));
+        assertEquals(0, console.getReads());
+    }
+
+    /**
+     * Verifies that a modified or missing file is left as is, without prompting, unless the user should be asked
+     * before overwriting it.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testModified() throws Exception
+    {
+        write(target.getName(), "version X");
+        assertFalse(unpacker.checkUnchanged(createPackFile(OverrideType.OVERRIDE_TRUE), target));
+        assertFalse(unpacker.checkUnchanged(createPackFile(OverrideType.OVERRIDE_FALSE), target));
+        assertFalse(unpacker.checkUnchanged(createPackFile(OverrideType.OVERRIDE_DIFFERENT), target));
+        assertEquals(0, console.getReads());
+        assertTrue(target.exists());
+
+        assertTrue(target.delete());
+        assertFalse(unpacker.checkUnchanged(createPackFile(OverrideType.OVERRIDE_UPDATE), target));
+        assertEquals(0, console.getReads());
+        assertFalse(target.exists());
+    }
+
+    /**
+     * Verifies that the user is asked whether to continue if a modified file should be overwritten only after
+     * asking, and that the installation is aborted if they decline.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testModifiedAsk() throws Exception
+    {
+        write(target.getName(), "version X");
+
+        console.addScript("continue", "y");
+        assertFalse(unpacker.checkUnchanged(createPackFile(OverrideType.OVERRIDE_ASK_FALSE), target));
+        assertTrue(console.scriptCompleted());
+
+        console.addScript("abort", "n");
+        try
+        {
+            unpacker.checkUnchanged(createPackFile(OverrideType.OVERRIDE_ASK_TRUE), target);
+            fail("Expected InstallerException");
+        }
+        catch (InstallerException expected)
+        {
+            // expected
+        }
+        assertTrue(console.scriptCompleted());
+    }
+
+    /**
+     * Creates a pack file for the previously installed version of the file, marked as unchanged.
+     *
+     * @param override the override type
+     * @return a new pack file
+     * @throws IOException for any I/O error
+     */
+    private PackFile createPackFile(OverrideType override) throws IOException
+    {
+        PackFile file = new PackFile(temporaryFolder.getRoot(), source, target.getName(), null, override, null,
+                                     Blockable.BLOCKABLE_NONE);
+        file.setHash(ContentDigest.get(source));
+        file.setUnchanged(true);
+        return file;
+    }
+
+    /**
+     * Writes a text file to the temporary folder.
+     *
+     * @param name    the file name
+     * @param content the file content
+     * @return the file
+     * @throws IOException for any I/O error
+     */
+    private File write(String name, String content) throws IOException
+    {
+        File file = new File(temporaryFolder.getRoot(), name);
+        PrintWriter writer = new PrintWriter(file);
+        writer.print(content);
+        writer.close();
+        return file;
+    }
+}
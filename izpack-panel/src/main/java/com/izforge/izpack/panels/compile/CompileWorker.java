@@ -36,6 +36,11 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
@@ -84,6 +89,11 @@ public class CompileWorker implements Runnable
 
     private static final String ECLIPSE_COMPILER_CLASS = "org.eclipse.jdt.internal.compiler.batch.Main";
 
+    /**
+     * The compiler that is replaced by the in-process compiler, if the installer is running on a JDK.
+     */
+    private static final String IN_PROCESS_COMPILER_NAME = "javac";
+
     private VariableSubstitutor vs;
 
     private IXMLElement spec;
@@ -426,6 +436,20 @@ public class CompileWorker implements Runnable
 
         this.handler.startAction("Compilation", this.jobs.size());
 
+        // compile in-process if possible, falling back to an external compiler otherwise
+        JavaToolCompiler compiler = getInProcessCompiler(args);
+        if (compiler != null)
+        {
+            try
+            {
+                return compileJobs(compiler, args);
+            }
+            finally
+            {
+                compiler.close();
+            }
+        }
+
         // check whether compiler is valid (but only if there are jobs)
         if (job_it.hasNext())
         {
@@ -459,6 +483,162 @@ public class CompileWorker implements Runnable
         return new CompileResult();
     }
 
+    /**
+     * Returns the in-process compiler, if it can replace the selected compiler.
+     * <p/>
+     * The in-process compiler is only used in place of the <em>javac</em> found on the path, as a compiler specified
+     * by path may be for a different JDK. It is not used if it doesn't support all of the compiler arguments.
+     *
+     * @param arguments the compiler arguments
+     * @return the in-process compiler, or {@code null} if the selected compiler must be used
+     */
+    private JavaToolCompiler getInProcessCompiler(List<String> arguments)
+    {
+        JavaToolCompiler result = null;
+        if (IN_PROCESS_COMPILER_NAME.equals(this.compilerToUse))
+        {
+            result = JavaToolCompiler.create();
+            if (result != null && !result.isSupported(arguments))
+            {
+                result.close();
+                result = null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Performs the compilation using the in-process compiler.
+     * <p/>
+     * Jobs that don't depend on the classes compiled by other jobs are compiled concurrently. Progress and errors are
+     * reported by this thread, in the order that the jobs are declared.
+     *
+     * @param compiler  the in-process compiler
+     * @param arguments the compiler arguments
+     * @return the result
+     */
+    private CompileResult compileJobs(final JavaToolCompiler compiler, final List<String> arguments)
+    {
+        logger.fine("Compiling in-process");
+        ExecutorService executor = null;
+        int job_no = 0;
+        try
+        {
+            for (List<CompilationJob> stage : getStages(arguments))
+            {
+                List<String[]> outputs = new ArrayList<String[]>();
+                List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+                if (stage.size() > 1)
+                {
+                    if (executor == null)
+                    {
+                        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+                    }
+                    for (final CompilationJob job : stage)
+                    {
+                        final String[] output = new String[2];
+                        outputs.add(output);
+                        results.add(executor.submit(new Callable<Integer>()
+                        {
+                            @Override
+                            public Integer call()
+                            {
+                                return job.compile(compiler, arguments, output);
+                            }
+                        }));
+                    }
+                }
+
+                for (int i = 0; i < stage.size(); ++i)
+                {
+                    CompilationJob job = stage.get(i);
+                    this.handler.nextStep(job.getName(), job.getSize(), job_no++);
+
+                    String[] output;
+                    int retval;
+                    if (results.isEmpty())
+                    {
+                        output = new String[2];
+                        retval = job.compile(compiler, arguments, output);
+                    }
+                    else
+                    {
+                        output = outputs.get(i);
+                        retval = results.get(i).get();
+                    }
+
+                    CompileResult job_result = job.report(retval, arguments, output);
+                    if (!job_result.isContinue())
+                    {
+                        return job_result;
+                    }
+                }
+            }
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            return new CompileResult(exception);
+        }
+        catch (ExecutionException exception)
+        {
+            return new CompileResult(exception);
+        }
+        finally
+        {
+            if (executor != null)
+            {
+                executor.shutdownNow();
+            }
+        }
+
+        logger.fine("Compilation finished");
+        return new CompileResult();
+    }
+
+    /**
+     * Splits the jobs into stages of jobs that may be compiled concurrently.
+     * <p/>
+     * A job starts a new stage if its class path refers to the sources or classes of a job in the current stage.
+     *
+     * @param arguments the compiler arguments
+     * @return the stages, in order of compilation
+     */
+    private List<List<CompilationJob>> getStages(List<String> arguments)
+    {
+        File outputDir = null;
+        int index = arguments.indexOf("-d");
+        if (index != -1 && index + 1 < arguments.size())
+        {
+            outputDir = new File(arguments.get(index + 1)).getAbsoluteFile();
+        }
+
+        List<List<CompilationJob>> result = new ArrayList<List<CompilationJob>>();
+        List<CompilationJob> stage = null;
+        for (CompilationJob job : this.jobs)
+        {
+            boolean independent = stage != null;
+            if (stage != null)
+            {
+                for (CompilationJob other : stage)
+                {
+                    if (job.dependsOn(other, outputDir))
+                    {
+                        independent = false;
+                        break;
+                    }
+                }
+            }
+            if (!independent)
+            {
+                stage = new ArrayList<CompilationJob>();
+                result.add(stage);
+            }
+            stage.add(job);
+        }
+        return result;
+    }
+
     private CompilationJob collectJobsRecursive(IXMLElement node, List<String> classpath)
             throws Exception
     {
@@ -1046,6 +1226,131 @@ public class CompileWorker implements Runnable
 
         }
 
+        /**
+         * Compiles this job using the in-process compiler.
+         * <p/>
+         * Unlike {@link #perform}, this doesn't report progress or errors, so it may be invoked by any thread.
+         *
+         * @param compiler  the in-process compiler
+         * @param arguments the compiler arguments
+         * @param output    the output from the compiler ([0] = messages and warnings, [1] = errors)
+         * @return {@code 0} if the compilation succeeded, otherwise non-zero
+         */
+        public int compile(JavaToolCompiler compiler, List<String> arguments, String[] output)
+        {
+            logger.fine("starting job " + this.name);
+            int result = compiler.compile(getOptions(arguments), this.files, output);
+            logger.fine("Job " + this.name + " done (" + this.files.size() + " files compiled)");
+            return result;
+        }
+
+        /**
+         * Reports the result of {@link #compile}.
+         *
+         * @param retval    the value returned by {@link #compile}
+         * @param arguments the compiler arguments
+         * @param output    the output from the compiler
+         * @return the result
+         */
+        public CompileResult report(int retval, List<String> arguments, String[] output)
+        {
+            this.listener.progress(this.files.size(), getName());
+            if (retval != 0)
+            {
+                List<String> cmdline = new ArrayList<String>();
+                cmdline.add(IN_PROCESS_COMPILER_NAME);
+                cmdline.addAll(getOptions(arguments));
+                for (File file : this.files)
+                {
+                    cmdline.add(file.getAbsolutePath());
+                }
+                CompileResult result = new CompileResult(messages.get("CompilePanel.error"), cmdline, output[0],
+                                                         output[1]);
+                this.listener.handleCompileError(result);
+                return result;
+            }
+            return new CompileResult();
+        }
+
+        /**
+         * Determines if this job depends on the classes compiled by another job.
+         *
+         * @param other     the other job
+         * @param outputDir the directory classes are compiled to, or {@code null} if they are compiled alongside their
+         *                  sources
+         * @return {@code true} if this job's class path refers to the sources or classes of the other job
+         */
+        public boolean dependsOn(CompilationJob other, File outputDir)
+        {
+            for (String entry : this.classpath)
+            {
+                File path = new File(entry).getAbsoluteFile();
+                if (outputDir != null && isAncestor(path, outputDir))
+                {
+                    return true;
+                }
+                for (File file : other.files)
+                {
+                    if (isAncestor(path, file.getAbsoluteFile()))
+                    {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns the in-process compiler options for this job.
+         * <p/>
+         * The class path is always specified, as the in-process compiler would otherwise use that of the installer.
+         *
+         * @param arguments the compiler arguments
+         * @return the options
+         */
+        private List<String> getOptions(List<String> arguments)
+        {
+            StringBuilder classpath = new StringBuilder();
+            for (String cp : this.classpath)
+            {
+                if (classpath.length() > 0)
+                {
+                    classpath.append(File.pathSeparatorChar);
+                }
+                classpath.append(new File(cp).getAbsolutePath());
+            }
+            if (classpath.length() == 0)
+            {
+                // default to the class path an external compiler would use
+                String env = System.getenv("CLASSPATH");
+                classpath.append((env != null) ? env : ".");
+            }
+
+            List<String> result = new ArrayList<String>(arguments);
+            result.add("-classpath");
+            result.add(classpath.toString());
+            return result;
+        }
+
+        /**
+         * Determines if a directory is a file or one of its ancestors.
+         *
+         * @param dir  the directory
+         * @param file the file
+         * @return {@code true} if <tt>dir</tt> is <tt>file</tt> or one of its ancestors
+         */
+        private static boolean isAncestor(File dir, File file)
+        {
+            for (File parent = file; parent != null; parent = parent.getParentFile())
+            {
+                if (parent.equals(dir))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
         /**
          * Check whether the given compiler works.
          * <p/>
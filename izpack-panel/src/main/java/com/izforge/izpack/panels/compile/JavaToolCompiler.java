@@ -0,0 +1,228 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.panels.compile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+
+/**
+ * Compiles sources in-process, using the {@link JavaCompiler} of the JDK the installer is running on.
+ * <p/>
+ * This avoids starting a new JVM for each compilation, and the need to split long lists of files into several
+ * command lines.
+ * <p/>
+ * Each thread compiles with its own {@link StandardJavaFileManager}, which is shared by all compilations performed
+ * by that thread. File managers aren't thread safe, but are expensive to create, as they cache the contents of the
+ * platform classes and class path archives.
+ * <p/>
+ * This class is thread safe.
+ */
+class JavaToolCompiler
+{
+
+    /**
+     * The compiler.
+     */
+    private final JavaCompiler compiler;
+
+    /**
+     * The file manager of each thread.
+     */
+    private final ThreadLocal<StandardJavaFileManager> fileManager = new ThreadLocal<StandardJavaFileManager>();
+
+    /**
+     * The file managers of all threads, so they can be closed.
+     */
+    private final List<StandardJavaFileManager> fileManagers = new ArrayList<StandardJavaFileManager>();
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(JavaToolCompiler.class.getName());
+
+
+    /**
+     * Constructs a {@code JavaToolCompiler}.
+     *
+     * @param compiler the compiler
+     */
+    public JavaToolCompiler(JavaCompiler compiler)
+    {
+        this.compiler = compiler;
+    }
+
+    /**
+     * Creates a compiler for the JDK the installer is running on.
+     *
+     * @return a new compiler, or {@code null} if the installer is running on a JRE
+     */
+    public static JavaToolCompiler create()
+    {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        return (compiler != null) ? new JavaToolCompiler(compiler) : null;
+    }
+
+    /**
+     * Determines if the compiler supports a list of options.
+     *
+     * @param options the options
+     * @return {@code true} if all of the options are supported, otherwise {@code false}
+     */
+    public boolean isSupported(List<String> options)
+    {
+        StandardJavaFileManager manager = getFileManager();
+        for (int i = 0; i < options.size(); ++i)
+        {
+            String option = options.get(i);
+            int args = compiler.isSupportedOption(option);
+            if (args == -1)
+            {
+                args = manager.isSupportedOption(option);
+            }
+            if (args == -1)
+            {
+                logger.fine("Option " + option + " not supported by the in-process compiler");
+                return false;
+            }
+            i += args;
+        }
+        return true;
+    }
+
+    /**
+     * Compiles files.
+     *
+     * @param options the compiler options
+     * @param files   the files to compile
+     * @param output  collects the output of the compiler. <tt>output[0]</tt> contains the compiler messages and any
+     *                warnings, <tt>output[1]</tt> the errors
+     * @return {@code 0} if the compilation succeeded, otherwise non-zero
+     */
+    public int compile(List<String> options, List<File> files, String[] output)
+    {
+        StandardJavaFileManager manager = getFileManager();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        StringWriter messages = new StringWriter();
+        boolean success;
+        try
+        {
+            success = compiler.getTask(messages, manager, diagnostics, options, null,
+                                       manager.getJavaFileObjectsFromFiles(files)).call();
+        }
+        catch (RuntimeException exception)
+        {
+            logger.log(Level.WARNING, exception.getMessage(), exception);
+            messages.write(exception.toString());
+            success = false;
+        }
+
+        StringBuilder stdout = new StringBuilder(messages.toString());
+        StringBuilder stderr = new StringBuilder();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+        {
+            StringBuilder target = (diagnostic.getKind() == Diagnostic.Kind.ERROR) ? stderr : stdout;
+            format(diagnostic, target);
+        }
+        output[0] = stdout.toString();
+        output[1] = stderr.toString();
+        return success ? 0 : 1;
+    }
+
+    /**
+     * Closes the file managers.
+     */
+    public void close()
+    {
+        synchronized (fileManagers)
+        {
+            for (StandardJavaFileManager manager : fileManagers)
+            {
+                try
+                {
+                    manager.close();
+                }
+                catch (IOException exception)
+                {
+                    logger.log(Level.FINE, exception.getMessage(), exception);
+                }
+            }
+            fileManagers.clear();
+        }
+    }
+
+    /**
+     * Returns the file manager for the current thread, creating it if required.
+     *
+     * @return the file manager
+     */
+    private StandardJavaFileManager getFileManager()
+    {
+        StandardJavaFileManager result = fileManager.get();
+        if (result == null)
+        {
+            result = compiler.getStandardFileManager(null, null, null);
+            fileManager.set(result);
+            synchronized (fileManagers)
+            {
+                fileManagers.add(result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Formats a diagnostic the way the command line compiler does.
+     *
+     * @param diagnostic the diagnostic
+     * @param buffer     the buffer to format to
+     */
+    private void format(Diagnostic<? extends JavaFileObject> diagnostic, StringBuilder buffer)
+    {
+        JavaFileObject source = diagnostic.getSource();
+        if (source != null)
+        {
+            buffer.append(source.getName());
+            if (diagnostic.getLineNumber() != Diagnostic.NOPOS)
+            {
+                buffer.append(':').append(diagnostic.getLineNumber());
+            }
+            buffer.append(": ");
+        }
+        if (diagnostic.getKind() != Diagnostic.Kind.ERROR && diagnostic.getKind() != Diagnostic.Kind.NOTE
+                && diagnostic.getKind() != Diagnostic.Kind.OTHER)
+        {
+            buffer.append("warning: ");
+        }
+        buffer.append(diagnostic.getMessage(null)).append('\n');
+    }
+}
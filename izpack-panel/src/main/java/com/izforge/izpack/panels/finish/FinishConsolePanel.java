@@ -44,6 +44,7 @@ import com.izforge.izpack.installer.console.AbstractConsolePanel;
 import com.izforge.izpack.installer.console.ConsolePanelAutomationHelper;
 import com.izforge.izpack.installer.container.provider.AutomatedPanelsProvider;
 import com.izforge.izpack.installer.panel.PanelView;
+import com.izforge.izpack.installer.unpacker.UnpackerBase;
 import com.izforge.izpack.util.Console;
 import com.izforge.izpack.util.PlatformModelMatcher;
 import com.izforge.izpack.util.file.FileUtils;
@@ -113,6 +114,12 @@ public class FinishConsolePanel extends AbstractConsolePanel
         {
             console.println("Installation was successful");
             console.println("application installed on " + installData.getInstallPath());
+            String unchanged = installData.getVariable(UnpackerBase.UNCHANGED_FILES);
+            if (unchanged != null && !"0".equals(unchanged))
+            {
+                console.println(installData.getMessages().get(
+                        "FinishPanel.unchanged", unchanged, installData.getVariable(UnpackerBase.UNCHANGED_BYTES)));
+            }
         }
         else
         {
@@ -44,6 +44,7 @@ import com.izforge.izpack.installer.data.GUIInstallData;
 import com.izforge.izpack.installer.data.UninstallDataWriter;
 import com.izforge.izpack.installer.gui.InstallerFrame;
 import com.izforge.izpack.installer.gui.IzPanel;
+import com.izforge.izpack.installer.unpacker.UnpackerBase;
 
 /**
  * The finish panel class.
@@ -115,6 +116,15 @@ public class FinishPanel extends IzPanel implements ActionListener
             jLabel.setName(GuiId.FINISH_PANEL_LABEL.id);
             add(jLabel, constraints);
             constraints.gridy++;
+            String unchanged = installData.getVariable(UnpackerBase.UNCHANGED_FILES);
+            if (unchanged != null && !"0".equals(unchanged))
+            {
+                // report files that were already up to date
+                String message = installData.getMessages().get(
+                        "FinishPanel.unchanged", unchanged, installData.getVariable(UnpackerBase.UNCHANGED_BYTES));
+                add(LabelFactory.create(message, parent.getIcons().get("empty"), LEADING), constraints);
+                constraints.gridy++;
+            }
             if (uninstallDataWriter.isUninstallRequired())
             {
                 // We prepare a message for the uninstaller feature
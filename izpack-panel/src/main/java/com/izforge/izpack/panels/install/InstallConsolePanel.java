@@ -26,6 +26,7 @@ import java.util.Properties;
 import com.izforge.izpack.api.data.InstallData;
 import com.izforge.izpack.api.event.ProgressListener;
 import com.izforge.izpack.installer.console.AbstractConsolePanel;
+import com.izforge.izpack.installer.event.CoalescingProgressListener;
 import com.izforge.izpack.installer.panel.PanelView;
 import com.izforge.izpack.installer.unpacker.IUnpacker;
 import com.izforge.izpack.util.Console;
@@ -44,6 +45,16 @@ public class InstallConsolePanel extends AbstractConsolePanel implements Progres
 
     private int noOfPacks = 0;
 
+    /**
+     * Limits progress reports to one a second.
+     */
+    private final CoalescingProgressListener coalescer = new CoalescingProgressListener(this, 1000);
+
+    /**
+     * The last percentage reported, or <tt>-1</tt> if none has been reported.
+     */
+    private int lastPercentage = -1;
+
     public InstallConsolePanel(IUnpacker unpacker, PanelView<Console> panel)
     {
         super(panel);
@@ -73,6 +84,7 @@ public class InstallConsolePanel extends AbstractConsolePanel implements Progres
     {
         System.out.println("[ Starting to unpack ]");
         this.noOfPacks = no_of_steps;
+        lastPercentage = -1;
     }
 
     @Override
@@ -84,7 +96,12 @@ public class InstallConsolePanel extends AbstractConsolePanel implements Progres
     @Override
     public void progress(int val, String msg)
     {
-
+        String progress = getProgress(coalescer, lastPercentage);
+        if (progress != null)
+        {
+            System.out.println(progress);
+            lastPercentage = coalescer.getPercentage();
+        }
     }
 
     @Override
@@ -132,9 +149,32 @@ public class InstallConsolePanel extends AbstractConsolePanel implements Progres
 
     private boolean run()
     {
-        unpacker.setProgressListener(this);
+        unpacker.setProgressListener(coalescer);
         unpacker.run();
         return unpacker.getResult();
     }
 
+    /**
+     * Formats a progress report.
+     *
+     * @param listener       the listener tracking the bytes unpacked
+     * @param lastPercentage the last percentage reported, or <tt>-1</tt> if none has been reported
+     * @return the progress report, or {@code null} if the percentage is unknown or hasn't changed
+     */
+    static String getProgress(CoalescingProgressListener listener, int lastPercentage)
+    {
+        int percentage = listener.getPercentage();
+        if (percentage < 0 || percentage == lastPercentage)
+        {
+            return null;
+        }
+        StringBuilder result = new StringBuilder("[ ").append(percentage).append("% unpacked");
+        long remaining = listener.getRemainingTime();
+        if (remaining >= 0)
+        {
+            result.append(", ").append(CoalescingProgressListener.formatDuration(remaining)).append(" remaining");
+        }
+        return result.append(" ]").toString();
+    }
+
 }
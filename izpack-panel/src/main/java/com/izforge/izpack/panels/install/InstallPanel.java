@@ -32,6 +32,7 @@ import com.izforge.izpack.gui.IzPanelLayout;
 import com.izforge.izpack.gui.LabelFactory;
 import com.izforge.izpack.gui.log.Log;
 import com.izforge.izpack.installer.data.GUIInstallData;
+import com.izforge.izpack.installer.event.CoalescingProgressListener;
 import com.izforge.izpack.installer.gui.InstallerFrame;
 import com.izforge.izpack.installer.gui.IzPanel;
 
@@ -90,6 +91,17 @@ public class InstallPanel extends IzPanel implements ProgressListener
      */
     private int currentStep = 0;
 
+    /**
+     * The current pack number.
+     */
+    private volatile int currentPack = 0;
+
+    /**
+     * Coalesces progress notifications from the unpacker, so that the event queue isn't flooded by packs with many
+     * small files.
+     */
+    private final CoalescingProgressListener coalescer = new CoalescingProgressListener(this);
+
     /**
      * Constructs an <tt>InstallPanel</tt>.
      *
@@ -223,13 +235,15 @@ public class InstallPanel extends IzPanel implements ProgressListener
      */
     public void progress(final int val, final String msg)
     {
-        currentStep++;
+        currentStep = val + 1;
+        final String overall = getOverallProgress(currentPack);
         SwingUtilities.invokeLater(new Runnable()
         {
             public void run()
             {
                 packProgressBar.setValue(val + 1);
                 packOpLabel.setText(msg);
+                overallProgressBar.setString(overall);
             }
         });
     }
@@ -244,6 +258,8 @@ public class InstallPanel extends IzPanel implements ProgressListener
     public void nextStep(final String packName, final int stepno, final int max)
     {
         currentStep = 0;
+        currentPack = stepno;
+        final String overall = getOverallProgress(stepno);
         SwingUtilities.invokeLater(new Runnable()
         {
             public void run()
@@ -253,8 +269,7 @@ public class InstallPanel extends IzPanel implements ProgressListener
                 packProgressBar.setMaximum(max);
                 packProgressBar.setString(packName);
                 overallProgressBar.setValue(stepno - 1);
-                overallProgressBar.setString(Integer.toString(stepno) + " / "
-                                                     + Integer.toString(noOfPacks));
+                overallProgressBar.setString(overall);
             }
         });
     }
@@ -320,7 +335,25 @@ public class InstallPanel extends IzPanel implements ProgressListener
         parent.lockNextButton();
         parent.lockPrevButton();
 
-        parent.install(this);
+        parent.install(coalescer);
+    }
+
+    /**
+     * Returns the overall progress text, including the estimated time remaining, if known.
+     *
+     * @param pack the current pack number
+     * @return the overall progress text
+     */
+    private String getOverallProgress(int pack)
+    {
+        String result = Integer.toString(pack) + " / " + Integer.toString(noOfPacks);
+        long remaining = coalescer.getRemainingTime();
+        if (remaining >= 0)
+        {
+            result += " - " + installData.getMessages().get("InstallPanel.remaining",
+                                                            CoalescingProgressListener.formatDuration(remaining));
+        }
+        return result;
     }
 
 }
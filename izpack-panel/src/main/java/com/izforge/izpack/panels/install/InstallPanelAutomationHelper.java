@@ -27,6 +27,7 @@ import com.izforge.izpack.api.event.ProgressListener;
 import com.izforge.izpack.api.exception.InstallerException;
 import com.izforge.izpack.installer.automation.PanelAutomation;
 import com.izforge.izpack.installer.automation.PanelAutomationHelper;
+import com.izforge.izpack.installer.event.CoalescingProgressListener;
 import com.izforge.izpack.installer.unpacker.IUnpacker;
 
 /**
@@ -44,6 +45,16 @@ public class InstallPanelAutomationHelper extends PanelAutomationHelper implemen
 
     private int noOfPacks = 0;
 
+    /**
+     * Limits progress reports to one a second.
+     */
+    private final CoalescingProgressListener coalescer = new CoalescingProgressListener(this, 1000);
+
+    /**
+     * The last percentage reported, or <tt>-1</tt> if none has been reported.
+     */
+    private int lastPercentage = -1;
+
     /**
      * Constructs an <tt>InstallPanelAutomationHelper</tt>.
      *
@@ -52,7 +63,7 @@ public class InstallPanelAutomationHelper extends PanelAutomationHelper implemen
     public InstallPanelAutomationHelper(IUnpacker unpacker)
     {
         this.unpacker = unpacker;
-        unpacker.setProgressListener(this);
+        unpacker.setProgressListener(coalescer);
     }
 
     /**
@@ -88,6 +99,7 @@ public class InstallPanelAutomationHelper extends PanelAutomationHelper implemen
     {
         System.out.println("[ Starting to unpack ]");
         this.noOfPacks = no_of_steps;
+        lastPercentage = -1;
     }
 
     /**
@@ -99,15 +111,19 @@ public class InstallPanelAutomationHelper extends PanelAutomationHelper implemen
     }
 
     /**
-     * Null op.
+     * Reports the percentage unpacked to System.out, at most once a second.
      *
-     * @param val
-     * @param msg
+     * @param val unused
+     * @param msg unused
      */
     public void progress(int val, String msg)
     {
-        // silent for now. should log individual files here, if we had a verbose
-        // mode?
+        String progress = InstallConsolePanel.getProgress(coalescer, lastPercentage);
+        if (progress != null)
+        {
+            System.out.println(progress);
+            lastPercentage = coalescer.getPercentage();
+        }
     }
 
     /**
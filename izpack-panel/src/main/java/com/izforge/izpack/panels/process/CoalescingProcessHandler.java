@@ -0,0 +1,417 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.panels.process;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+
+
+/**
+ * An {@link AbstractUIProcessHandler} that buffers process output before passing it to another handler.
+ * <p/>
+ * Processes can produce output far faster than a user interface can display it, one line at a time. This buffers
+ * the lines passed to {@link #logOutput}, and forwards them once per refresh interval, joining consecutive lines
+ * from the same stream into a single message. The buffer is bounded: if it is full, {@link #logOutput} blocks until
+ * the lines have been forwarded, which in turn blocks the process once its own output buffer fills.
+ * <p/>
+ * All other notifications are forwarded immediately, after any buffered output. Notifications that may interact
+ * with the user are forwarded one at a time, as they may be made by jobs running concurrently.
+ * <p/>
+ * This class is thread safe.
+ */
+public class CoalescingProcessHandler implements AbstractUIProcessHandler
+{
+
+    /**
+     * The default maximum no. of lines to buffer.
+     */
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    /**
+     * The default refresh interval, in milliseconds.
+     */
+    public static final long DEFAULT_INTERVAL = 100;
+
+    /**
+     * The handler to forward notifications to.
+     */
+    private final AbstractUIProcessHandler handler;
+
+    /**
+     * The maximum no. of lines to buffer.
+     */
+    private final int capacity;
+
+    /**
+     * The refresh interval, in milliseconds.
+     */
+    private final long interval;
+
+    /**
+     * The buffered lines. Guarded by this.
+     */
+    private final List<Line> lines = new ArrayList<Line>();
+
+    /**
+     * The lock held while forwarding notifications, so they are forwarded in order.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * The timer used to forward buffered lines, or {@code null} if it isn't running.
+     */
+    private Timer timer;
+
+
+    /**
+     * Constructs a {@code CoalescingProcessHandler} with the default capacity and refresh interval.
+     *
+     * @param handler the handler to forward notifications to
+     */
+    public CoalescingProcessHandler(AbstractUIProcessHandler handler)
+    {
+        this(handler, DEFAULT_CAPACITY, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Constructs a {@code CoalescingProcessHandler}.
+     *
+     * @param handler  the handler to forward notifications to
+     * @param capacity the maximum no. of lines to buffer
+     * @param interval the refresh interval, in milliseconds
+     */
+    public CoalescingProcessHandler(AbstractUIProcessHandler handler, int capacity, long interval)
+    {
+        this.handler = handler;
+        this.capacity = capacity;
+        this.interval = interval;
+    }
+
+    /**
+     * Starts forwarding buffered output each refresh interval.
+     */
+    public synchronized void start()
+    {
+        if (timer == null)
+        {
+            timer = new Timer("ProcessOutput", true);
+            timer.schedule(new TimerTask()
+            {
+                @Override
+                public void run()
+                {
+                    flush();
+                }
+            }, interval, interval);
+        }
+    }
+
+    /**
+     * Stops forwarding buffered output each refresh interval, forwarding any output still buffered.
+     */
+    public void stop()
+    {
+        synchronized (this)
+        {
+            if (timer != null)
+            {
+                timer.cancel();
+                timer = null;
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Forwards any buffered output.
+     */
+    public void flush()
+    {
+        synchronized (lock)
+        {
+            List<Line> pending;
+            synchronized (this)
+            {
+                pending = new ArrayList<Line>(lines);
+                lines.clear();
+                notifyAll();
+            }
+            StringBuilder message = new StringBuilder();
+            boolean stderr = false;
+            for (Line line : pending)
+            {
+                if (message.length() != 0 && line.stderr != stderr)
+                {
+                    handler.logOutput(message.toString(), stderr);
+                    message.setLength(0);
+                }
+                if (message.length() != 0)
+                {
+                    message.append('\n');
+                }
+                message.append(line.text);
+                stderr = line.stderr;
+            }
+            if (message.length() != 0)
+            {
+                handler.logOutput(message.toString(), stderr);
+            }
+        }
+    }
+
+    /**
+     * Log the given message.
+     * <p/>
+     * The message is buffered, blocking if the buffer is full. If the refresh timer isn't running, it is forwarded
+     * immediately.
+     *
+     * @param message the message
+     * @param stderr  true if this is a message received from a program via stderr
+     */
+    @Override
+    public void logOutput(String message, boolean stderr)
+    {
+        boolean running;
+        synchronized (this)
+        {
+            running = timer != null;
+            if (running)
+            {
+                boolean interrupted = false;
+                while (lines.size() >= capacity && timer != null && !interrupted)
+                {
+                    try
+                    {
+                        wait();
+                    }
+                    catch (InterruptedException exception)
+                    {
+                        // exceed the capacity rather than lose output
+                        interrupted = true;
+                    }
+                }
+                lines.add(new Line(message, stderr));
+                if (interrupted)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        if (!running)
+        {
+            synchronized (lock)
+            {
+                flush();
+                handler.logOutput(message, stderr);
+            }
+        }
+    }
+
+    /**
+     * Invoked when processing starts.
+     *
+     * @param no_of_processes the no. of processes
+     */
+    @Override
+    public void startProcessing(int no_of_processes)
+    {
+        synchronized (lock)
+        {
+            flush();
+            handler.startProcessing(no_of_processes);
+        }
+    }
+
+    /**
+     * Notify the user that a process has started.
+     *
+     * @param name the process name
+     */
+    @Override
+    public void startProcess(String name)
+    {
+        synchronized (lock)
+        {
+            flush();
+            handler.startProcess(name);
+        }
+    }
+
+    /**
+     * Notify the user that a process has finished.
+     */
+    @Override
+    public void finishProcess()
+    {
+        synchronized (lock)
+        {
+            flush();
+            handler.finishProcess();
+        }
+    }
+
+    /**
+     * Invoked when processing finishes.
+     *
+     * @param unlockPrev determines if the previous button should be unlocked
+     * @param unlockNext determines if the next button should be unlocked
+     */
+    @Override
+    public void finishProcessing(boolean unlockPrev, boolean unlockNext)
+    {
+        synchronized (lock)
+        {
+            flush();
+            handler.finishProcessing(unlockPrev, unlockNext);
+        }
+    }
+
+    /**
+     * Notify the user about something.
+     *
+     * @param message the notification
+     */
+    @Override
+    public void emitNotification(String message)
+    {
+        synchronized (lock)
+        {
+            flush();
+            handler.emitNotification(message);
+        }
+    }
+
+    /**
+     * Warn the user about something.
+     *
+     * @param title   the message title
+     * @param message the warning message
+     * @return true if the user decided not to ignore the warning
+     */
+    @Override
+    public boolean emitWarning(String title, String message)
+    {
+        synchronized (lock)
+        {
+            flush();
+            return handler.emitWarning(title, message);
+        }
+    }
+
+    /**
+     * Notify the user of some error.
+     *
+     * @param title   the message title
+     * @param message the error message
+     */
+    @Override
+    public void emitError(String title, String message)
+    {
+        synchronized (lock)
+        {
+            flush();
+            handler.emitError(title, message);
+        }
+    }
+
+    /**
+     * Notify the user of some error and block the next button.
+     *
+     * @param title   the message title
+     * @param message the error message
+     */
+    @Override
+    public void emitErrorAndBlockNext(String title, String message)
+    {
+        synchronized (lock)
+        {
+            flush();
+            handler.emitErrorAndBlockNext(title, message);
+        }
+    }
+
+    /**
+     * Ask the user a question.
+     *
+     * @param title    the title of the question
+     * @param question the question
+     * @param choices  the set of choices to present
+     * @return the user's choice
+     */
+    @Override
+    public int askQuestion(String title, String question, int choices)
+    {
+        synchronized (lock)
+        {
+            flush();
+            return handler.askQuestion(title, question, choices);
+        }
+    }
+
+    /**
+     * Ask the user a question.
+     *
+     * @param title          the title of the question
+     * @param question       the question
+     * @param choices        the set of choices to present
+     * @param default_choice the default choice
+     * @return the user's choice
+     */
+    @Override
+    public int askQuestion(String title, String question, int choices, int default_choice)
+    {
+        synchronized (lock)
+        {
+            flush();
+            return handler.askQuestion(title, question, choices, default_choice);
+        }
+    }
+
+    /**
+     * A buffered line of output.
+     */
+    private static class Line
+    {
+
+        /**
+         * The line text.
+         */
+        private final String text;
+
+        /**
+         * Determines if the line was received via stderr.
+         */
+        private final boolean stderr;
+
+        /**
+         * Constructs a {@code Line}.
+         *
+         * @param text   the line text
+         * @param stderr determines if the line was received via stderr
+         */
+        public Line(String text, boolean stderr)
+        {
+            this.text = text;
+            this.stderr = stderr;
+        }
+    }
+}
@@ -15,6 +15,12 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -234,7 +240,20 @@ public class ProcessPanelWorker implements Runnable
                 }
                 else
                 {
-                    this.jobs.add(new ProcessingJob(job_name, ef_list));
+                    ProcessingJob job = new ProcessingJob(job_name, ef_list);
+                    job.parallel = Boolean.parseBoolean(job_el.getAttribute("parallel", "false"));
+                    String depends = job_el.getAttribute("depends");
+                    if (depends != null)
+                    {
+                        for (String dependency : depends.split(","))
+                        {
+                            if (dependency.trim().length() > 0)
+                            {
+                                job.depends.add(dependency.trim());
+                            }
+                        }
+                    }
+                    this.jobs.add(job);
                 }
             }
         }
@@ -328,18 +347,30 @@ public class ProcessPanelWorker implements Runnable
 
         this.handler.startProcessing(this.jobs.size());
 
-        for (ProcessPanelWorker.ProcessingJob processingJob : this.jobs)
+        CoalescingProcessHandler output = new CoalescingProcessHandler(this.handler);
+        output.start();
+        try
         {
-            this.handler.startProcess(processingJob.name);
-
-            this.result = processingJob.run(this.handler, idata.getVariables());
-
-            this.handler.finishProcess();
-
-            if (!this.result)
+            if (isParallel())
             {
-                break;
+                this.result = runParallel(output);
             }
+            else
+            {
+                for (ProcessPanelWorker.ProcessingJob processingJob : this.jobs)
+                {
+                    this.result = run(processingJob, output);
+
+                    if (!this.result)
+                    {
+                        break;
+                    }
+                }
+            }
+        }
+        finally
+        {
+            output.stop();
         }
 
         boolean unlockNext = true;
@@ -373,6 +404,153 @@ public class ProcessPanelWorker implements Runnable
         }
     }
 
+    /**
+     * Determines if any job may be run concurrently with another.
+     *
+     * @return {@code true} if any job is parallel
+     */
+    private boolean isParallel()
+    {
+        for (ProcessingJob job : this.jobs)
+        {
+            if (job.parallel)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs a job.
+     *
+     * @param job     the job
+     * @param handler the handler
+     * @return {@code true} on success, {@code false} if processing should stop
+     */
+    private boolean run(ProcessingJob job, AbstractUIProcessHandler handler)
+    {
+        handler.startProcess(job.name);
+        boolean success = job.run(handler, idata.getVariables());
+        handler.finishProcess();
+        return success;
+    }
+
+    /**
+     * Runs the jobs on a pool, running parallel jobs concurrently.
+     * <p/>
+     * A job that isn't parallel waits for all of the jobs before it to complete, and all of the jobs after it wait
+     * for it to complete. A parallel job only waits for the last job that isn't parallel, and for the jobs it names
+     * in its <em>depends</em> attribute. If a job fails, jobs that haven't started are skipped.
+     * <p/>
+     * Jobs are submitted in the order they are declared, and only wait on jobs declared before them, so they can't
+     * deadlock waiting for a thread.
+     *
+     * @param handler the handler
+     * @return {@code true} if all of the jobs succeeded, otherwise {@code false}
+     */
+    private boolean runParallel(final AbstractUIProcessHandler handler)
+    {
+        final AtomicBoolean failed = new AtomicBoolean();
+        Map<String, Future<Boolean>> byName = new HashMap<String, Future<Boolean>>();
+        List<Future<Boolean>> all = new ArrayList<Future<Boolean>>();
+        List<Future<Boolean>> sinceBarrier = new ArrayList<Future<Boolean>>();
+        Future<Boolean> barrier = null;
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(this.jobs.size(), Math.max(2, Runtime.getRuntime().availableProcessors())));
+        try
+        {
+            for (final ProcessingJob job : this.jobs)
+            {
+                final List<Future<Boolean>> dependencies = new ArrayList<Future<Boolean>>();
+                if (barrier != null)
+                {
+                    dependencies.add(barrier);
+                }
+                if (job.parallel)
+                {
+                    for (String name : job.depends)
+                    {
+                        Future<Boolean> dependency = byName.get(name);
+                        if (dependency != null)
+                        {
+                            dependencies.add(dependency);
+                        }
+                        else
+                        {
+                            logger.warning("Job '" + job.name + "' depends on unknown or later job '" + name + "'");
+                        }
+                    }
+                }
+                else
+                {
+                    dependencies.addAll(sinceBarrier);
+                }
+
+                Future<Boolean> future = executor.submit(new Callable<Boolean>()
+                {
+                    @Override
+                    public Boolean call() throws Exception
+                    {
+                        for (Future<Boolean> dependency : dependencies)
+                        {
+                            if (!dependency.get())
+                            {
+                                return false;
+                            }
+                        }
+                        if (failed.get())
+                        {
+                            return false;
+                        }
+                        boolean success = ProcessPanelWorker.this.run(job, handler);
+                        if (!success)
+                        {
+                            failed.set(true);
+                        }
+                        return success;
+                    }
+                });
+
+                all.add(future);
+                byName.put(job.name, future);
+                if (job.parallel)
+                {
+                    sinceBarrier.add(future);
+                }
+                else
+                {
+                    barrier = future;
+                    sinceBarrier.clear();
+                }
+            }
+
+            boolean success = true;
+            for (Future<Boolean> future : all)
+            {
+                success &= future.get();
+            }
+            return success;
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            handler.emitError("process interrupted", exception.toString());
+            return false;
+        }
+        catch (ExecutionException exception)
+        {
+            logger.log(Level.WARNING, exception.getMessage(), exception);
+            handler.emitError("Post Processing Error", exception.getCause().toString());
+            return false;
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
     /**
      * Start the compilation in a separate thread.
      */
@@ -409,6 +587,16 @@ public class ProcessPanelWorker implements Runnable
 
         public String name;
 
+        /**
+         * Determines if the job may be run concurrently with other parallel jobs.
+         */
+        public boolean parallel;
+
+        /**
+         * The names of the jobs that a parallel job must wait for.
+         */
+        public List<String> depends = new ArrayList<String>();
+
         private List<ProcessPanelWorker.Processable> processables;
 
         public ProcessingJob(String name, List<ProcessPanelWorker.Processable> processables)
@@ -190,7 +190,7 @@ public class UserInputConsolePanel extends AbstractConsolePanel
 
     private boolean collectInputs(InstallData installData)
     {
-        UserInputPanelSpec model = new UserInputPanelSpec(resources, installData, factory, rules, matcher);
+        UserInputPanelSpec model = UserInputPanelSpec.getInstance(resources, installData, factory, rules, matcher);
         IXMLElement spec = model.getPanelSpec(getPanel());
 
         model.updateVariables(spec);
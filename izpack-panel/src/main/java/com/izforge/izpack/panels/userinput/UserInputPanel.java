@@ -23,9 +23,13 @@ import java.awt.Dimension;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.swing.BorderFactory;
 import javax.swing.JPanel;
@@ -33,6 +37,7 @@ import javax.swing.JScrollPane;
 import javax.swing.border.Border;
 
 import com.izforge.izpack.api.adaptator.IXMLElement;
+import com.izforge.izpack.api.data.InstallData;
 import com.izforge.izpack.api.data.Panel;
 import com.izforge.izpack.api.data.binding.OsModel;
 import com.izforge.izpack.api.exception.IzPackException;
@@ -42,6 +47,7 @@ import com.izforge.izpack.api.resource.Resources;
 import com.izforge.izpack.api.rules.RulesEngine;
 import com.izforge.izpack.gui.TwoColumnLayout;
 import com.izforge.izpack.installer.data.GUIInstallData;
+import com.izforge.izpack.installer.debugger.Debugger;
 import com.izforge.izpack.installer.gui.InstallerFrame;
 import com.izforge.izpack.installer.gui.IzPanel;
 import com.izforge.izpack.panels.userinput.field.ElementReader;
@@ -53,6 +59,7 @@ import com.izforge.izpack.panels.userinput.gui.Component;
 import com.izforge.izpack.panels.userinput.gui.GUIField;
 import com.izforge.izpack.panels.userinput.gui.GUIFieldFactory;
 import com.izforge.izpack.panels.userinput.gui.UpdateListener;
+import com.izforge.izpack.util.Debug;
 import com.izforge.izpack.util.PlatformModelMatcher;
 
 /**
@@ -101,6 +108,16 @@ public class UserInputPanel extends IzPanel
 
     private UserInputPanelSpec userInputModel;
 
+    /**
+     * The values assigned by the panel's variable elements, used to skip re-evaluating those that can't change.
+     */
+    private final Map<IXMLElement, String> assigned = new IdentityHashMap<IXMLElement, String>();
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(UserInputPanel.class.getName());
+
     /*--------------------------------------------------------------------------*/
     // This method can be used to search for layout problems. If this class is
     // compiled with this method uncommented, the layout guides will be shown
@@ -196,6 +213,15 @@ public class UserInputPanel extends IzPanel
         parent.requestFocus();
     }
 
+    /**
+     * Parses the user input specification, so that it is ready when the panel is activated.
+     */
+    @Override
+    public void prefetch()
+    {
+        UserInputPanelSpec.getInstance(getResources(), installData, factory, rules, matcher);
+    }
+
     /**
      * Asks the panel to set its own XML installDataGUI that can be brought back for an automated installation
      * process. Use it as a blackbox if your panel needs to do something even in automated mode.
@@ -229,6 +255,7 @@ public class UserInputPanel extends IzPanel
         TwoColumnLayout layout;
         super.removeAll();
         views.clear();
+        assigned.clear();
 
         // ----------------------------------------------------
         // read the specifications
@@ -312,6 +339,116 @@ public class UserInputPanel extends IzPanel
         }
     }
 
+    /**
+     * Updates the views that depend on changed variables.
+     *
+     * @param changed the names of the changed variables
+     * @return the no. of views updated
+     */
+    private int updateUIElements(Set<String> changed)
+    {
+        boolean updated = false;
+        List<GUIField> dependents = getDependents(views, changed, installData);
+        for (GUIField view : dependents)
+        {
+            updated |= view.updateView();
+        }
+        if (updated)
+        {
+            super.invalidate();
+        }
+        return dependents.size();
+    }
+
+    /**
+     * Returns the views that depend on any of a set of variables.
+     *
+     * @param views       the views
+     * @param variables   the variable names
+     * @param installData the installation data
+     * @return the views whose fields depend on the variables
+     * @see #dependsOn(Field, Set, InstallData)
+     */
+    static List<GUIField> getDependents(List<GUIField> views, Set<String> variables, InstallData installData)
+    {
+        List<GUIField> result = new ArrayList<GUIField>();
+        if (!variables.isEmpty())
+        {
+            for (GUIField view : views)
+            {
+                if (dependsOn(view.getField(), variables, installData))
+                {
+                    result.add(view);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Determines if a field depends on any of a set of variables.
+     * <p/>
+     * A field depends on its variables, on the variables suffixed with <tt>_1</tt>, <tt>_2</tt>, ... that some
+     * fields use to store additional values, and on any variable referenced by their values. As conditions are
+     * opaque, a field with a condition depends on every variable, as any change may alter its visibility.
+     *
+     * @param field       the field
+     * @param variables   the variable names
+     * @param installData the installation data
+     * @return {@code true} if the field depends on the variables
+     */
+    static boolean dependsOn(Field field, Set<String> variables, InstallData installData)
+    {
+        if (field.getCondition() != null && !variables.isEmpty())
+        {
+            return true;
+        }
+        for (String variable : field.getVariables())
+        {
+            if (variables.contains(variable))
+            {
+                return true;
+            }
+            for (String name : variables)
+            {
+                if (isSuffixed(name, variable))
+                {
+                    return true;
+                }
+            }
+            String value = installData.getVariable(variable);
+            if (value != null && value.indexOf('$') != -1)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines if a variable name is another name suffixed with <tt>_</tt> and a number.
+     *
+     * @param name     the name to check
+     * @param variable the unsuffixed name
+     * @return {@code true} if {@code name} is {@code variable} followed by <tt>_</tt> and one or more digits
+     */
+    private static boolean isSuffixed(String name, String variable)
+    {
+        int length = variable.length();
+        if (name.length() < length + 2 || !name.startsWith(variable) || name.charAt(length) != '_')
+        {
+            return false;
+        }
+        for (int i = length + 1; i < name.length(); ++i)
+        {
+            if (!Character.isDigit(name.charAt(i)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Builds the UI and makes it ready for display
      */
@@ -384,27 +521,76 @@ public class UserInputPanel extends IzPanel
      */
     private IXMLElement readSpec()
     {
-        userInputModel = new UserInputPanelSpec(getResources(), installData, factory, rules, matcher);
+        userInputModel = UserInputPanelSpec.getInstance(getResources(), installData, factory, rules, matcher);
         return userInputModel.getPanelSpec(getMetadata());
     }
 
     protected void updateVariables()
     {
-        variables = userInputModel.updateVariables(spec);
+        variables = userInputModel.updateVariables(spec, assigned);
     }
 
+    /**
+     * Invoked when a field changes, to update the variables and the views that depend on them.
+     * <p/>
+     * Only views whose variables changed as a result are updated.
+     */
     private void updateDialog()
     {
         if (this.eventsActivated)
         {
             this.eventsActivated = false;
+            long start = System.currentTimeMillis();
+            Properties properties = installData.getVariables().getProperties();
+            Map<Object, Object> before = new HashMap<Object, Object>(properties);
             if (readInput(LoggingPrompt.INSTANCE)) // read from the input fields, but don't display a prompt for errors
             {
                 updateVariables();
-                updateUIElements();
+                Set<String> changed = getChanged(before, properties);
+                int count = updateUIElements(changed);
+                long elapsed = System.currentTimeMillis() - start;
+                if (logger.isLoggable(Level.FINE))
+                {
+                    logger.fine("Updated " + count + " of " + views.size() + " fields in " + elapsed + "ms, changed="
+                                        + changed);
+                }
+                Debugger debugger = (parent != null) ? parent.getDebugger() : null;
+                if (debugger != null && Debug.isTRACE())
+                {
+                    debugger.variablesChanged(changed, "changed in panel " + getMetadata().getPanelId() + ", "
+                            + count + " of " + views.size() + " fields updated in " + elapsed + "ms");
+                }
             }
             this.eventsActivated = true;
         }
     }
 
+    /**
+     * Returns the names of the variables that differ between two sets of variables.
+     *
+     * @param before the variables prior to the change
+     * @param after  the variables after the change
+     * @return the names of the changed variables
+     */
+    private Set<String> getChanged(Map<Object, Object> before, Properties after)
+    {
+        Set<String> result = new HashSet<String>();
+        for (Map.Entry<Object, Object> entry : after.entrySet())
+        {
+            Object value = before.get(entry.getKey());
+            if (value == null || !value.equals(entry.getValue()))
+            {
+                result.add((String) entry.getKey());
+            }
+        }
+        for (Object name : before.keySet())
+        {
+            if (!after.containsKey(name))
+            {
+                result.add((String) name);
+            }
+        }
+        return result;
+    }
+
 }
@@ -339,6 +339,16 @@ public abstract class Field
         return revalidate;
     }
 
+    /**
+     * Returns the condition that determines if the field is displayed or not.
+     *
+     * @return the condition. May be {@code null}
+     */
+    public String getCondition()
+    {
+        return condition;
+    }
+
     /**
      * Determines if the condition associated with the field is true.
      *
@@ -21,8 +21,11 @@ package com.izforge.izpack.panels.userinput.field;
 
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
 
@@ -41,6 +44,9 @@ import com.izforge.izpack.util.PlatformModelMatcher;
 
 /**
  * The user input panel specification.
+ * <p/>
+ * The specification is parsed once per installation and shared by all user input panels, whether GUI or console,
+ * via {@link #getInstance}.
  *
  * @author Tim Anderson
  */
@@ -62,6 +68,16 @@ public class UserInputPanelSpec
      */
     private final Config config;
 
+    /**
+     * The panel specifications, keyed on panel identifier.
+     */
+    private final Map<String, IXMLElement> panels = new HashMap<String, IXMLElement>();
+
+    /**
+     * The messages the user input messages were derived from.
+     */
+    private final Messages parentMessages;
+
     /**
      * The installation data.
      */
@@ -87,6 +103,11 @@ public class UserInputPanelSpec
      */
     private static final String PANEL_IDENTIFIER = "id";
 
+    /**
+     * The name of the installation data attribute holding the shared specification.
+     */
+    private static final String ATTRIBUTE = UserInputPanelSpec.class.getName();
+
     /**
      * The logger.
      */
@@ -105,7 +126,8 @@ public class UserInputPanelSpec
     public UserInputPanelSpec(Resources resources, InstallData installData, ObjectFactory factory,
                               RulesEngine rules, PlatformModelMatcher matcher)
     {
-        Messages messages = installData.getMessages();
+        parentMessages = installData.getMessages();
+        Messages messages = parentMessages;
         try
         {
             messages = messages.newMessages(LANG_FILE_NAME);
@@ -119,6 +141,45 @@ public class UserInputPanelSpec
         this.installData = installData;
         this.rules = rules;
         this.matcher = matcher;
+
+        for (IXMLElement spec : config.getRoot().getChildrenNamed(PANEL))
+        {
+            String id = spec.getAttribute(PANEL_IDENTIFIER);
+            if (id != null && !panels.containsKey(id))
+            {
+                panels.put(id, spec);
+            }
+        }
+    }
+
+    /**
+     * Returns the specification shared by the user input panels of an installation.
+     * <p/>
+     * The specification is created on first use, and stored as an installation data attribute. It is recreated if
+     * the specification resource or the installation messages change.
+     *
+     * @param resources   the resources
+     * @param installData the installation data
+     * @param factory     the factory
+     * @param rules       the rules
+     * @param matcher     the platform-model matcher
+     * @return the shared specification
+     */
+    public static UserInputPanelSpec getInstance(Resources resources, InstallData installData, ObjectFactory factory,
+                                                 RulesEngine rules, PlatformModelMatcher matcher)
+    {
+        synchronized (installData)
+        {
+            Object current = installData.getAttribute(ATTRIBUTE);
+            UserInputPanelSpec result = (current instanceof UserInputPanelSpec) ? (UserInputPanelSpec) current : null;
+            if (result == null || result.parentMessages != installData.getMessages()
+                    || !result.config.getPath().equals(resources.getURL(SPEC_FILE_NAME).getPath()))
+            {
+                result = new UserInputPanelSpec(resources, installData, factory, rules, matcher);
+                installData.setAttribute(ATTRIBUTE, result);
+            }
+            return result;
+        }
     }
 
     /**
@@ -128,6 +189,23 @@ public class UserInputPanelSpec
      * @return the variable names
      */
     public Set<String> updateVariables(IXMLElement spec)
+    {
+        return updateVariables(spec, new IdentityHashMap<IXMLElement, String>());
+    }
+
+    /**
+     * Updates any variables referenced in the panel specification, skipping those that cannot change.
+     * <p/>
+     * A variable with no condition and no variable references in its value evaluates to the same value each time,
+     * so it is only set if its current value differs from that it was last assigned, e.g. because a field
+     * updated it. The variables assigned are recorded in <tt>assigned</tt>, which must be passed to each
+     * subsequent invocation for the same specification.
+     *
+     * @param spec     the panel specification
+     * @param assigned the values assigned by each variable element by the previous invocation
+     * @return the variable names
+     */
+    public Set<String> updateVariables(IXMLElement spec, Map<IXMLElement, String> assigned)
     {
         Set<String> result = new HashSet<String>();
         List<IXMLElement> variables = spec.getChildrenNamed("variable");
@@ -147,6 +225,17 @@ public class UserInputPanelSpec
                 }
             }
 
+            if (assigned.containsKey(variable) && isStatic(variable, value))
+            {
+                String previous = assigned.get(variable);
+                if (previous == null ? installData.getVariable(name) == null
+                                     : previous.equals(installData.getVariable(name)))
+                {
+                    result.add(name);
+                    continue;
+                }
+            }
+
             if (isConditionTrue(variable) && matchesCurrentPlatform(variable))
             {
                 if (value != null)
@@ -160,8 +249,13 @@ public class UserInputPanelSpec
                 }
                 // set variable
                 installData.setVariable(name, value);
+                assigned.put(variable, value);
                 result.add(name);
             }
+            else
+            {
+                assigned.remove(variable);
+            }
         }
         return result;
     }
@@ -176,19 +270,7 @@ public class UserInputPanelSpec
     public IXMLElement getPanelSpec(Panel panel)
     {
         String panelId = panel.getPanelId();
-        List<IXMLElement> panels = config.getRoot().getChildrenNamed(PANEL);
-        IXMLElement result = null;
-        for (IXMLElement spec : panels)
-        {
-            String id = spec.getAttribute(PANEL_IDENTIFIER);
-
-            if (id != null && panelId != null && panelId.equals(id))
-            {
-                // use the current element as spec
-                result = spec;
-                break;
-            }
-        }
+        IXMLElement result = (panelId != null) ? panels.get(panelId) : null;
         if (result == null)
         {
             throw new IzPackException("No user input specification with " + PANEL_IDENTIFIER + "=" + panelId);
@@ -240,6 +322,20 @@ public class UserInputPanelSpec
         return installData.getVariables().replace(text);
     }
 
+    /**
+     * Determines if a variable element always evaluates to the same value.
+     * <p/>
+     * Platform constraints are not considered, as the platform doesn't change during installation.
+     *
+     * @param variable the variable element
+     * @param value    the unsubstituted variable value. May be {@code null}
+     * @return {@code true} if the variable has no condition, and no variable references in its value
+     */
+    private boolean isStatic(IXMLElement variable, String value)
+    {
+        return variable.getAttribute("conditionid") == null && (value == null || value.indexOf('$') == -1);
+    }
+
     private boolean isConditionTrue(IXMLElement variable)
     {
         String condition = variable.getAttribute("conditionid");
@@ -0,0 +1,145 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.panels.compile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Tests the {@link JavaToolCompiler}.
+ */
+public class JavaToolCompilerTest
+{
+
+    /**
+     * Temporary folder to write the sources to.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The compiler.
+     */
+    private JavaToolCompiler compiler;
+
+
+    /**
+     * Sets up the test case.
+     */
+    @Before
+    public void setUp()
+    {
+        compiler = JavaToolCompiler.create();
+        assumeTrue(compiler != null);
+    }
+
+    /**
+     * Cleans up after the test case.
+     */
+    @After
+    public void tearDown()
+    {
+        if (compiler != null)
+        {
+            compiler.close();
+        }
+    }
+
+    /**
+     * Verifies that classes are compiled alongside their sources.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testCompile() throws IOException
+    {
+        File source = createSource("A.java", "public class A { }");
+        String[] output = new String[2];
+
+        assertEquals(0, compiler.compile(Arrays.asList("-classpath", "."), Collections.singletonList(source), output));
+        assertTrue(new File(temporaryFolder.getRoot(), "A.class").exists());
+        assertEquals("", output[1]);
+    }
+
+    /**
+     * Verifies that errors are reported.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testError() throws IOException
+    {
+        File source = createSource("B.java", "public class B { int x = \"x\"; }");
+        String[] output = new String[2];
+
+        assertEquals(1, compiler.compile(Arrays.asList("-classpath", "."), Collections.singletonList(source), output));
+        assertFalse(new File(temporaryFolder.getRoot(), "B.class").exists());
+        assertTrue(output[1].startsWith(source.getPath() + ":1: "));
+    }
+
+    /**
+     * Tests the {@link JavaToolCompiler#isSupported} method.
+     */
+    @Test
+    public void testIsSupported()
+    {
+        assertTrue(compiler.isSupported(Arrays.asList("-g", "-nowarn", "-d", "classes", "-encoding", "UTF-8")));
+        assertTrue(compiler.isSupported(Collections.<String>emptyList()));
+        assertFalse(compiler.isSupported(Arrays.asList("-g", "-bogus")));
+    }
+
+    /**
+     * Writes a source file.
+     *
+     * @param name   the file name
+     * @param source the source
+     * @return the file
+     * @throws IOException for any I/O error
+     */
+    private File createSource(String name, String source) throws IOException
+    {
+        File file = new File(temporaryFolder.getRoot(), name);
+        FileWriter writer = new FileWriter(file);
+        try
+        {
+            writer.write(source);
+        }
+        finally
+        {
+            writer.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.panels.process;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link CoalescingProcessHandler}.
+ */
+public class CoalescingProcessHandlerTest
+{
+
+    /**
+     * The notifications received by the underlying handler.
+     */
+    private final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+
+
+    /**
+     * Verifies that consecutive lines from the same stream are forwarded as a single message, and that buffered
+     * lines are forwarded before other notifications.
+     */
+    @Test
+    public void testCoalesce()
+    {
+        CoalescingProcessHandler handler = new CoalescingProcessHandler(new Handler(), 100, 60000);
+        handler.start();
+        handler.logOutput("a", false);
+        handler.logOutput("b", false);
+        handler.logOutput("c", true);
+        handler.logOutput("d", false);
+        assertTrue(received.isEmpty());
+
+        handler.finishProcess();
+        handler.logOutput("e", false);
+        handler.stop();
+        assertEquals(Arrays.asList("out:a\nb", "err:c", "out:d", "finish", "out:e"), received);
+    }
+
+    /**
+     * Verifies that output is forwarded immediately if the handler hasn't been started.
+     */
+    @Test
+    public void testNotStarted()
+    {
+        CoalescingProcessHandler handler = new CoalescingProcessHandler(new Handler());
+        handler.logOutput("a", false);
+        handler.logOutput("b", true);
+        assertEquals(Arrays.asList("out:a", "err:b"), received);
+    }
+
+    /**
+     * Verifies that output is forwarded each refresh interval.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testInterval() throws Exception
+    {
+        CoalescingProcessHandler handler = new CoalescingProcessHandler(new Handler(), 100, 10);
+        handler.start();
+        handler.logOutput("a", false);
+        for (int i = 0; i < 500 && received.isEmpty(); ++i)
+        {
+            Thread.sleep(10);
+        }
+        assertEquals(Arrays.asList("out:a"), received);
+        handler.stop();
+    }
+
+    /**
+     * Verifies that a producer blocks when the buffer is full, until its output is forwarded.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testBounded() throws Exception
+    {
+        final CoalescingProcessHandler handler = new CoalescingProcessHandler(new Handler(), 2, 60000);
+        handler.start();
+        Thread producer = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                for (int i = 0; i < 3; ++i)
+                {
+                    handler.logOutput(Integer.toString(i), false);
+                }
+            }
+        };
+        producer.start();
+        producer.join(500);
+        assertTrue(producer.isAlive());
+        assertTrue(received.isEmpty());
+
+        handler.flush();
+        producer.join(5000);
+        handler.stop();
+        assertEquals(Arrays.asList("out:0\n1", "out:2"), received);
+    }
+
+    /**
+     * Handler that records the notifications it receives.
+     */
+    private class Handler implements AbstractUIProcessHandler
+    {
+
+        public void logOutput(String message, boolean stderr)
+        {
+            received.add((stderr ? "err:" : "out:") + message);
+        }
+
+        public void startProcessing(int no_of_processes)
+        {
+            received.add("startProcessing");
+        }
+
+        public void startProcess(String name)
+        {
+            received.add("start");
+        }
+
+        public void finishProcess()
+        {
+            received.add("finish");
+        }
+
+        public void finishProcessing(boolean unlockPrev, boolean unlockNext)
+        {
+            received.add("finishProcessing");
+        }
+
+        public void emitNotification(String message)
+        {
+        }
+
+        public boolean emitWarning(String title, String message)
+        {
+            return true;
+        }
+
+        public void emitError(String title, String message)
+        {
+        }
+
+        public void emitErrorAndBlockNext(String title, String message)
+        {
+        }
+
+        public int askQuestion(String title, String question, int choices)
+        {
+            return ANSWER_YES;
+        }
+
+        public int askQuestion(String title, String question, int choices, int default_choice)
+        {
+            return ANSWER_YES;
+        }
+    }
+}
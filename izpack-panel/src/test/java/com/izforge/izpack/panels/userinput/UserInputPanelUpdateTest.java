@@ -0,0 +1,200 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.izforge.izpack.panels.userinput;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.izforge.izpack.api.data.AutomatedInstallData;
+import com.izforge.izpack.api.rules.RulesEngine;
+import com.izforge.izpack.core.data.DefaultVariables;
+import com.izforge.izpack.panels.userinput.field.Field;
+import com.izforge.izpack.panels.userinput.field.TestFieldConfig;
+import com.izforge.izpack.panels.userinput.field.text.TextField;
+import com.izforge.izpack.panels.userinput.gui.GUIField;
+import com.izforge.izpack.util.Platforms;
+
+
+/**
+ * Tests the selection of the fields that {@link UserInputPanel} refreshes when variables change.
+ */
+public class UserInputPanelUpdateTest
+{
+
+    /**
+     * The installation data.
+     */
+    private AutomatedInstallData installData;
+
+
+    /**
+     * Sets up the test case.
+     */
+    @Before
+    public void setUp()
+    {
+        installData = new AutomatedInstallData(new DefaultVariables(), Platforms.LINUX);
+        installData.setRules(Mockito.mock(RulesEngine.class));
+    }
+
+    /**
+     * Verifies that only the fields whose variables changed are refreshed.
+     */
+    @Test
+    public void testChangedVariable()
+    {
+        TestView host = createView("host", null);
+        TestView port = createView("port", null);
+        List<GUIField> views = Arrays.<GUIField>asList(host, port);
+
+        installData.setVariable("host", "localhost");
+        installData.setVariable("port", "8080");
+
+        assertEquals(Arrays.<GUIField>asList(host), getDependents(views, "host"));
+        assertEquals(Arrays.<GUIField>asList(port), getDependents(views, "port"));
+        assertEquals(views, getDependents(views, "host", "port"));
+        assertTrue(getDependents(views, "other").isEmpty());
+        assertTrue(getDependents(views).isEmpty());
+    }
+
+    /**
+     * Verifies that fields are refreshed when the variables they use to store additional values change.
+     */
+    @Test
+    public void testSuffixedVariable()
+    {
+        TestView file = createView("file", null);
+        TestView other = createView("files", null);
+        List<GUIField> views = Arrays.<GUIField>asList(file, other);
+
+        assertEquals(Arrays.<GUIField>asList(file), getDependents(views, "file_1"));
+        assertEquals(Arrays.<GUIField>asList(file), getDependents(views, "file_12"));
+        assertEquals(Arrays.<GUIField>asList(other), getDependents(views, "files_2"));
+        assertTrue(getDependents(views, "file_").isEmpty());
+        assertTrue(getDependents(views, "file_name").isEmpty());
+        assertTrue(getDependents(views, "file_1a").isEmpty());
+    }
+
+    /**
+     * Verifies that fields whose values reference other variables are refreshed when any variable changes.
+     */
+    @Test
+    public void testVariableReference()
+    {
+        TestView url = createView("url", null);
+        TestView port = createView("port", null);
+        List<GUIField> views = Arrays.<GUIField>asList(url, port);
+
+        installData.setVariable("url", "http://${host}:$port");
+        installData.setVariable("port", "8080");
+
+        assertEquals(Arrays.<GUIField>asList(url), getDependents(views, "host"));
+        assertEquals(views, getDependents(views, "port"));
+
+        installData.setVariable("url", "http://localhost:8080");
+        assertTrue(getDependents(views, "host").isEmpty());
+    }
+
+    /**
+     * Verifies that fields with a condition are refreshed when any variable changes, as the change may alter their
+     * visibility.
+     */
+    @Test
+    public void testConditionalField()
+    {
+        TestView conditional = createView("conditional", "show.conditional");
+        TestView unconditional = createView("unconditional", null);
+        List<GUIField> views = Arrays.<GUIField>asList(conditional, unconditional);
+
+        assertEquals(Arrays.<GUIField>asList(conditional), getDependents(views, "show"));
+        assertEquals(views, getDependents(views, "unconditional"));
+        assertTrue(getDependents(views).isEmpty());
+    }
+
+    /**
+     * Verifies that {@link UserInputPanel#dependsOn} doesn't consider fields without variables to depend on anything
+     * but their conditions.
+     */
+    @Test
+    public void testNoVariable()
+    {
+        Field field = createView(null, null).getField();
+        assertFalse(UserInputPanel.dependsOn(field, Collections.singleton("x"), installData));
+
+        Field conditional = createView(null, "condition").getField();
+        assertTrue(UserInputPanel.dependsOn(conditional, Collections.singleton("x"), installData));
+    }
+
+    /**
+     * Returns the views that depend on the supplied variables.
+     *
+     * @param views     the views
+     * @param variables the changed variables
+     * @return the views that depend on the variables
+     */
+    private List<GUIField> getDependents(List<GUIField> views, String... variables)
+    {
+        Set<String> changed = new HashSet<String>(Arrays.asList(variables));
+        return UserInputPanel.getDependents(views, changed, installData);
+    }
+
+    /**
+     * Creates a view of a text field.
+     *
+     * @param variable  the field variable. May be {@code null}
+     * @param condition the field condition. May be {@code null}
+     * @return a new view
+     */
+    private TestView createView(String variable, String condition)
+    {
+        TestFieldConfig config = new TestFieldConfig(variable);
+        config.setCondition(condition);
+        return new TestView(new TextField(config, installData));
+    }
+
+    /**
+     * A view with no components.
+     */
+    private static class TestView extends GUIField
+    {
+
+        /**
+         * Constructs a {@code TestView}.
+         *
+         * @param field the field
+         */
+        public TestView(Field field)
+        {
+            super(field);
+        }
+    }
+}
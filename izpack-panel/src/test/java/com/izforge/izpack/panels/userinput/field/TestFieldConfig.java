@@ -56,6 +56,11 @@ public class TestFieldConfig implements FieldConfig
      */
     private List<FieldValidator> validators = new ArrayList<FieldValidator>();
 
+    /**
+     * The condition.
+     */
+    private String condition;
+
 
     /**
      * Constructs a {@code TestFieldConfig}.
@@ -211,6 +216,16 @@ public class TestFieldConfig implements FieldConfig
     @Override
     public String getCondition()
     {
-        return null;
+        return condition;
+    }
+
+    /**
+     * Sets the condition that determines if the field is displayed or not.
+     *
+     * @param condition the condition. May be {@code null}
+     */
+    public void setCondition(String condition)
+    {
+        this.condition = condition;
     }
 }
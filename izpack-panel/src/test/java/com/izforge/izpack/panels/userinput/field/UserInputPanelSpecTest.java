@@ -0,0 +1,226 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.izforge.izpack.panels.userinput.field;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.izforge.izpack.api.adaptator.IXMLElement;
+import com.izforge.izpack.api.data.AutomatedInstallData;
+import com.izforge.izpack.api.data.LocaleDatabase;
+import com.izforge.izpack.api.data.Panel;
+import com.izforge.izpack.api.exception.IzPackException;
+import com.izforge.izpack.api.factory.ObjectFactory;
+import com.izforge.izpack.api.resource.Locales;
+import com.izforge.izpack.api.resource.Messages;
+import com.izforge.izpack.api.rules.RulesEngine;
+import com.izforge.izpack.core.data.DefaultVariables;
+import com.izforge.izpack.core.resource.ResourceManager;
+import com.izforge.izpack.util.PlatformModelMatcher;
+import com.izforge.izpack.util.Platforms;
+
+
+/**
+ * Tests the {@link UserInputPanelSpec} class.
+ */
+public class UserInputPanelSpecTest
+{
+
+    /**
+     * The resources.
+     */
+    private ResourceManager resources;
+
+    /**
+     * The installation data.
+     */
+    private AutomatedInstallData installData;
+
+    /**
+     * The supported locales.
+     */
+    private Locales locales;
+
+    /**
+     * The factory.
+     */
+    private ObjectFactory factory;
+
+    /**
+     * The rules.
+     */
+    private RulesEngine rules;
+
+    /**
+     * The platform-model matcher.
+     */
+    private PlatformModelMatcher matcher;
+
+
+    /**
+     * Sets up the test case.
+     */
+    @Before
+    public void setUp()
+    {
+        resources = new ResourceManager();
+        resources.setResourceBasePath("/com/izforge/izpack/panels/userinput/spec/");
+
+        installData = new AutomatedInstallData(new DefaultVariables(), Platforms.LINUX);
+        locales = Mockito.mock(Locales.class);
+        Mockito.when(locales.getMessages("userInputLang.xml")).thenReturn(new LocaleDatabase((Messages) null, locales));
+        installData.setMessages(new LocaleDatabase((Messages) null, locales));
+
+        factory = Mockito.mock(ObjectFactory.class);
+        rules = Mockito.mock(RulesEngine.class);
+        matcher = new PlatformModelMatcher(new Platforms(), Platforms.LINUX);
+    }
+
+    /**
+     * Verifies that the specification is created once, and shared via the installation data.
+     */
+    @Test
+    public void testShared()
+    {
+        UserInputPanelSpec spec = getInstance();
+        assertSame(spec, installData.getAttribute(UserInputPanelSpec.class.getName()));
+        assertSame(spec, getInstance());
+        assertSame(spec, getInstance());
+    }
+
+    /**
+     * Verifies that panel specifications are looked up by panel identifier, with the first specification for a
+     * duplicated identifier taking precedence.
+     */
+    @Test
+    public void testGetPanelSpec()
+    {
+        UserInputPanelSpec spec = getInstance();
+        assertEquals("text1", getVariable(spec.getPanelSpec(createPanel("panel1"))));
+        assertEquals("text2", getVariable(spec.getPanelSpec(createPanel("panel2"))));
+        assertSame(spec.getPanelSpec(createPanel("panel1")), spec.getPanelSpec(createPanel("panel1")));
+
+        checkNoPanelSpec(spec, "panel3");
+        checkNoPanelSpec(spec, null);
+    }
+
+    /**
+     * Verifies that the specification is recreated if the installation messages change, e.g. because the user
+     * selected a different language.
+     */
+    @Test
+    public void testRecreatedWhenMessagesChange()
+    {
+        UserInputPanelSpec spec = getInstance();
+
+        installData.setMessages(new LocaleDatabase((Messages) null, locales));
+        UserInputPanelSpec changed = getInstance();
+        assertNotSame(spec, changed);
+        assertSame(changed, installData.getAttribute(UserInputPanelSpec.class.getName()));
+        assertSame(changed, getInstance());
+    }
+
+    /**
+     * Verifies that the specification is recreated if the specification resource changes.
+     */
+    @Test
+    public void testRecreatedWhenResourceChanges()
+    {
+        UserInputPanelSpec spec = getInstance();
+
+        resources.setResourceBasePath("/com/izforge/izpack/panels/userinput/text/");
+        UserInputPanelSpec changed = getInstance();
+        assertNotSame(spec, changed);
+        assertSame(changed, getInstance());
+        assertEquals("text1", getVariable(changed.getPanelSpec(createPanel("textinput"))));
+        checkNoPanelSpec(changed, "panel1");
+    }
+
+    /**
+     * Verifies that a stale attribute of a different type is replaced.
+     */
+    @Test
+    public void testReplacesOtherAttribute()
+    {
+        installData.setAttribute(UserInputPanelSpec.class.getName(), "other");
+        UserInputPanelSpec spec = getInstance();
+        assertSame(spec, installData.getAttribute(UserInputPanelSpec.class.getName()));
+    }
+
+    /**
+     * Returns the shared specification.
+     *
+     * @return the specification
+     */
+    private UserInputPanelSpec getInstance()
+    {
+        return UserInputPanelSpec.getInstance(resources, installData, factory, rules, matcher);
+    }
+
+    /**
+     * Verifies there is no specification for a panel.
+     *
+     * @param spec the user input specification
+     * @param id   the panel identifier. May be {@code null}
+     */
+    private void checkNoPanelSpec(UserInputPanelSpec spec, String id)
+    {
+        try
+        {
+            spec.getPanelSpec(createPanel(id));
+            fail("Expected IzPackException");
+        }
+        catch (IzPackException expected)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Returns the variable of the first field in a panel specification.
+     *
+     * @param panelSpec the panel specification
+     * @return the variable name
+     */
+    private String getVariable(IXMLElement panelSpec)
+    {
+        return panelSpec.getFirstChildNamed("field").getAttribute("variable");
+    }
+
+    /**
+     * Creates a panel.
+     *
+     * @param id the panel identifier. May be {@code null}
+     * @return a new panel
+     */
+    private Panel createPanel(String id)
+    {
+        Panel panel = new Panel();
+        panel.setPanelId(id);
+        return panel;
+    }
+}
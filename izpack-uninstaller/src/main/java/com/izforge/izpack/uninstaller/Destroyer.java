@@ -25,7 +25,15 @@ import java.io.File;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -35,6 +43,7 @@ import com.izforge.izpack.uninstaller.event.UninstallerListeners;
 import com.izforge.izpack.uninstaller.resource.Executables;
 import com.izforge.izpack.uninstaller.resource.InstallLog;
 import com.izforge.izpack.uninstaller.resource.RootScripts;
+import com.izforge.izpack.util.file.InstallLogEntry;
 
 
 /**
@@ -81,11 +90,57 @@ public class Destroyer implements Runnable
      */
     private boolean forceDelete;
 
+    /**
+     * The no. of threads to delete files with.
+     */
+    private int threads = 1;
+
     /**
      * Tracks the no. of files that couldn't be deleted.
      */
     private List<File> failed = new ArrayList<File>();
 
+    /**
+     * The files that couldn't be deleted on the first attempt. These are checked again after root scripts and
+     * cleanup have run.
+     */
+    private final List<File> candidates = Collections.synchronizedList(new ArrayList<File>());
+
+    /**
+     * The no. of files to delete.
+     */
+    private int total;
+
+    /**
+     * The no. of files processed.
+     */
+    private final AtomicInteger deleted = new AtomicInteger();
+
+    /**
+     * The time the progress listener was last notified.
+     */
+    private long lastProgress;
+
+    /**
+     * The no. of files processed when the progress listener was last notified. Guarded by {@link #deleted}.
+     */
+    private int reported;
+
+    /**
+     * The last file processed. Guarded by {@link #deleted}.
+     */
+    private File lastFile;
+
+    /**
+     * The maximum no. of files in the same directory deleted by a single task.
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * The minimum interval between progress notifications, in milliseconds.
+     */
+    private static final long PROGRESS_INTERVAL = 100;
+
     /**
      * The logger.
      */
@@ -138,6 +193,20 @@ public class Destroyer implements Runnable
         this.forceDelete = force;
     }
 
+    /**
+     * Sets the no. of threads to delete files with.
+     * <p/>
+     * With more than one thread, files are deleted in parallel, grouped by directory. This can significantly
+     * reduce uninstallation time on network file systems. Listeners that need per-file notification
+     * force files to be deleted sequentially.
+     *
+     * @param threads the no. of threads. Values less than <tt>1</tt> are treated as <tt>1</tt>
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(threads, 1);
+    }
+
     /**
      * Runs the destroyer.
      */
@@ -187,43 +256,59 @@ public class Destroyer implements Runnable
      */
     private void destroy() throws Exception
     {
-        List<File> files = log.getInstalled();
-        int size = files.size();
-        listeners.beforeDeletion(files, listener);
-        if (listener != null)
+        candidates.clear();
+        if (listeners.isEmpty())
         {
-            listener.startAction("destroy", size);
+            // no listener needs the complete list of files, so stream them from the log
+            start(log.getCount());
+            delete(log);
         }
-
-        for (int i = 0; i < size; i++)
+        else
         {
-            File file = files.get(i);
-            listeners.beforeDelete(file, listener);
+            List<File> files = log.getInstalled();
+            int size = files.size();
+            listeners.beforeDeletion(files, listener);
+            start(size);
 
-            delete(file);
+            if (listeners.isFileListener())
+            {
+                // listeners need to be notified of each file, in leaf first order
+                for (int i = 0; i < size; i++)
+                {
+                    File file = files.get(i);
+                    listeners.beforeDelete(file, listener);
 
-            listeners.afterDelete(file, listener);
-            if (listener != null)
+                    if (!delete(file))
+                    {
+                        candidates.add(file);
+                    }
+
+                    listeners.afterDelete(file, listener);
+                    progress(file);
+                }
+                finishProgress();
+            }
+            else
             {
-                listener.progress(i, file.getAbsolutePath());
+                delete(getEntries(files));
             }
-        }
 
-        listeners.afterDeletion(files, listener);
+            listeners.afterDeletion(files, listener);
+        }
 
         rootScripts.run();
 
         // We make a complementary cleanup
         if (listener != null)
         {
-            listener.progress(log.getInstalled().size(), "[ cleanups ]");
+            listener.progress(total, "[ cleanups ]");
         }
 
         File installPath = new File(log.getInstallPath());
         cleanup(installPath);
 
         // verify that the files no longer exist. Check this here, as the root scripts may have performed cleanup.
-        checkDeletion(files, installPath);
+        checkDeletion(installPath);
 
         if (listener != null)
         {
@@ -231,16 +316,286 @@ public class Destroyer implements Runnable
         }
     }
 
+    /**
+     * Notifies the progress listener that deletion is starting.
+     *
+     * @param size the no. of files to delete
+     */
+    private void start(int size)
+    {
+        total = size;
+        deleted.set(0);
+        synchronized (deleted)
+        {
+            lastProgress = 0;
+            reported = 0;
+            lastFile = null;
+        }
+        if (listener != null)
+        {
+            listener.startAction("destroy", size);
+        }
+    }
+
+    /**
+     * Deletes installed files.
+     * <p/>
+     * Files are grouped into batches by parent directory. If more than one thread is configured, the batches are
+     * deleted by a worker pool, otherwise they are deleted in turn.
+     * <p/>
+     * Directories can't be removed until their contents have been, so these are deleted last, deepest first.
+     * Parent directories within the installation path that have been emptied are removed at the same time.
+     *
+     * @param entries the installed files
+     * @throws Exception for any error
+     */
+    private void delete(Iterable<InstallLogEntry> entries) throws Exception
+    {
+        Set<File> dirs = new HashSet<File>();
+        Set<File> logged = new HashSet<File>();
+        Set<File> parents = new HashSet<File>();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        String installPath = new File(log.getInstallPath()).getAbsolutePath() + File.separator;
+        ThreadPoolExecutor pool = null;
+        if (threads > 1)
+        {
+            pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                                          new ArrayBlockingQueue<Runnable>(threads * 4),
+                                          new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+        try
+        {
+            File batchDir = null;
+            List<File> batch = new ArrayList<File>();
+            for (InstallLogEntry entry : entries)
+            {
+                File file = new File(entry.getPath());
+                if (entry.isDirectory())
+                {
+                    synchronized (dirs)
+                    {
+                        dirs.add(file);
+                    }
+                    logged.add(file);
+                    continue;
+                }
+                File parent = file.getParentFile();
+                boolean sameDir = (parent == null) ? batchDir == null : parent.equals(batchDir);
+                if (!batch.isEmpty() && (batch.size() >= BATCH_SIZE || !sameDir))
+                {
+                    execute(new DeleteBatch(batch, dirs, errors), pool);
+                    batch = new ArrayList<File>();
+                }
+                if (!sameDir)
+                {
+                    batchDir = parent;
+                    if (parent != null && parent.getAbsolutePath().startsWith(installPath))
+                    {
+                        parents.add(parent);
+                    }
+                }
+                batch.add(file);
+            }
+            if (!batch.isEmpty())
+            {
+                execute(new DeleteBatch(batch, dirs, errors), pool);
+            }
+        }
+        finally
+        {
+            if (pool != null)
+            {
+                pool.shutdown();
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (!errors.isEmpty())
+        {
+            Throwable error = errors.get(0);
+            if (error instanceof Exception)
+            {
+                throw (Exception) error;
+            }
+            throw (Error) error;
+        }
+
+        parents.addAll(dirs);
+        List<File> sorted = new ArrayList<File>(parents);
+        Collections.sort(sorted, Collections.reverseOrder());
+        for (File dir : sorted)
+        {
+            if (dirs.contains(dir))
+            {
+                if (!delete(dir))
+                {
+                    candidates.add(dir);
+                }
+                if (logged.contains(dir))
+                {
+                    progress(dir);
+                }
+            }
+            else if (!deleteFile(dir))
+            {
+                // a parent directory that still has content. Leave it for cleanup
+                logger.fine("Not deleting non-empty directory: " + dir);
+            }
+        }
+        finishProgress();
+    }
+
+    /**
+     * Executes a batch of deletions.
+     *
+     * @param batch the batch to execute
+     * @param pool  the worker pool, or {@code null} to execute the batch in the current thread
+     */
+    private void execute(DeleteBatch batch, ThreadPoolExecutor pool)
+    {
+        if (pool != null)
+        {
+            pool.execute(batch);
+        }
+        else
+        {
+            batch.run();
+        }
+    }
+
+    /**
+     * Deletes an installed file.
+     * <p/>
+     * If the file is a directory that cannot yet be deleted, it is added to the directories to delete later.
+     *
+     * @param file the file to delete
+     * @param dirs collects the directories to delete once their contents have been deleted
+     */
+    private void delete(File file, Set<File> dirs)
+    {
+        if (!deleteFile(file) && file.exists())
+        {
+            if (file.isDirectory())
+            {
+                synchronized (dirs)
+                {
+                    dirs.add(file);
+                }
+            }
+            else
+            {
+                logger.info("Failed to delete: " + file);
+                candidates.add(file);
+            }
+        }
+        progress(file);
+    }
+
+    /**
+     * Notifies the progress listener that a file has been processed.
+     * <p/>
+     * Notifications are coalesced, so that the listener is updated at most every {@link #PROGRESS_INTERVAL}
+     * milliseconds.
+     *
+     * @param file the file
+     */
+    private void progress(File file)
+    {
+        int count = deleted.incrementAndGet();
+        if (listener != null)
+        {
+            long now = System.currentTimeMillis();
+            synchronized (deleted)
+            {
+                lastFile = file;
+                if (count > reported && (now - lastProgress >= PROGRESS_INTERVAL || count >= total))
+                {
+                    notifyProgress(count, file, now);
+                }
+            }
+        }
+    }
+
+    /**
+     * Notifies the progress listener of the final no. of files processed, if it hasn't already been notified.
+     */
+    private void finishProgress()
+    {
+        if (listener != null)
+        {
+            synchronized (deleted)
+            {
+                int count = deleted.get();
+                if (count > reported && lastFile != null)
+                {
+                    notifyProgress(count, lastFile, System.currentTimeMillis());
+                }
+            }
+        }
+    }
+
+    /**
+     * Notifies the progress listener. The caller must hold the lock on {@link #deleted}.
+     *
+     * @param count the no. of files processed
+     * @param file  the last file processed
+     * @param now   the current time
+     */
+    private void notifyProgress(int count, File file, long now)
+    {
+        lastProgress = now;
+        reported = count;
+        listener.progress(count - 1, file.getAbsolutePath());
+    }
+
+    /**
+     * Adapts a list of files to install log entries.
+     *
+     * @param files the files
+     * @return the corresponding entries
+     */
+    private Iterable<InstallLogEntry> getEntries(final List<File> files)
+    {
+        return new Iterable<InstallLogEntry>()
+        {
+            @Override
+            public Iterator<InstallLogEntry> iterator()
+            {
+                final Iterator<File> iterator = files.iterator();
+                return new Iterator<InstallLogEntry>()
+                {
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public InstallLogEntry next()
+                    {
+                        return new InstallLogEntry(iterator.next().getPath());
+                    }
+
+                    @Override
+                    public void remove()
+                    {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
     /**
      * Verifies that the installed files have been deleted.
+     * <p/>
+     * Only those files that couldn't be deleted earlier are checked.
      *
-     * @param files       the files to check
      * @param installPath the installation path
      */
-    private void checkDeletion(List<File> files, File installPath)
+    private void checkDeletion(File installPath)
     {
         failed.clear();
-        for (File f : files)
+        for (File f : candidates)
         {
             if (f.exists())
             {
@@ -282,12 +637,83 @@ public class Destroyer implements Runnable
      * Deletes a file.
      *
      * @param file the file to delete
+     * @return <tt>true</tt> if the file was deleted or didn't exist
      */
-    private void delete(File file)
+    private boolean delete(File file)
     {
-        if (file.exists() && !file.delete())
+        if (file.exists() && !deleteFile(file))
         {
             logger.info("Failed to delete: " + file);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Deletes a file or an empty directory.
+     * <p/>
+     * This may be invoked concurrently when deleting with more than one thread.
+     *
+     * @param file the file to delete
+     * @return <tt>true</tt> if the file was deleted
+     */
+    protected boolean deleteFile(File file)
+    {
+        return file.delete();
+    }
+
+    /**
+     * Deletes a batch of files within the same directory.
+     */
+    private class DeleteBatch implements Runnable
+    {
+
+        /**
+         * The files to delete.
+         */
+        private final List<File> files;
+
+        /**
+         * Collects the directories to delete once their contents have been deleted.
+         */
+        private final Set<File> dirs;
+
+        /**
+         * Collects any errors.
+         */
+        private final List<Throwable> errors;
+
+        /**
+         * Constructs a <tt>DeleteBatch</tt>.
+         *
+         * @param files  the files to delete
+         * @param dirs   collects the directories to delete once their contents have been deleted
+         * @param errors collects any errors
+         */
+        public DeleteBatch(List<File> files, Set<File> dirs, List<Throwable> errors)
+        {
+            this.files = files;
+            this.dirs = dirs;
+            this.errors = errors;
+        }
+
+        /**
+         * Deletes the files.
+         */
+        @Override
+        public void run()
+        {
+            try
+            {
+                for (File file : files)
+                {
+                    delete(file, dirs);
+                }
+            }
+            catch (Throwable exception)
+            {
+                errors.add(exception);
+            }
         }
     }
 
@@ -62,11 +62,22 @@ public class Uninstaller
 
     /**
      * The main method (program entry point).
+     * <p/>
+     * See {@link #usage()} for the supported arguments.
      *
      * @param args The arguments passed on the command line.
      */
     public static void main(String[] args)
     {
+        for (String arg : args)
+        {
+            if (arg.equals("-h") || arg.equals("-?"))
+            {
+                usage();
+                System.exit(0);
+            }
+        }
+
         // relaunch the uninstaller with elevated permissions if required
         Platform platform = new Platforms().getCurrentPlatform();
 
@@ -141,6 +152,7 @@ public class Uninstaller
                     force = true;
                 }
             }
+            container.getComponent(Destroyer.class).setThreads(getThreads(args));
             uninstaller.uninstall(force);
         }
         catch (Exception err)
@@ -173,6 +185,7 @@ public class Uninstaller
                         }
                     }
 
+                    container.getComponent(Destroyer.class).setThreads(getThreads(args));
                     UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
                     UninstallerFrame uninstaller = container.getComponent(UninstallerFrame.class);
                     uninstaller.init(displayForceOption, forceOptionState);
@@ -185,6 +198,45 @@ public class Uninstaller
         });
     }
 
+    /**
+     * Returns the no. of threads to delete files with, specified by the <em>-t &lt;threads&gt;</em> argument.
+     *
+     * @param args the command line arguments
+     * @return the no. of threads, or <tt>1</tt> if none is specified or it is invalid
+     */
+    private static int getThreads(String[] args)
+    {
+        int threads = 1;
+        for (int i = 0; i < args.length - 1; ++i)
+        {
+            if (args[i].equals("-t"))
+            {
+                try
+                {
+                    threads = Integer.parseInt(args[i + 1]);
+                }
+                catch (NumberFormatException exception)
+                {
+                    logger.warning("Invalid no. of threads: " + args[i + 1]);
+                }
+            }
+        }
+        return threads;
+    }
+
+    /**
+     * Prints the supported command line arguments.
+     */
+    private static void usage()
+    {
+        System.out.println("Usage: java -jar uninstaller.jar [options]");
+        System.out.println("  -c            uninstall from the console");
+        System.out.println("  -f            force the deletion of files not installed by the installer");
+        System.out.println("  -x            don't display the force option (GUI only)");
+        System.out.println("  -t <threads>  the no. of threads to delete files with (default 1)");
+        System.out.println("  -h            display this help");
+    }
+
     private static void shutdown(UninstallerContainer container, Exception error)
     {
         logger.log(Level.SEVERE, error.getMessage(), error);
@@ -81,6 +81,26 @@ public class UninstallerListeners
         }
     }
 
+    /**
+     * Determines if there are any registered listeners.
+     *
+     * @return <tt>true</tt> if there are no listeners
+     */
+    public boolean isEmpty()
+    {
+        return listeners.isEmpty();
+    }
+
+    /**
+     * Determines if any of the listeners should be notified of individual file deletions.
+     *
+     * @return <tt>true</tt> if a listener's {@link UninstallerListener#isFileListener()} returns <tt>true</tt>
+     */
+    public boolean isFileListener()
+    {
+        return fileListener;
+    }
+
     /**
      * Initialises the listeners.
      *
@@ -28,22 +28,31 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.TreeSet;
 
 import com.izforge.izpack.api.exception.IzPackException;
+import com.izforge.izpack.api.exception.ResourceNotFoundException;
 import com.izforge.izpack.api.resource.Resources;
 import com.izforge.izpack.util.file.FileUtils;
+import com.izforge.izpack.util.file.InstallLogEntry;
+import com.izforge.izpack.util.file.InstallLogReader;
 
 
 /**
  * The installation log.
  * <p/>
  * This holds the installation path and the list of installed files.
+ * <p/>
+ * Installed files are read from the binary <em>install.idx</em> resource if present, which can be
+ * {@link #iterator() streamed} without holding the files in memory. Otherwise they are read from the
+ * <em>install.log</em> resource.
  *
  * @author Tim Anderson
  */
-public class InstallLog
+public class InstallLog implements Iterable<InstallLogEntry>
 {
 
     /**
@@ -51,15 +60,35 @@ public class InstallLog
      */
     private static final String INSTALL_LOG = "install.log";
 
+    /**
+     * The install.idx resource path.
+     */
+    private static final String INSTALL_INDEX = "install.idx";
+
+    /**
+     * The resources.
+     */
+    private final Resources resources;
+
     /**
      * The installation directory.
      */
     private final String installPath;
 
     /**
-     * The installed files.
+     * The no. of installed files.
+     */
+    private final int count;
+
+    /**
+     * Determines if the installed files are read from the binary install log.
+     */
+    private final boolean indexed;
+
+    /**
+     * The installed files, in leaf first order. Populated on demand for binary install logs.
      */
-    private final List<File> files;
+    private List<File> files;
 
 
     /**
@@ -70,25 +99,39 @@ public class InstallLog
      */
     public InstallLog(Resources resources)
     {
-        InputStream in = null;
-        InputStreamReader inReader = null;
-        try
+        this.resources = resources;
+        InstallLogReader index = openIndex();
+        if (index != null)
         {
-            in = resources.getInputStream(INSTALL_LOG);
-            inReader = new InputStreamReader(in);
-            BufferedReader reader = new BufferedReader(inReader);
-
-            installPath = getInstallPath(reader);
-            files = getFiles(reader);
+            indexed = true;
+            installPath = index.getInstallPath();
+            count = index.getCount();
+            index.close();
         }
-        catch (IOException exception)
+        else
         {
-            throw new IzPackException(exception);
-        }
-        finally
-        {
-            FileUtils.close(inReader);
-            FileUtils.close(in);
+            InputStream in = null;
+            InputStreamReader inReader = null;
+            try
+            {
+                in = resources.getInputStream(INSTALL_LOG);
+                inReader = new InputStreamReader(in);
+                BufferedReader reader = new BufferedReader(inReader);
+
+                indexed = false;
+                installPath = getInstallPath(reader);
+                files = getFiles(reader);
+                count = files.size();
+            }
+            catch (IOException exception)
+            {
+                throw new IzPackException(exception);
+            }
+            finally
+            {
+                FileUtils.close(inReader);
+                FileUtils.close(in);
+            }
         }
     }
 
@@ -102,16 +145,88 @@ public class InstallLog
         return installPath;
     }
 
+    /**
+     * Returns the no. of installed files.
+     *
+     * @return the no. of installed files
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
     /**
      * Returns the installed files, in leaf order.
+     * <p/>
+     * For binary install logs, this reads all of the files into memory. Use {@link #iterator()} where the order
+     * is not significant.
      *
      * @return the installed files
+     * @throws IzPackException if the install log cannot be read
      */
-    public List<File> getInstalled()
+    public synchronized List<File> getInstalled()
     {
+        if (files == null)
+        {
+            TreeSet<File> sorted = new TreeSet<File>(Collections.reverseOrder());
+            for (InstallLogEntry entry : this)
+            {
+                sorted.add(new File(entry.getPath()));
+            }
+            files = new ArrayList<File>(sorted);
+        }
         return files;
     }
 
+    /**
+     * Returns an iterator over the installed files, in installation order.
+     * <p/>
+     * For binary install logs, the files are streamed from the log. Any I/O error is rethrown as an
+     * {@link IzPackException}.
+     *
+     * @return an iterator over the installed files
+     * @throws IzPackException if the install log cannot be read
+     */
+    @Override
+    public Iterator<InstallLogEntry> iterator()
+    {
+        Iterator<InstallLogEntry> result;
+        if (indexed)
+        {
+            InstallLogReader reader = openIndex();
+            if (reader == null)
+            {
+                throw new IzPackException("Cannot read install log: " + INSTALL_INDEX);
+            }
+            result = new EntryIterator(reader);
+        }
+        else
+        {
+            final Iterator<File> iterator = files.iterator();
+            result = new Iterator<InstallLogEntry>()
+            {
+                @Override
+                public boolean hasNext()
+                {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public InstallLogEntry next()
+                {
+                    return new InstallLogEntry(iterator.next().getPath());
+                }
+
+                @Override
+                public void remove()
+                {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+        return result;
+    }
+
     /**
      * Helper to determine the installation path.
      *
@@ -180,5 +295,109 @@ public class InstallLog
         return new ArrayList<File>(files);
     }
 
+    /**
+     * Opens the binary install log, if it exists.
+     *
+     * @return a reader positioned after the log header, or {@code null} if there is no binary install log
+     * @throws IzPackException if the install log cannot be read
+     */
+    private InstallLogReader openIndex()
+    {
+        InputStream in;
+        try
+        {
+            in = resources.getInputStream(INSTALL_INDEX);
+        }
+        catch (ResourceNotFoundException exception)
+        {
+            return null;
+        }
+        try
+        {
+            return new InstallLogReader(in);
+        }
+        catch (IOException exception)
+        {
+            FileUtils.close(in);
+            throw new IzPackException(exception);
+        }
+    }
+
+    /**
+     * Iterates over the entries of a binary install log, closing it when the last entry has been read.
+     */
+    private static class EntryIterator implements Iterator<InstallLogEntry>
+    {
+
+        /**
+         * The reader.
+         */
+        private final InstallLogReader reader;
+
+        /**
+         * The next entry, or {@code null} if there are no more entries.
+         */
+        private InstallLogEntry next;
+
+        /**
+         * Constructs an <tt>EntryIterator</tt>.
+         *
+         * @param reader the reader
+         */
+        public EntryIterator(InstallLogReader reader)
+        {
+            this.reader = reader;
+            next = read();
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return next != null;
+        }
+
+        @Override
+        public InstallLogEntry next()
+        {
+            if (next == null)
+            {
+                throw new NoSuchElementException();
+            }
+            InstallLogEntry result = next;
+            next = read();
+            return result;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Reads the next entry, closing the reader if there are none left.
+         *
+         * @return the next entry, or {@code null} if there are no more entries
+         * @throws IzPackException for any I/O error
+         */
+        private InstallLogEntry read()
+        {
+            try
+            {
+                InstallLogEntry entry = reader.next();
+                if (entry == null)
+                {
+                    reader.close();
+                }
+                return entry;
+            }
+            catch (IOException exception)
+            {
+                reader.close();
+                throw new IzPackException(exception);
+            }
+        }
+    }
+
 
 }
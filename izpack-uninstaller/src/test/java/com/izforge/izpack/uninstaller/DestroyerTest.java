@@ -0,0 +1,276 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.izforge.izpack.uninstaller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.izforge.izpack.api.event.ProgressListener;
+import com.izforge.izpack.api.handler.Prompt;
+import com.izforge.izpack.api.resource.Resources;
+import com.izforge.izpack.uninstaller.event.UninstallerListeners;
+import com.izforge.izpack.uninstaller.resource.Executables;
+import com.izforge.izpack.uninstaller.resource.InstallLog;
+import com.izforge.izpack.uninstaller.resource.RootScripts;
+import com.izforge.izpack.util.file.InstallLogEntry;
+import com.izforge.izpack.util.file.InstallLogWriter;
+
+
+/**
+ * Tests the {@link Destroyer} class, deleting files with multiple threads.
+ */
+public class DestroyerTest
+{
+
+    /**
+     * Temporary folder to install the files to.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The installation directory.
+     */
+    private File installPath;
+
+    /**
+     * The installed files and directories, in installation order.
+     */
+    private List<InstallLogEntry> entries;
+
+    /**
+     * The files that the destroyer attempted to delete, in order.
+     */
+    private final List<File> attempts = Collections.synchronizedList(new ArrayList<File>());
+
+    /**
+     * The progress notifications.
+     */
+    private final List<Integer> progress = Collections.synchronizedList(new ArrayList<Integer>());
+
+
+    /**
+     * Sets up the test case.
+     * <p/>
+     * This installs several directories, each with more files than are deleted in a single batch.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        installPath = temporaryFolder.newFolder("myapp");
+        entries = new ArrayList<InstallLogEntry>();
+        for (int i = 0; i < 4; ++i)
+        {
+            File dir = new File(installPath, "dir" + i);
+            File subdir = new File(dir, "subdir");
+            assertTrue(subdir.mkdirs());
+            entries.add(new InstallLogEntry(dir.getPath(), true, "core", InstallLogEntry.UNKNOWN, 0, null));
+            entries.add(new InstallLogEntry(subdir.getPath(), true, "core", InstallLogEntry.UNKNOWN, 0, null));
+            for (int j = 0; j < 300; ++j)
+            {
+                createFile(new File(dir, "file" + j));
+                createFile(new File(subdir, "file" + j));
+            }
+        }
+    }
+
+    /**
+     * Verifies that all files are deleted, and that directories are only deleted after their contents.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testDeleteBeforeParent() throws IOException
+    {
+        Destroyer destroyer = createDestroyer(null);
+        destroyer.run();
+
+        assertTrue(destroyer.getFailedToDelete().isEmpty());
+        assertFalse(installPath.exists());
+        for (InstallLogEntry entry : entries)
+        {
+            File file = new File(entry.getPath());
+            assertFalse(file.exists());
+            assertTrue(attempts.contains(file));
+        }
+
+        // no directory is attempted before a file or directory within it
+        List<File> order = new ArrayList<File>(attempts);
+        for (int i = 0; i < order.size(); ++i)
+        {
+            String prefix = order.get(i).getPath() + File.separator;
+            for (int j = i + 1; j < order.size(); ++j)
+            {
+                assertFalse(order.get(i) + " attempted before " + order.get(j),
+                            order.get(j).getPath().startsWith(prefix));
+            }
+        }
+    }
+
+    /**
+     * Verifies that files that can't be deleted are reported as failures.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testUndeletable() throws IOException
+    {
+        File undeletable = new File(installPath, "dir2" + File.separator + "subdir" + File.separator + "file7");
+        Destroyer destroyer = createDestroyer(undeletable);
+        destroyer.run();
+
+        assertTrue(undeletable.exists());
+        List<File> failed = destroyer.getFailedToDelete();
+        assertTrue(failed.contains(undeletable));
+        assertTrue(failed.contains(installPath));
+        assertFalse(new File(installPath, "dir1").exists());
+    }
+
+    /**
+     * Verifies that the progress listener is notified of the last file exactly once, and never beyond it.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testProgress() throws IOException
+    {
+        Destroyer destroyer = createDestroyer(null);
+        destroyer.setProgressListener(createProgressListener());
+        destroyer.run();
+
+        int last = entries.size() - 1;
+        assertTrue(progress.size() > 1);
+        assertEquals(1, Collections.frequency(progress, last));
+        assertEquals(last, (int) progress.get(progress.size() - 2));
+
+        // the final notification is for cleanup
+        assertEquals(entries.size(), (int) progress.get(progress.size() - 1));
+    }
+
+    /**
+     * Creates a destroyer that deletes with 4 threads.
+     *
+     * @param undeletable a file that can't be deleted. May be {@code null}
+     * @return a new destroyer
+     * @throws IOException for any I/O error
+     */
+    private Destroyer createDestroyer(final File undeletable) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        InstallLogWriter.writeHeader(bytes, installPath.getPath(), entries.size());
+        InstallLogWriter writer = new InstallLogWriter(bytes);
+        for (InstallLogEntry entry : entries)
+        {
+            writer.write(entry);
+        }
+        writer.close();
+        Resources resources = Mockito.mock(Resources.class);
+        when(resources.getInputStream("install.idx")).thenReturn(new ByteArrayInputStream(bytes.toByteArray()))
+                .thenReturn(new ByteArrayInputStream(bytes.toByteArray()));
+
+        Prompt prompt = Mockito.mock(Prompt.class);
+        Executables executables = Mockito.mock(Executables.class);
+        when(executables.run()).thenReturn(true);
+        RootScripts rootScripts = Mockito.mock(RootScripts.class);
+        Destroyer destroyer = new Destroyer(new InstallLog(resources), new UninstallerListeners(prompt),
+                                            executables, rootScripts, prompt)
+        {
+            @Override
+            protected boolean deleteFile(File file)
+            {
+                attempts.add(file);
+                return !file.equals(undeletable) && super.deleteFile(file);
+            }
+        };
+        destroyer.setThreads(4);
+        return destroyer;
+    }
+
+    /**
+     * Creates a progress listener that collects the sub-steps it is notified of.
+     *
+     * @return a new progress listener
+     */
+    private ProgressListener createProgressListener()
+    {
+        return new ProgressListener()
+        {
+            public void startAction(String name, int steps)
+            {
+            }
+
+            public void stopAction()
+            {
+            }
+
+            public void nextStep(String stepName, int step, int subSteps)
+            {
+            }
+
+            public void setSubStepNo(int subSteps)
+            {
+            }
+
+            public void progress(String message)
+            {
+            }
+
+            public void progress(int subStep, String message)
+            {
+                progress.add(subStep);
+            }
+
+            public void restartAction(String name, String overallMessage, String tip, int steps)
+            {
+            }
+        };
+    }
+
+    /**
+     * Creates an installed file, and adds it to the install log.
+     *
+     * @param file the file
+     * @throws IOException for any I/O error
+     */
+    private void createFile(File file) throws IOException
+    {
+        assertTrue(file.createNewFile());
+        entries.add(new InstallLogEntry(file.getPath(), false, "core", 0, file.lastModified(), null));
+    }
+}
@@ -22,12 +22,19 @@
 package com.izforge.izpack.uninstaller.resource;
 
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.io.input.ReaderInputStream;
@@ -35,7 +42,10 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.izforge.izpack.api.exception.ResourceNotFoundException;
 import com.izforge.izpack.api.resource.Resources;
+import com.izforge.izpack.util.file.InstallLogEntry;
+import com.izforge.izpack.util.file.InstallLogWriter;
 
 /**
  * Tests the {@link InstallLog} class.
@@ -68,6 +78,7 @@ public class InstallLogTest
         StringReader reader = new StringReader(installLog);
         resources = Mockito.mock(Resources.class);
         when(resources.getInputStream("install.log")).thenReturn(new ReaderInputStream(reader));
+        when(resources.getInputStream("install.idx")).thenThrow(new ResourceNotFoundException("install.idx"));
     }
 
     /**
@@ -104,4 +115,60 @@ public class InstallLogTest
         assertEquals(new File("myapp/dir1"), installed.get(3));
     }
 
+    /**
+     * Verifies that installed files are read from the binary install log, when present.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testIndexed() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        InstallLogWriter.writeHeader(bytes, "myapp", 4);
+        InstallLogWriter writer = new InstallLogWriter(bytes);
+        writer.write(new InstallLogEntry("myapp/dir1", true, "core", InstallLogEntry.UNKNOWN, 0, null));
+        writer.write(new InstallLogEntry("myapp/dir2/dir3/file2", false, "core", 10, 1000, null));
+        writer.write(new InstallLogEntry("myapp/dir2/file1", false, "docs", 20, 2000, new byte[]{1, 2, 3}));
+        writer.write(new InstallLogEntry("myapp/dir2/dir3"));
+        writer.close();
+
+        Resources resources = Mockito.mock(Resources.class);
+        when(resources.getInputStream("install.idx")).thenReturn(new ByteArrayInputStream(bytes.toByteArray()))
+                .thenReturn(new ByteArrayInputStream(bytes.toByteArray()))
+                .thenReturn(new ByteArrayInputStream(bytes.toByteArray()));
+
+        InstallLog log = new InstallLog(resources);
+        assertEquals("myapp", log.getInstallPath());
+        assertEquals(4, log.getCount());
+
+        // verify the entries are streamed in installation order, with their attributes
+        List<InstallLogEntry> entries = new ArrayList<InstallLogEntry>();
+        for (InstallLogEntry entry : log)
+        {
+            entries.add(entry);
+        }
+        assertEquals(4, entries.size());
+        assertEquals("myapp/dir1", entries.get(0).getPath());
+        assertTrue(entries.get(0).isDirectory());
+        assertEquals("core", entries.get(0).getPack());
+        assertEquals(InstallLogEntry.UNKNOWN, entries.get(0).getSize());
+        assertEquals("myapp/dir2/dir3/file2", entries.get(1).getPath());
+        assertEquals(10, entries.get(1).getSize());
+        assertEquals(1000, entries.get(1).getLastModified());
+        assertEquals("myapp/dir2/file1", entries.get(2).getPath());
+        assertEquals("docs", entries.get(2).getPack());
+        assertArrayEquals(new byte[]{1, 2, 3}, entries.get(2).getHash());
+        assertEquals("myapp/dir2/dir3", entries.get(3).getPath());
+        assertNull(entries.get(3).getPack());
+        assertFalse(entries.get(3).isDirectory());
+
+        // verify getInstalled() orders leaf paths first
+        List<File> installed = log.getInstalled();
+        assertEquals(4, installed.size());
+        assertEquals(new File("myapp/dir2/file1"), installed.get(0));
+        assertEquals(new File("myapp/dir2/dir3/file2"), installed.get(1));
+        assertEquals(new File("myapp/dir2/dir3"), installed.get(2));
+        assertEquals(new File("myapp/dir1"), installed.get(3));
+    }
+
 }
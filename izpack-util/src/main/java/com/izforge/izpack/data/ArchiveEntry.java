@@ -0,0 +1,122 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.data;
+
+import java.io.File;
+import java.io.Serializable;
+
+
+/**
+ * An entry of a zip archive whose content is packed directly from the archive, without being extracted first.
+ * <p/>
+ * Entries are equal if they have the same archive and name, so that content included by several packs is only
+ * stored once.
+ */
+public class ArchiveEntry implements Serializable
+{
+
+    private static final long serialVersionUID = 6316433052425317766L;
+
+    /**
+     * The archive.
+     */
+    private final File archive;
+
+    /**
+     * The entry name.
+     */
+    private final String name;
+
+
+    /**
+     * Constructs an <tt>ArchiveEntry</tt>.
+     *
+     * @param archive the archive
+     * @param name    the entry name
+     */
+    public ArchiveEntry(File archive, String name)
+    {
+        this.archive = archive;
+        this.name = name;
+    }
+
+    /**
+     * Returns the archive.
+     *
+     * @return the archive
+     */
+    public File getArchive()
+    {
+        return archive;
+    }
+
+    /**
+     * Returns the entry name.
+     *
+     * @return the entry name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Determines if this equals another object.
+     *
+     * @param other the object to compare with
+     * @return {@code true} if the objects refer to the same entry of the same archive
+     */
+    @Override
+    public boolean equals(Object other)
+    {
+        if (this == other)
+        {
+            return true;
+        }
+        if (!(other instanceof ArchiveEntry))
+        {
+            return false;
+        }
+        ArchiveEntry entry = (ArchiveEntry) other;
+        return archive.equals(entry.archive) && name.equals(entry.name);
+    }
+
+    /**
+     * Returns the hash code of this.
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode()
+    {
+        return archive.hashCode() * 31 + name.hashCode();
+    }
+
+    /**
+     * Returns a string representation of this.
+     *
+     * @return the archive path and entry name
+     */
+    @Override
+    public String toString()
+    {
+        return archive.getPath() + "!/" + name;
+    }
+}
@@ -108,6 +108,17 @@ public class ExecutableFile implements Serializable
      */
     public boolean keepFile;
 
+    /**
+     * The group the executable belongs to, or {@code null} if it belongs to no group. Adjacent executables in the
+     * same group don't depend on each other, and may be executed concurrently.
+     */
+    public String group = null;
+
+    /**
+     * The time to wait for the executable to complete, in seconds, or {@code 0} to wait indefinitely.
+     */
+    public long timeout = 0;
+
     /**
      * condition for this executable
      */
@@ -195,6 +206,10 @@ public class ExecutableFile implements Serializable
         }
         retval.append("keepFile = ").append(keepFile);
         retval.append("\n");
+        retval.append("group = ").append(group);
+        retval.append("\n");
+        retval.append("timeout = ").append(timeout);
+        retval.append("\n");
         return retval.toString();
     }
 
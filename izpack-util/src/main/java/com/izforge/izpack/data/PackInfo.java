@@ -26,10 +26,12 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.zip.ZipEntry;
 
 import com.izforge.izpack.api.data.Blockable;
 import com.izforge.izpack.api.data.OverrideType;
@@ -37,6 +39,7 @@ import com.izforge.izpack.api.data.Pack;
 import com.izforge.izpack.api.data.PackColor;
 import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.api.data.binding.OsModel;
+import com.izforge.izpack.util.FileUtil;
 
 /**
  * Temporary holding place for Pack information as the Packager is built. The packager is used by
@@ -63,10 +66,15 @@ public class PackInfo implements Serializable
     public PackColor colour;
 
     /**
-     * Files of the Pack.
+     * Files of the Pack. Files packed from archive entries map to {@code null}.
      */
     private Map<PackFile, File> files = new LinkedHashMap<PackFile, File>();
 
+    /**
+     * Archive entries of the Pack, keyed on the files they are packed to.
+     */
+    private Map<PackFile, ArchiveEntry> archiveEntries = new HashMap<PackFile, ArchiveEntry>();
+
     /**
      * Parsables files in this Pack.
      */
@@ -241,6 +249,38 @@ public class PackInfo implements Serializable
         files.put(packFile, file);
     }
 
+    /**
+     * Add an entry of a zip archive to be installed. The entry content is read from the archive when the pack is
+     * written.
+     *
+     * @param baseDir    the base directory, used to determine the relative path of the archive
+     * @param archive    the archive
+     * @param entry      the archive entry
+     * @param targetfile path file will be installed to.
+     * @param osList     the target operation system(s) of this pack.
+     * @param override   what to do if the file already exists when installing
+     * @param condition  the condition that must be true for the file to be installed. May be {@code null}
+     * @throws IOException if the relative path of the archive cannot be determined
+     */
+    public void addArchiveEntry(File baseDir, File archive, ZipEntry entry, String targetfile, List<OsModel> osList,
+                                OverrideType override, String overrideRenameTo, Blockable blockable, Map additionals,
+                                String condition) throws IOException
+    {
+        ArchiveEntry source = new ArchiveEntry(archive, entry.getName());
+        String relativePath = FileUtil.getRelativeFileName(archive, baseDir);
+        if (relativePath != null)
+        {
+            relativePath += "!/" + entry.getName();
+        }
+        PackFile packFile = new PackFile(source.toString(), relativePath, targetfile, entry.getSize(),
+                                         entry.getTime(), entry.isDirectory(), osList, override, overrideRenameTo,
+                                         blockable, additionals);
+        packFile.setLoosePackInfo(pack.isLoose());
+        packFile.setCondition(condition);
+        files.put(packFile, null);
+        archiveEntries.put(packFile, source);
+    }
+
     /**
      * Set of PackFile objects for this Pack.
      */
@@ -251,13 +291,22 @@ public class PackInfo implements Serializable
 
     /**
      * The file described by the specified PackFile. Returns <tt>null</tt> if the PackFile did not
-     * come from the set returned by {@link #getPackFiles()}.
+     * come from the set returned by {@link #getPackFiles()}, or is packed from an archive entry.
      */
     public File getFile(PackFile packFile)
     {
         return files.get(packFile);
     }
 
+    /**
+     * The archive entry described by the specified PackFile. Returns <tt>null</tt> if the PackFile
+     * is not packed from an archive entry.
+     */
+    public ArchiveEntry getArchiveEntry(PackFile packFile)
+    {
+        return archiveEntries.get(packFile);
+    }
+
     /**
      * Parsable files have variables substituted after installation.
      */
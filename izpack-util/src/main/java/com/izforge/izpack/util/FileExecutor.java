@@ -23,15 +23,25 @@ package com.izforge.izpack.util;
 
 import static com.izforge.izpack.util.Platform.Name.UNIX;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -53,6 +63,11 @@ public class FileExecutor
 
     private static final String JAR_FILE_SUFFIX = ".jar";
 
+    /**
+     * The permissions to set on Unix binaries before executing them.
+     */
+    private static final String PERMISSIONS = "a+x";
+
     private boolean stopThread(Thread t, MonitorInputStream monitorInputStream)
     {
         monitorInputStream.stop();
@@ -219,6 +234,16 @@ public class FileExecutor
 
         logger.fine(retval.toString());
 
+        if (Thread.currentThread().isInterrupted())
+        {
+            // waiting for a command that exits quickly may not see the interrupt, so don't start it.
+            // The interrupt status is left set
+            logger.fine("Interrupted before executing " + params[0]);
+            output[0] = "";
+            output[1] = "Interrupted\n";
+            return exitStatus;
+        }
+
         try
         {
             // Resolve ".." and "." in paths which otherwise couldn't be found
@@ -274,6 +299,8 @@ public class FileExecutor
             stopThread(errMonitorThread, errMonitor);
             output[0] = "";
             output[1] = e.getMessage() + "\n";
+            // restore the interrupt status after stopping the monitors, as their joins would swallow it
+            Thread.currentThread().interrupt();
         }
         catch (IOException e)
         {
@@ -296,6 +323,9 @@ public class FileExecutor
 
     /**
      * Executes files specified at construction time.
+     * <p/>
+     * Files are executed in order, except that adjacent files in the same {@link ExecutableFile#group group} are
+     * executed concurrently. Failures are handled in order, once all of the files in a group have completed.
      *
      * @param currentStage the stage of the installation
      * @param matcher      the platform-model matcher
@@ -305,137 +335,378 @@ public class FileExecutor
     public int executeFiles(int currentStage, PlatformModelMatcher matcher, AbstractUIHandler handler)
     {
         int exitStatus = 0;
-        String[] output = new String[2];
-        // String permissions = (System.getProperty("user.name").equals("root"))
-        // ? "a+x" : "u+x";
-        String permissions = "a+x";
         boolean isUnix = matcher.getCurrentPlatform().isA(UNIX);
 
-        // loop through all executables
-        Iterator<ExecutableFile> efileIterator = this.files.iterator();
-        while (exitStatus == 0 && efileIterator.hasNext())
+        try
         {
-            ExecutableFile efile = efileIterator.next();
-            boolean deleteAfterwards = !efile.keepFile;
-            File file = new File(efile.path);
-            logger.fine("Handling executable file " + efile);
+            Iterator<List<ExecutableFile>> batches = getBatches(matcher).iterator();
+            while (exitStatus == 0 && batches.hasNext())
+            {
+                exitStatus = executeFiles(batches.next(), currentStage, isUnix, handler);
+            }
+        }
+        finally
+        {
+            if (pool != null)
+            {
+                pool.shutdownNow();
+                pool = null;
+            }
+            if (watchdog != null)
+            {
+                watchdog.shutdownNow();
+                watchdog = null;
+            }
+        }
+        return exitStatus;
+    }
 
-            // skip file if not for current OS (it might not have been installed
-            // at all)
+    /**
+     * Splits the files to execute into batches of adjacent files of the same group.
+     * <p/>
+     * Files that aren't for the current platform are excluded, as they may not have been installed at all.
+     *
+     * @param matcher the platform-model matcher
+     * @return the batches, in order of execution
+     */
+    private List<List<ExecutableFile>> getBatches(PlatformModelMatcher matcher)
+    {
+        List<List<ExecutableFile>> result = new ArrayList<List<ExecutableFile>>();
+        List<ExecutableFile> batch = null;
+        for (ExecutableFile efile : files)
+        {
             if (!matcher.matchesCurrentPlatform(efile.osList))
             {
                 continue;
             }
+            if (batch == null || efile.group == null || !efile.group.equals(batch.get(0).group))
+            {
+                batch = new ArrayList<ExecutableFile>();
+                result.add(batch);
+            }
+            batch.add(efile);
+        }
+        return result;
+    }
+
+    /**
+     * Executes a batch of files that may be executed concurrently.
+     *
+     * @param batch        the files to execute
+     * @param currentStage the stage of the installation
+     * @param isUnix       determines if the current platform is a Unix platform
+     * @param handler      the handler to notify on errors
+     * @return 0 on success, else the exit status of the last failed command
+     */
+    private int executeFiles(List<ExecutableFile> batch, int currentStage, boolean isUnix,
+                             AbstractUIHandler handler)
+    {
+        int exitStatus = 0;
+        List<Execution> executions = new ArrayList<Execution>();
+        for (ExecutableFile efile : batch)
+        {
+            File file = new File(efile.path);
+            logger.fine("Handling executable file " + efile);
 
             if (ExecutableFile.BIN == efile.type && currentStage != ExecutableFile.UNINSTALL && isUnix)
             {
                 // fix executable permission for unix systems
                 logger.fine("Making file executable (setting executable flag)");
-                String[] params = {"/bin/chmod", permissions, file.toString()};
-                exitStatus = executeCommand(params, output);
+                String[] params = {"/bin/chmod", PERMISSIONS, file.toString()};
+                exitStatus = executeCommand(params, new String[2]);
                 if (exitStatus != 0)
                 {
                     handler.emitWarning("file execution error", "Error executing \n" + params[0]
                             + " " + params[1] + " " + params[2]);
-                    continue;
+                    break;
                 }
             }
 
-            // execute command in POSTINSTALL stage
-            if ((exitStatus == 0)
-                    && ((currentStage == ExecutableFile.POSTINSTALL && efile.executionStage == ExecutableFile.POSTINSTALL) || (currentStage == ExecutableFile.UNINSTALL && efile.executionStage == ExecutableFile.UNINSTALL)))
+            // execute command in POSTINSTALL or UNINSTALL stage
+            String[] params = null;
+            String failure = null;
+            if ((currentStage == ExecutableFile.POSTINSTALL && efile.executionStage == ExecutableFile.POSTINSTALL)
+                    || (currentStage == ExecutableFile.UNINSTALL && efile.executionStage == ExecutableFile.UNINSTALL))
             {
-                List<String> paramList = new ArrayList<String>();
-                if (ExecutableFile.BIN == efile.type)
+                try
                 {
-                    paramList.add(file.toString());
+                    params = getCommand(efile, file);
                 }
-                else if (ExecutableFile.JAR == efile.type && null == efile.mainClass)
+                catch (Exception e)
                 {
-                    paramList.add(System.getProperty("java.home") + "/bin/java");
-                    paramList.add("-jar");
-                    paramList.add(file.toString());
+                    logger.log(Level.WARNING, e.getMessage(), e);
+                    params = new String[0];
+                    failure = "Failed to build the class path of " + file + ": " + e.getMessage();
                 }
-                else if (ExecutableFile.JAR == efile.type && null != efile.mainClass)
+            }
+            Execution execution = new Execution(efile, file, params);
+            if (failure != null)
+            {
+                execution.fail(failure);
+            }
+            executions.add(execution);
+        }
+
+        execute(executions);
+
+        int result = 0;
+        for (Execution execution : executions)
+        {
+            ExecutableFile efile = execution.efile;
+            boolean deleteAfterwards = !efile.keepFile;
+
+            // bring a dialog depending on return code and failure handling
+            if (execution.params != null && execution.exitStatus != 0)
+            {
+                result = execution.exitStatus;
+                deleteAfterwards = false;
+                String message = execution.output.toString();
+                if (message.length() == 0)
                 {
-                    paramList.add(System.getProperty("java.home") + "/bin/java");
-                    paramList.add("-cp");
-                    try
-                    {
-                        paramList.add(buildClassPath(file.toString()));
-                    }
-                    catch (Exception e)
-                    {
-                        exitStatus = -1;
-                        logger.log(Level.WARNING, e.getMessage(), e);
-                    }
-                    paramList.add(efile.mainClass);
+                    message = "Failed to execute " + execution.file.toString() + ".";
                 }
 
-                if (null != efile.argList && !efile.argList.isEmpty())
+                if (efile.onFailure == ExecutableFile.ABORT)
                 {
-                    paramList.addAll(efile.argList);
+                    handler.emitError("File execution returned " + result, message);
                 }
-
-                String[] params = new String[paramList.size()];
-                for (int i = 0; i < paramList.size(); i++)
+                else if (efile.onFailure == ExecutableFile.WARN)
                 {
-                    params[i] = paramList.get(i);
+                    handler.emitWarning("File execution returned " + result, message);
+                    result = 0;
                 }
-
-                exitStatus = executeCommand(params, output);
-
-                // bring a dialog depending on return code and failure handling
-                if (exitStatus != 0)
+                else if (efile.onFailure == ExecutableFile.IGNORE)
                 {
-                    deleteAfterwards = false;
-                    String message = output[0] + "\n" + output[1];
-                    if (message.length() == 1)
-                    {
-                        message = "Failed to execute " + file.toString() + ".";
-                    }
-
-                    if (efile.onFailure == ExecutableFile.ABORT)
-                    {
-                        handler.emitError("File execution returned " + exitStatus, message);
-                    }
-                    else if (efile.onFailure == ExecutableFile.WARN)
-                    {
-                        handler.emitWarning("File execution returned " + exitStatus, message);
-                        exitStatus = 0;
-                    }
-                    else if (efile.onFailure == ExecutableFile.IGNORE)
-                    {
-                        // do nothing
-                        exitStatus = 0;
-                    }
-                    else
+                    // do nothing
+                    result = 0;
+                }
+                else
+                {
+                    if (handler.askQuestion("Execution Failed", message + "\nContinue Installation?",
+                                            AbstractUIHandler.CHOICES_YES_NO) == AbstractUIHandler.ANSWER_YES)
                     {
-                        if (handler
-                                .askQuestion("Execution Failed", message + "\nContinue Installation?",
-                                             AbstractUIHandler.CHOICES_YES_NO) == AbstractUIHandler.ANSWER_YES)
-                        {
-                            exitStatus = 0;
-                        }
+                        result = 0;
                     }
-
                 }
-
             }
 
             // POSTINSTALL executables will be deleted
             if (efile.executionStage == ExecutableFile.POSTINSTALL && deleteAfterwards)
             {
-                if (file.canWrite())
+                if (execution.file.canWrite())
                 {
-                    file.delete();
+                    execution.file.delete();
                 }
             }
 
+            if (result != 0)
+            {
+                break;
+            }
+        }
+        return (result != 0) ? result : exitStatus;
+    }
+
+    /**
+     * Returns the command line to execute a file.
+     *
+     * @param efile the executable file
+     * @param file  the file
+     * @return the command line
+     * @throws Exception if the class path of a JAR file with a main class can't be built
+     */
+    private String[] getCommand(ExecutableFile efile, File file) throws Exception
+    {
+        List<String> paramList = new ArrayList<String>();
+        if (ExecutableFile.BIN == efile.type)
+        {
+            paramList.add(file.toString());
+        }
+        else if (ExecutableFile.JAR == efile.type && null == efile.mainClass)
+        {
+            paramList.add(System.getProperty("java.home") + "/bin/java");
+            paramList.add("-jar");
+            paramList.add(file.toString());
+        }
+        else if (ExecutableFile.JAR == efile.type && null != efile.mainClass)
+        {
+            paramList.add(System.getProperty("java.home") + "/bin/java");
+            paramList.add("-cp");
+            paramList.add(buildClassPath(file.toString()));
+            paramList.add(efile.mainClass);
+        }
+
+        if (null != efile.argList && !efile.argList.isEmpty())
+        {
+            paramList.addAll(efile.argList);
+        }
+        return paramList.toArray(new String[paramList.size()]);
+    }
+
+    /**
+     * Executes files, concurrently if there is more than one to execute.
+     *
+     * @param executions the executions. Those with no command, or that have already failed, are ignored
+     */
+    private void execute(List<Execution> executions)
+    {
+        List<Execution> pending = new ArrayList<Execution>();
+        for (Execution execution : executions)
+        {
+            if (execution.params != null && !execution.failed)
+            {
+                pending.add(execution);
+            }
+        }
+        if (pending.size() == 1)
+        {
+            pending.get(0).run();
+        }
+        else if (!pending.isEmpty())
+        {
+            if (pool == null)
+            {
+                // the files of a group may depend on each other, so they must all run at once. The threads only
+                // wait on the processes, so there is no point bounding them by the number of processors
+                pool = Executors.newCachedThreadPool();
+            }
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (Execution execution : pending)
+            {
+                futures.add(pool.submit(execution));
+            }
+            for (Future<?> future : futures)
+            {
+                try
+                {
+                    future.get();
+                }
+                catch (InterruptedException exception)
+                {
+                    logger.log(Level.FINE, exception.toString(), exception);
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                catch (ExecutionException exception)
+                {
+                    // Execution.run() handles its own errors
+                    logger.log(Level.WARNING, exception.toString(), exception);
+                }
+            }
+        }
+    }
+
+    /**
+     * Executes a command and waits for completion.
+     * <p/>
+     * The standard output and error of the command are merged, and read by the calling thread, which logs each line
+     * as it is read.
+     *
+     * @param params  the command line
+     * @param timeout the time to wait for the command to complete, in seconds, or {@code 0} to wait indefinitely.
+     *                If the command times out, it is destroyed. Note that any processes it started are not, and
+     *                the command won't be considered complete until they close its output
+     * @param output  collects the output of the command
+     * @return the exit status of the command
+     */
+    private int executeCommand(String[] params, long timeout, StringBuilder output)
+    {
+        final AtomicBoolean timedOut = new AtomicBoolean();
+        Process process = null;
+        ScheduledFuture<?> timer = null;
+        int exitStatus = -1;
+        String name = new File(params[0]).getName();
+        if (Thread.currentThread().isInterrupted())
+        {
+            // as above, the interrupt status is left set
+            logger.fine(name + ": interrupted before executing");
+            output.append("Interrupted\n");
+            return exitStatus;
+        }
+        logger.fine("Executing " + Arrays.toString(params));
+
+        try
+        {
+            // Resolve ".." and "." in paths which otherwise couldn't be found
+            if (params[0].matches("^.*[\\\\/]+[\\.]+[\\\\/]+.*$"))
+            {
+                params[0] = new File(params[0]).getCanonicalPath();
+            }
+            ProcessBuilder builder = new ProcessBuilder(params);
+            builder.redirectErrorStream(true);
+            final Process started = builder.start();
+            process = started;
+            if (timeout > 0)
+            {
+                timer = getWatchdog().schedule(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        timedOut.set(true);
+                        started.destroy();
+                    }
+                }, timeout, TimeUnit.SECONDS);
+            }
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                logger.fine(name + ": " + line);
+                output.append(line).append('\n');
+            }
+            exitStatus = process.waitFor();
+            logger.fine(name + ": exit status: " + exitStatus);
+        }
+        catch (InterruptedException e)
+        {
+            logger.log(Level.FINE, e.toString(), e);
+            output.append(e.getMessage()).append('\n');
+            Thread.currentThread().interrupt();
+        }
+        catch (IOException e)
+        {
+            if (!timedOut.get())
+            {
+                logger.log(Level.WARNING, e.toString(), e);
+                output.append(e.getMessage()).append('\n');
+            }
+        }
+        finally
+        {
+            if (timer != null)
+            {
+                timer.cancel(false);
+            }
+            if (process != null)
+            {
+                process.destroy();
+            }
+        }
+        if (timedOut.get())
+        {
+            exitStatus = -1;
+            logger.warning(name + ": timed out after " + timeout + " seconds");
+            output.append("Timed out after ").append(timeout).append(" seconds\n");
         }
         return exitStatus;
     }
 
+    /**
+     * Returns the watchdog used to destroy commands that time out, creating it if required.
+     *
+     * @return the watchdog
+     */
+    private synchronized ScheduledExecutorService getWatchdog()
+    {
+        if (watchdog == null)
+        {
+            watchdog = Executors.newSingleThreadScheduledExecutor();
+        }
+        return watchdog;
+    }
+
     /**
      * Transform classpath as specified in targetFile attribute into
      * OS specific classpath. This method also resolves directories
@@ -446,7 +717,7 @@ public class FileExecutor
      * @return valid Java classpath
      * @throws Exception
      */
-    private String buildClassPath(String targetFile) throws Exception
+    protected String buildClassPath(String targetFile) throws Exception
     {
         StringBuilder classPath = new StringBuilder();
         List<String> jars = new ArrayList<String>();
@@ -501,4 +772,87 @@ public class FileExecutor
      * The files to execute.
      */
     private Collection<ExecutableFile> files;
+
+    /**
+     * The pool used to execute files concurrently, or {@code null} if it hasn't been created.
+     */
+    private ExecutorService pool;
+
+    /**
+     * The watchdog used to destroy files that time out, or {@code null} if it hasn't been created.
+     */
+    private ScheduledExecutorService watchdog;
+
+    /**
+     * The execution of an executable file.
+     */
+    private class Execution implements Runnable
+    {
+
+        /**
+         * The executable file.
+         */
+        private final ExecutableFile efile;
+
+        /**
+         * The file.
+         */
+        private final File file;
+
+        /**
+         * The command line, or {@code null} if the file isn't executed in the current stage.
+         */
+        private final String[] params;
+
+        /**
+         * The output of the command.
+         */
+        private final StringBuilder output = new StringBuilder();
+
+        /**
+         * The exit status of the command.
+         */
+        private int exitStatus = -1;
+
+        /**
+         * Determines if the execution failed before the command could be run.
+         */
+        private boolean failed;
+
+        /**
+         * Constructs an {@code Execution}.
+         *
+         * @param efile  the executable file
+         * @param file   the file
+         * @param params the command line. May be {@code null}
+         */
+        public Execution(ExecutableFile efile, File file, String[] params)
+        {
+            this.efile = efile;
+            this.file = file;
+            this.params = params;
+        }
+
+        /**
+         * Executes the command.
+         */
+        @Override
+        public void run()
+        {
+            exitStatus = executeCommand(params, efile.timeout, output);
+        }
+
+        /**
+         * Marks the execution as failed without running the command.
+         * <p/>
+         * The exit status remains <tt>-1</tt>, so the failure is handled like that of the command.
+         *
+         * @param message the failure message
+         */
+        public void fail(String message)
+        {
+            failed = true;
+            output.append(message).append('\n');
+        }
+    }
 }
@@ -92,6 +92,11 @@ public class Librarian implements CleanupClient
      */
     private String extension = "";
 
+    /**
+     * The cache of libraries extracted from jars, or <tt>null</tt> if libraries are extracted to temporary files.
+     */
+    private final NativeLibraryCache cache;
+
 
     /**
      * Constructs a <tt>Librarian</tt>.
@@ -103,6 +108,8 @@ public class Librarian implements CleanupClient
     {
         housekeeper.registerForCleanup(this);
         extension = '.' + factory.getNativeLibraryExtension();
+        File dir = NativeLibraryCache.getDefaultDirectory();
+        cache = (dir != null) ? new NativeLibraryCache(dir) : null;
     }
 
     /**
@@ -207,8 +214,8 @@ public class Librarian implements CleanupClient
      * the library, this attempt will fail.
      * <li>If the client is located on the local file system, an attempt is made to load the
      * library from the local files system as well.
-     * <li>If the library is located inside a *.jar file, it is extracted to 'java.io.tmpdir' and
-     * an attempt is made to load it from there.
+     * <li>If the library is located inside a *.jar file, it is extracted to the native library cache, or if that
+     * fails, to 'java.io.tmpdir', and an attempt is made to load it from there.
      * </ul>
      * <br>
      * <br>
@@ -292,6 +299,10 @@ public class Librarian implements CleanupClient
 
     /**
      * Attempts to load a library from a jar.
+     * <p/>
+     * The library is loaded from the {@link NativeLibraryCache native library cache} if possible, so that it only
+     * needs to be extracted the first time it is used. Otherwise, it is extracted to a temporary file which is
+     * removed on exit.
      *
      * @param name   the library name
      * @param url    the library URL within the jar
@@ -300,6 +311,14 @@ public class Librarian implements CleanupClient
      */
     private boolean loadJarLibrary(String name, URL url, NativeLibraryClient client)
     {
+        if (cache != null)
+        {
+            File cached = cache.getLibrary(url, name + extension);
+            if (cached != null && load(cached.getAbsolutePath(), client))
+            {
+                return true;
+            }
+        }
         boolean result = false;
         File file = null;
         InputStream in = null;
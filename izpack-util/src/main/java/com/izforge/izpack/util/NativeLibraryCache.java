@@ -0,0 +1,441 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.FileLock;
+import java.util.jar.JarEntry;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import com.izforge.izpack.util.file.FileUtils;
+
+
+/**
+ * A persistent cache of native libraries extracted from jars.
+ * <p/>
+ * Libraries are cached by the CRC-32 and size of their content, so that a library extracted by one installer or
+ * uninstaller can be loaded by the next, without extracting it again, while different versions of a library don't
+ * collide. A library is stored as <em>&lt;directory&gt;/&lt;crc&gt;-&lt;size&gt;/&lt;name&gt;</em>.
+ * <p/>
+ * For libraries in jars, the CRC-32 and size are taken from the jar entry, so a library that is already cached is
+ * returned without reading it from the jar. Each time a cached library is returned, its content is checked against
+ * its CRC-32 and size, as the cache may be modified by other processes, and it is replaced if it doesn't match.
+ * <p/>
+ * Libraries are extracted holding an exclusive lock on <em>&lt;directory&gt;/&lt;crc&gt;-&lt;size&gt;.lock</em>,
+ * and renamed into place once complete, so that installers running concurrently never see a partially written
+ * library.
+ * <p/>
+ * The directory of a library is touched each time the library is returned. The first time a cache is used, the
+ * libraries that haven't been used for {@link #MAX_AGE} milliseconds are removed.
+ * <p/>
+ * By default, the cache is stored in the user's home directory, as libraries must not be loaded from a directory
+ * other users can write to. The directory may be changed using the <em>izpack.native.cache</em> system property,
+ * and the cache disabled by setting it to an empty string.
+ */
+class NativeLibraryCache
+{
+
+    /**
+     * The system property used to change the cache directory.
+     */
+    public static final String DIRECTORY_PROPERTY = "izpack.native.cache";
+
+    /**
+     * The time after which unused libraries are removed from the cache, in milliseconds. This is 90 days.
+     */
+    public static final long MAX_AGE = 90L * 24 * 60 * 60 * 1000;
+
+    /**
+     * The lock file suffix.
+     */
+    private static final String LOCK_SUFFIX = ".lock";
+
+    /**
+     * Serialises access to the cache by threads of this JVM. File locks are held on behalf of the whole JVM, so they
+     * don't exclude other threads.
+     */
+    private static final Object LOCK = new Object();
+
+    /**
+     * The cache directory.
+     */
+    private final File dir;
+
+    /**
+     * Determines if stale libraries have been removed from the cache.
+     */
+    private boolean pruned;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(NativeLibraryCache.class.getName());
+
+
+    /**
+     * Constructs a {@code NativeLibraryCache}.
+     *
+     * @param dir the cache directory. It is created if it doesn't exist
+     */
+    public NativeLibraryCache(File dir)
+    {
+        this.dir = dir;
+    }
+
+    /**
+     * Returns the default cache directory.
+     *
+     * @return the cache directory, or {@code null} if the cache is disabled
+     */
+    public static File getDefaultDirectory()
+    {
+        String path = System.getProperty(DIRECTORY_PROPERTY);
+        if (path == null)
+        {
+            String home = System.getProperty("user.home");
+            return (home != null) ? new File(home, ".izpack" + File.separator + "native") : null;
+        }
+        return (path.trim().length() != 0) ? new File(path) : null;
+    }
+
+    /**
+     * Returns a library from the cache, extracting it if it isn't present.
+     *
+     * @param url      the library URL
+     * @param fileName the library file name
+     * @return the cached library, or {@code null} if it cannot be cached
+     */
+    public File getLibrary(URL url, String fileName)
+    {
+        try
+        {
+            URLConnection connection = url.openConnection();
+            JarEntry entry = (connection instanceof JarURLConnection)
+                    ? ((JarURLConnection) connection).getJarEntry() : null;
+            synchronized (LOCK)
+            {
+                if (!pruned)
+                {
+                    pruned = true;
+                    prune(System.currentTimeMillis() - MAX_AGE);
+                }
+                if (entry != null && entry.getCrc() != -1 && entry.getSize() != -1)
+                {
+                    return getLibrary(entry.getCrc(), entry.getSize(), url, null, fileName);
+                }
+                // no entry to describe the content, so it must be read to determine its CRC-32
+                byte[] content = read(url);
+                CRC32 crc = new CRC32();
+                crc.update(content);
+                return getLibrary(crc.getValue(), content.length, url, content, fileName);
+            }
+        }
+        catch (IOException exception)
+        {
+            logger.log(Level.FINE, "Failed to cache library: " + url + ": " + exception.getMessage(), exception);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the libraries that haven't been used since the specified time.
+     * <p/>
+     * Libraries that are locked by other installers, or that can't be deleted as they are in use, are skipped.
+     *
+     * @param time the time, in milliseconds since the epoch
+     */
+    void prune(long time)
+    {
+        File[] files = dir.listFiles();
+        if (files == null)
+        {
+            return;
+        }
+        for (File libDir : files)
+        {
+            if (libDir.isDirectory() && libDir.lastModified() < time)
+            {
+                try
+                {
+                    prune(libDir, time);
+                }
+                catch (IOException exception)
+                {
+                    logger.log(Level.FINE, "Failed to remove cached library: " + libDir + ": "
+                            + exception.getMessage(), exception);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes a library directory, if it hasn't been used since the specified time.
+     *
+     * @param libDir the library directory
+     * @param time   the time, in milliseconds since the epoch
+     * @throws IOException for any I/O error
+     */
+    private void prune(File libDir, long time) throws IOException
+    {
+        File file = new File(dir, libDir.getName() + LOCK_SUFFIX);
+        RandomAccessFile lockFile = new RandomAccessFile(file, "rw");
+        try
+        {
+            FileLock lock = lockFile.getChannel().tryLock();
+            if (lock != null)
+            {
+                try
+                {
+                    // another process may have used the library before the lock was acquired
+                    if (libDir.lastModified() < time)
+                    {
+                        logger.fine("Removing unused library: " + libDir);
+                        if (FileUtils.deleteRecursively(libDir))
+                        {
+                            file.delete();
+                        }
+                    }
+                }
+                finally
+                {
+                    lock.release();
+                }
+            }
+        }
+        finally
+        {
+            FileUtils.close(lockFile);
+        }
+    }
+
+    /**
+     * Returns a library from the cache, extracting it if it isn't present or doesn't match its CRC-32 and size.
+     *
+     * @param crc      the CRC-32 of the library content
+     * @param size     the size of the library content
+     * @param url      the library URL
+     * @param content  the library content, or {@code null} if it must be read from the URL
+     * @param fileName the library file name
+     * @return the cached library
+     * @throws IOException if the library cannot be cached
+     */
+    private File getLibrary(long crc, long size, URL url, byte[] content, String fileName) throws IOException
+    {
+        String key = Long.toHexString(crc) + "-" + size;
+        File libDir = new File(dir, key);
+        File file = new File(libDir, fileName);
+        if (isValid(file, crc, size))
+        {
+            logger.fine("Using cached library: " + file);
+            libDir.setLastModified(System.currentTimeMillis());
+            return file;
+        }
+
+        mkdirs(dir);
+        RandomAccessFile lockFile = new RandomAccessFile(new File(dir, key + LOCK_SUFFIX), "rw");
+        try
+        {
+            FileLock lock = lockFile.getChannel().lock();
+            try
+            {
+                // another process may have extracted the library while waiting for the lock
+                if (!isValid(file, crc, size))
+                {
+                    InputStream in = (content != null) ? new ByteArrayInputStream(content) : url.openStream();
+                    try
+                    {
+                        extract(in, crc, size, libDir, file);
+                    }
+                    finally
+                    {
+                        FileUtils.close(in);
+                    }
+                }
+                libDir.setLastModified(System.currentTimeMillis());
+            }
+            finally
+            {
+                lock.release();
+            }
+        }
+        finally
+        {
+            FileUtils.close(lockFile);
+        }
+        return file;
+    }
+
+    /**
+     * Writes a library to a temporary file, verifying its CRC-32 and size, and renames it into place.
+     *
+     * @param in     the library content
+     * @param crc    the expected CRC-32 of the content
+     * @param size   the expected size of the content
+     * @param libDir the directory to write to
+     * @param file   the library file
+     * @throws IOException for any I/O error, or if the content doesn't match its CRC-32 or size
+     */
+    private void extract(InputStream in, long crc, long size, File libDir, File file) throws IOException
+    {
+        mkdirs(libDir);
+        File temp = File.createTempFile(file.getName(), ".tmp", libDir);
+        try
+        {
+            CheckedInputStream checked = new CheckedInputStream(in, new CRC32());
+            OutputStream out = new FileOutputStream(temp);
+            try
+            {
+                IoHelper.copyStream(checked, out);
+            }
+            finally
+            {
+                out.close();
+            }
+            if (checked.getChecksum().getValue() != crc || temp.length() != size)
+            {
+                throw new IOException("Extracted library does not match its checksum: " + file);
+            }
+            if (file.exists() && !file.delete())
+            {
+                // may be in use by another process
+                throw new IOException("Failed to replace corrupt library: " + file);
+            }
+            if (!temp.renameTo(file))
+            {
+                throw new IOException("Failed to rename " + temp + " to " + file);
+            }
+            logger.fine("Cached library: " + file);
+        }
+        finally
+        {
+            FileUtils.delete(temp);
+        }
+    }
+
+    /**
+     * Determines if a cached library exists and has the expected CRC-32 and size.
+     *
+     * @param file the library file
+     * @param crc  the expected CRC-32
+     * @param size the expected size
+     * @return {@code true} if the library is valid
+     */
+    private boolean isValid(File file, long crc, long size)
+    {
+        if (!file.isFile())
+        {
+            return false;
+        }
+        if (file.length() != size)
+        {
+            logger.warning("Cached library does not match its size: " + file);
+            return false;
+        }
+        CRC32 checksum = new CRC32();
+        try
+        {
+            InputStream in = new CheckedInputStream(new FileInputStream(file), checksum);
+            try
+            {
+                byte[] buffer = new byte[8192];
+                while (in.read(buffer) != -1)
+                {
+                    // read to the end to compute the checksum
+                }
+            }
+            finally
+            {
+                FileUtils.close(in);
+            }
+        }
+        catch (IOException exception)
+        {
+            logger.log(Level.WARNING, "Failed to read cached library: " + file + ": " + exception.getMessage(),
+                       exception);
+            return false;
+        }
+        boolean result = checksum.getValue() == crc;
+        if (!result)
+        {
+            logger.warning("Cached library does not match its checksum: " + file);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a directory, if it doesn't exist, accessible only by its owner.
+     *
+     * @param dir the directory
+     * @throws IOException if the directory cannot be created
+     */
+    private void mkdirs(File dir) throws IOException
+    {
+        if (!dir.isDirectory())
+        {
+            if (!dir.mkdirs() && !dir.isDirectory())
+            {
+                throw new IOException("Failed to create directory: " + dir);
+            }
+            // best effort. Not supported by all platforms
+            dir.setReadable(false, false);
+            dir.setReadable(true, true);
+            dir.setWritable(false, false);
+            dir.setWritable(true, true);
+            dir.setExecutable(false, false);
+            dir.setExecutable(true, true);
+        }
+    }
+
+    /**
+     * Reads the content of a URL.
+     *
+     * @param url the URL
+     * @return the content
+     * @throws IOException for any I/O error
+     */
+    private byte[] read(URL url) throws IOException
+    {
+        InputStream in = url.openStream();
+        try
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IoHelper.copyStream(in, out);
+            return out.toByteArray();
+        }
+        finally
+        {
+            FileUtils.close(in);
+        }
+    }
+}
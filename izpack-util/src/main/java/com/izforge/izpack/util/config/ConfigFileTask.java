@@ -23,9 +23,12 @@
 package com.izforge.izpack.util.config;
 
 import java.io.File;
+import java.util.logging.Logger;
 
 public abstract class ConfigFileTask extends SingleConfigurableTask
 {
+    private static final Logger logger = Logger.getLogger(ConfigFileTask.class.getName());
+
     /*
      * Instance variables.
      */
@@ -93,10 +96,34 @@ public abstract class ConfigFileTask extends SingleConfigurableTask
         return this.comment;
     }
 
+    /**
+     * Returns the location of the resulting output file.
+     *
+     * @return the output file. May be {@code null}
+     */
+    public File getToFile()
+    {
+        return toFile;
+    }
+
     @Override
     protected void checkAttributes() throws Exception
     {
         if (this.toFile == null) { throw new Exception("The \"file\" attribute must be set"); }
     }
 
+    /**
+     * Deletes the patchfile, if requested.
+     */
+    protected void cleanup()
+    {
+        if (cleanup && oldFile.exists())
+        {
+            if (!oldFile.delete())
+            {
+                logger.warning("File " + oldFile + " could not be cleant up");
+            }
+        }
+    }
+
 }
@@ -0,0 +1,226 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.config;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.izforge.izpack.util.config.base.Config;
+import com.izforge.izpack.util.config.base.Configurable;
+
+
+/**
+ * A sequence of {@link ConfigFileTask}s that patch the same file.
+ * <p/>
+ * Executing the tasks one by one reads, patches and writes the file once per task. A group reads the file once,
+ * applies the patches of each task in order, and writes the file once, producing the same output.
+ * <p/>
+ * Tasks are only added to a group if this equivalence holds. That is, they must:
+ * <ul>
+ * <li>be of the same type, and read and write the file with the same settings</li>
+ * <li>read the file as left by the previous task, i.e. not specify a different original file</li>
+ * <li>not patch from the file itself, nor from a patch file cleaned up by a previous task</li>
+ * <li>not follow a task that cleans up the file itself</li>
+ * </ul>
+ * A group reads and writes its file with its own copy of the ini4j configuration, so that groups for different
+ * files may be executed concurrently. Unlike {@link SingleConfigurableTask#execute()}, executing a group leaves the
+ * global configuration unchanged.
+ */
+public class ConfigFileTaskGroup implements ConfigurableTask
+{
+
+    /**
+     * The tasks.
+     */
+    private final List<ConfigFileTask> tasks = new ArrayList<ConfigFileTask>();
+
+    /**
+     * The files read or written by the tasks.
+     */
+    private final Set<File> files = new HashSet<File>();
+
+
+    /**
+     * Constructs a <tt>ConfigFileTaskGroup</tt>.
+     *
+     * @param task the first task
+     * @throws IllegalArgumentException if the task has no output file
+     */
+    public ConfigFileTaskGroup(ConfigFileTask task)
+    {
+        if (task.getToFile() == null)
+        {
+            throw new IllegalArgumentException("Argument 'task' must have an output file");
+        }
+        add(task);
+    }
+
+    /**
+     * Returns the file that the tasks patch.
+     *
+     * @return the output file
+     */
+    public File getToFile()
+    {
+        return tasks.get(0).getToFile();
+    }
+
+    /**
+     * Returns the tasks.
+     *
+     * @return the tasks, in order of execution
+     */
+    public List<ConfigFileTask> getTasks()
+    {
+        return Collections.unmodifiableList(tasks);
+    }
+
+    /**
+     * Returns the files read or written by the tasks.
+     *
+     * @return the files
+     */
+    public Set<File> getFiles()
+    {
+        return Collections.unmodifiableSet(files);
+    }
+
+    /**
+     * Returns the files read or written by a task.
+     *
+     * @param task the task
+     * @return the files
+     */
+    public static Set<File> getFiles(ConfigFileTask task)
+    {
+        Set<File> result = new HashSet<File>();
+        for (File file : new File[]{task.toFile, task.oldFile, task.newFile})
+        {
+            if (file != null)
+            {
+                result.add(file.getAbsoluteFile());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Determines if a task can be added to the group, without changing the output.
+     *
+     * @param task the task
+     * @return <tt>true</tt> if the task can be added
+     */
+    public boolean canAdd(ConfigFileTask task)
+    {
+        ConfigFileTask first = tasks.get(0);
+        File toFile = getToFile().getAbsoluteFile();
+        if (task.getClass() != first.getClass() || task.toFile == null
+                || !toFile.equals(task.toFile.getAbsoluteFile()) || !task.hasSameSettings(first))
+        {
+            return false;
+        }
+        if (task.newFile != null && !toFile.equals(task.newFile.getAbsoluteFile()))
+        {
+            return false;
+        }
+        File oldFile = (task.oldFile != null) ? task.oldFile.getAbsoluteFile() : null;
+        if (toFile.equals(oldFile))
+        {
+            return false;
+        }
+        for (ConfigFileTask member : tasks)
+        {
+            if (member.cleanup && member.oldFile != null)
+            {
+                File deleted = member.oldFile.getAbsoluteFile();
+                if (deleted.equals(toFile) || deleted.equals(oldFile))
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a task to the group.
+     *
+     * @param task the task to add
+     * @throws IllegalArgumentException if the task cannot be added
+     */
+    public void add(ConfigFileTask task)
+    {
+        if (!tasks.isEmpty() && !canAdd(task))
+        {
+            throw new IllegalArgumentException("Task cannot be added to the group for " + getToFile());
+        }
+        tasks.add(task);
+        files.addAll(getFiles(task));
+    }
+
+    /**
+     * Executes the tasks.
+     *
+     * @throws Exception for any error
+     */
+    @Override
+    public void execute() throws Exception
+    {
+        ConfigFileTask first = tasks.get(0);
+        ConfigFileTask last = tasks.get(tasks.size() - 1);
+        Config config = Config.getGlobal().clone();
+        first.configure(config);
+        try
+        {
+            for (ConfigFileTask task : tasks)
+            {
+                task.setConfig(config);
+                task.checkAttributes();
+            }
+            first.readConfigurable();
+            Configurable configurable = first.configurable;
+            for (ConfigFileTask task : tasks)
+            {
+                task.configurable = configurable;
+                task.patch();
+            }
+            last.writeConfigurable();
+            if (last.toFile.exists())
+            {
+                // the last task cleans up after itself
+                for (ConfigFileTask task : tasks.subList(0, tasks.size() - 1))
+                {
+                    task.cleanup();
+                }
+            }
+        }
+        finally
+        {
+            for (ConfigFileTask task : tasks)
+            {
+                task.setConfig(null);
+            }
+        }
+    }
+}
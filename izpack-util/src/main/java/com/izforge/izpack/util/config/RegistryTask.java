@@ -63,7 +63,7 @@ public class RegistryTask extends SingleConfigurableTask
             try
             {
                 logger.fine("Loading from registry: " + this.fromKey);
-                fromConfigurable = new Reg(this.fromKey);
+                fromConfigurable = new Reg(this.fromKey, getConfig());
             }
             catch (IOException ioe)
             {
@@ -80,7 +80,7 @@ public class RegistryTask extends SingleConfigurableTask
             try
             {
                 logger.fine("Loading from registry: " + this.key);
-                configurable = new Reg(this.key);
+                configurable = new Reg(this.key, getConfig());
             }
             catch (IOException ioe)
             {
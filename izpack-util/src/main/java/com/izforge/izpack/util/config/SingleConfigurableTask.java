@@ -79,6 +79,11 @@ public abstract class SingleConfigurableTask implements ConfigurableTask
 
     private Vector<Entry> entries = new Vector<Entry>();
 
+    /**
+     * The configuration to read and write the configurable with, or {@code null} to use the global configuration.
+     */
+    private Config config;
+
     /**
      * Whether to preserve equal entries but not necessarily their values from an old configuration,
      * if they can be found (default: true).
@@ -187,21 +192,92 @@ public abstract class SingleConfigurableTask implements ConfigurableTask
         createConfigurable = create;
     }
 
+    /**
+     * Executes the task.
+     * <p/>
+     * The task reads and writes its configurable with its own copy of the global configuration, so that tasks
+     * executing concurrently never see each other's settings.
+     *
+     * @throws Exception for any error
+     */
     @Override
     public void execute() throws Exception
     {
-        Config.getGlobal().setHeaderComment(headerComment);
-        Config.getGlobal().setEmptyLines(emptyLines);
-        Config.getGlobal().setAutoNumbering(autoNumbering);
-        Config.getGlobal().setEscape(escape);
-        Config.getGlobal().setEscapeNewline(escapeNewLine);
-        Config.getGlobal().setOperator(operator);
-        checkAttributes();
-        readConfigurable();
+        Config config = Config.getGlobal().clone();
+        configure(config);
+        setConfig(config);
+        try
+        {
+            checkAttributes();
+            readConfigurable();
+            patch();
+            writeConfigurable();
+        }
+        finally
+        {
+            setConfig(null);
+        }
+    }
+
+    /**
+     * Applies the ini4j settings of this task to a configuration.
+     *
+     * @param config the configuration
+     */
+    public void configure(Config config)
+    {
+        config.setHeaderComment(headerComment);
+        config.setEmptyLines(emptyLines);
+        config.setAutoNumbering(autoNumbering);
+        config.setEscape(escape);
+        config.setEscapeNewline(escapeNewLine);
+        config.setOperator(operator);
+    }
+
+    /**
+     * Determines if this task reads and writes its configurable with the same settings as another.
+     *
+     * @param other the other task
+     * @return <tt>true</tt> if the settings are the same
+     */
+    boolean hasSameSettings(SingleConfigurableTask other)
+    {
+        return headerComment == other.headerComment && emptyLines == other.emptyLines
+                && autoNumbering == other.autoNumbering && escape == other.escape
+                && escapeNewLine == other.escapeNewLine && createConfigurable == other.createConfigurable
+                && (operator == null ? other.operator == null : operator.equals(other.operator));
+    }
+
+    /**
+     * Sets the configuration to read and write the configurable with.
+     *
+     * @param config the configuration, or {@code null} to use the global configuration
+     */
+    void setConfig(Config config)
+    {
+        this.config = config;
+    }
+
+    /**
+     * Returns the configuration to read and write the configurable with.
+     *
+     * @return the configuration
+     */
+    protected Config getConfig()
+    {
+        return (config != null) ? config : Config.getGlobal();
+    }
+
+    /**
+     * Patches the configurable from the source configurable, and applies the nested entries.
+     *
+     * @throws Exception for any error
+     */
+    void patch() throws Exception
+    {
         readSourceConfigurable();
         patchConfigurable();
         executeNestedEntries();
-        writeConfigurable();
     }
 
     private String getValueFromOptionMap(OptionMap map, String key, int index)
@@ -47,7 +47,7 @@ public class SingleIniFileTask extends ConfigFileTask
                 }
                 logger.fine("Loading INI file: " + oldFile.getAbsolutePath());
                 // Configuration file type must be the same as the target type
-                fromConfigurable = new Ini(this.oldFile);
+                fromConfigurable = createIni(this.oldFile);
             }
             catch (IOException ioe)
             {
@@ -64,7 +64,7 @@ public class SingleIniFileTask extends ConfigFileTask
             try
             {
                 logger.fine("Loading original configuration file: " + newFile.getAbsolutePath());
-                configurable = new Ini(newFile);
+                configurable = createIni(newFile);
             }
             catch (IOException ioe)
             {
@@ -76,7 +76,7 @@ public class SingleIniFileTask extends ConfigFileTask
             try
             {
                 logger.fine("Loading target configuration file: " + toFile.getAbsolutePath());
-                configurable = new Ini(toFile);
+                configurable = createIni(toFile);
             }
             catch (IOException ioe)
             {
@@ -85,7 +85,7 @@ public class SingleIniFileTask extends ConfigFileTask
         }
         else
         {
-            configurable = new Ini();
+            configurable = createIni(null);
         }
     }
 
@@ -124,12 +124,25 @@ public class SingleIniFileTask extends ConfigFileTask
             throw new Exception(ioe);
         }
 
-        if (cleanup && oldFile.exists())
+        cleanup();
+    }
+
+    /**
+     * Creates an INI file configurable, using the task's configuration.
+     *
+     * @param file the file to load, or {@code null} to create an empty configurable
+     * @return a new configurable
+     * @throws IOException if the file cannot be read
+     */
+    private Ini createIni(File file) throws IOException
+    {
+        Ini ini = new Ini();
+        ini.setConfig(getConfig());
+        if (file != null)
         {
-            if (!oldFile.delete())
-            {
-                logger.warning("File " + oldFile + " could not be cleant up");
-            }
+            ini.setFile(file);
+            ini.load();
         }
+        return ini;
     }
 }
@@ -26,6 +26,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.logging.Logger;
 
+import com.izforge.izpack.util.config.base.Config;
 import com.izforge.izpack.util.config.base.Options;
 
 public class SingleOptionFileTask extends ConfigFileTask
@@ -47,7 +48,7 @@ public class SingleOptionFileTask extends ConfigFileTask
                 }
                 logger.fine("Loading options file: " + oldFile.getAbsolutePath());
                 // Configuration file type must be the same as the target type
-                fromConfigurable = new Options(this.oldFile);
+                fromConfigurable = createOptions(this.oldFile);
             }
             catch (IOException ioe)
             {
@@ -64,7 +65,7 @@ public class SingleOptionFileTask extends ConfigFileTask
             try
             {
                 logger.fine("Loading original configuration file: " + newFile.getAbsolutePath());
-                configurable = new Options(newFile);
+                configurable = createOptions(newFile);
             }
             catch (IOException ioe)
             {
@@ -76,7 +77,7 @@ public class SingleOptionFileTask extends ConfigFileTask
             try
             {
                 logger.fine("Loading target configuration file: " + toFile.getAbsolutePath());
-                configurable = new Options(toFile);
+                configurable = createOptions(toFile);
             }
             catch (IOException ioe)
             {
@@ -85,7 +86,7 @@ public class SingleOptionFileTask extends ConfigFileTask
         }
         else
         {
-            configurable = new Options();
+            configurable = createOptions(null);
         }
     }
 
@@ -124,12 +125,27 @@ public class SingleOptionFileTask extends ConfigFileTask
             throw new Exception(ioe);
         }
 
-        if (cleanup && oldFile.exists())
+        cleanup();
+    }
+
+    /**
+     * Creates an options file configurable, using the task's configuration.
+     *
+     * @param file the file to load, or {@code null} to create an empty configurable
+     * @return a new configurable
+     * @throws IOException if the file cannot be read
+     */
+    private Options createOptions(File file) throws IOException
+    {
+        Options options = new Options();
+        Config config = getConfig().clone();
+        config.setEmptyOption(true);
+        options.setConfig(config);
+        if (file != null)
         {
-            if (!oldFile.delete())
-            {
-                logger.warning("File " + oldFile + " could not be cleant up");
-            }
+            options.setFile(file);
+            options.load();
         }
+        return options;
     }
 }
@@ -44,7 +44,12 @@ public class Reg extends BasicRegistry implements Registry, Persistable, Configu
 
     public Reg()
     {
-        Config cfg = Config.getGlobal().clone();
+        this(Config.getGlobal());
+    }
+
+    public Reg(Config config)
+    {
+        Config cfg = config.clone();
 
         cfg.setEscape(false);
         cfg.setGlobalSection(false);
@@ -64,6 +69,12 @@ public class Reg extends BasicRegistry implements Registry, Persistable, Configu
         read(registryKey);
     }
 
+    public Reg(String registryKey, Config config) throws IOException
+    {
+        this(config);
+        read(registryKey);
+    }
+
     public Reg(File input) throws IOException, InvalidFileFormatException
     {
         this();
@@ -33,6 +33,7 @@ abstract class AbstractProfileBuilder implements IniHandler
     private boolean _header;
     private String _lastComment;
     private int _emptyLines = 0;
+    private boolean _afterSection;
 
     @Override public void endIni()
     {
@@ -127,6 +128,12 @@ abstract class AbstractProfileBuilder implements IniHandler
 
         if (_emptyLines > 0)
         {
+            // the formatter ends each section with an empty line, so don't preserve it as well, else each load and
+            // store would add another
+            if (_afterSection)
+            {
+                _emptyLines--;
+            }
             if (!_header)
             {
                 putEmptyLines(getProfile(), sectionName);
@@ -135,6 +142,7 @@ abstract class AbstractProfileBuilder implements IniHandler
         }
 
         _header = false;
+        _afterSection = true;
     }
 
     abstract Config getConfig();
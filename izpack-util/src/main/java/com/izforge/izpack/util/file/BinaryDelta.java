@@ -0,0 +1,694 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+
+/**
+ * Creates and applies binary deltas between two versions of a file.
+ * <p/>
+ * The base file is divided into fixed size blocks, each indexed by a rolling checksum and a strong hash. The new
+ * file is then scanned a byte at a time; wherever a window matches a base block, a <em>copy</em> instruction is
+ * emitted, and the bytes between matches are emitted as <em>insert</em> instructions. Neither file needs to be held
+ * in memory, so deltas can be created for files of several gigabytes.
+ * <p/>
+ * A delta consists of a header holding the length of the new file, followed by instructions:
+ * <ul>
+ * <li><tt>COPY offset length</tt> - copy <tt>length</tt> bytes from the base file, starting at <tt>offset</tt></li>
+ * <li><tt>INSERT length bytes</tt> - insert the following <tt>length</tt> bytes</li>
+ * <li><tt>END</tt></li>
+ * </ul>
+ * Integers are written in an unsigned variable length encoding.
+ */
+public class BinaryDelta
+{
+
+    /**
+     * The delta signature.
+     */
+    private static final int MAGIC = 0x495A444C; // "IZDL"
+
+    /**
+     * The delta format version.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * End instruction.
+     */
+    private static final int END = 0;
+
+    /**
+     * Copy instruction.
+     */
+    private static final int COPY = 1;
+
+    /**
+     * Insert instruction.
+     */
+    private static final int INSERT = 2;
+
+    /**
+     * The minimum block size.
+     */
+    private static final int MIN_BLOCK_SIZE = 2048;
+
+    /**
+     * The maximum no. of blocks indexed. Larger files use larger blocks.
+     */
+    private static final int MAX_BLOCKS = 1 << 17;
+
+    /**
+     * The maximum length of an insert instruction.
+     */
+    private static final int MAX_INSERT = 65536;
+
+
+    /**
+     * Creates a delta that transforms <tt>base</tt> into <tt>target</tt>.
+     *
+     * @param base   the base file
+     * @param target the new file
+     * @param out    the stream to write the delta to. This is flushed but not closed
+     * @throws IOException for any I/O error
+     */
+    public static void encode(File base, File target, OutputStream out) throws IOException
+    {
+        Index index = new Index(base);
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeLong(target.length());
+
+        InputStream in = new BufferedInputStream(new FileInputStream(target));
+        try
+        {
+            new Encoder(index, in, data).encode();
+        }
+        finally
+        {
+            FileUtils.close(in);
+        }
+        data.flush();
+    }
+
+    /**
+     * Applies a delta to a base file.
+     *
+     * @param base  the base file
+     * @param delta the delta stream. This is read up to the end of the delta, but not closed
+     * @param out   the stream to write the new file to. This is not closed
+     * @throws IOException if the delta is invalid or an I/O error occurs
+     */
+    public static void apply(File base, InputStream delta, OutputStream out) throws IOException
+    {
+        DataInputStream in = new DataInputStream(delta);
+        if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION)
+        {
+            throw new IOException("Invalid delta");
+        }
+        long length = in.readLong();
+        long written = 0;
+        byte[] buffer = new byte[65536];
+        RandomAccessFile file = new RandomAccessFile(base, "r");
+        try
+        {
+            int op;
+            while ((op = in.readUnsignedByte()) != END)
+            {
+                if (op == COPY)
+                {
+                    long offset = readVarLong(in);
+                    long count = readVarLong(in);
+                    file.seek(offset);
+                    while (count > 0)
+                    {
+                        int read = file.read(buffer, 0, (int) Math.min(buffer.length, count));
+                        if (read == -1)
+                        {
+                            throw new IOException("Delta refers past the end of " + base);
+                        }
+                        out.write(buffer, 0, read);
+                        count -= read;
+                        written += read;
+                    }
+                }
+                else if (op == INSERT)
+                {
+                    int count = (int) readVarLong(in);
+                    in.readFully(buffer, 0, count);
+                    out.write(buffer, 0, count);
+                    written += count;
+                }
+                else
+                {
+                    throw new IOException("Invalid delta instruction: " + op);
+                }
+            }
+        }
+        finally
+        {
+            file.close();
+        }
+        if (written != length)
+        {
+            throw new IOException("Delta produced " + written + " bytes but expected " + length);
+        }
+    }
+
+    /**
+     * Writes an unsigned variable length integer.
+     *
+     * @param out   the stream to write to
+     * @param value the value to write
+     * @throws IOException for any I/O error
+     */
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Reads an unsigned variable length integer.
+     *
+     * @param in the stream to read from
+     * @return the value
+     * @throws IOException for any I/O error
+     */
+    private static long readVarLong(DataInputStream in) throws IOException
+    {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do
+        {
+            b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Returns the strong hash of a block.
+     *
+     * @param digest the digest to use
+     * @param buffer the buffer
+     * @param offset the block offset
+     * @param length the block length
+     * @return the first 8 bytes of the digest
+     */
+    private static long strongHash(MessageDigest digest, byte[] buffer, int offset, int length)
+    {
+        digest.update(buffer, offset, length);
+        byte[] hash = digest.digest();
+        long result = 0;
+        for (int i = 0; i < 8; ++i)
+        {
+            result = (result << 8) | (hash[i] & 0xFF);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a digest for strong block hashes.
+     *
+     * @return a new digest
+     */
+    private static MessageDigest createDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("MD5");
+        }
+        catch (NoSuchAlgorithmException exception)
+        {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * The rolling checksum of a window of bytes.
+     */
+    private static class Checksum
+    {
+
+        /**
+         * The window size.
+         */
+        private final int size;
+
+        /**
+         * The sum of the bytes in the window.
+         */
+        private int a;
+
+        /**
+         * The sum of the bytes in the window, weighted by their distance from its end.
+         */
+        private int b;
+
+        /**
+         * Constructs a <tt>Checksum</tt>.
+         *
+         * @param size the window size
+         */
+        public Checksum(int size)
+        {
+            this.size = size;
+        }
+
+        /**
+         * Computes the checksum of a window.
+         *
+         * @param buffer the buffer
+         * @param offset the window offset
+         */
+        public void reset(byte[] buffer, int offset)
+        {
+            a = 0;
+            b = 0;
+            for (int i = 0; i < size; ++i)
+            {
+                int value = buffer[offset + i] & 0xFF;
+                a += value;
+                b += (size - i) * value;
+            }
+            a &= 0xFFFF;
+            b &= 0xFFFF;
+        }
+
+        /**
+         * Slides the window forward by one byte.
+         *
+         * @param out the byte leaving the window
+         * @param in  the byte entering the window
+         */
+        public void roll(byte out, byte in)
+        {
+            a = (a - (out & 0xFF) + (in & 0xFF)) & 0xFFFF;
+            b = (b - size * (out & 0xFF) + a) & 0xFFFF;
+        }
+
+        /**
+         * Returns the checksum.
+         *
+         * @return the checksum
+         */
+        public int get()
+        {
+            return a | (b << 16);
+        }
+    }
+
+    /**
+     * An index of the blocks of a base file.
+     */
+    private static class Index
+    {
+
+        /**
+         * The block size.
+         */
+        private final int blockSize;
+
+        /**
+         * The rolling checksum of each block.
+         */
+        private final int[] weak;
+
+        /**
+         * The strong hash of each block.
+         */
+        private final long[] strong;
+
+        /**
+         * Hash table of block no. + 1, keyed on the rolling checksum.
+         */
+        private final int[] table;
+
+        /**
+         * The next block no. + 1 with the same hash table slot.
+         */
+        private final int[] next;
+
+        /**
+         * Constructs an <tt>Index</tt>.
+         *
+         * @param base the base file
+         * @throws IOException for any I/O error
+         */
+        public Index(File base) throws IOException
+        {
+            long length = base.length();
+            int size = MIN_BLOCK_SIZE;
+            while (length / size > MAX_BLOCKS)
+            {
+                size <<= 1;
+            }
+            blockSize = size;
+            int blocks = (int) (length / size);
+            weak = new int[blocks];
+            strong = new long[blocks];
+            next = new int[blocks];
+            table = new int[Math.max(16, Integer.highestOneBit(Math.max(blocks, 1)) << 2)];
+
+            Checksum checksum = new Checksum(size);
+            MessageDigest digest = createDigest();
+            byte[] buffer = new byte[size];
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(base)));
+            try
+            {
+                for (int i = 0; i < blocks; ++i)
+                {
+                    in.readFully(buffer);
+                    checksum.reset(buffer, 0);
+                    weak[i] = checksum.get();
+                    strong[i] = strongHash(digest, buffer, 0, size);
+                    int slot = slot(weak[i]);
+                    next[i] = table[slot];
+                    table[slot] = i + 1;
+                }
+            }
+            finally
+            {
+                FileUtils.close(in);
+            }
+        }
+
+        /**
+         * Returns the block size.
+         *
+         * @return the block size
+         */
+        public int getBlockSize()
+        {
+            return blockSize;
+        }
+
+        /**
+         * Determines if any block has the specified rolling checksum.
+         *
+         * @param checksum the rolling checksum
+         * @return {@code true} if there may be a matching block
+         */
+        public boolean contains(int checksum)
+        {
+            for (int i = table[slot(checksum)]; i != 0; i = next[i - 1])
+            {
+                if (weak[i - 1] == checksum)
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Finds a block matching a window.
+         *
+         * @param checksum the rolling checksum of the window
+         * @param hash     the strong hash of the window
+         * @return the matching block no., or <tt>-1</tt> if none matches
+         */
+        public int find(int checksum, long hash)
+        {
+            for (int i = table[slot(checksum)]; i != 0; i = next[i - 1])
+            {
+                if (weak[i - 1] == checksum && strong[i - 1] == hash)
+                {
+                    return i - 1;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the hash table slot for a checksum.
+         *
+         * @param checksum the checksum
+         * @return the slot
+         */
+        private int slot(int checksum)
+        {
+            int hash = checksum * 0x9E3779B9;
+            return (hash ^ (hash >>> 16)) & (table.length - 1);
+        }
+    }
+
+    /**
+     * Scans a new file for blocks of the base file, emitting instructions.
+     */
+    private static class Encoder
+    {
+
+        /**
+         * The base file index.
+         */
+        private final Index index;
+
+        /**
+         * The new file.
+         */
+        private final InputStream in;
+
+        /**
+         * The delta stream.
+         */
+        private final DataOutputStream out;
+
+        /**
+         * The block size.
+         */
+        private final int blockSize;
+
+        /**
+         * The buffered new file content.
+         */
+        private final byte[] buffer;
+
+        /**
+         * The start of bytes in the buffer not yet emitted.
+         */
+        private int start;
+
+        /**
+         * The start of the window.
+         */
+        private int pos;
+
+        /**
+         * The end of the valid bytes in the buffer.
+         */
+        private int end;
+
+        /**
+         * Determines if the end of the new file has been read.
+         */
+        private boolean eof;
+
+        /**
+         * The base offset of the pending copy instruction.
+         */
+        private long copyOffset;
+
+        /**
+         * The length of the pending copy instruction.
+         */
+        private long copyLength;
+
+        /**
+         * Constructs an <tt>Encoder</tt>.
+         *
+         * @param index the base file index
+         * @param in    the new file
+         * @param out   the delta stream
+         */
+        public Encoder(Index index, InputStream in, DataOutputStream out)
+        {
+            this.index = index;
+            this.in = in;
+            this.out = out;
+            this.blockSize = index.getBlockSize();
+            buffer = new byte[MAX_INSERT + 2 * blockSize];
+        }
+
+        /**
+         * Encodes the delta instructions.
+         *
+         * @throws IOException for any I/O error
+         */
+        public void encode() throws IOException
+        {
+            Checksum checksum = new Checksum(blockSize);
+            MessageDigest digest = createDigest();
+            boolean valid = false;
+            while (fill(blockSize))
+            {
+                if (!valid)
+                {
+                    checksum.reset(buffer, pos);
+                    valid = true;
+                }
+                int weak = checksum.get();
+                int block = -1;
+                if (index.contains(weak))
+                {
+                    block = index.find(weak, strongHash(digest, buffer, pos, blockSize));
+                }
+                if (block != -1)
+                {
+                    insert(pos);
+                    copy((long) block * blockSize, blockSize);
+                    pos += blockSize;
+                    start = pos;
+                    valid = false;
+                }
+                else
+                {
+                    if (pos - start >= MAX_INSERT)
+                    {
+                        insert(pos);
+                    }
+                    if (fill(blockSize + 1))
+                    {
+                        checksum.roll(buffer[pos], buffer[pos + blockSize]);
+                    }
+                    else
+                    {
+                        valid = false;
+                    }
+                    ++pos;
+                }
+            }
+            insert(end);
+            flushCopy();
+            out.writeByte(END);
+        }
+
+        /**
+         * Ensures that at least <tt>count</tt> bytes from the window start are buffered, if available.
+         *
+         * @param count the no. of bytes required
+         * @return {@code true} if the bytes are available, {@code false} if the end of the file has been reached
+         * @throws IOException for any I/O error
+         */
+        private boolean fill(int count) throws IOException
+        {
+            if (end - pos >= count)
+            {
+                return true;
+            }
+            if (start > 0)
+            {
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                pos -= start;
+                end -= start;
+                start = 0;
+            }
+            while (!eof && end - pos < count)
+            {
+                int read = in.read(buffer, end, buffer.length - end);
+                if (read == -1)
+                {
+                    eof = true;
+                }
+                else
+                {
+                    end += read;
+                }
+            }
+            return end - pos >= count;
+        }
+
+        /**
+         * Emits an insert instruction for the unmatched bytes up to the specified position.
+         *
+         * @param limit the end of the bytes to insert
+         * @throws IOException for any I/O error
+         */
+        private void insert(int limit) throws IOException
+        {
+            while (start < limit)
+            {
+                flushCopy();
+                int count = Math.min(limit - start, MAX_INSERT);
+                out.writeByte(INSERT);
+                writeVarLong(out, count);
+                out.write(buffer, start, count);
+                start += count;
+            }
+        }
+
+        /**
+         * Adds a copy instruction, merging it with the pending one if they are contiguous.
+         *
+         * @param offset the base file offset
+         * @param length the no. of bytes to copy
+         * @throws IOException for any I/O error
+         */
+        private void copy(long offset, long length) throws IOException
+        {
+            if (copyLength != 0 && copyOffset + copyLength == offset)
+            {
+                copyLength += length;
+            }
+            else
+            {
+                flushCopy();
+                copyOffset = offset;
+                copyLength = length;
+            }
+        }
+
+        /**
+         * Emits the pending copy instruction, if any.
+         *
+         * @throws IOException for any I/O error
+         */
+        private void flushCopy() throws IOException
+        {
+            if (copyLength != 0)
+            {
+                out.writeByte(COPY);
+                writeVarLong(out, copyOffset);
+                writeVarLong(out, copyLength);
+                copyLength = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+/**
+ * An append-only list of paths, held in prefix-compressed form.
+ * <p/>
+ * Each path is stored as the number of characters it shares with the previous path, followed by the UTF-8 encoded
+ * remainder. As installed files are logged in directory order, most paths share the installation path and their
+ * parent directory with their predecessor, so the list needs only a fraction of the heap of an equivalent
+ * <tt>List&lt;String&gt;</tt>.
+ * <p/>
+ * Every {@link #RESTART_INTERVAL}th path is stored in full, so that {@link #get(int)} only needs to decode a small
+ * run of paths. Iteration decodes sequentially.
+ * <p/>
+ * This class is not thread safe.
+ */
+public class CompactPathList extends AbstractList<String>
+{
+
+    /**
+     * The no. of paths between each fully stored path.
+     */
+    static final int RESTART_INTERVAL = 16;
+
+    /**
+     * The path encoding.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The encoded paths.
+     */
+    private byte[] data = new byte[1024];
+
+    /**
+     * The no. of bytes used in {@link #data}.
+     */
+    private int length;
+
+    /**
+     * The offsets of the fully stored paths in {@link #data}.
+     */
+    private int[] restarts = new int[16];
+
+    /**
+     * The no. of paths.
+     */
+    private int size;
+
+    /**
+     * The last path added.
+     */
+    private String last;
+
+
+    /**
+     * Appends a path.
+     *
+     * @param path the path. May not be {@code null}
+     * @return {@code true}
+     */
+    @Override
+    public boolean add(String path)
+    {
+        if (path == null)
+        {
+            throw new IllegalArgumentException("Argument 'path' is null");
+        }
+        int shared = 0;
+        if (size % RESTART_INTERVAL == 0)
+        {
+            int index = size / RESTART_INTERVAL;
+            if (index == restarts.length)
+            {
+                restarts = Arrays.copyOf(restarts, index * 2);
+            }
+            restarts[index] = length;
+        }
+        else
+        {
+            shared = sharedPrefix(last, path);
+        }
+        byte[] suffix = path.substring(shared).getBytes(UTF8);
+        ensureCapacity(length + 10 + suffix.length);
+        length = writeVarInt(data, length, shared);
+        length = writeVarInt(data, length, suffix.length);
+        System.arraycopy(suffix, 0, data, length, suffix.length);
+        length += suffix.length;
+        last = path;
+        ++size;
+        ++modCount;
+        return true;
+    }
+
+    /**
+     * Returns the path at the specified position.
+     *
+     * @param index the index of the path
+     * @return the path
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public String get(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Cursor cursor = new Cursor(restarts[index / RESTART_INTERVAL]);
+        String result = null;
+        for (int i = index - index % RESTART_INTERVAL; i <= index; ++i)
+        {
+            result = cursor.next();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the no. of paths.
+     *
+     * @return the no. of paths
+     */
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Removes all of the paths.
+     */
+    @Override
+    public void clear()
+    {
+        length = 0;
+        size = 0;
+        last = null;
+        ++modCount;
+    }
+
+    /**
+     * Returns an iterator over the paths, decoding them in sequence.
+     *
+     * @return a new iterator
+     */
+    @Override
+    public Iterator<String> iterator()
+    {
+        return new Iterator<String>()
+        {
+            private final Cursor cursor = new Cursor(0);
+
+            private final int expectedModCount = modCount;
+
+            private int index;
+
+            @Override
+            public boolean hasNext()
+            {
+                return index < size;
+            }
+
+            @Override
+            public String next()
+            {
+                if (modCount != expectedModCount)
+                {
+                    throw new ConcurrentModificationException();
+                }
+                if (index >= size)
+                {
+                    throw new NoSuchElementException();
+                }
+                ++index;
+                return cursor.next();
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Returns the no. of leading characters two paths share.
+     * <p/>
+     * This never splits a surrogate pair.
+     *
+     * @param previous the previous path
+     * @param path     the path
+     * @return the no. of shared characters
+     */
+    static int sharedPrefix(String previous, String path)
+    {
+        int max = Math.min(previous.length(), path.length());
+        int shared = 0;
+        while (shared < max && previous.charAt(shared) == path.charAt(shared))
+        {
+            ++shared;
+        }
+        if (shared > 0 && Character.isHighSurrogate(path.charAt(shared - 1)))
+        {
+            --shared;
+        }
+        return shared;
+    }
+
+    /**
+     * Grows the data buffer, if required.
+     *
+     * @param capacity the minimum capacity
+     */
+    private void ensureCapacity(int capacity)
+    {
+        if (capacity > data.length)
+        {
+            data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+        }
+    }
+
+    /**
+     * Writes an unsigned variable length integer.
+     *
+     * @param buffer the buffer to write to
+     * @param offset the offset to write at
+     * @param value  the value to write
+     * @return the offset following the value
+     */
+    private static int writeVarInt(byte[] buffer, int offset, int value)
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+
+    /**
+     * Decodes paths sequentially, starting at a fully stored path.
+     */
+    private class Cursor
+    {
+
+        /**
+         * The current offset into the data.
+         */
+        private int offset;
+
+        /**
+         * The previously decoded path.
+         */
+        private String previous = "";
+
+        /**
+         * Constructs a <tt>Cursor</tt>.
+         *
+         * @param offset the offset of a fully stored path
+         */
+        public Cursor(int offset)
+        {
+            this.offset = offset;
+        }
+
+        /**
+         * Decodes the next path.
+         *
+         * @return the next path
+         */
+        public String next()
+        {
+            int shared = readVarInt();
+            int count = readVarInt();
+            String suffix = new String(data, offset, count, UTF8);
+            offset += count;
+            previous = (shared == 0) ? suffix : previous.substring(0, shared) + suffix;
+            return previous;
+        }
+
+        /**
+         * Reads an unsigned variable length integer.
+         *
+         * @return the value
+         */
+        private int readVarInt()
+        {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do
+            {
+                b = data[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            }
+            while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+
+/**
+ * Computes the digests used to identify file content in packs and installation logs.
+ */
+public class ContentDigest
+{
+
+    /**
+     * The digest algorithm.
+     */
+    public static final String ALGORITHM = "SHA-1";
+
+
+    /**
+     * Creates a new message digest.
+     *
+     * @return a new message digest
+     */
+    public static MessageDigest create()
+    {
+        try
+        {
+            return MessageDigest.getInstance(ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException exception)
+        {
+            // all Java platforms must support SHA-1
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Returns the digest of a file's content.
+     *
+     * @param file the file
+     * @return the digest of the file
+     * @throws IOException for any I/O error
+     */
+    public static byte[] get(File file) throws IOException
+    {
+        InputStream in = new FileInputStream(file);
+        try
+        {
+            return get(in);
+        }
+        finally
+        {
+            FileUtils.close(in);
+        }
+    }
+
+    /**
+     * Returns the digest of a stream's content.
+     * <p/>
+     * The stream is read to the end, but not closed.
+     *
+     * @param in the stream
+     * @return the digest of the stream content
+     * @throws IOException for any I/O error
+     */
+    public static byte[] get(InputStream in) throws IOException
+    {
+        MessageDigest digest = create();
+        byte[] buffer = new byte[65536];
+        int read;
+        while ((read = in.read(buffer)) != -1)
+        {
+            digest.update(buffer, 0, read);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Converts a digest to a hexadecimal string, for logging.
+     *
+     * @param digest the digest. May be {@code null}
+     * @return the hexadecimal string, or {@code null} if <tt>digest</tt> is {@code null}
+     */
+    public static String toString(byte[] digest)
+    {
+        if (digest == null)
+        {
+            return null;
+        }
+        StringBuilder result = new StringBuilder(digest.length * 2);
+        for (byte b : digest)
+        {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16));
+            result.append(Character.forDigit(b & 0xF, 16));
+        }
+        return result.toString();
+    }
+
+}
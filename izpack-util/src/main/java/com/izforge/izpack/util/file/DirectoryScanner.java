@@ -21,6 +21,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -33,6 +34,7 @@ import com.izforge.izpack.api.data.InstallData;
 import com.izforge.izpack.util.file.types.Resource;
 import com.izforge.izpack.util.file.types.ResourceFactory;
 import com.izforge.izpack.util.file.types.selectors.FileSelector;
+import com.izforge.izpack.util.file.types.selectors.PatternMatcher;
 import com.izforge.izpack.util.file.types.selectors.SelectorUtils;
 
 /**
@@ -289,6 +291,19 @@ public class DirectoryScanner
      */
     private Set<String> scannedDirs = new HashSet<String>();
 
+    /**
+     * Names of all files placed in the included, excluded or deselected
+     * lists, so that a file reached via more than one include root is
+     * only accounted for once.
+     */
+    private Set<String> accountedFiles = new HashSet<String>();
+
+    /**
+     * Names of all directories placed in the included, excluded or
+     * deselected lists.
+     */
+    private Set<String> accountedDirs = new HashSet<String>();
+
     /**
      * Set of all include patterns that are full file names and don't
      * contain any wildcards.
@@ -316,28 +331,57 @@ public class DirectoryScanner
     private Set<String> excludeNonPatterns = new HashSet<String>();
 
     /**
-     * Array of all include patterns that contain wildcards.
+     * Matcher for all include patterns that contain wildcards.
      * <p/>
      * <p>Gets lazily initialized on the first invocation of
      * isIncluded or isExcluded and cleared at the end of the scan
      * method (cleared in clearCaches, actually).</p>
      */
-    private String[] includePatterns;
+    private PatternMatcher includePatterns;
 
     /**
-     * Array of all exclude patterns that contain wildcards.
+     * Matcher for all exclude patterns that contain wildcards.
      * <p/>
      * <p>Gets lazily initialized on the first invocation of
      * isIncluded or isExcluded and cleared at the end of the scan
      * method (cleared in clearCaches, actually).</p>
      */
-    private String[] excludePatterns;
+    private PatternMatcher excludePatterns;
+
+    /**
+     * Matcher for all include patterns, used to determine if a directory
+     * could hold included files.
+     * <p/>
+     * <p>Initialized and cleared along with the include patterns.</p>
+     */
+    private PatternMatcher includeStartPatterns;
+
+    /**
+     * Matcher for the exclude patterns ending in "**", with the "**"
+     * removed, used to determine if all of a directory's contents are
+     * excluded.
+     * <p/>
+     * <p>Initialized and cleared along with the exclude patterns.</p>
+     */
+    private PatternMatcher contentsExcludePatterns;
+
+    /**
+     * Set of all exclude patterns.
+     * <p/>
+     * <p>Initialized and cleared along with the exclude patterns.</p>
+     */
+    private Set<String> excludeSet = new HashSet<String>();
 
     /**
      * Have the non-pattern sets and pattern arrays for in- and
      * excludes been initialized?
      */
-    private boolean areNonPatternSetsReady = false;
+    private volatile boolean areNonPatternSetsReady = false;
+
+    /**
+     * The number of threads used to walk directories.
+     */
+    private int threads = 1;
 
     /**
      * Scanning flag.
@@ -623,6 +667,33 @@ public class DirectoryScanner
         this.followSymlinks = followSymlinks;
     }
 
+    /**
+     * Get the number of threads used to walk directories.
+     *
+     * @return the number of threads.
+     */
+    public synchronized int getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * Set the number of threads used to walk directories.
+     * <p/>
+     * This applies to {@link #scan(FileTreeWalker.Visitor)}, and to
+     * {@link #scan()} when an include pattern requires the whole base
+     * directory to be scanned. In the latter case, the result lists are
+     * sorted by name, so that they don't depend on the order in which
+     * directories were walked.
+     *
+     * @param threads the number of threads. Values less than 2 scan on
+     *                the calling thread, in directory listing order.
+     */
+    public synchronized void setThreads(int threads)
+    {
+        this.threads = threads;
+    }
+
     /**
      * Set the list of include patterns to use. All '/' and '\' characters
      * are replaced by <code>File.separatorChar</code>, so the separator used
@@ -852,6 +923,118 @@ public class DirectoryScanner
         }
     }
 
+    /**
+     * Scan the base directory, passing each file and directory which
+     * matches at least one include pattern, doesn't match any exclude
+     * pattern and passes the selectors to a visitor.
+     * <p/>
+     * Unlike {@link #scan()}, no results are accumulated, so this is
+     * suitable for arbitrarily large trees. The base directory itself is
+     * not visited. A directory is visited before its contents, and if the
+     * visitor returns <code>false</code> its contents are skipped.
+     * <p/>
+     * If more than one thread has been configured using
+     * {@link #setThreads}, directories are walked concurrently, and the
+     * visitor may be invoked concurrently and in no particular order.
+     *
+     * @param visitor the visitor.
+     * @throws Exception if the base directory was set incorrectly, a
+     *                   directory cannot be listed, or the visitor throws
+     *                   an exception.
+     */
+    public void scan(final FileTreeWalker.Visitor visitor) throws Exception
+    {
+        final boolean nullIncludes;
+        final boolean nullExcludes;
+        final boolean follow;
+        int count;
+        synchronized (this)
+        {
+            if (basedir == null)
+            {
+                throw new Exception("No basedir set");
+            }
+            if (!basedir.exists())
+            {
+                throw new Exception("basedir " + basedir + " does not exist");
+            }
+            if (!basedir.isDirectory())
+            {
+                throw new Exception("basedir " + basedir
+                        + " is not a directory");
+            }
+            nullIncludes = (includes == null);
+            includes = nullIncludes ? new String[]{"**"} : includes;
+            nullExcludes = (excludes == null);
+            excludes = nullExcludes ? new String[0] : excludes;
+            ensureNonPatternSetsReady();
+            follow = followSymlinks;
+            count = threads;
+        }
+        try
+        {
+            new FileTreeWalker(count).walk(basedir, new FileTreeWalker.Visitor()
+            {
+                public boolean visitDirectory(String name, File dir)
+                        throws Exception
+                {
+                    if (!follow && isSymlink(dir))
+                    {
+                        return false;
+                    }
+                    boolean result = true;
+                    boolean included = isIncluded(name);
+                    if (included && !isExcluded(name)
+                            && isSelected(name, dir))
+                    {
+                        result = visitor.visitDirectory(name, dir);
+                    }
+                    // as per scandir() in fast mode
+                    return result && couldHoldIncluded(name)
+                            && (!included || !contentsExcluded(name));
+                }
+
+                public void visitFile(String name, File file)
+                        throws Exception
+                {
+                    if ((follow || !isSymlink(file)) && isIncluded(name)
+                            && !isExcluded(name) && isSelected(name, file))
+                    {
+                        visitor.visitFile(name, file);
+                    }
+                }
+            });
+        }
+        finally
+        {
+            synchronized (this)
+            {
+                clearCaches();
+                includes = nullIncludes ? null : includes;
+                excludes = nullExcludes ? null : excludes;
+            }
+        }
+    }
+
+    /**
+     * Determines if a file is a symbolic link.
+     *
+     * @param file the file to check.
+     * @return <code>true</code> if the file is a symbolic link.
+     */
+    private boolean isSymlink(File file)
+    {
+        try
+        {
+            return FILE_UTILS.isSymbolicLink(file.getParentFile(),
+                    file.getName());
+        }
+        catch (IOException ioe)
+        {
+            return false;
+        }
+    }
+
     /**
      * This routine is actually checking all the include patterns in
      * order to avoid scanning everything under base dir.
@@ -868,7 +1051,14 @@ public class DirectoryScanner
         if (newroots.containsKey(""))
         {
             // we are going to scan everything anyway
-            scandir(basedir, "", true);
+            if (threads > 1)
+            {
+                walk();
+            }
+            else
+            {
+                scandir(basedir, "", true);
+            }
         }
         else
         {
@@ -988,6 +1178,8 @@ public class DirectoryScanner
         dirsDeselected = new Vector<String>();
         everythingIncluded = (basedir != null);
         scannedDirs.clear();
+        accountedFiles.clear();
+        accountedDirs.clear();
     }
 
     /**
@@ -1071,6 +1263,92 @@ public class DirectoryScanner
         }
     }
 
+    /**
+     * Fast scan of the whole base directory, listing directories
+     * concurrently. Equivalent to <code>scandir(basedir, "", true)</code>,
+     * except that the result lists are sorted by name.
+     */
+    private void walk() throws Exception
+    {
+        final boolean follow = followSymlinks;
+        new FileTreeWalker(threads).walk(basedir, new FileTreeWalker.Visitor()
+        {
+            public boolean visitDirectory(String name, File dir)
+                    throws Exception
+            {
+                if (!follow && isSymlink(dir))
+                {
+                    dirsExcluded.addElement(name);
+                    return false;
+                }
+                if (!isIncluded(name))
+                {
+                    everythingIncluded = false;
+                    dirsNotIncluded.addElement(name);
+                    return couldHoldIncluded(name);
+                }
+                if (isExcluded(name))
+                {
+                    everythingIncluded = false;
+                    dirsExcluded.addElement(name);
+                }
+                else if (isSelected(name, dir))
+                {
+                    dirsIncluded.addElement(name);
+                }
+                else
+                {
+                    everythingIncluded = false;
+                    dirsDeselected.addElement(name);
+                }
+                return couldHoldIncluded(name) && !contentsExcluded(name);
+            }
+
+            public void visitFile(String name, File file) throws Exception
+            {
+                if (!follow && isSymlink(file))
+                {
+                    filesExcluded.addElement(name);
+                }
+                else if (!isIncluded(name))
+                {
+                    everythingIncluded = false;
+                    filesNotIncluded.addElement(name);
+                }
+                else if (isExcluded(name))
+                {
+                    everythingIncluded = false;
+                    filesExcluded.addElement(name);
+                }
+                else if (isSelected(name, file))
+                {
+                    filesIncluded.addElement(name);
+                }
+                else
+                {
+                    everythingIncluded = false;
+                    filesDeselected.addElement(name);
+                }
+            }
+        });
+        Collections.sort(filesIncluded);
+        Collections.sort(filesNotIncluded);
+        Collections.sort(filesExcluded);
+        Collections.sort(filesDeselected);
+        Collections.sort(dirsIncluded);
+        Collections.sort(dirsNotIncluded);
+        Collections.sort(dirsExcluded);
+        Collections.sort(dirsDeselected);
+        // the whole tree has been scanned
+        scannedDirs.add("");
+        accountedFiles.addAll(filesIncluded);
+        accountedFiles.addAll(filesExcluded);
+        accountedFiles.addAll(filesDeselected);
+        accountedDirs.addAll(dirsIncluded);
+        accountedDirs.addAll(dirsExcluded);
+        accountedDirs.addAll(dirsDeselected);
+    }
+
     /**
      * Scan the given directory for files and directories. Found files and
      * directories are placed in their respective collections, based on the
@@ -1134,8 +1412,16 @@ public class DirectoryScanner
                     {
                         String name = vpath + newfile;
                         File file = new File(dir, newfile);
-                        (file.isDirectory()
-                                ? dirsExcluded : filesExcluded).addElement(name);
+                        if (file.isDirectory())
+                        {
+                            accountedDirs.add(name);
+                            dirsExcluded.addElement(name);
+                        }
+                        else
+                        {
+                            accountedFiles.add(name);
+                            filesExcluded.addElement(name);
+                        }
                     }
                     else
                     {
@@ -1201,9 +1487,7 @@ public class DirectoryScanner
      */
     private void accountForIncludedFile(String name, File file) throws Exception
     {
-        if (filesIncluded.contains(name)
-                || filesExcluded.contains(name)
-                || filesDeselected.contains(name))
+        if (!accountedFiles.add(name))
         {
             return;
         }
@@ -1235,9 +1519,7 @@ public class DirectoryScanner
     private void accountForIncludedDir(String name, File file, boolean fast)
             throws Exception
     {
-        if (dirsIncluded.contains(name)
-                || dirsExcluded.contains(name)
-                || dirsDeselected.contains(name))
+        if (!accountedDirs.add(name))
         {
             return;
         }
@@ -1274,20 +1556,13 @@ public class DirectoryScanner
     {
         ensureNonPatternSetsReady();
 
-        if (isCaseSensitive()
+        if (isCaseSensitive
                 ? includeNonPatterns.contains(name)
                 : includeNonPatterns.contains(name.toUpperCase()))
         {
             return true;
         }
-        for (String includePattern : includePatterns)
-        {
-            if (matchPath(includePattern, name, isCaseSensitive()))
-            {
-                return true;
-            }
-        }
-        return false;
+        return includePatterns.matches(name);
     }
 
     /**
@@ -1300,59 +1575,31 @@ public class DirectoryScanner
      */
     protected boolean couldHoldIncluded(String name)
     {
-        for (String include : includes)
-        {
-            if (matchPatternStart(include, name, isCaseSensitive())
-                    && isMorePowerfulThanExcludes(name, include)
-                    && isDeeper(include, name))
-            {
-                return true;
-            }
-        }
-        return false;
-    }
+        ensureNonPatternSetsReady();
 
-    /**
-     * Verify that a pattern specifies files deeper
-     * than the level of the specified file.
-     *
-     * @param pattern the pattern to check.
-     * @param name    the name to check.
-     * @return whether the pattern is deeper than the name.
-     */
-    private boolean isDeeper(String pattern, String name)
-    {
-        Vector<?> p = SelectorUtils.tokenizePath(pattern);
-        Vector<?> n = SelectorUtils.tokenizePath(name);
-        return p.contains("**") || p.size() > n.size();
+        // equivalent to testing each include pattern with
+        // matchPatternStart(), and requiring that the pattern is deeper than
+        // the name
+        return isMorePowerfulThanExcludes(name)
+                && includeStartPatterns.couldMatchBelow(name);
     }
 
     /**
-     * Find out whether one particular include pattern is more powerful
-     * than all the excludes.
-     * Note:  the power comparison is based on the length of the include pattern
-     * and of the exclude patterns without the wildcards.
-     * Ideally the comparison should be done based on the depth
-     * of the match; that is to say how many file separators have been matched
-     * before the first ** or the end of the pattern.
+     * Find out whether the include patterns are more powerful than all the
+     * excludes, i.e. that no exclude pattern excludes everything below the
+     * name.
      * <p/>
      * IMPORTANT : this function should return false "with care".
      *
-     * @param name           the relative path to test.
-     * @param includepattern one include pattern.
-     * @return true if there is no exclude pattern more powerful than this include pattern.
+     * @param name the relative path to test.
+     * @return true if there is no exclude pattern more powerful than the
+     *         include patterns.
      */
-    private boolean isMorePowerfulThanExcludes(String name, String includepattern)
+    private boolean isMorePowerfulThanExcludes(String name)
     {
-        String soughtexclude = name + File.separator + "**";
-        for (String exclude : excludes)
-        {
-            if (exclude.equals(soughtexclude))
-            {
-                return false;
-            }
-        }
-        return true;
+        ensureNonPatternSetsReady();
+
+        return !excludeSet.contains(name + File.separator + "**");
     }
 
     /**
@@ -1363,16 +1610,10 @@ public class DirectoryScanner
      */
     private boolean contentsExcluded(String name)
     {
+        ensureNonPatternSetsReady();
+
         name = (name.endsWith(File.separator)) ? name : name + File.separator;
-        for (String e : excludes)
-        {
-            if (e.endsWith("**") && SelectorUtils.matchPath(
-                    e.substring(0, e.length() - 2), name, isCaseSensitive()))
-            {
-                return true;
-            }
-        }
-        return false;
+        return contentsExcludePatterns.matches(name);
     }
 
     /**
@@ -1387,20 +1628,13 @@ public class DirectoryScanner
     {
         ensureNonPatternSetsReady();
 
-        if (isCaseSensitive()
+        if (isCaseSensitive
                 ? excludeNonPatterns.contains(name)
                 : excludeNonPatterns.contains(name.toUpperCase()))
         {
             return true;
         }
-        for (String excludePattern : excludePatterns)
-        {
-            if (matchPath(excludePattern, name, isCaseSensitive()))
-            {
-                return true;
-            }
-        }
-        return false;
+        return excludePatterns.matches(name);
     }
 
     /**
@@ -1785,6 +2019,9 @@ public class DirectoryScanner
         excludeNonPatterns.clear();
         includePatterns = null;
         excludePatterns = null;
+        includeStartPatterns = null;
+        contentsExcludePatterns = null;
+        excludeSet.clear();
         areNonPatternSetsReady = false;
     }
 
@@ -1792,13 +2029,36 @@ public class DirectoryScanner
      * Ensure that the in|exclude &quot;patterns&quot;
      * have been properly divided up.
      */
-    private synchronized void ensureNonPatternSetsReady()
+    private void ensureNonPatternSetsReady()
     {
         if (!areNonPatternSetsReady)
         {
-            includePatterns = fillNonPatternSet(includeNonPatterns, includes);
-            excludePatterns = fillNonPatternSet(excludeNonPatterns, excludes);
-            areNonPatternSetsReady = true;
+            synchronized (this)
+            {
+                if (!areNonPatternSetsReady)
+                {
+                    includePatterns = new PatternMatcher(fillNonPatternSet(
+                            includeNonPatterns, includes), isCaseSensitive);
+                    excludePatterns = new PatternMatcher(fillNonPatternSet(
+                            excludeNonPatterns, excludes), isCaseSensitive);
+                    includeStartPatterns = new PatternMatcher(includes,
+                            isCaseSensitive);
+                    ArrayList<String> contents = new ArrayList<String>();
+                    for (String exclude : excludes)
+                    {
+                        if (exclude.endsWith("**"))
+                        {
+                            contents.add(exclude.substring(0,
+                                    exclude.length() - 2));
+                        }
+                    }
+                    contentsExcludePatterns = new PatternMatcher(
+                            contents.toArray(new String[contents.size()]),
+                            isCaseSensitive);
+                    excludeSet.addAll(Arrays.asList(excludes));
+                    areNonPatternSetsReady = true;
+                }
+            }
         }
     }
 
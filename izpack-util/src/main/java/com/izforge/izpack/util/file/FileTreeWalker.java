@@ -0,0 +1,304 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Walks a directory tree, optionally listing subdirectories concurrently.
+ * <p/>
+ * Paths are passed to the {@link Visitor} relative to the root, using the platform file separator. With a single
+ * thread, the walk is depth first, in directory listing order, on the calling thread. With more than one thread,
+ * each directory is listed by a pool thread, so the visitor may be invoked concurrently and in no particular order.
+ */
+public class FileTreeWalker
+{
+
+    /**
+     * Receives the files and directories of a walk.
+     */
+    public interface Visitor
+    {
+
+        /**
+         * Invoked for each directory below the root.
+         *
+         * @param name the directory path, relative to the root
+         * @param dir  the directory
+         * @return {@code true} to walk the directory's contents, {@code false} to skip them
+         * @throws Exception to abort the walk
+         */
+        boolean visitDirectory(String name, File dir) throws Exception;
+
+        /**
+         * Invoked for each file.
+         *
+         * @param name the file path, relative to the root
+         * @param file the file
+         * @throws Exception to abort the walk
+         */
+        void visitFile(String name, File file) throws Exception;
+    }
+
+    /**
+     * The no. of threads to walk with.
+     */
+    private final int threads;
+
+
+    /**
+     * Constructs a <tt>FileTreeWalker</tt>.
+     *
+     * @param threads the no. of threads to walk with. Values less than <tt>2</tt> walk on the calling thread
+     */
+    public FileTreeWalker(int threads)
+    {
+        this.threads = threads;
+    }
+
+    /**
+     * Returns a default no. of threads for walks.
+     * <p/>
+     * Walking is dominated by file system latency rather than CPU, so this allows some threads beyond the no. of
+     * processors, up to a limit.
+     *
+     * @return the default no. of threads
+     */
+    public static int getDefaultThreads()
+    {
+        return Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors() * 2));
+    }
+
+    /**
+     * Walks a directory tree.
+     *
+     * @param root    the root directory. This is not passed to the visitor
+     * @param visitor the visitor
+     * @throws Exception if a directory cannot be listed, the visitor throws an exception, or the walk is interrupted
+     * @throws Error     if the visitor or a pool thread fails with an error
+     */
+    public void walk(File root, Visitor visitor) throws Exception
+    {
+        if (threads < 2)
+        {
+            walk(root, "", visitor);
+        }
+        else
+        {
+            new ParallelWalk(visitor).walk(root);
+        }
+    }
+
+    /**
+     * Walks a directory tree on the calling thread.
+     *
+     * @param dir     the directory to walk
+     * @param vpath   the path of the directory relative to the root, including a trailing separator if not empty
+     * @param visitor the visitor
+     * @throws Exception if the directory cannot be listed or the visitor throws an exception
+     */
+    private void walk(File dir, String vpath, Visitor visitor) throws Exception
+    {
+        for (File file : list(dir))
+        {
+            String name = vpath + file.getName();
+            if (file.isDirectory())
+            {
+                if (visitor.visitDirectory(name, file))
+                {
+                    walk(file, name + File.separator, visitor);
+                }
+            }
+            else if (file.isFile())
+            {
+                visitor.visitFile(name, file);
+            }
+        }
+    }
+
+    /**
+     * Lists a directory.
+     *
+     * @param dir the directory
+     * @return the directory contents
+     * @throws IOException if the directory cannot be listed
+     */
+    private static File[] list(File dir) throws IOException
+    {
+        File[] files = dir.listFiles();
+        if (files == null)
+        {
+            throw new IOException("IO error scanning directory " + dir.getAbsolutePath());
+        }
+        return files;
+    }
+
+    /**
+     * A walk that lists each directory on a pool thread.
+     */
+    private class ParallelWalk
+    {
+
+        /**
+         * The visitor.
+         */
+        private final Visitor visitor;
+
+        /**
+         * The thread pool.
+         */
+        private final ExecutorService executor;
+
+        /**
+         * The no. of directories submitted but not yet walked.
+         */
+        private final AtomicInteger pending = new AtomicInteger();
+
+        /**
+         * The failure, or {@code null} if none has occurred.
+         */
+        private volatile Throwable failure;
+
+        /**
+         * Constructs a <tt>ParallelWalk</tt>.
+         *
+         * @param visitor the visitor
+         */
+        public ParallelWalk(Visitor visitor)
+        {
+            this.visitor = visitor;
+            executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                                              new LinkedBlockingQueue<Runnable>());
+        }
+
+        /**
+         * Walks a directory tree, returning when all directories have been walked.
+         *
+         * @param root the root directory
+         * @throws Exception if a directory cannot be listed, the visitor throws an exception, or the walk is
+         *                   interrupted
+         * @throws Error     if a pool thread fails with an error
+         */
+        public void walk(File root) throws Exception
+        {
+            try
+            {
+                submit(root, "");
+                synchronized (pending)
+                {
+                    while (pending.get() != 0)
+                    {
+                        pending.wait();
+                    }
+                }
+            }
+            catch (InterruptedException exception)
+            {
+                failure = exception;
+                Thread.currentThread().interrupt();
+            }
+            finally
+            {
+                executor.shutdownNow();
+            }
+            if (failure instanceof Error)
+            {
+                throw (Error) failure;
+            }
+            else if (failure != null)
+            {
+                throw (Exception) failure;
+            }
+        }
+
+        /**
+         * Submits a directory to be walked.
+         *
+         * @param dir   the directory
+         * @param vpath the path of the directory relative to the root, including a trailing separator if not empty
+         */
+        private void submit(final File dir, final String vpath)
+        {
+            pending.incrementAndGet();
+            executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        if (failure == null)
+                        {
+                            visit(dir, vpath);
+                        }
+                    }
+                    catch (Throwable exception)
+                    {
+                        // includes errors, so that the walk never completes with partial results
+                        failure = exception;
+                    }
+                    finally
+                    {
+                        if (pending.decrementAndGet() == 0)
+                        {
+                            synchronized (pending)
+                            {
+                                pending.notifyAll();
+                            }
+                        }
+                    }
+                }
+            });
+        }
+
+        /**
+         * Visits the contents of a directory, submitting subdirectories to be walked.
+         *
+         * @param dir   the directory
+         * @param vpath the path of the directory relative to the root
+         * @throws Exception if the directory cannot be listed or the visitor throws an exception
+         */
+        private void visit(File dir, String vpath) throws Exception
+        {
+            for (File file : list(dir))
+            {
+                String name = vpath + file.getName();
+                if (file.isDirectory())
+                {
+                    if (visitor.visitDirectory(name, file))
+                    {
+                        submit(file, name + File.separator);
+                    }
+                }
+                else if (file.isFile())
+                {
+                    visitor.visitFile(name, file);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+/**
+ * An entry in the binary installation log.
+ *
+ * @see InstallLogWriter
+ * @see InstallLogReader
+ */
+public class InstallLogEntry
+{
+
+    /**
+     * Denotes an unknown size or modification time.
+     */
+    public static final long UNKNOWN = -1;
+
+    /**
+     * The installed path.
+     */
+    private final String path;
+
+    /**
+     * Determines if the path is a directory.
+     */
+    private final boolean directory;
+
+    /**
+     * The name of the pack that installed the path. May be {@code null}.
+     */
+    private final String pack;
+
+    /**
+     * The size of the installed file, or {@link #UNKNOWN}.
+     */
+    private final long size;
+
+    /**
+     * The modification time of the installed file, or {@link #UNKNOWN}.
+     */
+    private final long lastModified;
+
+    /**
+     * The content hash of the installed file. May be {@code null}.
+     */
+    private final byte[] hash;
+
+
+    /**
+     * Constructs an <tt>InstallLogEntry</tt> for a path with no other information.
+     *
+     * @param path the installed path
+     */
+    public InstallLogEntry(String path)
+    {
+        this(path, false, null, UNKNOWN, UNKNOWN, null);
+    }
+
+    /**
+     * Constructs an <tt>InstallLogEntry</tt>.
+     *
+     * @param path         the installed path
+     * @param directory    determines if the path is a directory
+     * @param pack         the name of the pack that installed the path. May be {@code null}
+     * @param size         the size of the installed file, or {@link #UNKNOWN}
+     * @param lastModified the modification time of the installed file, or {@link #UNKNOWN}
+     * @param hash         the content hash of the installed file. May be {@code null}
+     */
+    public InstallLogEntry(String path, boolean directory, String pack, long size, long lastModified, byte[] hash)
+    {
+        this.path = path;
+        this.directory = directory;
+        this.pack = pack;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.hash = hash;
+    }
+
+    /**
+     * Returns the installed path.
+     *
+     * @return the installed path
+     */
+    public String getPath()
+    {
+        return path;
+    }
+
+    /**
+     * Determines if the path was installed as a directory.
+     *
+     * @return {@code true} if the path is a directory
+     */
+    public boolean isDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * Returns the name of the pack that installed the path.
+     *
+     * @return the pack name. May be {@code null}
+     */
+    public String getPack()
+    {
+        return pack;
+    }
+
+    /**
+     * Returns the size of the installed file.
+     *
+     * @return the size, or {@link #UNKNOWN}
+     */
+    public long getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the modification time of the installed file.
+     *
+     * @return the modification time, or {@link #UNKNOWN}
+     */
+    public long getLastModified()
+    {
+        return lastModified;
+    }
+
+    /**
+     * Returns the content hash of the installed file.
+     *
+     * @return the hash. May be {@code null}
+     */
+    public byte[] getHash()
+    {
+        return hash;
+    }
+
+}
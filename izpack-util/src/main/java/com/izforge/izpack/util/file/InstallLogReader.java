@@ -0,0 +1,204 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import static com.izforge.izpack.util.file.InstallLogWriter.ATTRIBUTES;
+import static com.izforge.izpack.util.file.InstallLogWriter.DIRECTORY;
+import static com.izforge.izpack.util.file.InstallLogWriter.END;
+import static com.izforge.izpack.util.file.InstallLogWriter.HASH;
+import static com.izforge.izpack.util.file.InstallLogWriter.MAGIC;
+import static com.izforge.izpack.util.file.InstallLogWriter.PACK;
+import static com.izforge.izpack.util.file.InstallLogWriter.UTF8;
+import static com.izforge.izpack.util.file.InstallLogWriter.VERSION;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Streams {@link InstallLogEntry entries} from a binary installation log written by {@link InstallLogWriter}.
+ * <p/>
+ * Entries are decoded one at a time, so the log never needs to be held in memory.
+ */
+public class InstallLogReader
+{
+
+    /**
+     * The stream to read from.
+     */
+    private final DataInputStream in;
+
+    /**
+     * The installation path.
+     */
+    private final String installPath;
+
+    /**
+     * The no. of entries in the log.
+     */
+    private final int count;
+
+    /**
+     * The pack name table.
+     */
+    private final List<String> packs = new ArrayList<String>();
+
+    /**
+     * The previous entry's path.
+     */
+    private String previous = "";
+
+    /**
+     * Determines if the end of the entries has been reached.
+     */
+    private boolean end;
+
+
+    /**
+     * Constructs an <tt>InstallLogReader</tt>, reading the log header.
+     *
+     * @param in the stream to read from
+     * @throws IOException if the stream is not a valid installation log, or an I/O error occurs
+     */
+    public InstallLogReader(InputStream in) throws IOException
+    {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        if (this.in.readInt() != MAGIC)
+        {
+            throw new IOException("Invalid installation log");
+        }
+        int version = this.in.readUnsignedByte();
+        if (version != VERSION)
+        {
+            throw new IOException("Unsupported installation log version: " + version);
+        }
+        installPath = this.in.readUTF();
+        count = this.in.readInt();
+    }
+
+    /**
+     * Returns the installation path.
+     *
+     * @return the installation path
+     */
+    public String getInstallPath()
+    {
+        return installPath;
+    }
+
+    /**
+     * Returns the no. of entries in the log.
+     *
+     * @return the no. of entries
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Reads the next entry.
+     *
+     * @return the next entry, or {@code null} if there are no more entries
+     * @throws IOException for any I/O error
+     */
+    public InstallLogEntry next() throws IOException
+    {
+        if (end)
+        {
+            return null;
+        }
+        int flags = in.readUnsignedByte();
+        if (flags == END)
+        {
+            end = true;
+            return null;
+        }
+
+        int shared = (int) readVarLong();
+        byte[] suffix = new byte[(int) readVarLong()];
+        in.readFully(suffix);
+        String path = previous.substring(0, shared) + new String(suffix, UTF8);
+        previous = path;
+
+        String pack = null;
+        long size = InstallLogEntry.UNKNOWN;
+        long lastModified = InstallLogEntry.UNKNOWN;
+        byte[] hash = null;
+        if ((flags & PACK) != 0)
+        {
+            int index = (int) readVarLong();
+            if (index == packs.size())
+            {
+                packs.add(in.readUTF());
+            }
+            else if (index > packs.size())
+            {
+                throw new IOException("Invalid pack reference: " + index);
+            }
+            pack = packs.get(index);
+        }
+        if ((flags & ATTRIBUTES) != 0)
+        {
+            size = readVarLong() - 1;
+            lastModified = readVarLong() - 1;
+        }
+        if ((flags & HASH) != 0)
+        {
+            hash = new byte[(int) readVarLong()];
+            in.readFully(hash);
+        }
+        return new InstallLogEntry(path, (flags & DIRECTORY) != 0, pack, size, lastModified, hash);
+    }
+
+    /**
+     * Closes the underlying stream.
+     */
+    public void close()
+    {
+        FileUtils.close(in);
+    }
+
+    /**
+     * Reads an unsigned variable length integer.
+     *
+     * @return the value
+     * @throws IOException for any I/O error
+     */
+    private long readVarLong() throws IOException
+    {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do
+        {
+            b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while ((b & 0x80) != 0);
+        return value;
+    }
+
+}
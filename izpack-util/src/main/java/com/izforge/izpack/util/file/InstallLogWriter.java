@@ -0,0 +1,263 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Streams {@link InstallLogEntry entries} to a compact binary installation log.
+ * <p/>
+ * A log consists of a header, written by {@link #writeHeader}, followed by the entries written by an
+ * <tt>InstallLogWriter</tt>. Keeping the two apart allows the entries to be streamed to a spool file during
+ * unpacking, before the installation path and entry count are final.
+ * <p/>
+ * Each entry is encoded as:
+ * <ul>
+ * <li>a flags byte</li>
+ * <li>the no. of characters the path shares with the previous entry's path, and the UTF-8 encoded remainder.
+ * As the first entries share the installation path, this effectively stores paths relative to it</li>
+ * <li>if {@link #PACK} is set, an index into the table of pack names, followed by the name itself when it is first
+ * referenced</li>
+ * <li>if {@link #ATTRIBUTES} is set, the file size and modification time</li>
+ * <li>if {@link #HASH} is set, the length of the content hash followed by the hash</li>
+ * </ul>
+ * Integers are written in an unsigned variable length encoding. The entries are terminated by {@link #END}.
+ */
+public class InstallLogWriter
+{
+
+    /**
+     * The log signature.
+     */
+    static final int MAGIC = 0x495A4C47; // "IZLG"
+
+    /**
+     * The log format version.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Flag indicating the entry is a directory.
+     */
+    static final int DIRECTORY = 0x01;
+
+    /**
+     * Flag indicating the entry has a size and modification time.
+     */
+    static final int ATTRIBUTES = 0x02;
+
+    /**
+     * Flag indicating the entry has a content hash.
+     */
+    static final int HASH = 0x04;
+
+    /**
+     * Flag indicating the entry has a pack.
+     */
+    static final int PACK = 0x08;
+
+    /**
+     * Marks the end of the entries.
+     */
+    static final int END = 0x80;
+
+    /**
+     * The path encoding.
+     */
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The stream to write to.
+     */
+    private final DataOutputStream out;
+
+    /**
+     * The pack name table.
+     */
+    private final Map<String, Integer> packs = new HashMap<String, Integer>();
+
+    /**
+     * The previous entry's path.
+     */
+    private String previous = "";
+
+    /**
+     * The no. of entries written.
+     */
+    private int count;
+
+
+    /**
+     * Constructs an <tt>InstallLogWriter</tt>.
+     *
+     * @param out the stream to write to
+     */
+    public InstallLogWriter(OutputStream out)
+    {
+        this.out = new DataOutputStream(out);
+    }
+
+    /**
+     * Writes the log header.
+     *
+     * @param out         the stream to write to
+     * @param installPath the installation path
+     * @param count       the no. of entries that follow
+     * @throws IOException for any I/O error
+     */
+    public static void writeHeader(OutputStream out, String installPath, int count) throws IOException
+    {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeUTF(installPath);
+        data.writeInt(count);
+        data.flush();
+    }
+
+    /**
+     * Writes an entry.
+     *
+     * @param entry the entry to write
+     * @throws IOException for any I/O error
+     */
+    public void write(InstallLogEntry entry) throws IOException
+    {
+        String path = entry.getPath();
+        int flags = 0;
+        if (entry.isDirectory())
+        {
+            flags |= DIRECTORY;
+        }
+        if (entry.getSize() != InstallLogEntry.UNKNOWN || entry.getLastModified() != InstallLogEntry.UNKNOWN)
+        {
+            flags |= ATTRIBUTES;
+        }
+        if (entry.getHash() != null)
+        {
+            flags |= HASH;
+        }
+        if (entry.getPack() != null)
+        {
+            flags |= PACK;
+        }
+        out.writeByte(flags);
+
+        int shared = CompactPathList.sharedPrefix(previous, path);
+        byte[] suffix = path.substring(shared).getBytes(UTF8);
+        writeVarLong(shared);
+        writeVarLong(suffix.length);
+        out.write(suffix);
+        previous = path;
+
+        if ((flags & PACK) != 0)
+        {
+            Integer index = packs.get(entry.getPack());
+            if (index == null)
+            {
+                index = packs.size();
+                packs.put(entry.getPack(), index);
+                writeVarLong(index);
+                out.writeUTF(entry.getPack());
+            }
+            else
+            {
+                writeVarLong(index);
+            }
+        }
+        if ((flags & ATTRIBUTES) != 0)
+        {
+            // offset by one so that UNKNOWN encodes as zero
+            writeVarLong(entry.getSize() + 1);
+            writeVarLong(entry.getLastModified() + 1);
+        }
+        if ((flags & HASH) != 0)
+        {
+            writeVarLong(entry.getHash().length);
+            out.write(entry.getHash());
+        }
+        ++count;
+    }
+
+    /**
+     * Returns the no. of entries written.
+     *
+     * @return the no. of entries written
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Flushes the stream.
+     *
+     * @throws IOException for any I/O error
+     */
+    public void flush() throws IOException
+    {
+        out.flush();
+    }
+
+    /**
+     * Terminates the entries, and flushes the stream without closing it.
+     *
+     * @throws IOException for any I/O error
+     */
+    public void finish() throws IOException
+    {
+        out.writeByte(END);
+        out.flush();
+    }
+
+    /**
+     * Terminates the entries, and closes the stream.
+     *
+     * @throws IOException for any I/O error
+     */
+    public void close() throws IOException
+    {
+        finish();
+        out.close();
+    }
+
+    /**
+     * Writes an unsigned variable length integer.
+     *
+     * @param value the value to write
+     * @throws IOException for any I/O error
+     */
+    private void writeVarLong(long value) throws IOException
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import java.io.File;
+import java.util.Locale;
+
+
+/**
+ * A compact set of file paths, for membership tests over large numbers of paths.
+ * <p/>
+ * Only a 64-bit hash of each path is stored, in an open addressing table, so a set of a million paths occupies
+ * around 16MB regardless of path length. The probability of two distinct paths colliding is negligible, but
+ * callers should only use a hit to decide to leave a file alone, never to act on it.
+ * <p/>
+ * Paths are compared the way {@link File} compares them: case-insensitively on Windows.
+ * <p/>
+ * The set may be read concurrently once it has been populated.
+ */
+public class PathHashSet
+{
+
+    /**
+     * The FNV-1a 64-bit offset basis.
+     */
+    private static final long OFFSET_BASIS = 0xCBF29CE484222325L;
+
+    /**
+     * The FNV-1a 64-bit prime.
+     */
+    private static final long PRIME = 0x100000001B3L;
+
+    /**
+     * Determines if paths are case sensitive.
+     */
+    private static final boolean CASE_SENSITIVE = new File("a").compareTo(new File("A")) != 0;
+
+    /**
+     * The hash table. Empty slots are zero.
+     */
+    private long[] table;
+
+    /**
+     * The no. of paths in the set.
+     */
+    private int size;
+
+
+    /**
+     * Constructs a <tt>PathHashSet</tt>.
+     *
+     * @param expected the expected no. of paths
+     */
+    public PathHashSet(int expected)
+    {
+        int capacity = 16;
+        while (capacity < expected * 2)
+        {
+            capacity <<= 1;
+        }
+        table = new long[capacity];
+    }
+
+    /**
+     * Adds a path.
+     *
+     * @param file the path to add
+     * @return {@code true} if the path was added, {@code false} if it was already present
+     */
+    public boolean add(File file)
+    {
+        if ((size + 1) * 2 > table.length)
+        {
+            resize();
+        }
+        if (insert(table, hash(file)))
+        {
+            ++size;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Determines if the set contains a path.
+     *
+     * @param file the path
+     * @return {@code true} if the set contains the path
+     */
+    public boolean contains(File file)
+    {
+        long hash = hash(file);
+        int mask = table.length - 1;
+        for (int i = (int) (hash ^ (hash >>> 32)) & mask; table[i] != 0; i = (i + 1) & mask)
+        {
+            if (table[i] == hash)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the no. of paths in the set.
+     *
+     * @return the no. of paths
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the hash of a path.
+     *
+     * @param file the path
+     * @return the hash. Never zero
+     */
+    private static long hash(File file)
+    {
+        String path = file.getPath();
+        if (!CASE_SENSITIVE)
+        {
+            path = path.toLowerCase(Locale.ENGLISH);
+        }
+        long hash = OFFSET_BASIS;
+        for (int i = 0; i < path.length(); ++i)
+        {
+            hash = (hash ^ path.charAt(i)) * PRIME;
+        }
+        return hash != 0 ? hash : 1;
+    }
+
+    /**
+     * Inserts a hash into a table.
+     *
+     * @param table the table
+     * @param hash  the hash
+     * @return {@code true} if the hash was inserted, {@code false} if it was already present
+     */
+    private static boolean insert(long[] table, long hash)
+    {
+        int mask = table.length - 1;
+        int i = (int) (hash ^ (hash >>> 32)) & mask;
+        while (table[i] != 0)
+        {
+            if (table[i] == hash)
+            {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = hash;
+        return true;
+    }
+
+    /**
+     * Doubles the size of the table.
+     */
+    private void resize()
+    {
+        long[] resized = new long[table.length * 2];
+        for (long hash : table)
+        {
+            if (hash != 0)
+            {
+                insert(resized, hash);
+            }
+        }
+        table = resized;
+    }
+}
@@ -25,6 +25,7 @@ import java.util.logging.Logger;
 
 import com.izforge.izpack.util.file.DirectoryScanner;
 import com.izforge.izpack.util.file.FileScanner;
+import com.izforge.izpack.util.file.FileTreeWalker;
 import com.izforge.izpack.util.file.types.selectors.*;
 
 /**
@@ -45,6 +46,7 @@ public class FileSet extends DataType
     private boolean useDefaultExcludes = true;
     private boolean isCaseSensitive = true;
     private boolean followSymlinks = true;
+    private int threads = 1;
 
     /**
      * Construct a new <code>FileSet</code>.
@@ -187,6 +189,34 @@ public class FileSet extends DataType
         return followSymlinks;
     }
 
+    /**
+     * Sets the number of threads used to walk the directory tree when
+     * scanning.
+     * <p/>
+     * Scanning with more than one thread is opt-in. The included files
+     * are the same, but they are sorted by name rather than listed in
+     * directory order. {@link FileTreeWalker#getDefaultThreads()} gives
+     * a suitable no. of threads.
+     *
+     * @param threads the number of threads. Values less than 2 scan on
+     *                the calling thread.
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = threads;
+    }
+
+    /**
+     * Returns the number of threads used to walk the directory tree when
+     * scanning.
+     *
+     * @return the number of threads. Defaults to <tt>1</tt>.
+     */
+    public int getThreads()
+    {
+        return threads;
+    }
+
     /**
      * Returns the directory scanner needed to access the files to process.
      *
@@ -210,6 +240,7 @@ public class FileSet extends DataType
         DirectoryScanner ds = new DirectoryScanner();
         setupDirectoryScanner(ds);
         ds.setFollowSymlinks(followSymlinks);
+        ds.setThreads(threads);
         ds.scan();
         return ds;
     }
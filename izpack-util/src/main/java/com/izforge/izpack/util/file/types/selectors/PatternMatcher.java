@@ -0,0 +1,563 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file.types.selectors;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+
+/**
+ * Matches paths against a set of patterns, compiled in advance.
+ * <p/>
+ * {@link #matches} is equivalent to testing each pattern with {@link SelectorUtils#matchPath(String, String, boolean)},
+ * but the path is only tokenized once, and the cost of a test does not grow with the no. of patterns in the common
+ * cases:
+ * <ul>
+ * <li>patterns of the form <tt>**&#47;*.ext</tt> and <tt>**&#47;name</tt> are looked up by the suffix or name of the
+ * path</li>
+ * <li>leading literal directories, such as <tt>src/main</tt> in <tt>src/main/**&#47;*.java</tt>, are placed in a
+ * tree, so only patterns sharing the path's leading directories are examined</li>
+ * </ul>
+ * Any remaining wildcard segments are matched against the rest of the path segment by segment.
+ * <p/>
+ * Instances are immutable, and may be used concurrently.
+ */
+public class PatternMatcher
+{
+
+    /**
+     * The "any directories" token.
+     */
+    private static final String ANY_DIRS = "**";
+
+    /**
+     * Determines if matching is case sensitive.
+     */
+    private final boolean isCaseSensitive;
+
+    /**
+     * The patterns that match relative paths.
+     */
+    private final Group relative = new Group();
+
+    /**
+     * The patterns that match absolute paths, i.e. those starting with a separator.
+     */
+    private final Group absolute = new Group();
+
+
+    /**
+     * Constructs a <tt>PatternMatcher</tt>.
+     *
+     * @param patterns        the patterns, using <code>File.separator</code> to separate directories
+     * @param isCaseSensitive determines if matching is case sensitive
+     */
+    public PatternMatcher(String[] patterns, boolean isCaseSensitive)
+    {
+        this.isCaseSensitive = isCaseSensitive;
+        for (String pattern : patterns)
+        {
+            Group group = pattern.startsWith(File.separator) ? absolute : relative;
+            group.add(tokenize(normalize(pattern)));
+        }
+    }
+
+    /**
+     * Determines if a path matches at least one pattern.
+     *
+     * @param path the path, using <code>File.separator</code> to separate directories
+     * @return <code>true</code> if the path matches a pattern
+     */
+    public boolean matches(String path)
+    {
+        Group group = path.startsWith(File.separator) ? absolute : relative;
+        return !group.isEmpty() && group.matches(tokenize(normalize(path)));
+    }
+
+    /**
+     * Determines if paths below a directory could match at least one pattern.
+     * <p/>
+     * This is equivalent to testing each pattern with
+     * {@link SelectorUtils#matchPatternStart(String, String, boolean)}, and requiring that the pattern either
+     * contains <tt>**</tt> or has more segments than the directory. As with <tt>matchPatternStart</tt>, there may be
+     * false positives.
+     *
+     * @param dir the directory path, using <code>File.separator</code> to separate directories
+     * @return <code>true</code> if paths below the directory could match a pattern
+     */
+    public boolean couldMatchBelow(String dir)
+    {
+        Group group = dir.startsWith(File.separator) ? absolute : relative;
+        return !group.isEmpty() && group.couldMatchBelow(tokenize(normalize(dir)));
+    }
+
+    /**
+     * Normalizes the case of a pattern or path, if matching is case insensitive.
+     *
+     * @param str the string to normalize
+     * @return the normalized string
+     */
+    private String normalize(String str)
+    {
+        if (isCaseSensitive)
+        {
+            return str;
+        }
+        // per character, to be consistent with SelectorUtils.match()
+        char[] chars = str.toCharArray();
+        for (int i = 0; i < chars.length; ++i)
+        {
+            chars[i] = Character.toUpperCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Splits a path into its non-empty segments.
+     *
+     * @param path the path
+     * @return the path segments
+     */
+    private static String[] tokenize(String path)
+    {
+        List<String> result = new ArrayList<String>();
+        char separator = File.separatorChar;
+        int start = 0;
+        int length = path.length();
+        for (int i = 0; i <= length; ++i)
+        {
+            if (i == length || path.charAt(i) == separator)
+            {
+                if (i != start)
+                {
+                    result.add(path.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    /**
+     * Determines if a segment contains wildcards.
+     *
+     * @param segment the segment
+     * @return <code>true</code> if the segment contains <tt>*</tt> or <tt>?</tt>
+     */
+    private static boolean isWildcard(String segment)
+    {
+        return segment.indexOf('*') != -1 || segment.indexOf('?') != -1;
+    }
+
+    /**
+     * Determines if a segment is a wildcard followed by a literal suffix, e.g. <tt>*.java</tt>.
+     *
+     * @param segment the segment
+     * @return <code>true</code> if the segment is a wildcard suffix
+     */
+    private static boolean isSuffix(String segment)
+    {
+        return segment.length() > 1 && segment.charAt(0) == '*' && !isWildcard(segment.substring(1));
+    }
+
+    /**
+     * Determines if the segments from an index on are all <tt>**</tt>.
+     *
+     * @param segments the segments
+     * @param from     the index of the first segment to check
+     * @return <code>true</code> if the segments are all <tt>**</tt>, or there are no segments
+     */
+    private static boolean isAnyDirs(String[] segments, int from)
+    {
+        for (int i = from; i < segments.length; ++i)
+        {
+            if (!segments[i].equals(ANY_DIRS))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The patterns that match either relative or absolute paths.
+     */
+    private static class Group
+    {
+
+        /**
+         * The root of the tree of leading literal segments.
+         */
+        private final Node root = new Node();
+
+        /**
+         * Names matched by <tt>**&#47;name</tt> patterns.
+         */
+        private final Set<String> names = new HashSet<String>();
+
+        /**
+         * Suffixes matched by <tt>**&#47;*suffix</tt> patterns.
+         */
+        private final Set<String> suffixes = new HashSet<String>();
+
+        /**
+         * The distinct lengths of {@link #suffixes}, in increasing order.
+         */
+        private int[] suffixLengths = new int[0];
+
+        /**
+         * Determines if any pattern starts with <tt>**</tt>.
+         */
+        private boolean anyDirsFirst;
+
+        /**
+         * Determines if the group has any patterns.
+         */
+        private boolean empty = true;
+
+        /**
+         * Adds a pattern.
+         *
+         * @param pattern the pattern segments
+         */
+        public void add(String[] pattern)
+        {
+            empty = false;
+            if (pattern.length > 0 && pattern[0].equals(ANY_DIRS))
+            {
+                anyDirsFirst = true;
+            }
+            if (pattern.length == 2 && pattern[0].equals(ANY_DIRS))
+            {
+                String last = pattern[1];
+                if (!isWildcard(last))
+                {
+                    names.add(last);
+                    return;
+                }
+                else if (isSuffix(last))
+                {
+                    addSuffix(last.substring(1));
+                    return;
+                }
+            }
+            Node node = root;
+            int i = 0;
+            while (i < pattern.length && !isWildcard(pattern[i]))
+            {
+                node = node.getChild(pattern[i]);
+                ++i;
+            }
+            if (i == pattern.length)
+            {
+                node.exact = true;
+            }
+            else if (isAnyDirs(pattern, i))
+            {
+                node.anyDirs = true;
+            }
+            else
+            {
+                String[] remainder = new String[pattern.length - i];
+                System.arraycopy(pattern, i, remainder, 0, remainder.length);
+                node.remainders.add(new Remainder(remainder));
+            }
+        }
+
+        /**
+         * Determines if the group has no patterns.
+         *
+         * @return <code>true</code> if the group is empty
+         */
+        public boolean isEmpty()
+        {
+            return empty;
+        }
+
+        /**
+         * Determines if a path matches at least one pattern.
+         *
+         * @param path the path segments
+         * @return <code>true</code> if the path matches
+         */
+        public boolean matches(String[] path)
+        {
+            if (path.length > 0)
+            {
+                String last = path[path.length - 1];
+                if (names.contains(last) || hasSuffix(last))
+                {
+                    return true;
+                }
+            }
+            Node node = root;
+            for (int depth = 0; node != null; ++depth)
+            {
+                if (node.anyDirs || (depth == path.length && node.exact))
+                {
+                    return true;
+                }
+                for (Remainder remainder : node.remainders)
+                {
+                    if (remainder.matches(path, depth))
+                    {
+                        return true;
+                    }
+                }
+                if (depth == path.length)
+                {
+                    break;
+                }
+                node = node.children.get(path[depth]);
+            }
+            return false;
+        }
+
+        /**
+         * Determines if paths below a directory could match at least one pattern.
+         *
+         * @param dir the directory segments
+         * @return <code>true</code> if paths below the directory could match
+         */
+        public boolean couldMatchBelow(String[] dir)
+        {
+            if (anyDirsFirst)
+            {
+                return true;
+            }
+            Node node = root;
+            for (int depth = 0; node != null; ++depth)
+            {
+                if (node.anyDirs)
+                {
+                    return true;
+                }
+                if (depth == dir.length)
+                {
+                    // any pattern continuing past this node is deeper than the directory
+                    return !node.children.isEmpty() || !node.remainders.isEmpty();
+                }
+                for (Remainder remainder : node.remainders)
+                {
+                    if (remainder.couldMatchBelow(dir, depth))
+                    {
+                        return true;
+                    }
+                }
+                node = node.children.get(dir[depth]);
+            }
+            return false;
+        }
+
+        /**
+         * Adds a suffix.
+         *
+         * @param suffix the suffix
+         */
+        private void addSuffix(String suffix)
+        {
+            suffixes.add(suffix);
+            Set<Integer> lengths = new TreeSet<Integer>();
+            for (String value : suffixes)
+            {
+                lengths.add(value.length());
+            }
+            suffixLengths = new int[lengths.size()];
+            int i = 0;
+            for (Integer length : lengths)
+            {
+                suffixLengths[i++] = length;
+            }
+        }
+
+        /**
+         * Determines if a name ends with one of the suffixes.
+         *
+         * @param name the name
+         * @return <code>true</code> if the name ends with a suffix
+         */
+        private boolean hasSuffix(String name)
+        {
+            int length = name.length();
+            for (int suffixLength : suffixLengths)
+            {
+                if (suffixLength > length)
+                {
+                    break;
+                }
+                if (suffixes.contains(name.substring(length - suffixLength)))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A node in the tree of leading literal segments.
+     */
+    private static class Node
+    {
+
+        /**
+         * The child nodes, keyed on segment.
+         */
+        private final Map<String, Node> children = new HashMap<String, Node>();
+
+        /**
+         * The patterns continuing from this node with a wildcard segment.
+         */
+        private final List<Remainder> remainders = new ArrayList<Remainder>();
+
+        /**
+         * Determines if a pattern ends at this node.
+         */
+        private boolean exact;
+
+        /**
+         * Determines if a pattern continues from this node with only <tt>**</tt> segments.
+         */
+        private boolean anyDirs;
+
+        /**
+         * Returns the child node for a segment, creating it if required.
+         *
+         * @param segment the segment
+         * @return the child node
+         */
+        public Node getChild(String segment)
+        {
+            Node result = children.get(segment);
+            if (result == null)
+            {
+                result = new Node();
+                children.put(segment, result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The segments of a pattern following its leading literal segments.
+     */
+    private static class Remainder
+    {
+
+        /**
+         * The segments.
+         */
+        private final String[] segments;
+
+        /**
+         * Determines if the segments contain <tt>**</tt>.
+         */
+        private final boolean hasAnyDirs;
+
+        /**
+         * Constructs a <tt>Remainder</tt>.
+         *
+         * @param segments the segments
+         */
+        public Remainder(String[] segments)
+        {
+            this.segments = segments;
+            boolean anyDirs = false;
+            for (String segment : segments)
+            {
+                anyDirs |= segment.equals(ANY_DIRS);
+            }
+            hasAnyDirs = anyDirs;
+        }
+
+        /**
+         * Determines if the segments match a path from an index on.
+         *
+         * @param path the path segments
+         * @param from the index of the first path segment to match
+         * @return <code>true</code> if the remaining path matches
+         */
+        public boolean matches(String[] path, int from)
+        {
+            int p = 0;
+            int s = from;
+            int anyDirs = -1;
+            int resume = -1;
+            while (s < path.length)
+            {
+                if (p < segments.length && segments[p].equals(ANY_DIRS))
+                {
+                    // match no directories first, retrying with one more on failure
+                    anyDirs = p++;
+                    resume = s;
+                }
+                else if (p < segments.length && SelectorUtils.match(segments[p], path[s], true))
+                {
+                    ++p;
+                    ++s;
+                }
+                else if (anyDirs != -1)
+                {
+                    p = anyDirs + 1;
+                    s = ++resume;
+                }
+                else
+                {
+                    return false;
+                }
+            }
+            return isAnyDirs(segments, p);
+        }
+
+        /**
+         * Determines if paths below a directory could match the segments.
+         *
+         * @param dir  the directory segments
+         * @param from the index of the first directory segment to match
+         * @return <code>true</code> if paths below the directory could match
+         */
+        public boolean couldMatchBelow(String[] dir, int from)
+        {
+            int p = 0;
+            int s = from;
+            while (p < segments.length && s < dir.length)
+            {
+                if (segments[p].equals(ANY_DIRS))
+                {
+                    return true;
+                }
+                if (!SelectorUtils.match(segments[p], dir[s], true))
+                {
+                    return false;
+                }
+                ++p;
+                ++s;
+            }
+            // the directory is exhausted. Paths below it can only match if the pattern is deeper
+            return s == dir.length && (p < segments.length || hasAnyDirs);
+        }
+    }
+}
@@ -71,4 +71,34 @@ public abstract class AbstractMergeAction implements MergeAction
         m_actionFactory = factory;
     }
 
+    /**
+     * Returns the factory that determines the actions applied to merged elements.
+     *
+     * @return the action factory
+     */
+    public OperationFactory getActionFactory()
+    {
+        return m_actionFactory;
+    }
+
+    /**
+     * Returns the factory that determines the mappers applied to patch elements.
+     *
+     * @return the mapper factory
+     */
+    public OperationFactory getMapperFactory()
+    {
+        return m_mapperFactory;
+    }
+
+    /**
+     * Returns the factory that determines the matchers used to pair original and patch elements.
+     *
+     * @return the matcher factory
+     */
+    public OperationFactory getMatcherFactory()
+    {
+        return m_matcherFactory;
+    }
+
 }
@@ -102,67 +102,102 @@ public class FullMergeAction extends AbstractMergeAction
 
         for (Content origContent : origContentList)
         {
-            logger.fine("Checking original content: " + origContent + " for matching patch contents");
-            if (origContent instanceof Element)
+            mergeContent(parentOut, origContent, patchContentList, matchedPatchContentList,
+                         unmatchedPatchContentList);
+        }
+
+        mergeUnmatched(parentOut, matchedPatchContentList, unmatchedPatchContentList);
+    }
+
+    /**
+     * Merges an item of the original element's content with the matching elements of the patch element.
+     * <p/>
+     * This is invoked for each item of the original content in turn, followed by
+     * {@link #mergeUnmatched(Element, List, List)}.
+     *
+     * @param parentOut The merged element
+     * @param origContent The original content
+     * @param patchContentList The content of the patch element
+     * @param matchedPatchContentList Collects the patch elements that matched original elements
+     * @param unmatchedPatchContentList Collects the patch elements that didn't match an original element
+     * @throws AbstractXmlMergeException If an error occurred during the merge
+     */
+    public void mergeContent(Element parentOut, Content origContent, List<Content> patchContentList,
+                             List<Content> matchedPatchContentList, List<Content> unmatchedPatchContentList)
+            throws AbstractXmlMergeException
+    {
+        logger.fine("Checking original content: " + origContent + " for matching patch contents");
+        if (origContent instanceof Element)
+        {
+            boolean patchMatched = false;
+
+            for (Content patchContent : patchContentList)
             {
-                boolean patchMatched = false;
+                logger.fine("Checking patch content: " + patchContent);
 
-                for (Content patchContent : patchContentList)
+                if (patchContent instanceof Comment || patchContent instanceof Text)
                 {
-                    logger.fine("Checking patch content: " + patchContent);
-
-                    if (patchContent instanceof Comment || patchContent instanceof Text)
-                    {
-                        // skip and leave original comment or text
-                        logger.fine("Skipped patch content: " + patchContent);
-                    }
-                    else if (!(patchContent instanceof Element))
+                    // skip and leave original comment or text
+                    logger.fine("Skipped patch content: " + patchContent);
+                }
+                else if (!(patchContent instanceof Element))
+                {
+                    throw new DocumentException(patchContent.getDocument(), "Contents of type "
+                            + patchContent.getClass().getName() + " in patch document not supported");
+                }
+                else
+                {
+                    if (((Matcher) m_matcherFactory.getOperation((Element) patchContent, (Element) origContent))
+                            .matches((Element) patchContent, (Element) origContent))
                     {
-                        throw new DocumentException(patchContent.getDocument(), "Contents of type "
-                                + patchContent.getClass().getName() + " in patch document not supported");
+                        logger.fine("Apply matching patch: " + patchContent + " -> " + origContent);
+                        applyAction(parentOut, (Element) origContent, (Element) patchContent);
+                        patchMatched = true;
+                        if (!matchedPatchContentList.contains(patchContent))
+                        {
+                            matchedPatchContentList.add(patchContent);
+                        }
                     }
                     else
                     {
-                        if (((Matcher) m_matcherFactory.getOperation((Element) patchContent, (Element) origContent))
-                                .matches((Element) patchContent, (Element) origContent))
-                        {
-                            logger.fine("Apply matching patch: " + patchContent + " -> " + origContent);
-                            applyAction(parentOut, (Element) origContent, (Element) patchContent);
-                            patchMatched = true;
-                            if (!matchedPatchContentList.contains(patchContent))
-                            {
-                                matchedPatchContentList.add(patchContent);
-                            }
-                        }
-                        else
+                        if (!unmatchedPatchContentList.contains(patchContent))
                         {
-                            if (!unmatchedPatchContentList.contains(patchContent))
-                            {
-                                unmatchedPatchContentList.add(patchContent);
-                            }
+                            unmatchedPatchContentList.add(patchContent);
                         }
-                        // Continue searching here for finding multiple matches
                     }
-                }
-
-                if (!patchMatched)
-                {
-                    logger.fine("Apply original: "+ origContent);
-                    applyAction(parentOut, (Element) origContent, null);
+                    // Continue searching here for finding multiple matches
                 }
             }
-            else if (origContent instanceof Comment || origContent instanceof Text)
-            {
-                // leave original comment or text
-                parentOut.addContent((Content) origContent.clone());
-            }
-            else
+
+            if (!patchMatched)
             {
-                throw new DocumentException(origContent.getDocument(), "Contents of type "
-                        + origContent.getClass().getName() + " in original document not supported");
+                logger.fine("Apply original: "+ origContent);
+                applyAction(parentOut, (Element) origContent, null);
             }
         }
+        else if (origContent instanceof Comment || origContent instanceof Text)
+        {
+            // leave original comment or text
+            parentOut.addContent((Content) origContent.clone());
+        }
+        else
+        {
+            throw new DocumentException(origContent.getDocument(), "Contents of type "
+                    + origContent.getClass().getName() + " in original document not supported");
+        }
+    }
 
+    /**
+     * Adds the patch elements that didn't match any original element to the merged element.
+     *
+     * @param parentOut The merged element
+     * @param matchedPatchContentList The patch elements that matched original elements
+     * @param unmatchedPatchContentList The patch elements that didn't match an original element
+     * @throws AbstractXmlMergeException If an error occurred during the merge
+     */
+    public void mergeUnmatched(Element parentOut, List<Content> matchedPatchContentList,
+                               List<Content> unmatchedPatchContentList) throws AbstractXmlMergeException
+    {
         for (Content unmatchedPatchContent : unmatchedPatchContentList)
         {
             if (!matchedPatchContentList.contains(unmatchedPatchContent))
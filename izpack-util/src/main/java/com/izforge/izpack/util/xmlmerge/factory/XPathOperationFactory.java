@@ -24,6 +24,7 @@ package com.izforge.izpack.util.xmlmerge.factory;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.jaxen.JaxenException;
 import org.jaxen.jdom.JDOMXPath;
@@ -37,6 +38,9 @@ import com.izforge.izpack.util.xmlmerge.OperationFactory;
 /**
  * An operation factory that resolves operations given a map { xpath (as String), Operation }. The
  * order in the map is relevant if several XPath matches.
+ * <p/>
+ * Operations are looked up for every pair of elements compared during a merge, so each XPath expression is compiled
+ * once, on first use, rather than on every lookup.
  *
  * @author Laurent Bovet (LBO)
  * @author Alex Mathey (AMA)
@@ -54,6 +58,11 @@ public class XPathOperationFactory implements OperationFactory
      */
     Operation m_defaultOperation;
 
+    /**
+     * The compiled XPath expressions, keyed on their string form.
+     */
+    private final Map<String, JDOMXPath> m_compiled = new ConcurrentHashMap<String, JDOMXPath>();
+
     /**
      * Sets the factory's map containing configuration properties.
      *
@@ -74,6 +83,16 @@ public class XPathOperationFactory implements OperationFactory
         this.m_defaultOperation = operation;
     }
 
+    /**
+     * Determines if the factory has no XPath expressions, and therefore always returns the default operation.
+     *
+     * @return <tt>true</tt> if there are no XPath expressions
+     */
+    public boolean isEmpty()
+    {
+        return m_map.isEmpty();
+    }
+
     @Override
     public Operation getOperation(Element originalElement, Element patchElement)
             throws AbstractXmlMergeException
@@ -103,7 +122,7 @@ public class XPathOperationFactory implements OperationFactory
 
         try
         {
-            JDOMXPath xPath = new JDOMXPath(xPathString);
+            JDOMXPath xPath = getXPath(xPathString);
 
             boolean result = xPath.selectNodes(element.getParent()).contains(element);
 
@@ -116,4 +135,22 @@ public class XPathOperationFactory implements OperationFactory
         }
     }
 
+    /**
+     * Returns the compiled form of an XPath expression, compiling it if required.
+     *
+     * @param xPathString the XPath expression
+     * @return the compiled expression
+     * @throws JaxenException if the expression is invalid
+     */
+    JDOMXPath getXPath(String xPathString) throws JaxenException
+    {
+        JDOMXPath result = m_compiled.get(xPathString);
+        if (result == null)
+        {
+            result = new JDOMXPath(xPathString);
+            m_compiled.put(xPathString, result);
+        }
+        return result;
+    }
+
 }
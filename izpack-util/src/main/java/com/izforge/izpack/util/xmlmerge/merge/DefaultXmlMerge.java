@@ -22,12 +22,17 @@
 
 package com.izforge.izpack.util.xmlmerge.merge;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.jdom.DocType;
 import org.jdom.Document;
@@ -44,16 +49,31 @@ import com.izforge.izpack.util.xmlmerge.DocumentException;
 import com.izforge.izpack.util.xmlmerge.Mapper;
 import com.izforge.izpack.util.xmlmerge.Matcher;
 import com.izforge.izpack.util.xmlmerge.MergeAction;
+import com.izforge.izpack.util.xmlmerge.Operation;
+import com.izforge.izpack.util.xmlmerge.OperationFactory;
 import com.izforge.izpack.util.xmlmerge.ParseException;
 import com.izforge.izpack.util.xmlmerge.XmlMerge;
+import com.izforge.izpack.util.xmlmerge.action.AbstractMergeAction;
+import com.izforge.izpack.util.xmlmerge.action.CompleteAction;
 import com.izforge.izpack.util.xmlmerge.action.FullMergeAction;
+import com.izforge.izpack.util.xmlmerge.action.OrderedMergeAction;
+import com.izforge.izpack.util.xmlmerge.action.OverrideAction;
+import com.izforge.izpack.util.xmlmerge.action.PreserveAction;
+import com.izforge.izpack.util.xmlmerge.action.ReplaceAction;
 import com.izforge.izpack.util.xmlmerge.factory.StaticOperationFactory;
+import com.izforge.izpack.util.xmlmerge.factory.XPathOperationFactory;
 import com.izforge.izpack.util.xmlmerge.mapper.IdentityMapper;
 import com.izforge.izpack.util.xmlmerge.matcher.AttributeMatcher;
+import com.izforge.izpack.util.xmlmerge.matcher.IdAttributeMatcher;
+import com.izforge.izpack.util.xmlmerge.matcher.NameAttributeMatcher;
+import com.izforge.izpack.util.xmlmerge.matcher.TagMatcher;
 
 /**
  * Default implementation of XmlMerge. Create all JDOM documents, then perform the merge into a new
  * JDOM document.
+ * <p/>
+ * When merging a single patch into a file, and the merge only uses standard operations that are not configured by
+ * XPath expressions, the original file is streamed rather than loaded into memory. See {@link StreamingXmlMerge}.
  *
  * @author Laurent Bovet (LBO)
  * @author Alex Mathey (AMA)
@@ -64,7 +84,31 @@ public class DefaultXmlMerge implements XmlMerge
     /**
      * Root merge action.
      */
-    private MergeAction m_rootMergeAction = new FullMergeAction();
+    private FullMergeAction m_rootMergeAction = new FullMergeAction();
+
+    /**
+     * Determines if the merge action set by {@link #setRootMergeAction} may be applied when streaming.
+     */
+    private boolean m_streamableAction;
+
+    /**
+     * Root matcher.
+     */
+    private Matcher m_rootMatcher;
+
+    /**
+     * Root mapper.
+     */
+    private Mapper m_rootMapper;
+
+    /**
+     * The classes of the operations that may be applied when streaming. These only depend on the elements they are
+     * applied to, not the documents containing them.
+     */
+    private static final Set<Class<?>> STREAMABLE = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+            FullMergeAction.class, OrderedMergeAction.class, ReplaceAction.class, OverrideAction.class,
+            CompleteAction.class, PreserveAction.class, TagMatcher.class, AttributeMatcher.class,
+            IdAttributeMatcher.class, NameAttributeMatcher.class, IdentityMapper.class));
 
     /**
      * Creates a new DefaultXmlMerge instance.
@@ -81,17 +125,20 @@ public class DefaultXmlMerge implements XmlMerge
     {
 
         this.m_rootMergeAction.setActionFactory(new StaticOperationFactory(rootMergeAction));
+        m_streamableAction = isStreamable(rootMergeAction);
     }
 
     public void setRootMatcher(Matcher matcher)
     {
         m_rootMergeAction.setMatcherFactory(new StaticOperationFactory(matcher));
+        m_rootMatcher = matcher;
     }
 
     @Override
     public void setRootMapper(Mapper mapper)
     {
         m_rootMergeAction.setMapperFactory(new StaticOperationFactory(mapper));
+        m_rootMapper = mapper;
     }
 
 
@@ -185,11 +232,7 @@ public class DefaultXmlMerge implements XmlMerge
 
         Document result = doMerge(docs);
 
-        Format prettyFormatter = Format.getPrettyFormat();
-        // Use system line seperator to avoid problems
-        // with carriage return under linux
-        prettyFormatter.setLineSeparator(System.getProperty("line.separator"));
-        XMLOutputter sortie = new XMLOutputter(prettyFormatter);
+        XMLOutputter sortie = new XMLOutputter(createFormat());
 
         ByteArrayOutputStream buffer = new ByteArrayOutputStream();
 
@@ -208,6 +251,15 @@ public class DefaultXmlMerge implements XmlMerge
     @Override
     public void merge(File[] sources, File target) throws AbstractXmlMergeException
     {
+        if (sources.length == 2 && isStreamable())
+        {
+            StreamingXmlMerge streamingMerge = new StreamingXmlMerge(m_rootMergeAction, createFormat());
+            if (streamingMerge.merge(sources[0], sources[1], target))
+            {
+                return;
+            }
+        }
+
         SAXBuilder sxb = new SAXBuilder();
 
         // to save all XML files as JDOM objects
@@ -233,20 +285,111 @@ public class DefaultXmlMerge implements XmlMerge
 
         Document result = doMerge(docs);
 
+        XMLOutputter sortie = new XMLOutputter(createFormat());
+
+        OutputStream out = null;
+        try
+        {
+            out = new BufferedOutputStream(new FileOutputStream(target));
+            sortie.output(result, out);
+            out.close();
+            out = null;
+        }
+        catch (IOException ex)
+        {
+            throw new DocumentException(result, ex);
+        }
+        finally
+        {
+            if (out != null)
+            {
+                try
+                {
+                    out.close();
+                }
+                catch (IOException ignore)
+                {
+                    // already reporting the write failure
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the format used to write merged documents.
+     *
+     * @return the format
+     */
+    private Format createFormat()
+    {
         Format prettyFormatter = Format.getPrettyFormat();
         // Use system line seperator to avoid problems
         // with carriage return under linux
         prettyFormatter.setLineSeparator(System.getProperty("line.separator"));
-        XMLOutputter sortie = new XMLOutputter(prettyFormatter);
+        return prettyFormatter;
+    }
 
-        try
+    /**
+     * Determines if {@link #merge(File[], File)} can stream the original document.
+     *
+     * @return <tt>true</tt> if the merge only uses operations that may be applied when streaming
+     */
+    boolean isStreamable()
+    {
+        return m_streamableAction && isStreamable(m_rootMatcher) && isStreamable(m_rootMapper)
+                && StreamingXmlMerge.isSupported();
+    }
+
+    /**
+     * Determines if a merge action, and the operations it is configured with, may be applied when streaming.
+     * <p/>
+     * Operations configured by XPath expressions may depend on the document containing the elements they are
+     * applied to, so these are merged in memory.
+     *
+     * @param action the merge action
+     * @return <tt>true</tt> if the action may be applied when streaming
+     */
+    private static boolean isStreamable(MergeAction action)
+    {
+        if (!isStreamable((Operation) action))
         {
-            sortie.output(result, new FileOutputStream(target));
+            return false;
         }
-        catch (IOException ex)
+        AbstractMergeAction mergeAction = (AbstractMergeAction) action;
+        OperationFactory[] factories = {mergeAction.getActionFactory(), mergeAction.getMatcherFactory(),
+                mergeAction.getMapperFactory()};
+        for (OperationFactory factory : factories)
         {
-            throw new DocumentException(result, ex);
+            if (!(factory instanceof StaticOperationFactory)
+                    && !(factory instanceof XPathOperationFactory && ((XPathOperationFactory) factory).isEmpty()))
+            {
+                return false;
+            }
+            try
+            {
+                if (!isStreamable(factory.getOperation(null, null)))
+                {
+                    return false;
+                }
+            }
+            catch (AbstractXmlMergeException exception)
+            {
+                return false;
+            }
         }
+        return true;
+    }
+
+    /**
+     * Determines if an operation may be applied when streaming.
+     *
+     * @param operation the operation. May be {@code null}
+     * @return <tt>true</tt> if the operation is one of the standard operations that only depend on the elements
+     *         they are applied to
+     */
+    private static boolean isStreamable(Operation operation)
+    {
+        return operation != null && STREAMABLE.contains(operation.getClass());
     }
 
     /**
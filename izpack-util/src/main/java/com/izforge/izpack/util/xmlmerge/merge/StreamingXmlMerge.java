@@ -0,0 +1,494 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.xmlmerge.merge;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.jdom.Attribute;
+import org.jdom.CDATA;
+import org.jdom.Comment;
+import org.jdom.Content;
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.JDOMException;
+import org.jdom.Namespace;
+import org.jdom.ProcessingInstruction;
+import org.jdom.Text;
+import org.jdom.input.SAXBuilder;
+import org.jdom.output.Format;
+import org.jdom.output.XMLOutputter;
+
+import com.izforge.izpack.util.xmlmerge.AbstractXmlMergeException;
+import com.izforge.izpack.util.xmlmerge.DocumentException;
+import com.izforge.izpack.util.xmlmerge.ParseException;
+import com.izforge.izpack.util.xmlmerge.action.FullMergeAction;
+
+/**
+ * Merges a patch into an original document without loading the original into memory.
+ * <p/>
+ * The original is read with StAX. Each child of its root element is built as a JDOM element in turn, merged with
+ * the children of the patch root element by the root merge action, and written before the next child is read. The
+ * patch is loaded into memory, as each original element is compared with all of its elements.
+ * <p/>
+ * The result is identical to that of the DOM merge performed by {@link DefaultXmlMerge}. Originals for which this
+ * can't be guaranteed are not merged; these are documents with a document type declaration or entity references,
+ * and documents whose root element has no child elements.
+ */
+class StreamingXmlMerge
+{
+
+    /**
+     * The StAX property to report CDATA sections as {@link XMLStreamConstants#CDATA} events.
+     */
+    private static final String REPORT_CDATA = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+    /**
+     * The comment used to locate the content of the root element in output rendered by JDOM.
+     */
+    private static final String MARKER = "izpack-xmlmerge";
+
+    /**
+     * The merge action applied to the root elements.
+     */
+    private final FullMergeAction m_rootMergeAction;
+
+    /**
+     * The output format.
+     */
+    private final Format m_format;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(StreamingXmlMerge.class.getName());
+
+
+    /**
+     * Constructs a <tt>StreamingXmlMerge</tt>.
+     *
+     * @param rootMergeAction the merge action applied to the root elements
+     * @param format          the output format
+     */
+    public StreamingXmlMerge(FullMergeAction rootMergeAction, Format format)
+    {
+        m_rootMergeAction = rootMergeAction;
+        m_format = format;
+    }
+
+    /**
+     * Determines if streaming merges are supported by the StAX implementation.
+     *
+     * @return <tt>true</tt> if streaming merges are supported
+     */
+    public static boolean isSupported()
+    {
+        try
+        {
+            return XMLInputFactory.newInstance().isPropertySupported(REPORT_CDATA);
+        }
+        catch (FactoryConfigurationError error)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Merges a patch into an original document.
+     *
+     * @param original the original document
+     * @param patch    the patch document
+     * @param target   the file to write the result to. This may be the original
+     * @return <tt>true</tt> if the documents were merged, <tt>false</tt> if the original can't be merged without
+     *         loading it into memory, in which case the target is unchanged
+     * @throws AbstractXmlMergeException if a document can't be read, or the documents can't be merged
+     */
+    public boolean merge(File original, File patch, File target) throws AbstractXmlMergeException
+    {
+        Element patchRoot;
+        try
+        {
+            patchRoot = new SAXBuilder().build(patch).getRootElement();
+        }
+        catch (JDOMException exception)
+        {
+            throw new ParseException(exception);
+        }
+        catch (IOException exception)
+        {
+            throw new ParseException(exception);
+        }
+
+        boolean merged = false;
+        File temp = null;
+        InputStream in = null;
+        Writer out = null;
+        try
+        {
+            temp = File.createTempFile("xmlmerge", ".tmp", target.getAbsoluteFile().getParentFile());
+            in = new BufferedInputStream(new FileInputStream(original));
+            out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), m_format.getEncoding()));
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+            factory.setProperty(REPORT_CDATA, Boolean.TRUE);
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            merged = merge(reader, patchRoot, out);
+            reader.close();
+            in.close();
+            in = null;
+            out.close();
+            out = null;
+            if (merged)
+            {
+                // the target can't be renamed over on some platforms
+                if (!temp.renameTo(target) && !(target.delete() && temp.renameTo(target)))
+                {
+                    throw new DocumentException(null, "Failed to write " + target);
+                }
+            }
+            else
+            {
+                logger.fine("Cannot merge " + original + " by streaming");
+            }
+        }
+        catch (XMLStreamException exception)
+        {
+            throw new ParseException(exception);
+        }
+        catch (IOException exception)
+        {
+            throw new DocumentException(null, exception);
+        }
+        finally
+        {
+            close(in);
+            close(out);
+            if (temp != null && temp.exists() && !temp.delete())
+            {
+                temp.deleteOnExit();
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Merges the patch root element into an original document.
+     *
+     * @param reader    the original document reader
+     * @param patchRoot the patch root element
+     * @param out       the writer to write the result to
+     * @return <tt>true</tt> if the documents were merged, <tt>false</tt> if the original can't be merged by streaming
+     * @throws XMLStreamException        if the original can't be read
+     * @throws IOException               for any I/O error
+     * @throws AbstractXmlMergeException if the documents can't be merged
+     */
+    private boolean merge(XMLStreamReader reader, Element patchRoot, Writer out)
+            throws XMLStreamException, IOException, AbstractXmlMergeException
+    {
+        XMLOutputter outputter = new XMLOutputter(m_format);
+        String marker = m_format.getIndent() + "<!--" + MARKER + "-->" + m_format.getLineSeparator();
+
+        // read the prolog, and the root element
+        Document document = new Document();
+        while (!reader.isStartElement())
+        {
+            Content content = readMisc(reader);
+            if (reader.getEventType() == XMLStreamConstants.DTD)
+            {
+                return false;
+            }
+            if (content != null)
+            {
+                document.addContent(content);
+            }
+            reader.next();
+        }
+        Element origRoot = createElement(reader);
+        Element patchShell = (Element) patchRoot.clone();
+        patchShell.removeContent();
+        Element outputParent = new Element("root");
+        m_rootMergeAction.perform(origRoot, patchShell, outputParent);
+        Element root = (Element) outputParent.getChildren().get(0);
+        root.detach();
+
+        root.addContent(new Comment(MARKER));
+        document.setRootElement(root);
+        String head = outputter.outputString(document);
+        head = head.substring(0, head.lastIndexOf(marker));
+        out.write(head);
+        root.removeContent();
+
+        // merge the children of the root element, writing each in turn
+        List<Content> patchContentList = patchRoot.getContent();
+        List<Content> matchedPatchContentList = new ArrayList<Content>();
+        List<Content> unmatchedPatchContentList = new ArrayList<Content>();
+        boolean hasElements = false;
+        root.addContent(new Comment(MARKER));
+        StringBuilder text = new StringBuilder();
+        reader.next();
+        while (!reader.isEndElement())
+        {
+            int event = reader.getEventType();
+            if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE)
+            {
+                text.append(reader.getText());
+            }
+            else
+            {
+                addText(root, text);
+                Content content;
+                if (event == XMLStreamConstants.START_ELEMENT)
+                {
+                    content = readElement(reader);
+                    hasElements = true;
+                }
+                else
+                {
+                    content = readMisc(reader);
+                }
+                if (content == null)
+                {
+                    return false;
+                }
+                if (content instanceof Text)
+                {
+                    // CDATA is written together with adjacent text
+                    root.addContent(content);
+                }
+                else
+                {
+                    m_rootMergeAction.mergeContent(root, content, patchContentList, matchedPatchContentList,
+                                                   unmatchedPatchContentList);
+                    write(outputter, root, marker, out);
+                }
+            }
+            reader.next();
+        }
+        if (!hasElements)
+        {
+            return false;
+        }
+        addText(root, text);
+        m_rootMergeAction.mergeUnmatched(root, matchedPatchContentList, unmatchedPatchContentList);
+        write(outputter, root, marker, out);
+
+        // read the epilog
+        while (reader.hasNext())
+        {
+            reader.next();
+            Content content = readMisc(reader);
+            if (content != null)
+            {
+                document.addContent(content);
+            }
+        }
+        String tail = outputter.outputString(document);
+        out.write(tail.substring(tail.indexOf(marker, head.length()) + marker.length()));
+        return true;
+    }
+
+    /**
+     * Writes the content of the root element merged so far, and removes it.
+     * <p/>
+     * The content is written by rendering the root element, with the marker comment as its first child, and
+     * extracting the lines following the marker. Each part of the content is therefore formatted as it would be if
+     * the root element was written with all of its content.
+     *
+     * @param outputter the outputter
+     * @param root      the root element. Its first child is the marker comment
+     * @param marker    the line rendered for the marker comment
+     * @param out       the writer to write to
+     * @throws IOException for any I/O error
+     */
+    private void write(XMLOutputter outputter, Element root, String marker, Writer out) throws IOException
+    {
+        String rendered = outputter.outputString(root);
+        int start = rendered.indexOf(marker) + marker.length();
+        int end = rendered.lastIndexOf(m_format.getLineSeparator());
+        if (start < end)
+        {
+            out.write(rendered, start, end - start);
+            out.write(m_format.getLineSeparator());
+        }
+        root.removeContent();
+        root.addContent(new Comment(MARKER));
+    }
+
+    /**
+     * Reads an element and its content.
+     *
+     * @param reader the reader, positioned at the start of the element
+     * @return the element, or {@code null} if it contains content that can't be merged by streaming
+     * @throws XMLStreamException if the element can't be read
+     */
+    private Element readElement(XMLStreamReader reader) throws XMLStreamException
+    {
+        Element result = createElement(reader);
+        Element current = result;
+        StringBuilder text = new StringBuilder();
+        while (current != null)
+        {
+            int event = reader.next();
+            if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE)
+            {
+                text.append(reader.getText());
+            }
+            else
+            {
+                addText(current, text);
+                if (event == XMLStreamConstants.START_ELEMENT)
+                {
+                    Element child = createElement(reader);
+                    current.addContent(child);
+                    current = child;
+                }
+                else if (event == XMLStreamConstants.END_ELEMENT)
+                {
+                    current = (current != result) ? (Element) current.getParent() : null;
+                }
+                else
+                {
+                    Content content = readMisc(reader);
+                    if (content == null)
+                    {
+                        return null;
+                    }
+                    current.addContent(content);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates an element for the current start element event, as {@link SAXBuilder} would.
+     *
+     * @param reader the reader, positioned at the start of an element
+     * @return a new element, without content
+     */
+    private Element createElement(XMLStreamReader reader)
+    {
+        Namespace namespace = getNamespace(reader.getPrefix(), reader.getNamespaceURI());
+        Element result = new Element(reader.getLocalName(), namespace);
+        for (int i = 0; i < reader.getNamespaceCount(); ++i)
+        {
+            Namespace declared = getNamespace(reader.getNamespacePrefix(i), reader.getNamespaceURI(i));
+            if (!declared.getPrefix().equals(namespace.getPrefix()) || !declared.getURI().equals(namespace.getURI()))
+            {
+                result.addNamespaceDeclaration(declared);
+            }
+        }
+        for (int i = 0; i < reader.getAttributeCount(); ++i)
+        {
+            String uri = reader.getAttributeNamespace(i);
+            Namespace attributeNamespace = (uri == null || uri.length() == 0)
+                    ? Namespace.NO_NAMESPACE : getNamespace(reader.getAttributePrefix(i), uri);
+            result.setAttribute(new Attribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i),
+                                              Attribute.CDATA_TYPE, attributeNamespace));
+        }
+        return result;
+    }
+
+    /**
+     * Creates content for the current event, other than for elements and text.
+     *
+     * @param reader the reader
+     * @return the content, or {@code null} if the event has no content, or content that can't be merged by streaming
+     */
+    private Content readMisc(XMLStreamReader reader)
+    {
+        switch (reader.getEventType())
+        {
+            case XMLStreamConstants.CDATA:
+                return new CDATA(reader.getText());
+            case XMLStreamConstants.COMMENT:
+                return new Comment(reader.getText());
+            case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                String data = reader.getPIData();
+                return new ProcessingInstruction(reader.getPITarget(), (data != null) ? data : "");
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Adds accumulated text to an element.
+     *
+     * @param element the element
+     * @param text    the text. This is cleared
+     */
+    private void addText(Element element, StringBuilder text)
+    {
+        if (text.length() != 0)
+        {
+            element.addContent(new Text(text.toString()));
+            text.setLength(0);
+        }
+    }
+
+    /**
+     * Returns a namespace.
+     *
+     * @param prefix the namespace prefix. May be {@code null}
+     * @param uri    the namespace URI. May be {@code null}
+     * @return the namespace
+     */
+    private static Namespace getNamespace(String prefix, String uri)
+    {
+        return Namespace.getNamespace((prefix != null) ? prefix : "", (uri != null) ? uri : "");
+    }
+
+    /**
+     * Closes a stream, ignoring any exception.
+     *
+     * @param stream the stream to close. May be {@code null}
+     */
+    private static void close(Closeable stream)
+    {
+        if (stream != null)
+        {
+            try
+            {
+                stream.close();
+            }
+            catch (IOException ignore)
+            {
+                // nothing to do
+            }
+        }
+    }
+}
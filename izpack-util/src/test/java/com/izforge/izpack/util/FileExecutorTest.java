@@ -0,0 +1,230 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.api.handler.AbstractUIHandler;
+import com.izforge.izpack.data.ExecutableFile;
+
+
+/**
+ * Tests the {@link FileExecutor#executeFiles(int, PlatformModelMatcher, AbstractUIHandler)} method.
+ */
+public class FileExecutorTest
+{
+
+    /**
+     * Temporary folder to write the scripts to.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The platform-model matcher.
+     */
+    private PlatformModelMatcher matcher;
+
+    /**
+     * The errors emitted by the handler.
+     */
+    private final List<String> errors = new ArrayList<String>();
+
+
+    /**
+     * Sets up the test case.
+     */
+    @Before
+    public void setUp()
+    {
+        assumeTrue(new File("/bin/sh").exists());
+        matcher = new PlatformModelMatcher(new Platforms(), Platforms.LINUX);
+    }
+
+    /**
+     * Verifies that adjacent executables of the same group are executed concurrently.
+     * <p/>
+     * Each script waits for the other to start, so they can only succeed if they run at the same time.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testGroup() throws IOException
+    {
+        File dir = temporaryFolder.getRoot();
+        ExecutableFile a = createScript("a.sh", "touch " + dir + "/a; " + waitFor(dir + "/b"), "group");
+        ExecutableFile b = createScript("b.sh", "touch " + dir + "/b; " + waitFor(dir + "/a"), "group");
+
+        FileExecutor executor = new FileExecutor(Arrays.asList(a, b));
+        assertEquals(0, executor.executeFiles(ExecutableFile.POSTINSTALL, matcher, new Handler()));
+        assertTrue(errors.isEmpty());
+    }
+
+    /**
+     * Verifies that an executable that doesn't complete within its timeout is destroyed, and treated as a failure.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testTimeout() throws IOException
+    {
+        ExecutableFile file = createScript("sleep.sh", "exec sleep 30", null);
+        file.timeout = 1;
+
+        long start = System.currentTimeMillis();
+        FileExecutor executor = new FileExecutor(Arrays.asList(file));
+        assertEquals(-1, executor.executeFiles(ExecutableFile.POSTINSTALL, matcher, new Handler()));
+        assertTrue(System.currentTimeMillis() - start < 20000);
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).contains("Timed out after 1 seconds"));
+    }
+
+    /**
+     * Verifies that a JAR file with a main class is treated as a failure if its class path can't be built, rather
+     * than being executed without it.
+     */
+    @Test
+    public void testClassPathFailure()
+    {
+        ExecutableFile file = new ExecutableFile(new File(temporaryFolder.getRoot(), "test.jar").getPath(),
+                                                 ExecutableFile.JAR, "Main", ExecutableFile.POSTINSTALL,
+                                                 ExecutableFile.ABORT, null, null, true);
+        FileExecutor executor = new FileExecutor(Arrays.asList(file))
+        {
+            @Override
+            protected String buildClassPath(String targetFile) throws Exception
+            {
+                throw new Exception("invalid class path");
+            }
+        };
+        assertEquals(-1, executor.executeFiles(ExecutableFile.POSTINSTALL, matcher, new Handler()));
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).contains("invalid class path"));
+    }
+
+    /**
+     * Verifies that the interrupt status of the thread is preserved if it is interrupted while waiting on a file.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testInterrupted() throws IOException
+    {
+        ExecutableFile file = createScript("exit.sh", "exit 0", null);
+        FileExecutor executor = new FileExecutor(Arrays.asList(file));
+        Thread.currentThread().interrupt();
+        try
+        {
+            assertEquals(-1, executor.executeFiles(ExecutableFile.POSTINSTALL, matcher, new Handler()));
+        }
+        finally
+        {
+            assertTrue(Thread.interrupted());
+        }
+    }
+
+    /**
+     * Creates a post-install shell script that aborts the installation on failure.
+     *
+     * @param name   the script name
+     * @param script the script body
+     * @param group  the script group. May be {@code null}
+     * @return a new executable file
+     * @throws IOException for any I/O error
+     */
+    private ExecutableFile createScript(String name, String script, String group) throws IOException
+    {
+        File file = new File(temporaryFolder.getRoot(), name);
+        FileWriter writer = new FileWriter(file);
+        try
+        {
+            writer.write("#!/bin/sh\n" + script + "\n");
+        }
+        finally
+        {
+            writer.close();
+        }
+        ExecutableFile result = new ExecutableFile(file.getPath(), ExecutableFile.POSTINSTALL, ExecutableFile.ABORT,
+                                                   null, true);
+        result.group = group;
+        return result;
+    }
+
+    /**
+     * Returns a script fragment that waits up to 10 seconds for a file to exist.
+     *
+     * @param path the file path
+     * @return the script fragment. This exits with a non-zero status if the file doesn't exist
+     */
+    private static String waitFor(String path)
+    {
+        return "for i in 1 2 3 4 5 6 7 8 9 10; do [ -f " + path + " ] && exit 0; sleep 1; done; exit 1";
+    }
+
+    /**
+     * Handler that collects errors.
+     */
+    private class Handler implements AbstractUIHandler
+    {
+
+        public void emitNotification(String message)
+        {
+        }
+
+        public boolean emitWarning(String title, String message)
+        {
+            return true;
+        }
+
+        public void emitError(String title, String message)
+        {
+            errors.add(message);
+        }
+
+        public void emitErrorAndBlockNext(String title, String message)
+        {
+            errors.add(message);
+        }
+
+        public int askQuestion(String title, String question, int choices)
+        {
+            return ANSWER_NO;
+        }
+
+        public int askQuestion(String title, String question, int choices, int default_choice)
+        {
+            return ANSWER_NO;
+        }
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Tests the {@link NativeLibraryCache}.
+ */
+public class NativeLibraryCacheTest
+{
+
+    /**
+     * Temporary folder for the jar and the cache.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+    /**
+     * Verifies that a library is extracted once, and then loaded from the cache.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testCache() throws IOException
+    {
+        NativeLibraryCache cache = new NativeLibraryCache(new File(temporaryFolder.getRoot(), "cache"));
+        URL url = createJar("a.jar", "lib.dll", new byte[]{1, 2, 3});
+
+        File file = cache.getLibrary(url, "lib.dll");
+        assertNotNull(file);
+        assertEquals("lib.dll", file.getName());
+        assertArrayEquals(new byte[]{1, 2, 3}, read(file));
+
+        // mark the file, to detect if it is rewritten
+        assertTrue(file.setLastModified(1000));
+        assertEquals(file, new NativeLibraryCache(new File(temporaryFolder.getRoot(), "cache"))
+                .getLibrary(url, "lib.dll"));
+        assertEquals(1000, file.lastModified());
+    }
+
+    /**
+     * Verifies that a cached library is returned without reading the jar.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testCachedNotRead() throws IOException
+    {
+        NativeLibraryCache cache = new NativeLibraryCache(new File(temporaryFolder.getRoot(), "cache"));
+        TestHandler handler = new TestHandler(new byte[]{1, 2, 3}, new byte[]{1, 2, 3});
+        URL url = handler.getURL();
+
+        File file = cache.getLibrary(url, "lib.dll");
+        assertNotNull(file);
+        assertEquals(1, handler.reads);
+
+        assertEquals(file, cache.getLibrary(url, "lib.dll"));
+        assertEquals(file, new NativeLibraryCache(new File(temporaryFolder.getRoot(), "cache"))
+                .getLibrary(url, "lib.dll"));
+        assertEquals(1, handler.reads);
+        assertArrayEquals(new byte[]{1, 2, 3}, read(file));
+    }
+
+    /**
+     * Verifies that a library whose content doesn't match the CRC-32 of its jar entry isn't cached.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testChecksumMismatch() throws IOException
+    {
+        NativeLibraryCache cache = new NativeLibraryCache(new File(temporaryFolder.getRoot(), "cache"));
+        TestHandler handler = new TestHandler(new byte[]{1, 2, 3}, new byte[]{3, 2, 1});
+        assertNull(cache.getLibrary(handler.getURL(), "lib.dll"));
+    }
+
+    /**
+     * Verifies that libraries that haven't been used recently are removed from the cache.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testPrune() throws IOException
+    {
+        File dir = new File(temporaryFolder.getRoot(), "cache");
+        NativeLibraryCache cache = new NativeLibraryCache(dir);
+        File stale = cache.getLibrary(createJar("a.jar", "lib.dll", new byte[]{1}), "lib.dll");
+        File used = cache.getLibrary(createJar("b.jar", "lib.dll", new byte[]{2}), "lib.dll");
+        long time = System.currentTimeMillis() - NativeLibraryCache.MAX_AGE;
+        assertTrue(stale.getParentFile().setLastModified(time - 1000));
+        assertTrue(used.getParentFile().setLastModified(time - 1000));
+
+        // using a library marks it as used
+        cache.getLibrary(createJar("b.jar", "lib.dll", new byte[]{2}), "lib.dll");
+
+        // a new cache removes stale libraries when it is first used
+        File file = new NativeLibraryCache(dir).getLibrary(createJar("c.jar", "lib.dll", new byte[]{3}), "lib.dll");
+        assertNotNull(file);
+        assertFalse(stale.getParentFile().exists());
+        assertFalse(new File(dir, stale.getParentFile().getName() + ".lock").exists());
+        assertTrue(used.isFile());
+        assertTrue(file.isFile());
+    }
+
+    /**
+     * Verifies that different versions of a library are cached separately.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testVersions() throws IOException
+    {
+        NativeLibraryCache cache = new NativeLibraryCache(new File(temporaryFolder.getRoot(), "cache"));
+        File file1 = cache.getLibrary(createJar("a.jar", "lib.dll", new byte[]{1}), "lib.dll");
+        File file2 = cache.getLibrary(createJar("b.jar", "lib.dll", new byte[]{2}), "lib.dll");
+
+        assertFalse(file1.equals(file2));
+        assertArrayEquals(new byte[]{1}, read(file1));
+        assertArrayEquals(new byte[]{2}, read(file2));
+    }
+
+    /**
+     * Verifies that a cached library that doesn't match its checksum is replaced.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testCorrupt() throws IOException
+    {
+        NativeLibraryCache cache = new NativeLibraryCache(new File(temporaryFolder.getRoot(), "cache"));
+        URL url = createJar("a.jar", "lib.dll", new byte[]{1, 2, 3});
+        File file = cache.getLibrary(url, "lib.dll");
+
+        write(file, new byte[]{4, 5});
+        assertEquals(file, cache.getLibrary(url, "lib.dll"));
+        assertArrayEquals(new byte[]{1, 2, 3}, read(file));
+    }
+
+    /**
+     * Verifies that a cached library whose content has been changed without changing its size is replaced.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testModified() throws IOException
+    {
+        NativeLibraryCache cache = new NativeLibraryCache(new File(temporaryFolder.getRoot(), "cache"));
+        TestHandler handler = new TestHandler(new byte[]{1, 2, 3}, new byte[]{1, 2, 3});
+        URL url = handler.getURL();
+        File file = cache.getLibrary(url, "lib.dll");
+        assertEquals(1, handler.reads);
+
+        write(file, new byte[]{3, 2, 1});
+        assertEquals(file, cache.getLibrary(url, "lib.dll"));
+        assertEquals(2, handler.reads);
+        assertArrayEquals(new byte[]{1, 2, 3}, read(file));
+    }
+
+    /**
+     * Verifies that <tt>null</tt> is returned if the library cannot be cached.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testUncacheable() throws IOException
+    {
+        File notDir = temporaryFolder.newFile("cache");
+        NativeLibraryCache cache = new NativeLibraryCache(notDir);
+        assertNull(cache.getLibrary(createJar("a.jar", "lib.dll", new byte[]{1}), "lib.dll"));
+    }
+
+    /**
+     * Creates a jar containing a single entry.
+     *
+     * @param name    the jar name
+     * @param entry   the entry name
+     * @param content the entry content
+     * @return the URL of the entry
+     * @throws IOException for any I/O error
+     */
+    private URL createJar(String name, String entry, byte[] content) throws IOException
+    {
+        File file = new File(temporaryFolder.getRoot(), name);
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(file));
+        try
+        {
+            out.putNextEntry(new JarEntry(entry));
+            out.write(content);
+            out.closeEntry();
+        }
+        finally
+        {
+            out.close();
+        }
+        return new URL("jar:" + file.toURI().toURL() + "!/" + entry);
+    }
+
+    /**
+     * Handler for <em>jar:</em> URLs that describes an entry without reading a jar, and counts the reads of its
+     * content.
+     */
+    private static class TestHandler extends URLStreamHandler
+    {
+
+        /**
+         * The content used to describe the entry.
+         */
+        private final byte[] described;
+
+        /**
+         * The content returned when the entry is read.
+         */
+        private final byte[] content;
+
+        /**
+         * The number of times the content has been read.
+         */
+        private int reads;
+
+        /**
+         * Constructs a {@code TestHandler}.
+         *
+         * @param described the content used to describe the entry
+         * @param content   the content returned when the entry is read
+         */
+        public TestHandler(byte[] described, byte[] content)
+        {
+            this.described = described;
+            this.content = content;
+        }
+
+        /**
+         * Returns the URL of the entry.
+         *
+         * @return the URL
+         * @throws IOException for any I/O error
+         */
+        public URL getURL() throws IOException
+        {
+            return new URL(null, "jar:file:/test.jar!/lib.dll", this);
+        }
+
+        /**
+         * Opens a connection to a URL.
+         *
+         * @param url the URL
+         * @return the connection
+         * @throws IOException for any I/O error
+         */
+        @Override
+        protected URLConnection openConnection(URL url) throws IOException
+        {
+            return new JarURLConnection(url)
+            {
+                @Override
+                public JarEntry getJarEntry()
+                {
+                    CRC32 crc = new CRC32();
+                    crc.update(described);
+                    JarEntry entry = new JarEntry(getEntryName());
+                    entry.setCrc(crc.getValue());
+                    entry.setSize(described.length);
+                    return entry;
+                }
+
+                @Override
+                public JarFile getJarFile() throws IOException
+                {
+                    throw new IOException("Not supported");
+                }
+
+                @Override
+                public void connect()
+                {
+                }
+
+                @Override
+                public InputStream getInputStream()
+                {
+                    ++reads;
+                    return new ByteArrayInputStream(content);
+                }
+            };
+        }
+    }
+
+    /**
+     * Reads a file.
+     *
+     * @param file the file
+     * @return the file content
+     * @throws IOException for any I/O error
+     */
+    private byte[] read(File file) throws IOException
+    {
+        InputStream in = new FileInputStream(file);
+        try
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IoHelper.copyStream(in, out);
+            return out.toByteArray();
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes a file.
+     *
+     * @param file    the file
+     * @param content the content
+     * @throws IOException for any I/O error
+     */
+    private void write(File file, byte[] content) throws IOException
+    {
+        FileOutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(content);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+}
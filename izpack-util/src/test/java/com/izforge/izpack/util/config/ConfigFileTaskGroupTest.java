@@ -0,0 +1,389 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.config;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.util.config.SingleConfigurableTask.Entry;
+import com.izforge.izpack.util.config.SingleConfigurableTask.Entry.Operation;
+import com.izforge.izpack.util.config.base.Config;
+
+
+/**
+ * Tests the {@link ConfigFileTaskGroup} class.
+ * <p/>
+ * Each scenario of the regression corpus is executed twice on copies of the corpus files: once executing the tasks
+ * one by one, and once as a group. The resulting files must be identical, byte for byte.
+ */
+public class ConfigFileTaskGroupTest
+{
+
+    /**
+     * The corpus files.
+     */
+    private static final String[] CORPUS = {"app.ini", "old.ini", "app.properties", "old.properties"};
+
+    /**
+     * Temporary folder to execute the tasks in.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+    /**
+     * Verifies that entries set and removed by several INI file tasks produce the same output when grouped.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testIniEntries() throws Exception
+    {
+        check(new Scenario()
+        {
+            public List<ConfigFileTask> create(File dir)
+            {
+                return Arrays.<ConfigFileTask>asList(
+                        ini(dir, "app.ini", entry("general", "version", "2.0", Operation.SET)),
+                        ini(dir, "app.ini", entry("database", "url", "jdbc:derby:new", Operation.SET),
+                            entry("logging", "level", "warn", Operation.SET)),
+                        ini(dir, "app.ini", entry("general", "loglevel", null, Operation.REMOVE)));
+            }
+        });
+    }
+
+    /**
+     * Verifies that INI file tasks patching from an old file produce the same output when grouped.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testIniPatch() throws Exception
+    {
+        check(new Scenario()
+        {
+            public List<ConfigFileTask> create(File dir)
+            {
+                SingleIniFileTask first = ini(dir, "app.ini");
+                first.setOldFile(new File(dir, "old.ini"));
+                SingleIniFileTask second = ini(dir, "app.ini", entry("general", "version", "2.0", Operation.SET),
+                                               entry("paths", "home", null, Operation.REMOVE));
+                SingleIniFileTask third = ini(dir, "app.ini", entry("general", "name", "new", Operation.SET));
+                third.setOldFile(new File(dir, "old.ini"));
+                third.setPatchPreserveValues(false);
+                third.setCleanup(true);
+                return Arrays.<ConfigFileTask>asList(first, second, third);
+            }
+        });
+    }
+
+    /**
+     * Verifies that entries set and removed by several option file tasks produce the same output when grouped.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testOptionEntries() throws Exception
+    {
+        check(new Scenario()
+        {
+            public List<ConfigFileTask> create(File dir)
+            {
+                return Arrays.<ConfigFileTask>asList(
+                        options(dir, "app.properties", entry(null, "app.version", "2.0", Operation.SET)),
+                        options(dir, "app.properties", entry(null, "ui.theme", "light", Operation.SET)),
+                        options(dir, "app.properties", entry(null, "db.user", "*", Operation.REMOVE)),
+                        options(dir, "app.properties", entry(null, "app.version", "3.0", Operation.SET)));
+            }
+        });
+    }
+
+    /**
+     * Verifies that option file tasks patching from an old file produce the same output when grouped.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testOptionPatch() throws Exception
+    {
+        check(new Scenario()
+        {
+            public List<ConfigFileTask> create(File dir)
+            {
+                SingleOptionFileTask first = options(dir, "app.properties");
+                first.setOldFile(new File(dir, "old.properties"));
+                first.setPatchPreserveEntries(false);
+                SingleOptionFileTask second = options(dir, "app.properties",
+                                                      entry(null, "log.level", "warn", Operation.SET));
+                SingleOptionFileTask third = options(dir, "app.properties");
+                third.setOldFile(new File(dir, "old.properties"));
+                third.setCleanup(true);
+                return Arrays.<ConfigFileTask>asList(first, second, third);
+            }
+        });
+    }
+
+    /**
+     * Verifies that tasks creating a new file produce the same output when grouped.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testCreate() throws Exception
+    {
+        check(new Scenario()
+        {
+            public List<ConfigFileTask> create(File dir)
+            {
+                SingleIniFileTask first = ini(dir, "new/new.ini", entry("a", "b", "1", Operation.SET));
+                first.setNewFile(new File(dir, "app.ini"));
+                return Arrays.<ConfigFileTask>asList(
+                        first,
+                        ini(dir, "new/new.ini", entry("a", "c", "2", Operation.SET)),
+                        ini(dir, "new/new.ini", entry("general", "name", "created", Operation.SET)));
+            }
+        });
+    }
+
+    /**
+     * Verifies that tasks that would produce different output when grouped can't be added to a group.
+     */
+    @Test
+    public void testCanAdd()
+    {
+        File dir = temporaryFolder.getRoot();
+        ConfigFileTaskGroup group = new ConfigFileTaskGroup(ini(dir, "app.ini"));
+        assertTrue(group.canAdd(ini(dir, "app.ini")));
+
+        // different file and type
+        assertFalse(group.canAdd(ini(dir, "other.ini")));
+        assertFalse(group.canAdd(options(dir, "app.ini")));
+
+        // different settings
+        SingleIniFileTask settings = ini(dir, "app.ini");
+        settings.setEmptyLines(false);
+        assertFalse(group.canAdd(settings));
+
+        // reads a different original file
+        SingleIniFileTask original = ini(dir, "app.ini");
+        original.setNewFile(new File(dir, "old.ini"));
+        assertFalse(group.canAdd(original));
+
+        // patches from the output file
+        SingleIniFileTask self = ini(dir, "app.ini");
+        self.setOldFile(new File(dir, "app.ini"));
+        assertFalse(group.canAdd(self));
+
+        // patches from a file cleaned up by a previous task
+        SingleIniFileTask cleanup = ini(dir, "app.ini");
+        cleanup.setOldFile(new File(dir, "old.ini"));
+        cleanup.setCleanup(true);
+        group.add(cleanup);
+        SingleIniFileTask patch = ini(dir, "app.ini");
+        patch.setOldFile(new File(dir, "old.ini"));
+        assertFalse(group.canAdd(patch));
+        assertEquals(2, group.getTasks().size());
+    }
+
+    /**
+     * Verifies that executing a task on its own doesn't change the global configuration.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testGlobalConfigUnchanged() throws Exception
+    {
+        Config global = Config.getGlobal();
+        boolean emptyLines = global.isEmptyLines();
+        boolean headerComment = global.isHeaderComment();
+        boolean autoNumbering = global.isAutoNumbering();
+        String operator = global.getOperator();
+
+        File dir = createCorpus("corpus");
+        SingleIniFileTask task = ini(dir, "app.ini", entry("general", "version", "2.0", Operation.SET));
+        task.setEmptyLines(!emptyLines);
+        task.setHeaderComment(!headerComment);
+        task.setAutoNumbering(!autoNumbering);
+        task.setOperator(":");
+        task.execute();
+
+        assertEquals(emptyLines, global.isEmptyLines());
+        assertEquals(headerComment, global.isHeaderComment());
+        assertEquals(autoNumbering, global.isAutoNumbering());
+        assertEquals(operator, global.getOperator());
+    }
+
+    /**
+     * Executes a scenario one task at a time, and as a group, and verifies the results are identical.
+     *
+     * @param scenario the scenario
+     * @throws Exception for any error
+     */
+    private void check(Scenario scenario) throws Exception
+    {
+        File sequential = createCorpus("sequential");
+        for (ConfigFileTask task : scenario.create(sequential))
+        {
+            task.execute();
+        }
+
+        File grouped = createCorpus("grouped");
+        List<ConfigFileTask> tasks = scenario.create(grouped);
+        ConfigFileTaskGroup group = new ConfigFileTaskGroup(tasks.get(0));
+        for (ConfigFileTask task : tasks.subList(1, tasks.size()))
+        {
+            assertTrue(group.canAdd(task));
+            group.add(task);
+        }
+        group.execute();
+
+        List<String> expected = list(sequential);
+        assertEquals(expected, list(grouped));
+        for (String path : expected)
+        {
+            File file = new File(sequential, path);
+            if (file.isFile())
+            {
+                assertArrayEquals(path, FileUtils.readFileToByteArray(file),
+                                  FileUtils.readFileToByteArray(new File(grouped, path)));
+            }
+        }
+    }
+
+    /**
+     * Copies the corpus to a new directory.
+     *
+     * @param name the directory name
+     * @return the directory
+     * @throws IOException for any I/O error
+     */
+    private File createCorpus(String name) throws IOException
+    {
+        File dir = temporaryFolder.newFolder(name);
+        for (String file : CORPUS)
+        {
+            FileUtils.copyURLToFile(getClass().getResource("corpus/" + file), new File(dir, file));
+        }
+        return dir;
+    }
+
+    /**
+     * Lists the paths of the files in a directory.
+     *
+     * @param dir the directory
+     * @return the sorted relative paths of the files
+     */
+    private List<String> list(File dir)
+    {
+        List<String> result = new ArrayList<String>();
+        for (File file : FileUtils.listFiles(dir, null, true))
+        {
+            result.add(file.getPath().substring(dir.getPath().length() + 1));
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Creates an INI file task.
+     *
+     * @param dir     the directory
+     * @param path    the path of the file to patch, relative to the directory
+     * @param entries the entries to apply
+     * @return a new task
+     */
+    private static SingleIniFileTask ini(File dir, String path, Entry... entries)
+    {
+        SingleIniFileTask task = new SingleIniFileTask();
+        task.setToFile(new File(dir, path));
+        for (Entry entry : entries)
+        {
+            task.addEntry(entry);
+        }
+        return task;
+    }
+
+    /**
+     * Creates an option file task.
+     *
+     * @param dir     the directory
+     * @param path    the path of the file to patch, relative to the directory
+     * @param entries the entries to apply
+     * @return a new task
+     */
+    private static SingleOptionFileTask options(File dir, String path, Entry... entries)
+    {
+        SingleOptionFileTask task = new SingleOptionFileTask();
+        task.setToFile(new File(dir, path));
+        for (Entry entry : entries)
+        {
+            task.addEntry(entry);
+        }
+        return task;
+    }
+
+    /**
+     * Creates an entry.
+     *
+     * @param section   the section. May be {@code null}
+     * @param key       the key
+     * @param value     the value. May be {@code null}
+     * @param operation the operation
+     * @return a new entry
+     */
+    private static Entry entry(String section, String key, String value, Operation operation)
+    {
+        Entry entry = new Entry();
+        entry.setSection(section);
+        entry.setKey(key);
+        entry.setValue(value);
+        entry.setOperation(operation);
+        return entry;
+    }
+
+    /**
+     * A scenario of the regression corpus.
+     */
+    private interface Scenario
+    {
+
+        /**
+         * Creates the tasks of the scenario.
+         *
+         * @param dir the directory containing the corpus files
+         * @return the tasks, in order of execution
+         */
+        List<ConfigFileTask> create(File dir);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.config.base;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+
+/**
+ * Verifies that loading and storing an {@link Ini} preserves empty lines without adding to them.
+ */
+public class IniTest
+{
+
+    /**
+     * Verifies that sections without empty lines between them are separated by the single empty line the
+     * formatter writes at the end of each section.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testNoEmptyLines() throws IOException
+    {
+        checkRoundTrip("[a]\nx = 1\n[b]\ny = 2\n",
+                       "[a]\nx = 1\n\n[b]\ny = 2\n\n");
+    }
+
+    /**
+     * Verifies that empty lines between sections are preserved.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testEmptyLinesBetweenSections() throws IOException
+    {
+        checkRoundTrip("[a]\nx = 1\n\n[b]\ny = 2\n",
+                       "[a]\nx = 1\n\n[b]\ny = 2\n\n");
+        checkRoundTrip("[a]\nx = 1\n\n\n\n[b]\ny = 2\n",
+                       "[a]\nx = 1\n\n\n\n[b]\ny = 2\n\n");
+    }
+
+    /**
+     * Verifies that empty lines within sections, and around comments, are preserved.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testEmptyLinesAndComments() throws IOException
+    {
+        checkRoundTrip("; header\n\n[a]\nx = 1\n\ny = 3\n\n; about b\n[b]\ny = 2\n",
+                       "# header\n\n[a]\nx = 1\n\ny = 3\n\n# about b\n[b]\ny = 2\n\n");
+    }
+
+    /**
+     * Verifies that, when empty lines aren't preserved, only those the formatter writes between sections remain.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testEmptyLinesDisabled() throws IOException
+    {
+        Config config = new Config();
+        config.setEmptyLines(false);
+        String expected = "[a]\nx = 1\ny = 3\n\n[b]\ny = 2\n\n";
+        String stored = roundTrip("[a]\nx = 1\n\ny = 3\n\n\n[b]\ny = 2\n", config);
+        assertEquals(expected, stored);
+        assertEquals(expected, roundTrip(stored, config));
+    }
+
+    /**
+     * Verifies that an INI file is stored as expected, and that loading and storing the result again doesn't
+     * change it.
+     *
+     * @param input    the INI file content
+     * @param expected the expected content after loading and storing it
+     * @throws IOException for any I/O error
+     */
+    private void checkRoundTrip(String input, String expected) throws IOException
+    {
+        Config config = new Config();
+        config.setEmptyLines(true);
+        config.setComment(true);
+        String stored = roundTrip(input, config);
+        assertEquals(expected, stored);
+        for (int i = 0; i < 3; ++i)
+        {
+            stored = roundTrip(stored, config);
+            assertEquals(expected, stored);
+        }
+    }
+
+    /**
+     * Loads and stores an INI file.
+     *
+     * @param input  the INI file content
+     * @param config the configuration to use
+     * @return the stored content
+     * @throws IOException for any I/O error
+     */
+    private String roundTrip(String input, Config config) throws IOException
+    {
+        Ini ini = new Ini();
+        ini.setConfig(config);
+        ini.load(new StringReader(input));
+        StringWriter writer = new StringWriter();
+        ini.store(writer);
+        return writer.toString().replace(System.getProperty("line.separator"), "\n");
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Tests the {@link BinaryDelta} class.
+ */
+public class BinaryDeltaTest
+{
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Random content generator.
+     */
+    private final Random random = new Random(42);
+
+
+    /**
+     * Verifies that a delta of a file with inserted content reproduces the file, and only contains the insertion.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testInsertion() throws IOException
+    {
+        byte[] base = random(1000000);
+        byte[] inserted = random(12345);
+        byte[] target = new byte[base.length + inserted.length];
+        System.arraycopy(base, 0, target, 0, 400000);
+        System.arraycopy(inserted, 0, target, 400000, inserted.length);
+        System.arraycopy(base, 400000, target, 400000 + inserted.length, base.length - 400000);
+
+        byte[] delta = checkDelta(base, target);
+        assertTrue(delta.length < inserted.length + 2 * 2048 + 100);
+    }
+
+    /**
+     * Verifies that a delta of unrelated files reproduces the target file.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testUnrelated() throws IOException
+    {
+        checkDelta(random(100000), random(150000));
+    }
+
+    /**
+     * Verifies that deltas can be created against empty and short files, and for empty files.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testShortFiles() throws IOException
+    {
+        checkDelta(new byte[0], random(5000));
+        checkDelta(random(10), random(5000));
+        checkDelta(random(5000), new byte[0]);
+    }
+
+    /**
+     * Verifies that a delta of a file against itself reproduces the file, and is small.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testIdentical() throws IOException
+    {
+        byte[] base = random(500000);
+        byte[] delta = checkDelta(base, base);
+
+        // only the partial block at the end of the file need be inserted
+        assertTrue(delta.length < 2048 + 100);
+    }
+
+    /**
+     * Creates a delta between two files, and verifies that applying it reproduces the target.
+     *
+     * @param base   the base content
+     * @param target the target content
+     * @return the delta
+     * @throws IOException for any I/O error
+     */
+    private byte[] checkDelta(byte[] base, byte[] target) throws IOException
+    {
+        File baseFile = write(base);
+        File targetFile = write(target);
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        BinaryDelta.encode(baseFile, targetFile, delta);
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        BinaryDelta.apply(baseFile, new ByteArrayInputStream(delta.toByteArray()), result);
+        assertArrayEquals(target, result.toByteArray());
+        return delta.toByteArray();
+    }
+
+    /**
+     * Writes content to a new temporary file.
+     *
+     * @param content the content
+     * @return the file
+     * @throws IOException for any I/O error
+     */
+    private File write(byte[] content) throws IOException
+    {
+        File file = temporaryFolder.newFile();
+        FileOutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(content);
+        }
+        finally
+        {
+            out.close();
+        }
+        return file;
+    }
+
+    /**
+     * Returns random content.
+     *
+     * @param length the content length
+     * @return the content
+     */
+    private byte[] random(int length)
+    {
+        byte[] result = new byte[length];
+        random.nextBytes(result);
+        return result;
+    }
+}
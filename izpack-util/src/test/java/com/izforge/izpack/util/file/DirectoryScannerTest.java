@@ -0,0 +1,250 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.izforge.izpack.util.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.api.data.InstallData;
+import com.izforge.izpack.util.file.types.selectors.FileSelector;
+
+
+/**
+ * Verifies that scanning a {@link DirectoryScanner} with several threads gives the same results as scanning it on
+ * the calling thread.
+ */
+public class DirectoryScannerTest
+{
+
+    /**
+     * Temporary folder to create the tree in.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The base directory.
+     */
+    private File basedir;
+
+
+    /**
+     * Sets up the test case.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        basedir = temporaryFolder.newFolder("base");
+        create(basedir, 3);
+        assertTrue(new File(basedir, "CVS").mkdir());
+        assertTrue(new File(basedir, "CVS" + File.separator + "Entries").createNewFile());
+    }
+
+    /**
+     * Verifies that scanning everything gives the same results.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testIncludeAll() throws Exception
+    {
+        check(new String[]{"**"}, null, null, true, true);
+        check(null, null, null, true, true);
+    }
+
+    /**
+     * Verifies that scanning with excludes, and the default excludes, gives the same results.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testExcludes() throws Exception
+    {
+        check(new String[]{"**"}, new String[]{"**/file1", "dir2/**", "dir0/dir1/"}, null, true, true);
+        check(new String[]{"**/*"}, new String[]{"**/dir1/**"}, null, true, true);
+    }
+
+    /**
+     * Verifies that scanning with selectors gives the same results.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testSelectors() throws Exception
+    {
+        FileSelector selector = new FileSelector()
+        {
+            public boolean isSelected(InstallData idata, File basedir, String filename, File file)
+            {
+                return !filename.endsWith("2");
+            }
+        };
+        check(new String[]{"**"}, new String[]{"**/file0"}, selector, true, true);
+    }
+
+    /**
+     * Verifies that case-insensitive scanning gives the same results.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testCaseInsensitive() throws Exception
+    {
+        check(new String[]{"**"}, new String[]{"**/DIR1/**", "**/FILE2"}, null, false, true);
+        check(new String[]{"**"}, new String[]{"**/DIR1/**", "**/FILE2"}, null, true, true);
+    }
+
+    /**
+     * Verifies that scanning with symbolic links to directories gives the same results, whether or not they are
+     * followed.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testSymlinks() throws Exception
+    {
+        File ln = new File("/bin/ln");
+        assumeTrue(ln.exists());
+        File target = temporaryFolder.newFolder("target");
+        create(target, 1);
+        File link = new File(basedir, "dir1" + File.separator + "link");
+        Process process = new ProcessBuilder(ln.getPath(), "-s", target.getPath(), link.getPath()).start();
+        assertEquals(0, process.waitFor());
+        assertTrue(link.isDirectory());
+
+        check(new String[]{"**"}, new String[]{"**/file3"}, null, true, true);
+        check(new String[]{"**"}, new String[]{"**/file3"}, null, true, false);
+    }
+
+    /**
+     * Scans the base directory on the calling thread and with several threads, and verifies the results are the
+     * same.
+     *
+     * @param includes       the include patterns. May be {@code null}
+     * @param excludes       the exclude patterns. May be {@code null}
+     * @param selector       the selector. May be {@code null}
+     * @param caseSensitive  determines if patterns are case sensitive
+     * @param followSymlinks determines if symbolic links are followed
+     * @throws Exception for any error
+     */
+    private void check(String[] includes, String[] excludes, FileSelector selector, boolean caseSensitive,
+                       boolean followSymlinks) throws Exception
+    {
+        DirectoryScanner expected = scan(1, includes, excludes, selector, caseSensitive, followSymlinks);
+        DirectoryScanner actual = scan(4, includes, excludes, selector, caseSensitive, followSymlinks);
+
+        assertTrue(expected.getIncludedFilesCount() > 0);
+        assertEquals(expected.isEverythingIncluded(), actual.isEverythingIncluded());
+        assertEquals(expected.getIncludedFilesCount(), actual.getIncludedFilesCount());
+        assertEquals(expected.getIncludedDirsCount(), actual.getIncludedDirsCount());
+        checkEquals(expected.getIncludedFiles(), actual.getIncludedFiles());
+        checkEquals(expected.getIncludedDirectories(), actual.getIncludedDirectories());
+        checkEquals(expected.getExcludedFiles(), actual.getExcludedFiles());
+        checkEquals(expected.getExcludedDirectories(), actual.getExcludedDirectories());
+        checkEquals(expected.getNotIncludedFiles(), actual.getNotIncludedFiles());
+        checkEquals(expected.getNotIncludedDirectories(), actual.getNotIncludedDirectories());
+        checkEquals(expected.getDeselectedFiles(), actual.getDeselectedFiles());
+        checkEquals(expected.getDeselectedDirectories(), actual.getDeselectedDirectories());
+    }
+
+    /**
+     * Scans the base directory.
+     *
+     * @param threads        the no. of threads to scan with
+     * @param includes       the include patterns. May be {@code null}
+     * @param excludes       the exclude patterns. May be {@code null}
+     * @param selector       the selector. May be {@code null}
+     * @param caseSensitive  determines if patterns are case sensitive
+     * @param followSymlinks determines if symbolic links are followed
+     * @return the scanner
+     * @throws Exception for any error
+     */
+    private DirectoryScanner scan(int threads, String[] includes, String[] excludes, FileSelector selector,
+                                  boolean caseSensitive, boolean followSymlinks) throws Exception
+    {
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(basedir);
+        scanner.setThreads(threads);
+        scanner.setIncludes(includes);
+        scanner.setExcludes(excludes);
+        scanner.addDefaultExcludes();
+        scanner.setCaseSensitive(caseSensitive);
+        scanner.setFollowSymlinks(followSymlinks);
+        if (selector != null)
+        {
+            scanner.selectors = new FileSelector[]{selector};
+        }
+        scanner.scan();
+        return scanner;
+    }
+
+    /**
+     * Verifies that two scan results contain the same names.
+     * <p/>
+     * Only scans with several threads are sorted, so the names are compared in sorted order.
+     *
+     * @param expected the expected names
+     * @param actual   the actual names
+     */
+    private void checkEquals(String[] expected, String[] actual)
+    {
+        Arrays.sort(expected);
+        Arrays.sort(actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    /**
+     * Creates a directory tree.
+     *
+     * @param dir   the directory to populate
+     * @param depth the no. of directory levels to create below the directory
+     * @throws IOException for any I/O error
+     */
+    private void create(File dir, int depth) throws IOException
+    {
+        for (int i = 0; i < 4; ++i)
+        {
+            assertTrue(new File(dir, "file" + i).createNewFile());
+        }
+        if (depth > 0)
+        {
+            for (int i = 0; i < 3; ++i)
+            {
+                File child = new File(dir, "dir" + i);
+                assertTrue(child.mkdir());
+                create(child, depth - 1);
+            }
+        }
+    }
+}
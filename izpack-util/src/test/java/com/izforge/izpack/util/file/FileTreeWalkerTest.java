@@ -0,0 +1,319 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.izforge.izpack.util.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Tests the {@link FileTreeWalker} class.
+ */
+public class FileTreeWalkerTest
+{
+
+    /**
+     * Temporary folder to create the tree in.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The root of the tree.
+     */
+    private File root;
+
+    /**
+     * The relative paths of the directories in the tree.
+     */
+    private final Set<String> dirs = new HashSet<String>();
+
+    /**
+     * The relative paths of the files in the tree.
+     */
+    private final Set<String> files = new HashSet<String>();
+
+
+    /**
+     * Sets up the test case.
+     * <p/>
+     * This creates a tree 3 levels deep, with 4 directories and 5 files in each directory.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        root = temporaryFolder.newFolder("root");
+        create(root, "", 3);
+    }
+
+    /**
+     * Verifies that a walk on the calling thread visits every file and directory exactly once.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testWalk() throws Exception
+    {
+        checkWalk(1);
+    }
+
+    /**
+     * Verifies that a walk with several threads visits every file and directory exactly once.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testParallelWalk() throws Exception
+    {
+        for (int i = 0; i < 10; ++i)
+        {
+            checkWalk(4);
+        }
+    }
+
+    /**
+     * Verifies that the contents of a directory are skipped if the visitor returns {@code false}.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testSkipDirectory() throws Exception
+    {
+        for (int threads = 1; threads <= 4; threads += 3)
+        {
+            Collector collector = new Collector()
+            {
+                @Override
+                public boolean visitDirectory(String name, File dir) throws Exception
+                {
+                    super.visitDirectory(name, dir);
+                    return !name.equals("dir0");
+                }
+            };
+            new FileTreeWalker(threads).walk(root, collector);
+            String prefix = "dir0" + File.separator;
+            assertTrue(collector.dirs.contains("dir0"));
+            for (String name : collector.dirs)
+            {
+                assertFalse(name.startsWith(prefix));
+            }
+            for (String name : collector.files)
+            {
+                assertFalse(name.startsWith(prefix));
+            }
+            assertEquals(files.size() - 5 - 4 * 5 - 16 * 5, collector.files.size());
+        }
+    }
+
+    /**
+     * Verifies that an exception thrown by the visitor is propagated from the walk.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testException() throws Exception
+    {
+        final Exception exception = new Exception("test");
+        for (int threads = 1; threads <= 4; threads += 3)
+        {
+            try
+            {
+                new FileTreeWalker(threads).walk(root, new Collector()
+                {
+                    @Override
+                    public void visitFile(String name, File file) throws Exception
+                    {
+                        if (name.endsWith("file3"))
+                        {
+                            throw exception;
+                        }
+                    }
+                });
+                fail("Expected the walk to fail");
+            }
+            catch (Exception expected)
+            {
+                assertSame(exception, expected);
+            }
+        }
+    }
+
+    /**
+     * Verifies that an error thrown on a pool thread is propagated from the walk, rather than the walk returning
+     * partial results.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testError() throws Exception
+    {
+        final Error error = new StackOverflowError();
+        try
+        {
+            new FileTreeWalker(4).walk(root, new Collector()
+            {
+                @Override
+                public boolean visitDirectory(String name, File dir) throws Exception
+                {
+                    if (name.endsWith("dir2" + File.separator + "dir1"))
+                    {
+                        throw error;
+                    }
+                    return true;
+                }
+            });
+            fail("Expected the walk to fail");
+        }
+        catch (Error expected)
+        {
+            assertSame(error, expected);
+        }
+    }
+
+    /**
+     * Verifies that a walk fails if the root can't be listed.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testMissingRoot() throws Exception
+    {
+        File missing = new File(root, "missing");
+        for (int threads = 1; threads <= 4; threads += 3)
+        {
+            try
+            {
+                new FileTreeWalker(threads).walk(missing, new Collector());
+                fail("Expected the walk to fail");
+            }
+            catch (IOException expected)
+            {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Walks the tree, and verifies every file and directory is visited exactly once.
+     *
+     * @param threads the no. of threads to walk with
+     * @throws Exception for any error
+     */
+    private void checkWalk(int threads) throws Exception
+    {
+        Collector collector = new Collector();
+        new FileTreeWalker(threads).walk(root, collector);
+        assertEquals(dirs, collector.dirs);
+        assertEquals(files, collector.files);
+        assertEquals(dirs.size() + files.size(), collector.count);
+    }
+
+    /**
+     * Creates a directory tree.
+     *
+     * @param dir   the directory to populate
+     * @param vpath the path of the directory relative to the root, including a trailing separator if not empty
+     * @param depth the no. of directory levels to create below the directory
+     * @throws IOException for any I/O error
+     */
+    private void create(File dir, String vpath, int depth) throws IOException
+    {
+        for (int i = 0; i < 5; ++i)
+        {
+            File file = new File(dir, "file" + i);
+            assertTrue(file.createNewFile());
+            files.add(vpath + file.getName());
+        }
+        if (depth > 0)
+        {
+            for (int i = 0; i < 4; ++i)
+            {
+                File child = new File(dir, "dir" + i);
+                assertTrue(child.mkdir());
+                dirs.add(vpath + child.getName());
+                create(child, vpath + child.getName() + File.separator, depth - 1);
+            }
+        }
+    }
+
+    /**
+     * Visitor that collects the files and directories it is passed.
+     */
+    private static class Collector implements FileTreeWalker.Visitor
+    {
+
+        /**
+         * The directories visited.
+         */
+        private final Set<String> dirs = Collections.synchronizedSet(new HashSet<String>());
+
+        /**
+         * The files visited.
+         */
+        private final Set<String> files = Collections.synchronizedSet(new HashSet<String>());
+
+        /**
+         * The no. of files and directories visited.
+         */
+        private int count;
+
+        @Override
+        public boolean visitDirectory(String name, File dir) throws Exception
+        {
+            assertTrue(dir.isDirectory());
+            dirs.add(name);
+            increment();
+            return true;
+        }
+
+        @Override
+        public void visitFile(String name, File file) throws Exception
+        {
+            assertTrue(file.isFile());
+            files.add(name);
+            increment();
+        }
+
+        /**
+         * Increments the no. of files and directories visited.
+         */
+        private synchronized void increment()
+        {
+            ++count;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.izforge.izpack.util.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link PathHashSet} class.
+ */
+public class PathHashSetTest
+{
+
+    /**
+     * Verifies that added paths are found, and other paths aren't.
+     */
+    @Test
+    public void testContains()
+    {
+        PathHashSet set = new PathHashSet(2);
+        assertTrue(set.add(new File("myapp", "a.txt")));
+        assertTrue(set.add(new File("myapp", "b")));
+        assertEquals(2, set.size());
+
+        assertTrue(set.contains(new File("myapp", "a.txt")));
+        assertTrue(set.contains(new File("myapp" + File.separator + "b")));
+        assertFalse(set.contains(new File("myapp", "c.txt")));
+        assertFalse(set.contains(new File("myapp")));
+        assertFalse(set.contains(new File("")));
+    }
+
+    /**
+     * Verifies that adding a path twice doesn't change the set.
+     */
+    @Test
+    public void testDuplicates()
+    {
+        PathHashSet set = new PathHashSet(10);
+        assertTrue(set.add(new File("a")));
+        assertFalse(set.add(new File("a")));
+        assertEquals(1, set.size());
+    }
+
+    /**
+     * Verifies that paths are still found after the set grows beyond its expected size.
+     */
+    @Test
+    public void testResize()
+    {
+        PathHashSet set = new PathHashSet(0);
+        for (int i = 0; i < 10000; ++i)
+        {
+            assertTrue(set.add(new File("dir" + (i % 100), "file" + i)));
+        }
+        assertEquals(10000, set.size());
+        for (int i = 0; i < 10000; ++i)
+        {
+            assertTrue(set.contains(new File("dir" + (i % 100), "file" + i)));
+            assertFalse(set.contains(new File("dir" + (i % 100), "other" + i)));
+        }
+    }
+
+    /**
+     * Verifies that paths are compared the way {@link File} compares them.
+     */
+    @Test
+    public void testCase()
+    {
+        PathHashSet set = new PathHashSet(1);
+        set.add(new File("Dir", "File.txt"));
+        boolean caseSensitive = new File("a").compareTo(new File("A")) != 0;
+        assertEquals(!caseSensitive, set.contains(new File("dir", "file.txt")));
+        assertTrue(set.contains(new File("Dir", "File.txt")));
+    }
+}
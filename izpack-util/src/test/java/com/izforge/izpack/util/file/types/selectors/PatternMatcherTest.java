@@ -0,0 +1,176 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file.types.selectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Random;
+
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link PatternMatcher} class.
+ */
+public class PatternMatcherTest
+{
+
+    /**
+     * Segments used to generate random patterns.
+     */
+    private static final String[] PATTERN_SEGMENTS = {"**", "*", "a", "b", "A", "*.java", "*.JAVA", "?", "a*", "*b",
+                                                      "a?c", "abc", "x.java"};
+
+    /**
+     * Segments used to generate random paths.
+     */
+    private static final String[] PATH_SEGMENTS = {"a", "b", "A", "abc", "aBc", "x.java", "y.Java", "ab", "c"};
+
+    /**
+     * Random generator.
+     */
+    private final Random random = new Random(42);
+
+
+    /**
+     * Tests the fast paths.
+     */
+    @Test
+    public void testFastPaths()
+    {
+        PatternMatcher matcher = new PatternMatcher(new String[]{path("**/*.java"), path("**/build.xml"),
+                                                                 path("src/main/**"), path("lib/*.jar")}, true);
+        assertTrue(matcher.matches(path("a/b/C.java")));
+        assertTrue(matcher.matches("C.java"));
+        assertFalse(matcher.matches(path("a/b/C.jav")));
+        assertTrue(matcher.matches(path("x/build.xml")));
+        assertTrue(matcher.matches(path("src/main")));
+        assertTrue(matcher.matches(path("src/main/x/y.txt")));
+        assertFalse(matcher.matches(path("src/test/x.txt")));
+        assertTrue(matcher.matches(path("lib/a.jar")));
+        assertFalse(matcher.matches(path("lib/x/a.jar")));
+        assertFalse(matcher.matches(path("/lib/a.jar")));
+
+        assertTrue(matcher.couldMatchBelow("anything"));
+    }
+
+    /**
+     * Verifies that directories are only considered to hold matches if a pattern can match below them.
+     */
+    @Test
+    public void testCouldMatchBelow()
+    {
+        PatternMatcher matcher = new PatternMatcher(new String[]{path("src/main/*.java"), path("lib/*/x.jar")},
+                                                    true);
+        assertTrue(matcher.couldMatchBelow(""));
+        assertTrue(matcher.couldMatchBelow("src"));
+        assertTrue(matcher.couldMatchBelow(path("src/main")));
+        assertFalse(matcher.couldMatchBelow(path("src/main/a.java")));
+        assertFalse(matcher.couldMatchBelow(path("src/test")));
+        assertTrue(matcher.couldMatchBelow(path("lib/any")));
+        assertFalse(matcher.couldMatchBelow(path("lib/any/x.jar")));
+    }
+
+    /**
+     * Verifies that matching is equivalent to {@link SelectorUtils} for random patterns and paths.
+     */
+    @Test
+    public void testEquivalence()
+    {
+        for (int i = 0; i < 2000; ++i)
+        {
+            String[] patterns = new String[1 + random.nextInt(5)];
+            for (int j = 0; j < patterns.length; ++j)
+            {
+                patterns[j] = random(PATTERN_SEGMENTS, 4);
+            }
+            boolean caseSensitive = random.nextBoolean();
+            PatternMatcher matcher = new PatternMatcher(patterns, caseSensitive);
+            for (int j = 0; j < 20; ++j)
+            {
+                String path = random(PATH_SEGMENTS, 5);
+                boolean matches = false;
+                boolean couldMatchBelow = false;
+                for (String pattern : patterns)
+                {
+                    matches |= SelectorUtils.matchPath(pattern, path, caseSensitive);
+                    couldMatchBelow |= SelectorUtils.matchPatternStart(pattern, path, caseSensitive)
+                            && isDeeper(pattern, path);
+                }
+                String message = path + " against " + java.util.Arrays.toString(patterns);
+                assertEquals(message, matches, matcher.matches(path));
+                assertEquals(message, couldMatchBelow, matcher.couldMatchBelow(path));
+            }
+        }
+    }
+
+    /**
+     * Determines if a pattern is deeper than a path, as per <tt>DirectoryScanner</tt>.
+     *
+     * @param pattern the pattern
+     * @param path    the path
+     * @return <code>true</code> if the pattern contains <tt>**</tt> or has more segments than the path
+     */
+    private static boolean isDeeper(String pattern, String path)
+    {
+        return SelectorUtils.tokenizePath(pattern).contains("**")
+                || SelectorUtils.tokenizePath(pattern).size() > SelectorUtils.tokenizePath(path).size();
+    }
+
+    /**
+     * Generates a random path from segments, possibly with a leading separator.
+     *
+     * @param segments    the segments to choose from
+     * @param maxSegments the maximum no. of segments
+     * @return a new path
+     */
+    private String random(String[] segments, int maxSegments)
+    {
+        StringBuilder result = new StringBuilder();
+        if (random.nextInt(10) == 0)
+        {
+            result.append(File.separatorChar);
+        }
+        int count = random.nextInt(maxSegments + 1);
+        for (int i = 0; i < count; ++i)
+        {
+            if (i > 0)
+            {
+                result.append(File.separatorChar);
+            }
+            result.append(segments[random.nextInt(segments.length)]);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Converts a path using '/' to use the platform separator.
+     *
+     * @param path the path
+     * @return the converted path
+     */
+    private static String path(String path)
+    {
+        return path.replace('/', File.separatorChar);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.izforge.izpack.util.xmlmerge.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jaxen.jdom.JDOMXPath;
+import org.jdom.Document;
+import org.jdom.Element;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.izforge.izpack.util.xmlmerge.MatchException;
+import com.izforge.izpack.util.xmlmerge.Operation;
+import com.izforge.izpack.util.xmlmerge.action.CompleteAction;
+import com.izforge.izpack.util.xmlmerge.action.OverrideAction;
+import com.izforge.izpack.util.xmlmerge.action.ReplaceAction;
+
+
+/**
+ * Tests the {@link XPathOperationFactory} class.
+ */
+public class XPathOperationFactoryTest
+{
+
+    /**
+     * The operation returned for <tt>/root/a</tt> elements.
+     */
+    private final Operation replace = new ReplaceAction();
+
+    /**
+     * The default operation.
+     */
+    private final Operation complete = new CompleteAction();
+
+    /**
+     * The factory to test.
+     */
+    private XPathOperationFactory factory;
+
+    /**
+     * The root element.
+     */
+    private Element root;
+
+
+    /**
+     * Sets up the test case.
+     */
+    @Before
+    public void setUp()
+    {
+        Map<String, Operation> map = new LinkedHashMap<String, Operation>();
+        map.put("/root/a", replace);
+        map.put("/root/b[@id='1']", new OverrideAction());
+        factory = new XPathOperationFactory();
+        factory.setOperationMap(map);
+        factory.setDefaultOperation(complete);
+
+        root = new Element("root");
+        new Document(root);
+    }
+
+    /**
+     * Verifies that operations are resolved from the XPath expressions matching either element, falling back to
+     * the default operation.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testGetOperation() throws Exception
+    {
+        Element a = add("a", null);
+        Element b1 = add("b", "1");
+        Element b2 = add("b", "2");
+        Element c = add("c", null);
+
+        assertSame(replace, factory.getOperation(a, null));
+        assertSame(replace, factory.getOperation(null, a));
+        assertTrue(factory.getOperation(b1, b2) instanceof OverrideAction);
+        assertTrue(factory.getOperation(b2, b1) instanceof OverrideAction);
+        assertSame(complete, factory.getOperation(b2, c));
+        assertSame(complete, factory.getOperation(null, null));
+        assertTrue(!factory.isEmpty());
+    }
+
+    /**
+     * Verifies that each XPath expression is compiled once, and the compiled form reused for subsequent lookups.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testXPathCompiledOnce() throws Exception
+    {
+        Element a = add("a", null);
+        assertSame(replace, factory.getOperation(a, null));
+
+        JDOMXPath xPath = factory.getXPath("/root/a");
+        assertNotNull(xPath);
+        assertEquals("/root/a", xPath.toString());
+        for (int i = 0; i < 10; ++i)
+        {
+            assertSame(replace, factory.getOperation(null, a));
+            assertSame(complete, factory.getOperation(add("c", null), null));
+        }
+        assertSame(xPath, factory.getXPath("/root/a"));
+        assertSame(factory.getXPath("/root/b[@id='1']"), factory.getXPath("/root/b[@id='1']"));
+    }
+
+    /**
+     * Verifies that a {@link MatchException} is thrown for an invalid XPath expression.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testInvalidXPath() throws Exception
+    {
+        Map<String, Operation> map = new LinkedHashMap<String, Operation>();
+        map.put("/root/[", replace);
+        factory.setOperationMap(map);
+        try
+        {
+            factory.getOperation(add("a", null), null);
+            fail("Expected MatchException");
+        }
+        catch (MatchException expected)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Verifies that the default operation is returned when there are no XPath expressions.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testEmpty() throws Exception
+    {
+        XPathOperationFactory empty = new XPathOperationFactory();
+        assertTrue(empty.isEmpty());
+        assertNull(empty.getOperation(add("a", null), null));
+        empty.setDefaultOperation(complete);
+        assertSame(complete, empty.getOperation(add("a", null), null));
+    }
+
+    /**
+     * Adds a child element to the root.
+     *
+     * @param name the element name
+     * @param id   the <em>id</em> attribute. May be <tt>null</tt>
+     * @return the new element
+     */
+    private Element add(String name, String id)
+    {
+        Element result = new Element(name);
+        if (id != null)
+        {
+            result.setAttribute("id", id);
+        }
+        root.addContent(result);
+        return result;
+    }
+}
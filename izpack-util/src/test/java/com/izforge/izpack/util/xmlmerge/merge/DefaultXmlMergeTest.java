@@ -0,0 +1,308 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.izforge.izpack.util.xmlmerge.merge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.jdom.output.Format;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.util.xmlmerge.XmlMerge;
+import com.izforge.izpack.util.xmlmerge.action.FullMergeAction;
+import com.izforge.izpack.util.xmlmerge.action.OrderedMergeAction;
+import com.izforge.izpack.util.xmlmerge.action.ReplaceAction;
+import com.izforge.izpack.util.xmlmerge.config.ConfigurableXmlMerge;
+import com.izforge.izpack.util.xmlmerge.config.PropertyXPathConfigurer;
+import com.izforge.izpack.util.xmlmerge.factory.StaticOperationFactory;
+import com.izforge.izpack.util.xmlmerge.matcher.IdAttributeMatcher;
+import com.izforge.izpack.util.xmlmerge.matcher.NameAttributeMatcher;
+import com.izforge.izpack.util.xmlmerge.matcher.SkipMatcher;
+
+
+/**
+ * Tests the {@link DefaultXmlMerge} class.
+ */
+public class DefaultXmlMergeTest
+{
+
+    /**
+     * The original document.
+     */
+    private static final String ORIGINAL = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<!-- prolog -->\n"
+            + "<?target data?>\n"
+            + "<root version=\"1\" xmlns:x=\"urn:x\">\n"
+            + "  <entry id=\"a\" name=\"first\">original a</entry>\n"
+            + "  <!-- comment -->\n"
+            + "  <entry id=\"b\" name=\"second\"><value>b</value><x:value>x</x:value></entry>\n"
+            + "  text <![CDATA[<cdata>]]> &amp; more\n"
+            + "  <entry name=\"third\" café=\"&#xE9;\">original c</entry>\n"
+            + "  <other/>\n"
+            + "</root>\n"
+            + "<!-- epilog -->\n";
+
+    /**
+     * The patch.
+     */
+    private static final String PATCH = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<root version=\"2\" xmlns:x=\"urn:x\">\n"
+            + "  <entry id=\"b\" name=\"third\"><value>patched b</value><extra/></entry>\n"
+            + "  <entry id=\"d\" name=\"first\">new d</entry>\n"
+            + "  <other attribute=\"1\"><x:child/></other>\n"
+            + "</root>\n";
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+    /**
+     * Verifies that streaming the original document produces the same result as merging it in memory, for the
+     * standard matchers.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testStreamingMatchesInMemoryMerge() throws Exception
+    {
+        checkStreamed(new DefaultXmlMerge(), ORIGINAL, PATCH);
+
+        DefaultXmlMerge idMerge = new DefaultXmlMerge();
+        idMerge.setRootMatcher(new IdAttributeMatcher());
+        checkStreamed(idMerge, ORIGINAL, PATCH);
+
+        DefaultXmlMerge nameMerge = new DefaultXmlMerge();
+        nameMerge.setRootMatcher(new NameAttributeMatcher());
+        checkStreamed(nameMerge, ORIGINAL, PATCH);
+
+        DefaultXmlMerge orderedMerge = new DefaultXmlMerge();
+        orderedMerge.setRootMergeAction(new OrderedMergeAction());
+        orderedMerge.setRootMatcher(new IdAttributeMatcher());
+        checkStreamed(orderedMerge, ORIGINAL, PATCH);
+
+        FullMergeAction replaceChildren = new FullMergeAction();
+        replaceChildren.setActionFactory(new StaticOperationFactory(new ReplaceAction()));
+        DefaultXmlMerge replaceMerge = new DefaultXmlMerge();
+        replaceMerge.setRootMergeAction(replaceChildren);
+        replaceMerge.setRootMatcher(new IdAttributeMatcher());
+        checkStreamed(replaceMerge, ORIGINAL, PATCH);
+    }
+
+    /**
+     * Verifies that the result of a merge can replace the original file.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testMergeInPlace() throws Exception
+    {
+        DefaultXmlMerge merge = new DefaultXmlMerge();
+        merge.setRootMatcher(new IdAttributeMatcher());
+        String expected = mergeInMemory(merge, ORIGINAL, PATCH);
+
+        File original = write("original.xml", ORIGINAL);
+        File patch = write("patch.xml", PATCH);
+        merge.merge(new File[]{original, patch}, original);
+        assertEquals(expected, read(original));
+        assertEquals(2, temporaryFolder.getRoot().list().length);
+    }
+
+    /**
+     * Verifies that documents that cannot be streamed are merged in memory.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testFallback() throws Exception
+    {
+        DefaultXmlMerge merge = new DefaultXmlMerge();
+        Format format = Format.getPrettyFormat();
+        format.setLineSeparator(System.getProperty("line.separator"));
+        StreamingXmlMerge streamingMerge = new StreamingXmlMerge(new FullMergeAction(), format);
+        File target = new File(temporaryFolder.getRoot(), "target.xml");
+        File patch = write("patch.xml", PATCH);
+
+        assertTrue(streamingMerge.merge(write("original.xml", ORIGINAL), patch, target));
+        assertEquals(mergeInMemory(merge, ORIGINAL, PATCH), read(target));
+        assertTrue(target.delete());
+
+        String doctype = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<!DOCTYPE root [<!ELEMENT root ANY><!ELEMENT entry ANY><!ATTLIST entry id CDATA #IMPLIED>]>\n"
+                + "<root><entry id=\"a\">a</entry></root>\n";
+        assertFalse(streamingMerge.merge(write("doctype.xml", doctype), patch, target));
+        assertFalse(target.exists());
+        checkMerged(merge, doctype, PATCH);
+
+        String noElements = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<root version=\"1\">text</root>\n";
+        assertFalse(streamingMerge.merge(write("empty.xml", noElements), patch, target));
+        assertFalse(target.exists());
+        checkMerged(merge, noElements, PATCH);
+    }
+
+    /**
+     * Verifies that merges configured with XPath expressions, or with non-standard operations, are performed in
+     * memory.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testXPathConfiguredMergeNotStreamed() throws Exception
+    {
+        DefaultXmlMerge merge = new DefaultXmlMerge();
+        assertTrue(merge.isStreamable());
+
+        DefaultXmlMerge configured = new DefaultXmlMerge();
+        XmlMerge xmlMerge = new ConfigurableXmlMerge(configured, new PropertyXPathConfigurer(
+                "matcher.default=ID_ATTRIBUTE\nxpath.entry=/root/entry\naction.entry=REPLACE\n"));
+        assertFalse(configured.isStreamable());
+        File target = new File(temporaryFolder.getRoot(), "target.xml");
+        xmlMerge.merge(new File[]{write("original.xml", ORIGINAL), write("patch.xml", PATCH)}, target);
+        assertEquals(mergeInMemory(configured, ORIGINAL, PATCH), read(target));
+
+        DefaultXmlMerge skip = new DefaultXmlMerge();
+        skip.setRootMatcher(new SkipMatcher());
+        assertFalse(skip.isStreamable());
+    }
+
+    /**
+     * Verifies that a merge streams the original document, and that the result is the same as that produced by an
+     * in-memory merge.
+     *
+     * @param merge    the merge
+     * @param original the original document
+     * @param patch    the patch
+     * @throws Exception for any error
+     */
+    private void checkStreamed(DefaultXmlMerge merge, String original, String patch) throws Exception
+    {
+        assertTrue(merge.isStreamable());
+        checkMerged(merge, original, patch);
+    }
+
+    /**
+     * Verifies that merging files produces the same result as an in-memory merge.
+     *
+     * @param merge    the merge
+     * @param original the original document
+     * @param patch    the patch
+     * @throws Exception for any error
+     */
+    private void checkMerged(DefaultXmlMerge merge, String original, String patch) throws Exception
+    {
+        File target = new File(temporaryFolder.getRoot(), "target.xml");
+        merge.merge(new File[]{write("original.xml", original), write("patch.xml", patch)}, target);
+        assertEquals(mergeInMemory(merge, original, patch), read(target));
+        assertTrue(target.delete());
+    }
+
+    /**
+     * Merges documents in memory.
+     *
+     * @param merge    the merge
+     * @param original the original document
+     * @param patch    the patch
+     * @return the merged document
+     * @throws Exception for any error
+     */
+    private String mergeInMemory(XmlMerge merge, String original, String patch) throws Exception
+    {
+        InputStream result = merge.merge(new InputStream[]{
+                new ByteArrayInputStream(original.getBytes("UTF-8")),
+                new ByteArrayInputStream(patch.getBytes("UTF-8"))});
+        return read(result);
+    }
+
+    /**
+     * Writes a file to the temporary folder.
+     *
+     * @param name    the file name
+     * @param content the file content
+     * @return the file
+     * @throws IOException for any I/O error
+     */
+    private File write(String name, String content) throws IOException
+    {
+        File file = new File(temporaryFolder.getRoot(), name);
+        OutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(content.getBytes("UTF-8"));
+        }
+        finally
+        {
+            out.close();
+        }
+        return file;
+    }
+
+    /**
+     * Reads a file.
+     *
+     * @param file the file
+     * @return the file content
+     * @throws IOException for any I/O error
+     */
+    private String read(File file) throws IOException
+    {
+        return read(new FileInputStream(file));
+    }
+
+    /**
+     * Reads a stream, closing it.
+     *
+     * @param in the stream
+     * @return the stream content
+     * @throws IOException for any I/O error
+     */
+    private String read(InputStream in) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try
+        {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+            {
+                out.write(buffer, 0, read);
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        return out.toString("UTF-8");
+    }
+}